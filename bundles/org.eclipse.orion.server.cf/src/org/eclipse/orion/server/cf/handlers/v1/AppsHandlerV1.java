@@ -25,6 +25,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
 import org.eclipse.orion.server.cf.CFActivator;
 import org.eclipse.orion.server.cf.CFProtocolConstants;
@@ -202,7 +203,7 @@ public class AppsHandlerV1 extends AbstractRESTHandler<App> {
 		int userTimeout = jsonData.optInt(CFProtocolConstants.KEY_TIMEOUT, 60);
 		final int timeout = (userTimeout > 0) ? userTimeout : 0;
 
-		return new CFJob(request, false) {
+		CFJob job = new CFJob(request, false) {
 
 			@Override
 			protected IStatus performJob() {
@@ -337,6 +338,9 @@ public class AppsHandlerV1 extends AbstractRESTHandler<App> {
 				}
 			}
 		};
+		// deploying and starting an application may take minutes, see TaskJobScheduler
+		job.setPriority(Job.LONG);
+		return job;
 	}
 
 	protected String findCommand(ManifestParseTree manifestTree) throws JSONException {
@@ -258,6 +258,8 @@ public class Activator implements BundleActivator {
 	private void stopTaskService() {
 		ServiceRegistration<ITaskService> reg = taskServiceRegistration;
 		taskServiceRegistration = null;
+		if (taskService instanceof TaskService)
+			((TaskService) taskService).shutdown();
 		taskService = null;
 		if (reg != null)
 			reg.unregister();
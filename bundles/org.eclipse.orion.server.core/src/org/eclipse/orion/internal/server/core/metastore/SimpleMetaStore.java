@@ -27,6 +27,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.orion.server.core.OrionConfiguration;
+import org.eclipse.orion.server.core.PreferenceHelper;
 import org.eclipse.orion.server.core.ServerConstants;
 import org.eclipse.orion.server.core.metastore.IMetaStore;
 import org.eclipse.orion.server.core.metastore.MetadataInfo;
@@ -97,6 +98,11 @@ public class SimpleMetaStore implements IMetaStore {
 	 */
 	private final Map<String, ReadWriteLock> lockMap = Collections.synchronizedMap(new HashMap<String, ReadWriteLock>());
 
+	/**
+	 * A cache of the parsed user, workspace and project metadata files.
+	 */
+	private final SimpleMetaStoreCache metaStoreCache;
+
 	/**
 	 * The root location of this Simple Meta Store.
 	 */
@@ -119,9 +125,24 @@ public class SimpleMetaStore implements IMetaStore {
 	public SimpleMetaStore(File rootLocation) throws CoreException {
 		super();
 		this.rootLocation = rootLocation;
+		this.metaStoreCache = new SimpleMetaStoreCache(PreferenceHelper.getInt(ServerConstants.CONFIG_METASTORE_CACHE_SIZE, SimpleMetaStoreCache.DEFAULT_SIZE));
 		initializeMetaStore(rootLocation);
 	}
 
+	/**
+	 * Update the cache after the metadata file has been successfully created or updated.
+	 * 
+	 * @param parent
+	 *            The parent folder.
+	 * @param name
+	 *            The name of the metadata file.
+	 * @param jsonObject
+	 *            The contents written to the metadata file.
+	 */
+	private void cacheMetaFile(File parent, String name, JSONObject jsonObject) {
+		metaStoreCache.put(SimpleMetaStoreUtil.retrieveMetaFile(parent, name), jsonObject);
+	}
+
 	@Override
 	public void createProject(ProjectInfo projectInfo) throws CoreException {
 		if (projectInfo.getWorkspaceId() == null) {
@@ -180,6 +201,7 @@ public class SimpleMetaStore implements IMetaStore {
 				throw new CoreException(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1,
 						"SimpleMetaStore.createProject: could not create project: " + projectInfo.getFullName() + " for user " + userId, null));
 			}
+			cacheMetaFile(userMetaFolder, projectId, jsonObject);
 
 			// Update the workspace with the new projectName
 			List<String> newProjectNames = new ArrayList<String>();
@@ -238,6 +260,7 @@ public class SimpleMetaStore implements IMetaStore {
 							new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1, "SimpleMetaStore.createUser: could not create user: " + userId, null));
 				}
 			}
+			cacheMetaFile(userMetaFolder, SimpleMetaStore.USER, jsonObject);
 			// update the UniqueId cache
 			if (userPropertyCache.isRegistered(UserConstants.USER_NAME)) {
 				userPropertyCache.add(UserConstants.USER_NAME, userId, userId);
@@ -320,6 +343,7 @@ public class SimpleMetaStore implements IMetaStore {
 							"SimpleMetaStore.createWorkspace: could not create workspace: " + encodedWorkspaceName + " for user " + userInfo.getUserName(),
 							null));
 				}
+				cacheMetaFile(userMetaFolder, workspaceId, jsonObject);
 			}
 
 			// Update the user with the new workspaceId
@@ -358,6 +382,7 @@ public class SimpleMetaStore implements IMetaStore {
 			updateWorkspace(workspaceInfo);
 
 			String projectId = SimpleMetaStoreUtil.encodeProjectIdFromProjectName(projectName);
+			metaStoreCache.remove(SimpleMetaStoreUtil.retrieveMetaFile(userMetaFolder, projectId));
 			if (!SimpleMetaStoreUtil.deleteMetaFile(userMetaFolder, projectId)) {
 				throw new CoreException(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1,
 						"SimpleMetaStore.deleteProject: could not delete project: " + projectName + " for user " + userId, null));
@@ -393,6 +418,7 @@ public class SimpleMetaStore implements IMetaStore {
 			}
 
 			File userMetaFolder = SimpleMetaStoreUtil.readMetaUserFolder(getRootLocation(), userId);
+			metaStoreCache.removeFolder(userMetaFolder);
 			if (!SimpleMetaStoreUtil.deleteMetaFile(userMetaFolder, SimpleMetaStore.USER)) {
 				throw new CoreException(
 						new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1, "SimpleMetaStore.deleteUser: could not delete user: " + userId, null));
@@ -437,6 +463,7 @@ public class SimpleMetaStore implements IMetaStore {
 			updateUser(userInfo);
 
 			// delete the meta file and folder
+			metaStoreCache.remove(SimpleMetaStoreUtil.retrieveMetaFile(userMetaFolder, workspaceId));
 			if (!SimpleMetaStoreUtil.deleteMetaFile(userMetaFolder, workspaceId)) {
 				throw new CoreException(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1,
 						"SimpleMetaStore.deleteWorkspace: could not delete workspace: " + encodedWorkspaceName, null));
@@ -486,6 +513,15 @@ public class SimpleMetaStore implements IMetaStore {
 		return rootLocation;
 	}
 
+	/**
+	 * Get the cache of parsed metadata files, used to report the cache hit and miss counts.
+	 * 
+	 * @return the metadata cache.
+	 */
+	public SimpleMetaStoreCache getMetaStoreCache() {
+		return metaStoreCache;
+	}
+
 	@Override
 	public IFileStore getUserHome(String userId) {
 		IFileStore root = OrionConfiguration.getRootLocation();
@@ -608,6 +644,26 @@ public class SimpleMetaStore implements IMetaStore {
 		return userIds;
 	}
 
+	/**
+	 * Get the contents of the metadata file, using the cache when the file has not changed since it was last read
+	 * or written. The returned JSON is shared with the cache and must not be modified.
+	 * 
+	 * @param parent
+	 *            The parent folder.
+	 * @param name
+	 *            The name of the metadata file.
+	 * @return the JSONObject with the contents of the metadata file, or null if it does not exist or is not valid.
+	 */
+	private JSONObject readCachedMetaFile(File parent, String name) {
+		File metaFile = SimpleMetaStoreUtil.retrieveMetaFile(parent, name);
+		JSONObject jsonObject = metaStoreCache.get(metaFile);
+		if (jsonObject == null) {
+			jsonObject = SimpleMetaStoreUtil.readMetaFile(parent, name);
+			metaStoreCache.put(metaFile, jsonObject);
+		}
+		return jsonObject;
+	}
+
 	@Override
 	public ProjectInfo readProject(String workspaceId, String projectName) throws CoreException {
 		String userId = SimpleMetaStoreUtil.decodeUserIdFromWorkspaceId(workspaceId);
@@ -636,7 +692,7 @@ public class SimpleMetaStore implements IMetaStore {
 				return null;
 			}
 			String projectId = SimpleMetaStoreUtil.encodeProjectIdFromProjectName(projectName);
-			JSONObject jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, projectId);
+			JSONObject jsonObject = readCachedMetaFile(userMetaFolder, projectId);
 			ProjectInfo projectInfo = new ProjectInfo();
 			if (jsonObject == null) {
 				if (SimpleMetaStoreUtil.isMetaFolder(workspaceMetaFolder, projectId) && !SimpleMetaStoreUtil.isMetaFile(userMetaFolder, projectId)) {
@@ -653,7 +709,7 @@ public class SimpleMetaStore implements IMetaStore {
 					lock.readLock().unlock();
 					createProject(projectInfo);
 					lock.readLock().lock();
-					jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, projectId);
+					jsonObject = readCachedMetaFile(userMetaFolder, projectId);
 				} else {
 					// both the project folder and project json do not exist, no project
 					// OR both the project folder and project json exist, but bad project JSON file == no project
@@ -693,7 +749,7 @@ public class SimpleMetaStore implements IMetaStore {
 		try {
 			File userMetaFolder = SimpleMetaStoreUtil.readMetaUserFolder(getRootLocation(), userId);
 			if (SimpleMetaStoreUtil.isMetaFile(userMetaFolder, SimpleMetaStore.USER)) {
-				JSONObject jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, SimpleMetaStore.USER);
+				JSONObject jsonObject = readCachedMetaFile(userMetaFolder, SimpleMetaStore.USER);
 				if (jsonObject == null) {
 					logger.info("SimpleMetaStore.readUser: could not read user " + userId); //$NON-NLS-1$
 					return null;
@@ -711,6 +767,8 @@ public class SimpleMetaStore implements IMetaStore {
 							jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, SimpleMetaStore.USER);
 							if (migration.isMigrationRequired(jsonObject)) {
 								migration.doMigration(getRootLocation(), userMetaFolder);
+								// the migration rewrites the metadata files for the user
+								metaStoreCache.removeFolder(userMetaFolder);
 							} else {
 								logger.info("Migration: Migration no longer required for user " + userId + ", completed in other thread");
 							}
@@ -718,7 +776,7 @@ public class SimpleMetaStore implements IMetaStore {
 							lock.writeLock().unlock();
 						}
 						lock.readLock().lock();
-						jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, SimpleMetaStore.USER);
+						jsonObject = readCachedMetaFile(userMetaFolder, SimpleMetaStore.USER);
 					}
 					userInfo.setUniqueId(jsonObject.getString(MetadataInfo.UNIQUE_ID));
 					userInfo.setUserName(jsonObject.getString(UserConstants.USER_NAME));
@@ -800,7 +858,7 @@ public class SimpleMetaStore implements IMetaStore {
 		ReadWriteLock lock = getLockForUser(userId);
 		lock.readLock().lock();
 		try {
-			jsonObject = SimpleMetaStoreUtil.readMetaFile(userMetaFolder, workspaceId);
+			jsonObject = readCachedMetaFile(userMetaFolder, workspaceId);
 			if (jsonObject == null) {
 				return null;
 			}
@@ -921,6 +979,7 @@ public class SimpleMetaStore implements IMetaStore {
 				IFileStore defaultProjectStore = getDefaultContentLocation(readProject(projectInfo.getWorkspaceId(), projectInfo.getUniqueId()));
 				// full name has changed, this is a project move
 				String newProjectId = SimpleMetaStoreUtil.encodeProjectIdFromProjectName(projectInfo.getFullName());
+				metaStoreCache.remove(SimpleMetaStoreUtil.retrieveMetaFile(userMetaFolder, projectInfo.getUniqueId()));
 				if (!SimpleMetaStoreUtil.moveMetaFile(userMetaFolder, projectInfo.getUniqueId(), newProjectId)) {
 					throw new CoreException(
 							new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1, "SimpleMetaStore.updateProject: could not move project: "
@@ -1007,6 +1066,7 @@ public class SimpleMetaStore implements IMetaStore {
 						"SimpleMetaStore.updateProject: could not update project: " + projectInfo.getFullName() + " for workspace " + encodedWorkspaceName,
 						null));
 			}
+			cacheMetaFile(userMetaFolder, projectInfo.getUniqueId(), jsonObject);
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -1146,6 +1206,8 @@ public class SimpleMetaStore implements IMetaStore {
 				File oldUserMetaFolder = SimpleMetaStoreUtil.readMetaUserFolder(getRootLocation(), oldUserId);
 				File newUserMetaFolder = SimpleMetaStoreUtil.readMetaUserFolder(getRootLocation(), newUserId);
 				SimpleMetaStoreUtil.moveUserMetaFolder(oldUserMetaFolder, newUserMetaFolder);
+				metaStoreCache.removeFolder(oldUserMetaFolder);
+				metaStoreCache.removeFolder(newUserMetaFolder);
 
 				userInfo.setUniqueId(newUserId);
 
@@ -1188,6 +1250,7 @@ public class SimpleMetaStore implements IMetaStore {
 				throw new CoreException(
 						new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1, "SimpleMetaStore.updateUser: could not update user: " + userId, null));
 			}
+			cacheMetaFile(userMetaFolder, SimpleMetaStore.USER, jsonObject);
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -1237,8 +1300,11 @@ public class SimpleMetaStore implements IMetaStore {
 				throw new CoreException(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, 1,
 						"SimpleMetaStore.updateWorkspace: could not update workspace: " + encodedWorkspaceName + " for user " + userId, null));
 			}
+			cacheMetaFile(userMetaFolder, workspaceInfo.getUniqueId(), jsonObject);
 			if (renameUser) {
 				SimpleMetaStoreUtil.moveMetaFile(userMetaFolder, workspaceInfo.getUniqueId(), newWorkspaceId);
+				metaStoreCache.remove(SimpleMetaStoreUtil.retrieveMetaFile(userMetaFolder, workspaceInfo.getUniqueId()));
+				metaStoreCache.remove(SimpleMetaStoreUtil.retrieveMetaFile(userMetaFolder, newWorkspaceId));
 
 				workspaceInfo.setUniqueId(newWorkspaceId);
 			}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.core.metastore;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+/**
+ * A size bounded, least recently used cache of the parsed user, workspace and project metadata files in a
+ * {@code SimpleMetaStore}. Each entry remembers the last modified time and length of the file it was read from
+ * so that a changed file on disk (for example, written by another server sharing the same content) is never
+ * served from the cache.
+ * <p>
+ * The {@link JSONObject} instances in the cache are shared, callers must treat them as read only. The
+ * {@code SimpleMetaStore} keeps the cache up to date by calling {@link #put(File, JSONObject)} after writing a
+ * metadata file and {@link #remove(File)} or {@link #removeFolder(File)} after deleting or moving one.
+ */
+public class SimpleMetaStoreCache {
+
+	/**
+	 * The default maximum number of metadata files kept in the cache.
+	 */
+	public static final int DEFAULT_SIZE = 1000;
+
+	private static class CacheEntry {
+		final JSONObject jsonObject;
+		final long lastModified;
+		final long length;
+
+		CacheEntry(JSONObject jsonObject, long lastModified, long length) {
+			this.jsonObject = jsonObject;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+	private final int maxSize;
+
+	private final Map<String, CacheEntry> cache;
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+	private long evictionCount = 0;
+
+	/**
+	 * Create a cache holding at most the provided number of metadata files.
+	 *
+	 * @param maxSize
+	 *            The maximum number of entries, a value less than one disables the cache.
+	 */
+	public SimpleMetaStoreCache(final int maxSize) {
+		this.maxSize = maxSize;
+		this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				if (size() > maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Get the parsed contents of the metadata file from the cache.
+	 *
+	 * @param metaFile
+	 *            The metadata file.
+	 * @return The cached JSON, or <code>null</code> if the file is not cached or has changed on disk since it was
+	 *         cached.
+	 */
+	public JSONObject get(File metaFile) {
+		if (!isEnabled()) {
+			return null;
+		}
+		String key = metaFile.getPath();
+		long lastModified = metaFile.lastModified();
+		long length = metaFile.length();
+		synchronized (cache) {
+			CacheEntry entry = cache.get(key);
+			if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+				hitCount++;
+				return entry.jsonObject;
+			}
+			if (entry != null) {
+				// the file was changed outside of the meta store
+				cache.remove(key);
+			}
+			missCount++;
+			return null;
+		}
+	}
+
+	public long getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	public long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Add the parsed contents of the metadata file to the cache. The file must exist on disk with the provided
+	 * contents.
+	 *
+	 * @param metaFile
+	 *            The metadata file.
+	 * @param jsonObject
+	 *            The contents of the metadata file, which must not be modified after being cached.
+	 */
+	public void put(File metaFile, JSONObject jsonObject) {
+		if (!isEnabled() || jsonObject == null) {
+			return;
+		}
+		String key = metaFile.getPath();
+		long lastModified = metaFile.lastModified();
+		long length = metaFile.length();
+		synchronized (cache) {
+			if (lastModified == 0L) {
+				// the file does not exist
+				cache.remove(key);
+			} else {
+				cache.put(key, new CacheEntry(jsonObject, lastModified, length));
+			}
+		}
+	}
+
+	/**
+	 * Remove the metadata file from the cache.
+	 *
+	 * @param metaFile
+	 *            The metadata file.
+	 */
+	public void remove(File metaFile) {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (cache) {
+			cache.remove(metaFile.getPath());
+		}
+	}
+
+	/**
+	 * Remove all the metadata files under the provided folder from the cache.
+	 *
+	 * @param metaFolder
+	 *            The metadata folder, usually the folder for a user.
+	 */
+	public void removeFolder(File metaFolder) {
+		if (!isEnabled()) {
+			return;
+		}
+		String prefix = metaFolder.getPath() + File.separator;
+		synchronized (cache) {
+			Iterator<String> iterator = cache.keySet().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().startsWith(prefix)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (cache) {
+			return "SimpleMetaStoreCache [size=" + cache.size() + ", maxSize=" + maxSize + ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+					+ evictionCount + "]"; //$NON-NLS-1$
+		}
+	}
+}
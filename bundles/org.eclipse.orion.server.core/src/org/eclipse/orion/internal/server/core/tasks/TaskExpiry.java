@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.core.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.eclipse.orion.server.core.LogHelper;
+
+/**
+ * Removes the tasks of a {@link TaskService} when they expire.
+ * <p>
+ * Each task has at most one expiry time, scheduling a task again moves it instead of adding another entry. Expiry
+ * times are rounded up to the second and the tasks that expire in the same second share a slot, so that a single
+ * thread wakes up once per slot and removes all its tasks in one batch.
+ * </p>
+ */
+public class TaskExpiry implements Runnable {
+
+	/**
+	 * The length of a slot in milliseconds.
+	 */
+	private static final long RESOLUTION = 1000;
+
+	private final TaskService taskService;
+
+	/**
+	 * The tasks that expire in each slot, ordered by the time of the slot.
+	 */
+	private final TreeMap<Long, Set<TaskDescription>> slots = new TreeMap<Long, Set<TaskDescription>>();
+
+	/**
+	 * The slot of each scheduled task.
+	 */
+	private final Map<TaskDescription, Long> expiries = new HashMap<TaskDescription, Long>();
+
+	private Thread thread;
+
+	private boolean stopped = false;
+
+	TaskExpiry(TaskService taskService) {
+		this.taskService = taskService;
+	}
+
+	/**
+	 * Schedules the removal of a task, replacing its previous expiry time if it has one.
+	 *
+	 * @param td
+	 *            The task.
+	 * @param time
+	 *            The time the task expires, in milliseconds since the epoch.
+	 */
+	synchronized void schedule(TaskDescription td, long time) {
+		Long slot = Long.valueOf((time + RESOLUTION - 1) / RESOLUTION * RESOLUTION);
+		Long previous = expiries.put(td, slot);
+		if (slot.equals(previous)) {
+			return;
+		}
+		if (previous != null) {
+			removeFromSlot(td, previous);
+		}
+		Set<TaskDescription> tasks = slots.get(slot);
+		if (tasks == null) {
+			tasks = new HashSet<TaskDescription>();
+			slots.put(slot, tasks);
+		}
+		tasks.add(td);
+		if (stopped) {
+			return;
+		}
+		if (thread == null) {
+			thread = new Thread(this, "Orion Task Expiry"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		} else if (slot.equals(slots.firstKey())) {
+			// the thread may be waiting for a later slot
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Cancels the removal of a task.
+	 */
+	synchronized void cancel(TaskDescription td) {
+		Long slot = expiries.remove(td);
+		if (slot != null) {
+			removeFromSlot(td, slot);
+		}
+	}
+
+	private void removeFromSlot(TaskDescription td, Long slot) {
+		Set<TaskDescription> tasks = slots.get(slot);
+		if (tasks != null && tasks.remove(td) && tasks.isEmpty()) {
+			slots.remove(slot);
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that are scheduled to expire.
+	 */
+	synchronized int size() {
+		return expiries.size();
+	}
+
+	/**
+	 * Stops removing tasks.
+	 */
+	synchronized void stop() {
+		stopped = true;
+		notifyAll();
+	}
+
+	public void run() {
+		while (true) {
+			List<TaskDescription> expired = new ArrayList<TaskDescription>();
+			synchronized (this) {
+				try {
+					while (!stopped) {
+						if (slots.isEmpty()) {
+							wait();
+							continue;
+						}
+						long delay = slots.firstKey().longValue() - System.currentTimeMillis();
+						if (delay <= 0) {
+							break;
+						}
+						wait(delay);
+					}
+				} catch (InterruptedException e) {
+					stopped = true;
+				}
+				if (stopped) {
+					thread = null;
+					return;
+				}
+				SortedMap<Long, Set<TaskDescription>> due = slots.headMap(Long.valueOf(System.currentTimeMillis() + 1));
+				for (Iterator<Set<TaskDescription>> it = due.values().iterator(); it.hasNext();) {
+					for (TaskDescription td : it.next()) {
+						expiries.remove(td);
+						expired.add(td);
+					}
+					it.remove();
+				}
+			}
+			try {
+				taskService.removeExpiredTasks(expired);
+			} catch (RuntimeException e) {
+				// keep removing the tasks that expire later
+				LogHelper.log(e);
+			}
+		}
+	}
+}
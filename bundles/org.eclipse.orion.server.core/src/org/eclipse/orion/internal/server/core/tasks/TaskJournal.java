@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.core.tasks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.orion.server.core.LogHelper;
+import org.eclipse.orion.server.core.ServerConstants;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An append-only file with the changes of the tasks that are kept after they complete.
+ * <p>
+ * Each line of the journal records the new representation of a task, or its removal. Changes are written in batches
+ * shortly after they are made, and only the last change of a task in a batch is written, so that the many progress
+ * updates of a running task cost a single write. When the journal has grown well beyond the tasks it describes, it is
+ * replaced by a journal with one line per task.
+ * </p>
+ */
+public class TaskJournal {
+
+	private static final String KEY_USER = "User"; //$NON-NLS-1$
+
+	private static final String KEY_ID = "Id"; //$NON-NLS-1$
+
+	private static final String KEY_TASK = "Task"; //$NON-NLS-1$
+
+	/**
+	 * The delay in milliseconds between a change and the write of the batch that contains it.
+	 */
+	private static final long FLUSH_DELAY = 1000;
+
+	/**
+	 * The minimal number of lines of a journal that is compacted.
+	 */
+	private static final int COMPACT_MIN_RECORDS = 1000;
+
+	private final File file;
+
+	private final TaskStore store;
+
+	/**
+	 * The changes that have not been written yet, the last change of each task. A <code>null</code> representation is
+	 * the removal of the task.
+	 */
+	private final Map<TaskDescription, String> pending = new LinkedHashMap<TaskDescription, String>();
+
+	private boolean flushScheduled = false;
+
+	private boolean closed = false;
+
+	/**
+	 * The number of lines in the journal, only accessed while writing.
+	 */
+	private int recordCount = 0;
+
+	private final Job flushJob = new Job("Writing task journal") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			flush();
+			return Status.OK_STATUS;
+		}
+	};
+
+	TaskJournal(File file, TaskStore store) {
+		this.file = file;
+		this.store = store;
+		flushJob.setSystem(true);
+	}
+
+	/**
+	 * Reads the tasks recorded in the journal.
+	 *
+	 * @return The last representation of each task that has not been removed.
+	 */
+	Map<TaskDescription, String> load() {
+		Map<TaskDescription, String> tasks = new LinkedHashMap<TaskDescription, String>();
+		if (!file.exists()) {
+			return tasks;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8")); //$NON-NLS-1$
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					continue;
+				}
+				recordCount++;
+				try {
+					JSONObject record = new JSONObject(line);
+					TaskDescription td = new TaskDescription(record.getString(KEY_USER), record.getString(KEY_ID), true);
+					String representation = record.optString(KEY_TASK, null);
+					if (representation == null) {
+						tasks.remove(td);
+					} else {
+						tasks.put(td, representation);
+					}
+				} catch (JSONException e) {
+					// a line that was not completely written when the server stopped
+					LogHelper.log(new Status(IStatus.WARNING, ServerConstants.PI_SERVER_CORE, "Skipping corrupted line of task journal " + file, e)); //$NON-NLS-1$
+				}
+			}
+		} catch (IOException e) {
+			LogHelper.log(e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					LogHelper.log(e);
+				}
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Records the new representation of a task.
+	 */
+	void put(TaskDescription td, String representation) {
+		record(td, representation);
+	}
+
+	/**
+	 * Records the removal of a task.
+	 */
+	void remove(TaskDescription td) {
+		record(td, null);
+	}
+
+	private void record(TaskDescription td, String representation) {
+		synchronized (pending) {
+			// keep the order of the changes, a task that changes again moves to the end of the batch
+			pending.remove(td);
+			pending.put(td, representation);
+			if (flushScheduled || closed) {
+				return;
+			}
+			flushScheduled = true;
+		}
+		flushJob.schedule(FLUSH_DELAY);
+	}
+
+	/**
+	 * Writes the pending changes to the journal, and compacts the journal if it has grown too much.
+	 *
+	 * @return <code>true</code> if the changes were written, <code>false</code> otherwise.
+	 */
+	synchronized boolean flush() {
+		Map<TaskDescription, String> batch;
+		synchronized (pending) {
+			flushScheduled = false;
+			if (pending.isEmpty()) {
+				return true;
+			}
+			batch = new LinkedHashMap<TaskDescription, String>(pending);
+			pending.clear();
+		}
+		try {
+			write(batch.entrySet(), true);
+			recordCount += batch.size();
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, "Failed to write task journal " + file, e)); //$NON-NLS-1$
+			retry(batch);
+			return false;
+		}
+		Map<TaskDescription, String> tasks = store.getKeptTasks();
+		if (recordCount > COMPACT_MIN_RECORDS && recordCount > 2 * tasks.size()) {
+			compact(tasks);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the changes of a batch that could not be written to the pending changes, and schedules another write.
+	 * The changes made since the batch was taken are newer and are kept.
+	 */
+	private void retry(Map<TaskDescription, String> batch) {
+		synchronized (pending) {
+			Map<TaskDescription, String> newer = new LinkedHashMap<TaskDescription, String>(pending);
+			pending.clear();
+			pending.putAll(batch);
+			for (Map.Entry<TaskDescription, String> entry : newer.entrySet()) {
+				pending.remove(entry.getKey());
+				pending.put(entry.getKey(), entry.getValue());
+			}
+			if (flushScheduled || closed) {
+				return;
+			}
+			flushScheduled = true;
+		}
+		flushJob.schedule(FLUSH_DELAY);
+	}
+
+	/**
+	 * Cancels the scheduled write and writes the pending changes. Changes recorded after the journal is closed are
+	 * only written by an explicit {@link #flush()}.
+	 */
+	void close() {
+		synchronized (pending) {
+			closed = true;
+		}
+		flushJob.cancel();
+		try {
+			flushJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	/**
+	 * Replaces the journal with a journal that has one line for each of the given tasks.
+	 */
+	synchronized void compact(Map<TaskDescription, String> tasks) {
+		File compacted = new File(file.getParentFile(), file.getName() + ".new"); //$NON-NLS-1$
+		try {
+			write(compacted, tasks.entrySet(), false);
+			if (!compacted.renameTo(file)) {
+				// renaming over an existing file fails on some platforms
+				if (!file.delete() || !compacted.renameTo(file)) {
+					throw new IOException("Cannot rename " + compacted + " to " + file); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			recordCount = tasks.size();
+		} catch (IOException e) {
+			LogHelper.log(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, "Failed to compact task journal " + file, e)); //$NON-NLS-1$
+			compacted.delete();
+		}
+	}
+
+	private void write(Collection<Map.Entry<TaskDescription, String>> records, boolean append) throws IOException {
+		write(file, records, append);
+	}
+
+	private static void write(File target, Collection<Map.Entry<TaskDescription, String>> records, boolean append) throws IOException {
+		List<String> lines = new ArrayList<String>(records.size());
+		try {
+			for (Map.Entry<TaskDescription, String> entry : records) {
+				JSONObject record = new JSONObject();
+				record.put(KEY_USER, entry.getKey().getUserId());
+				record.put(KEY_ID, entry.getKey().getTaskId());
+				if (entry.getValue() != null) {
+					record.put(KEY_TASK, entry.getValue());
+				}
+				lines.add(record.toString());
+			}
+		} catch (JSONException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		if (append && target.exists()) {
+			removeIncompleteLine(target);
+		}
+		FileOutputStream stream = new FileOutputStream(target, append);
+		try {
+			Writer writer = new OutputStreamWriter(stream, "UTF-8"); //$NON-NLS-1$
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+			writer.flush();
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Truncates a journal to its last complete line, so that a line that was not completely written is not joined with
+	 * the next line appended.
+	 */
+	private static void removeIncompleteLine(File target) throws IOException {
+		RandomAccessFile journal = new RandomAccessFile(target, "rw"); //$NON-NLS-1$
+		try {
+			long length = journal.length();
+			long end = length;
+			byte[] buffer = new byte[4096];
+			while (end > 0) {
+				int count = (int) Math.min(buffer.length, end);
+				journal.seek(end - count);
+				journal.readFully(buffer, 0, count);
+				int last = count - 1;
+				while (last >= 0 && buffer[last] != '\n') {
+					last--;
+				}
+				end -= count - last - 1;
+				if (last >= 0) {
+					break;
+				}
+			}
+			if (end < length) {
+				journal.setLength(end);
+			}
+		} finally {
+			journal.close();
+		}
+	}
+}
@@ -12,11 +12,9 @@ package org.eclipse.orion.internal.server.core.tasks;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -31,6 +29,7 @@ import org.eclipse.orion.server.core.tasks.ITaskService;
 import org.eclipse.orion.server.core.tasks.TaskDoesNotExistException;
 import org.eclipse.orion.server.core.tasks.TaskInfo;
 import org.eclipse.orion.server.core.tasks.TaskInfo.TaskStatus;
+import org.eclipse.orion.server.core.tasks.TaskNotificationHub;
 import org.eclipse.orion.server.core.tasks.TaskOperationException;
 
 /**
@@ -39,37 +38,13 @@ import org.eclipse.orion.server.core.tasks.TaskOperationException;
 public class TaskService implements ITaskService {
 
 	private TaskStore store;
-	private Timer timer;
+	private TaskExpiry expiry;
 	private static long TEMP_TASK_LIFE = 15 * 60 * 1000; // 15 minutes in milliseconds
-	private Map<TaskDescription, ITaskCanceller> taskCancellers = new HashMap<TaskDescription, ITaskCanceller>();
-
-	private class RemoveTask extends TimerTask {
-
-		private TaskDescription taskDescription;
-		private ITaskService taskService;
-
-		public RemoveTask(TaskDescription taskDescription, ITaskService taskService) {
-			super();
-			this.taskDescription = taskDescription;
-			this.taskService = taskService;
-		}
-
-		@Override
-		public void run() {
-			try {
-				taskService.removeTask(taskDescription.getUserId(), taskDescription.getTaskId(), taskDescription.isKeep());
-			} catch (TaskDoesNotExistException e) {
-				// ignore, task was already removed
-			} catch (TaskOperationException e) {
-				LogHelper.log(e);
-			}
-		}
-
-	}
+	private Map<TaskDescription, ITaskCanceller> taskCancellers = new ConcurrentHashMap<TaskDescription, ITaskCanceller>();
 
 	public TaskService(IPath baseLocation) {
 		store = new TaskStore(baseLocation.toFile());
-		timer = new Timer();
+		expiry = new TaskExpiry(this);
 		cleanUpTasks();
 	}
 
@@ -88,7 +63,7 @@ public class TaskService implements ITaskService {
 							null));
 					updateTask(task);
 				} else if (task.getExpires() != null) {
-					timer.schedule(new RemoveTask(taskDescription, this), new Date(task.getExpires()));
+					expiry.schedule(taskDescription, task.getExpires());
 				}
 			} catch (CorruptedTaskException e) {
 				LogHelper.log(e);
@@ -103,8 +78,11 @@ public class TaskService implements ITaskService {
 			throw new TaskDoesNotExistException(id);
 		if (task.isRunning())
 			throw new TaskOperationException("Cannot remove a task that is running. Try to cancel first");
-		if (!store.removeTask(new TaskDescription(userId, id, keep)))
+		TaskDescription taskDescription = new TaskDescription(userId, id, keep);
+		if (!store.removeTask(taskDescription))
 			throw new TaskOperationException("Task could not be removed");
+		expiry.cancel(taskDescription);
+		TaskNotificationHub.getInstance().taskChanged(userId, id, keep);
 		return task;
 	}
 
@@ -113,6 +91,21 @@ public class TaskService implements ITaskService {
 		internalRemoveTask(userId, id, keep, date);
 	}
 
+	/**
+	 * Removes the tasks that have expired, called by the {@link TaskExpiry}.
+	 */
+	void removeExpiredTasks(List<TaskDescription> taskDescriptions) {
+		for (TaskDescription taskDescription : taskDescriptions) {
+			try {
+				removeTask(taskDescription.getUserId(), taskDescription.getTaskId(), taskDescription.isKeep());
+			} catch (TaskDoesNotExistException e) {
+				// ignore, task was already removed
+			} catch (TaskOperationException e) {
+				LogHelper.log(e);
+			}
+		}
+	}
+
 	public void removeCompletedTasks(String userId) {
 		Date date = new Date();
 		for (TaskInfo task : getTasks(userId)) {
@@ -157,13 +150,14 @@ public class TaskService implements ITaskService {
 		if (!task.isRunning()) {
 			if (task.isKeep()) {
 				if (task.getExpires() != null) {
-					timer.schedule(new RemoveTask(taskDescription, this), new Date(task.getExpires()));
+					expiry.schedule(taskDescription, task.getExpires());
 				}
 			} else {
-				timer.schedule(new RemoveTask(taskDescription, this), TEMP_TASK_LIFE);
+				expiry.schedule(taskDescription, System.currentTimeMillis() + TEMP_TASK_LIFE);
 			}
 			taskCancellers.remove(taskDescription);
 		}
+		TaskNotificationHub.getInstance().taskChanged(task.getUserId(), task.getId(), task.isKeep());
 	}
 
 	public List<TaskInfo> getTasks(String userId) {
@@ -214,4 +208,13 @@ public class TaskService implements ITaskService {
 		updateTask(task);
 		taskCancellers.remove(taskDescription);
 	}
+
+	/**
+	 * Stops removing expired tasks and writes the changes of the kept tasks that have not been written to disk yet,
+	 * called when the server stops.
+	 */
+	public void shutdown() {
+		expiry.stop();
+		store.close();
+	}
 }
@@ -12,12 +12,14 @@ package org.eclipse.orion.internal.server.core.tasks;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -30,10 +32,23 @@ import org.eclipse.orion.server.core.resources.Base64;
  * A facility for reading/writing information about long running tasks. This store will need to be reimplemented by
  * different server implementations if they do not support bare file access. This class intentionally does not
  * understand representations of tasks, to make it more easily pluggable in the future.
+ * <p>
+ * Tasks are kept in memory, in a separate map for each user so that the tasks of different users never wait for each
+ * other. Temporary tasks are never written to disk, the tasks that are kept after they complete are recorded in a
+ * {@link TaskJournal}.
+ * </p>
  */
 public class TaskStore {
 	private final File root;
 	private static final String tempDirectory = "temp"; //$NON-NLS-1$
+	private static final String journalFile = "tasks.journal"; //$NON-NLS-1$
+
+	/**
+	 * The representations of the tasks of each user.
+	 */
+	private final ConcurrentMap<String, ConcurrentMap<TaskDescription, String>> users = new ConcurrentHashMap<String, ConcurrentMap<TaskDescription, String>>();
+
+	private final TaskJournal journal;
 
 	public TaskStore(File root) {
 		this.root = root;
@@ -43,6 +58,11 @@ public class TaskStore {
 				LogHelper.log(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, "Problem creating tasks folder " + root.toString())); //$NON-NLS-1$
 			}
 		}
+		journal = new TaskJournal(new File(root, journalFile), this);
+		for (Map.Entry<TaskDescription, String> entry : journal.load().entrySet()) {
+			getUserTasks(entry.getKey().getUserId()).put(entry.getKey(), entry.getValue());
+		}
+		migrateTaskFiles();
 	}
 
 	private String getUserDirectory(String userId) {
@@ -57,24 +77,53 @@ public class TaskStore {
 		}
 	}
 
+	private ConcurrentMap<TaskDescription, String> getUserTasks(String userId) {
+		ConcurrentMap<TaskDescription, String> tasks = users.get(userId);
+		if (tasks == null) {
+			ConcurrentMap<TaskDescription, String> newTasks = new ConcurrentHashMap<TaskDescription, String>();
+			tasks = users.putIfAbsent(userId, newTasks);
+			if (tasks == null) {
+				tasks = newTasks;
+			}
+		}
+		return tasks;
+	}
+
 	/**
-	 * Returns a string representation of the task with the given id, or <code>null</code> if no such task exists.
-	 * 
-	 * @param td
-	 *            description of the task to read
+	 * Moves the tasks written by previous versions of the store, one file per task, to the journal.
 	 */
-	public synchronized String readTask(TaskDescription td) {
-		File directory = new File(root, getUserDirectory(td.getUserId()));
-		if (!directory.exists())
-			return null;
-		if (!td.isKeep()) {
-			directory = new File(directory, tempDirectory);
-			if (!directory.exists())
-				return null;
+	private void migrateTaskFiles() {
+		File[] children = root.listFiles();
+		if (children == null)
+			return;
+		List<File> userDirectories = new ArrayList<File>();
+		for (File userDirectory : children) {
+			if (!userDirectory.isDirectory())
+				continue;
+			String userId = getUserName(userDirectory.getName());
+			if (userId == null)
+				continue; // this is not a user directory
+			userDirectories.add(userDirectory);
+			for (File taskFile : userDirectory.listFiles()) {
+				if (!taskFile.isFile())
+					continue; // temporary tasks do not survive a restart
+				String representation = readFile(taskFile);
+				if (representation != null)
+					writeTask(new TaskDescription(userId, taskFile.getName(), true), representation);
+			}
 		}
-		File taskFile = new File(directory, td.getTaskId());
-		if (!taskFile.exists())
-			return null;
+		if (userDirectories.isEmpty() || !journal.flush())
+			return;
+		for (File userDirectory : userDirectories) {
+			try {
+				delete(userDirectory);
+			} catch (IOException e) {
+				LogHelper.log(e);
+			}
+		}
+	}
+
+	private String readFile(File taskFile) {
 		StringWriter writer;
 		FileReader reader = null;
 		try {
@@ -96,6 +145,17 @@ public class TaskStore {
 		}
 	}
 
+	/**
+	 * Returns a string representation of the task with the given id, or <code>null</code> if no such task exists.
+	 * 
+	 * @param td
+	 *            description of the task to read
+	 */
+	public String readTask(TaskDescription td) {
+		Map<TaskDescription, String> tasks = users.get(td.getUserId());
+		return tasks == null ? null : tasks.get(td);
+	}
+
 	/**
 	 * Writes task representation
 	 * 
@@ -104,23 +164,16 @@ public class TaskStore {
 	 * @param representation
 	 *            string representation or the task
 	 */
-	public synchronized void writeTask(TaskDescription td, String representation) {
-		try {
-			File directory = new File(root, getUserDirectory(td.getUserId()));
-			if (!directory.exists()) {
-				directory.mkdir();
-			}
-			if (!td.isKeep()) {
-				directory = new File(directory, tempDirectory);
-				if (!directory.exists())
-					directory.mkdir();
-			}
-			File taskFile = new File(directory, td.getTaskId());
-			FileWriter writer = new FileWriter(taskFile);
-			StringReader reader = new StringReader(representation);
-			IOUtilities.pipe(reader, writer, true, true);
-		} catch (IOException e) {
-			LogHelper.log(e);
+	public void writeTask(TaskDescription td, String representation) {
+		ConcurrentMap<TaskDescription, String> tasks = getUserTasks(td.getUserId());
+		if (!td.isKeep()) {
+			tasks.put(td, representation);
+			return;
+		}
+		// the journal must record the changes of a user's tasks in the order they are made
+		synchronized (tasks) {
+			tasks.put(td, representation);
+			journal.put(td, representation);
 		}
 	}
 
@@ -132,19 +185,18 @@ public class TaskStore {
 	 *            description of the task to remove
 	 * @return <code>true</code> if task was removed, <code>false</code> otherwise.
 	 */
-	public synchronized boolean removeTask(TaskDescription td) {
-		File directory = new File(root, getUserDirectory(td.getUserId()));
-		if (!directory.exists())
+	public boolean removeTask(TaskDescription td) {
+		ConcurrentMap<TaskDescription, String> tasks = users.get(td.getUserId());
+		if (tasks == null)
 			return false;
-		if (!td.isKeep()) {
-			directory = new File(directory, tempDirectory);
-			if (!directory.exists())
+		if (!td.isKeep())
+			return tasks.remove(td) != null;
+		synchronized (tasks) {
+			if (tasks.remove(td) == null)
 				return false;
+			journal.remove(td);
+			return true;
 		}
-		File taskFile = new File(directory, td.getTaskId());
-		if (!taskFile.exists())
-			return false;
-		return taskFile.delete();
 	}
 
 	private void delete(File f) throws IOException {
@@ -157,45 +209,15 @@ public class TaskStore {
 
 	}
 
-	public synchronized void removeAllTempTasks() {
-		File[] children = root.listFiles();
-		// listFiles returns null in case of IO exception
-		if (children == null)
-			return;
-		for (File userDirectory : children) {
-			if (userDirectory.isDirectory()) {
-				removeAllTempTasks(userDirectory);
+	public void removeAllTempTasks() {
+		for (Map<TaskDescription, String> tasks : users.values()) {
+			for (TaskDescription td : tasks.keySet()) {
+				if (!td.isKeep())
+					tasks.remove(td);
 			}
 		}
 	}
 
-	private synchronized void removeAllTempTasks(File userDirectory) {
-		if (!userDirectory.exists())
-			return;
-		File directory = new File(userDirectory, tempDirectory);
-		if (!directory.exists())
-			return;
-		try {
-			delete(directory);
-		} catch (IOException e) {
-			LogHelper.log(e);
-		}
-	}
-
-	private List<TaskDescription> internalReadAllTasksDescriptions(File userDirectory) {
-		List<TaskDescription> result = new ArrayList<TaskDescription>();
-		String userId = getUserName(userDirectory.getName());
-		if (userId == null) {
-			return result; // this is not a user directory
-		}
-		for (File taskFile : userDirectory.listFiles()) {
-			if (!taskFile.isFile())
-				continue;
-			result.add(new TaskDescription(userId, taskFile.getName(), true));
-		}
-		return result;
-	}
-
 	/**
 	 * Returns all tasks owned by a given user.
 	 * 
@@ -203,25 +225,52 @@ public class TaskStore {
 	 *            id of a user that is an owner of tasks
 	 * @return a list of tasks tracked for this user
 	 */
-	public synchronized List<TaskDescription> readAllTasks(String userId) {
-		File userDirectory = new File(root, getUserDirectory(userId));
-		if (!userDirectory.exists())
-			return new ArrayList<TaskDescription>();
-
-		return internalReadAllTasksDescriptions(userDirectory);
+	public List<TaskDescription> readAllTasks(String userId) {
+		List<TaskDescription> result = new ArrayList<TaskDescription>();
+		Map<TaskDescription, String> tasks = users.get(userId);
+		if (tasks == null)
+			return result;
+		for (TaskDescription td : tasks.keySet()) {
+			if (td.isKeep())
+				result.add(td);
+		}
+		return result;
 	}
 
-	public synchronized List<TaskDescription> readAllTasks() {
+	public List<TaskDescription> readAllTasks() {
 		List<TaskDescription> result = new ArrayList<TaskDescription>();
-		if (root.exists() && root.isDirectory()) {
-			for (File userDirectory : root.listFiles()) {
-				if (userDirectory.isDirectory()) {
-					result.addAll(internalReadAllTasksDescriptions(userDirectory));
-				}
+		for (String userId : users.keySet()) {
+			result.addAll(readAllTasks(userId));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the representations of all tasks that are kept after they complete.
+	 */
+	Map<TaskDescription, String> getKeptTasks() {
+		Map<TaskDescription, String> result = new HashMap<TaskDescription, String>();
+		for (Map<TaskDescription, String> tasks : users.values()) {
+			for (Map.Entry<TaskDescription, String> entry : tasks.entrySet()) {
+				if (entry.getKey().isKeep())
+					result.put(entry.getKey(), entry.getValue());
 			}
-		} else {
-			LogHelper.log(new Status(IStatus.ERROR, ServerConstants.PI_SERVER_CORE, "Tasks folder is not a directory " + root.toString())); //$NON-NLS-1$
 		}
 		return result;
 	}
+
+	/**
+	 * Writes the changes of the kept tasks that have not been written to disk yet.
+	 */
+	public void flush() {
+		journal.flush();
+	}
+
+	/**
+	 * Writes the changes of the kept tasks that have not been written to disk yet, and stops the job writing them in
+	 * the background.
+	 */
+	public void close() {
+		journal.close();
+	}
 }
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A range of bytes of a response body requested with the HTTP <code>Range</code> header.
+ * <p>
+ * {@link #getRange(HttpServletRequest, long, String)} supports a single range, a request for several ranges is answered
+ * with the whole body as HTTP allows. {@link #getRanges(HttpServletRequest, long, String, long)} supports several
+ * ranges, for responses that can be sent as <code>multipart/byteranges</code>.
+ * </p>
+ */
+public final class ByteRange {
+
+	private static final String BYTES_UNIT = "bytes"; //$NON-NLS-1$
+
+	/**
+	 * The maximum number of ranges of a request, a request for more ranges is answered with the whole body.
+	 */
+	private static final int MAX_RANGES = 16;
+
+	private final long first;
+
+	private final long last;
+
+	private final long totalLength;
+
+	private ByteRange(long first, long last, long totalLength) {
+		this.first = first;
+		this.last = last;
+		this.totalLength = totalLength;
+	}
+
+	/**
+	 * Returns the range requested for a body of the given length.
+	 *
+	 * @param request
+	 *            The HTTP request.
+	 * @param totalLength
+	 *            The length of the whole body.
+	 * @param etag
+	 *            The entity tag of the body, compared with the <code>If-Range</code> header of the request.
+	 * @return The range, or <code>null</code> if the whole body should be sent.
+	 */
+	public static ByteRange getRange(HttpServletRequest request, long totalLength, String etag) {
+		String header = request.getHeader(ProtocolConstants.HEADER_RANGE);
+		if (header == null || !matchesIfRange(request, etag, 0)) {
+			return null;
+		}
+		return parse(header, totalLength);
+	}
+
+	/**
+	 * Returns the ranges requested for a body of the given length.
+	 *
+	 * @param request
+	 *            The HTTP request.
+	 * @param totalLength
+	 *            The length of the whole body.
+	 * @param etag
+	 *            The entity tag of the body, compared with an <code>If-Range</code> header that is an entity tag.
+	 * @param lastModified
+	 *            The time the body was last modified, compared with an <code>If-Range</code> header that is a date, or
+	 *            <code>0</code> if it is not known.
+	 * @return The satisfiable ranges in the order they were requested, a single range that is not satisfiable if none
+	 *         of them is, or <code>null</code> if the whole body should be sent.
+	 */
+	public static List<ByteRange> getRanges(HttpServletRequest request, long totalLength, String etag, long lastModified) {
+		String header = request.getHeader(ProtocolConstants.HEADER_RANGE);
+		if (header == null || !matchesIfRange(request, etag, lastModified)) {
+			return null;
+		}
+		return parseRanges(header, totalLength);
+	}
+
+	/**
+	 * Returns whether the body has not changed since the client got the first part of it, as told by the
+	 * <code>If-Range</code> header.
+	 */
+	private static boolean matchesIfRange(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader(ProtocolConstants.HEADER_IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) { //$NON-NLS-1$ //$NON-NLS-2$
+			// weak entity tags never match
+			return ifRange.equals(etag);
+		}
+		if (lastModified <= 0) {
+			return false;
+		}
+		try {
+			return request.getDateHeader(ProtocolConstants.HEADER_IF_RANGE) / 1000 == lastModified / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Parses the value of a <code>Range</code> header.
+	 *
+	 * @return The range, or <code>null</code> if the header is not a single byte range.
+	 */
+	public static ByteRange parse(String header, long totalLength) {
+		header = header.trim();
+		if (!header.startsWith(BYTES_UNIT + "=") || header.indexOf(',') >= 0) { //$NON-NLS-1$
+			return null;
+		}
+		return parseSpec(header.substring(BYTES_UNIT.length() + 1).trim(), totalLength);
+	}
+
+	/**
+	 * Parses the value of a <code>Range</code> header that may request several ranges.
+	 *
+	 * @return The satisfiable ranges in the order they were requested, a single range that is not satisfiable if none
+	 *         of them is, or <code>null</code> if the header is not valid or requests too many ranges.
+	 */
+	public static List<ByteRange> parseRanges(String header, long totalLength) {
+		header = header.trim();
+		if (!header.startsWith(BYTES_UNIT + "=")) { //$NON-NLS-1$
+			return null;
+		}
+		String[] specs = header.substring(BYTES_UNIT.length() + 1).split(","); //$NON-NLS-1$
+		if (specs.length > MAX_RANGES) {
+			return null;
+		}
+		List<ByteRange> ranges = new ArrayList<ByteRange>(specs.length);
+		ByteRange unsatisfiable = null;
+		for (String spec : specs) {
+			ByteRange range = parseSpec(spec.trim(), totalLength);
+			if (range == null) {
+				return null;
+			}
+			if (range.isSatisfiable()) {
+				ranges.add(range);
+			} else {
+				unsatisfiable = range;
+			}
+		}
+		if (ranges.isEmpty()) {
+			return Collections.singletonList(unsatisfiable);
+		}
+		return ranges;
+	}
+
+	private static ByteRange parseSpec(String spec, long totalLength) {
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		try {
+			String start = spec.substring(0, dash).trim();
+			String end = spec.substring(dash + 1).trim();
+			if (start.length() == 0) {
+				// the last bytes of the body
+				long suffix = Long.parseLong(end);
+				if (suffix < 0) {
+					return null;
+				}
+				return new ByteRange(Math.max(0, totalLength - suffix), totalLength - 1, totalLength);
+			}
+			long first = Long.parseLong(start);
+			long last = end.length() == 0 ? totalLength - 1 : Math.min(Long.parseLong(end), totalLength - 1);
+			if (first < 0 || (end.length() > 0 && Long.parseLong(end) < first)) {
+				return null;
+			}
+			return new ByteRange(first, last, totalLength);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether the range includes at least one byte of the body. A range that cannot be satisfied is answered
+	 * with the status <code>416</code>.
+	 */
+	public boolean isSatisfiable() {
+		return first <= last;
+	}
+
+	public long getFirst() {
+		return first;
+	}
+
+	public long getLast() {
+		return last;
+	}
+
+	/**
+	 * Returns the number of bytes in the range.
+	 */
+	public long getLength() {
+		return isSatisfiable() ? last - first + 1 : 0;
+	}
+
+	/**
+	 * Returns the value of the <code>Content-Range</code> header of the response.
+	 */
+	public String getContentRange() {
+		if (!isSatisfiable()) {
+			return BYTES_UNIT + " */" + totalLength; //$NON-NLS-1$
+		}
+		return BYTES_UNIT + " " + first + "-" + last + "/" + totalLength; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	/**
+	 * Copies the bytes of the range from the stream of the whole body.
+	 *
+	 * @param in
+	 *            A stream positioned at the start of the body.
+	 * @param out
+	 *            The stream to write the range to.
+	 */
+	public void write(InputStream in, OutputStream out) throws IOException {
+		long skip = first;
+		while (skip > 0) {
+			long skipped = in.skip(skip);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			skip -= skipped;
+		}
+		byte[] buffer = new byte[4096];
+		long remaining = getLength();
+		while (remaining > 0) {
+			int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (read < 0) {
+				throw new EOFException();
+			}
+			out.write(buffer, 0, read);
+			remaining -= read;
+		}
+	}
+}
@@ -86,8 +86,14 @@ public class HashUtilities {
 		return bytesToHex(mdbytes);
 	}
 
-	// convert the byte to hex format
-	private static String bytesToHex(byte[] bytes) {
+	/**
+	 * Returns the text representation of a hash, as returned by the other methods of this class.
+	 * 
+	 * @param bytes
+	 *            the hash
+	 * @return the hash in hex format
+	 */
+	public static String bytesToHex(byte[] bytes) {
 		StringBuffer sb = new StringBuffer();
 		for (int i = 0; i < bytes.length; i++) {
 			String hexString = Integer.toHexString(0xFF & bytes[i]);
@@ -63,6 +63,12 @@ public class ProtocolConstants {
 	 */
 	public static final String HEADER_ACCEPT_PATCH = "Accept-Patch"; //$NON-NLS-1$
 
+	/**
+	 * Standard HTTP response header indicating that a server supports requests for a range
+	 * of the response body.
+	 */
+	public static final String HEADER_ACCEPT_RANGES = "Accept-Ranges"; //$NON-NLS-1$
+
 	/**
 	 * Standard HTTP request or response header indicating the content length of the request
 	 * or response body.
@@ -87,6 +93,11 @@ public class ProtocolConstants {
 	 */
 	public static final String HEADER_CREATE_OPTIONS = "X-Create-Options"; //$NON-NLS-1$
 
+	/**
+	 * Standard HTTP request header indicating the range of the response body requested.
+	 */
+	public static final String HEADER_RANGE = "Range"; //$NON-NLS-1$
+
 	/**
 	 * Non-standard HTTP request header indicating a different method overriding the current
 	 * operation.
@@ -98,11 +109,26 @@ public class ProtocolConstants {
 	 */
 	public static final String HEADER_IF_MATCH = "If-Match"; //$NON-NLS-1$
 
+	/**
+	 * Standard HTTP request header indicating that the response body is only requested if the resource has been modified since the given date.
+	 */
+	public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+
 	/**
 	 * Standard HTTP request header indicating that operation must not be executed if the entity tag matches the resource  representation.
 	 */
 	public static final String HEADER_IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
 
+	/**
+	 * Standard HTTP request header indicating that a range is only requested if the entity tag matches the resource representation.
+	 */
+	public static final String HEADER_IF_RANGE = "If-Range"; //$NON-NLS-1$
+
+	/**
+	 * Standard HTTP response header indicating the date the resource was last modified.
+	 */
+	public static final String HEADER_LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+
 	/**
 	 * Standard HTTP response header indicating location of the created resource.
 	 */
@@ -337,6 +363,12 @@ public class ProtocolConstants {
 	 */
 	public static final String PARM_DEPTH = "depth"; //$NON-NLS-1$
 
+	/**
+	 * Query parameter on HTTP requests for JSON resources, indicating that the
+	 * response should be indented to be readable.
+	 */
+	public static final String PARM_PRETTY = "pretty"; //$NON-NLS-1$
+
 	/**
 	 * Query parameter on HTTP requests for files, indicating the source
 	 * of the content to be written.
@@ -122,12 +122,54 @@ public class ServerConstants {
 	 */
 	public static final String CONFIG_FILE_DEFAULT_SCM = "orion.file.defaultSCM"; //$NON-NLS-1$
 
+	/**
+	 * The name of a configuration property specifying the maximum number of files whose content hash ETag is kept in
+	 * memory by the file servlet. The property value is an integer, the default is <code>10000</code> and a value of
+	 * <code>0</code> disables the cache.
+	 */
+	public static final String CONFIG_FILE_ETAG_CACHE_SIZE = "orion.file.etag.cache.size"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying how the file servlet computes the ETag of a file. Values are
+	 * <code>content</code> for a hash of the file contents, or <code>timestamp</code> for a cheaper ETag derived from
+	 * the last modified time and length of the file, which does not detect a change that keeps both. Default is
+	 * <code>content</code>.
+	 */
+	public static final String CONFIG_FILE_ETAG_MODE = "orion.file.etag.mode"; //$NON-NLS-1$
+
 	/**
 	 * The name of the configuration property specifying the root location to use for all Orion content. Must be an
 	 * absolute path on the server file system.
 	 */
 	public static final String CONFIG_FILE_USER_CONTENT = "orion.file.content.location"; //$NON-NLS-1$
 
+	/**
+	 * The name of a configuration property specifying the maximum number of files whose differences are included in a
+	 * git diff. The files of the diff are still listed, and the differences of each file can be requested separately.
+	 * The default is <code>0</code> for no limit.
+	 */
+	public static final String CONFIG_GIT_DIFF_MAX_FILES = "orion.git.diff.maxFiles"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying the size in bytes of the largest file whose differences are
+	 * included line by line in a git diff, larger files are shown as binary files. The default is <code>1048576</code>.
+	 */
+	public static final String CONFIG_GIT_DIFF_MAX_FILE_SIZE = "orion.git.diff.maxFileSize"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying the maximum number of added and deleted files compared with each
+	 * other to detect the files renamed in a git diff, more files are only matched by identical content. The default is
+	 * <code>0</code>, renamed files are not detected.
+	 */
+	public static final String CONFIG_GIT_DIFF_RENAME_LIMIT = "orion.git.diff.renameLimit"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying whether the git working tree status is reused while the files
+	 * of the working tree keep their last modified time and length. The default is <code>true</code>, a value of
+	 * <code>false</code> computes the status on every request.
+	 */
+	public static final String CONFIG_GIT_STATUS_CACHE = "orion.git.status.cache"; //$NON-NLS-1$
+
 	/**
 	 * The name of configuration property specifying the SMTP host for sending mail
 	 */
@@ -138,12 +180,51 @@ public class ServerConstants {
 	 */
 	public static final String CONFIG_MAIL_SMTP_STARTTLS = "mail.smtp.starttls.enable"; //$NON-NLS-1$
 
+	/**
+	 * The name of a configuration property specifying the maximum number of user, workspace and project metadata files
+	 * kept in memory by the simple metadata store. The property value is an integer, the default is <code>1000</code>
+	 * and a value of <code>0</code> disables the cache.
+	 */
+	public static final String CONFIG_METASTORE_CACHE_SIZE = "orion.metastore.cache.size"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying whether the search should use a trigram index of the workspace
+	 * contents to skip files that cannot match. Values are <code>true</code> or <code>false</code>. Default is
+	 * <code>false</code>.
+	 */
+	public static final String CONFIG_SEARCH_INDEX_ENABLED = "orion.search.index.enabled"; //$NON-NLS-1$
+
 	/**
 	 * The name of a configuration property specifying the virtual hosts to use for test sites launched by this server.
 	 * The property value is a comma-separated list of host names.
 	 */
 	public static final String CONFIG_SITE_VIRTUAL_HOSTS = "orion.site.virtualHosts"; //$NON-NLS-1$
 
+	/**
+	 * The name of a configuration property specifying the maximum number of bulk tasks, such as cloning or fetching a
+	 * repository, that run at the same time. Other bulk tasks wait until one of them completes. The default is
+	 * <code>8</code>.
+	 */
+	public static final String CONFIG_TASK_MAX_BULK = "orion.task.maxBulk"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying the maximum number of interactive tasks, such as reading the
+	 * status or the log of a repository, that run at the same time. The default is <code>32</code>.
+	 */
+	public static final String CONFIG_TASK_MAX_INTERACTIVE = "orion.task.maxInteractive"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying the maximum number of bulk tasks of a single user that run at the
+	 * same time. The default is <code>2</code>.
+	 */
+	public static final String CONFIG_TASK_USER_MAX_BULK = "orion.task.user.maxBulk"; //$NON-NLS-1$
+
+	/**
+	 * The name of a configuration property specifying the maximum number of interactive tasks of a single user that run
+	 * at the same time. The default is <code>4</code>.
+	 */
+	public static final String CONFIG_TASK_USER_MAX_INTERACTIVE = "orion.task.user.maxInteractive"; //$NON-NLS-1$
+
 	/**
 	 * The names of configuration properties for the workspace pruning support. When the CONFIG_WORKSPACEPRUNER_ENABLED
 	 * property is set to true the workspacePrunerJob will run periodically.
@@ -23,6 +23,15 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * A job that reports its progress and result as a task of the user it runs for.
+ * <p>
+ * Task jobs are scheduled as interactive jobs by {@link TaskJobScheduler}, which limits how many of them run at the
+ * same time. A job that may run for more than a few seconds, such as cloning a repository or deploying an application,
+ * must call <code>setPriority(Job.LONG)</code> before it is scheduled, so that it runs as a bulk job and does not take
+ * the place of the short requests of its user.
+ * </p>
+ */
 public abstract class TaskJob extends Job implements ITaskCanceller {
 
 	private String userRunningTask;
@@ -36,6 +45,8 @@ public abstract class TaskJob extends Job implements ITaskCanceller {
 		super("Long running task job");
 		this.userRunningTask = userRunningTask;
 		this.keep = keep;
+		// tasks are interactive unless they set a lower priority, see TaskJobScheduler
+		setPriority(Job.SHORT);
 	}
 
 	protected void setFinalMessage(String message) {
@@ -146,6 +157,11 @@ public abstract class TaskJob extends Job implements ITaskCanceller {
 	}
 
 	public boolean cancelTask() {
+		if (TaskJobScheduler.getDefault().cancel(this)) {
+			// the job has been waiting for others to complete, it will never run
+			canceling();
+			return true;
+		}
 		this.cancel();
 		return true;
 	}
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.core.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.orion.server.core.PreferenceHelper;
+import org.eclipse.orion.server.core.ServerConstants;
+
+/**
+ * Schedules the jobs run on behalf of users, so that the long running jobs of one user cannot delay the jobs of the
+ * others.
+ * <p>
+ * Jobs with a priority of {@link Job#LONG} or lower, such as cloning or fetching a repository, are bulk jobs, all other
+ * jobs are interactive. Each kind of job has its own limit of jobs running at the same time, so that interactive jobs
+ * never wait for bulk jobs, and each user has a smaller limit for each kind. The jobs that cannot run yet are queued,
+ * and whenever a job completes the next job of the kind is taken from the user whose last job of the kind started the
+ * longest time ago, so that the users with waiting jobs take turns.
+ * </p>
+ */
+public class TaskJobScheduler {
+
+	/**
+	 * The kind of the interactive jobs.
+	 */
+	public static final int INTERACTIVE = 0;
+
+	/**
+	 * The kind of the bulk jobs.
+	 */
+	public static final int BULK = 1;
+
+	private static final int[] DEFAULT_MAX_RUNNING = {32, 8};
+
+	private static final int[] DEFAULT_USER_MAX_RUNNING = {4, 2};
+
+	private static TaskJobScheduler instance;
+
+	private static final class Entry {
+		final Job job;
+		final String userId;
+		final int kind;
+		final long queued = System.currentTimeMillis();
+
+		Entry(Job job, String userId, int kind) {
+			this.job = job;
+			this.userId = userId;
+			this.kind = kind;
+		}
+	}
+
+	/**
+	 * The jobs of a user that are waiting or running.
+	 */
+	private static final class UserJobs {
+		final List<LinkedList<Entry>> waiting = new ArrayList<LinkedList<Entry>>();
+		final List<Entry> running = new ArrayList<Entry>();
+		final int[] runningCount = new int[2];
+		/**
+		 * The position of the user's last job of each kind among the started jobs of the kind, 0 if none has started.
+		 */
+		final long[] lastStarted = new long[2];
+
+		UserJobs() {
+			waiting.add(new LinkedList<Entry>());
+			waiting.add(new LinkedList<Entry>());
+		}
+
+		boolean isEmpty() {
+			return running.isEmpty() && waiting.get(INTERACTIVE).isEmpty() && waiting.get(BULK).isEmpty();
+		}
+	}
+
+	private final int[] maxRunning = new int[2];
+
+	private final int[] userMaxRunning = new int[2];
+
+	private final Map<String, UserJobs> users = new HashMap<String, UserJobs>();
+
+	/**
+	 * The users with waiting jobs of each kind, in the order they started waiting.
+	 */
+	private final List<LinkedHashSet<String>> turns = new ArrayList<LinkedHashSet<String>>();
+
+	private final Map<Job, Entry> queued = new IdentityHashMap<Job, Entry>();
+
+	private final Map<Job, Entry> running = new IdentityHashMap<Job, Entry>();
+
+	private final int[] runningCount = new int[2];
+
+	private final long[] startedCount = new long[2];
+
+	private final long[] totalWaitTime = new long[2];
+
+	private final long[] maxWaitTime = new long[2];
+
+	private final JobChangeAdapter doneListener = new JobChangeAdapter() {
+		@Override
+		public void done(IJobChangeEvent event) {
+			event.getJob().removeJobChangeListener(this);
+			finished(event.getJob());
+		}
+	};
+
+	/**
+	 * Creates a scheduler with the given limits, the server uses the scheduler returned by {@link #getDefault()}.
+	 *
+	 * @param maxInteractive
+	 *            The number of interactive jobs that run at the same time.
+	 * @param maxBulk
+	 *            The number of bulk jobs that run at the same time.
+	 * @param userMaxInteractive
+	 *            The number of interactive jobs of a user that run at the same time.
+	 * @param userMaxBulk
+	 *            The number of bulk jobs of a user that run at the same time.
+	 */
+	public TaskJobScheduler(int maxInteractive, int maxBulk, int userMaxInteractive, int userMaxBulk) {
+		maxRunning[INTERACTIVE] = Math.max(1, maxInteractive);
+		maxRunning[BULK] = Math.max(1, maxBulk);
+		userMaxRunning[INTERACTIVE] = Math.max(1, userMaxInteractive);
+		userMaxRunning[BULK] = Math.max(1, userMaxBulk);
+		turns.add(new LinkedHashSet<String>());
+		turns.add(new LinkedHashSet<String>());
+	}
+
+	/**
+	 * Returns the scheduler configured with the server configuration.
+	 */
+	public static synchronized TaskJobScheduler getDefault() {
+		if (instance == null) {
+			instance = new TaskJobScheduler(getLimit(ServerConstants.CONFIG_TASK_MAX_INTERACTIVE, DEFAULT_MAX_RUNNING[INTERACTIVE]), getLimit(
+					ServerConstants.CONFIG_TASK_MAX_BULK, DEFAULT_MAX_RUNNING[BULK]), getLimit(ServerConstants.CONFIG_TASK_USER_MAX_INTERACTIVE,
+					DEFAULT_USER_MAX_RUNNING[INTERACTIVE]), getLimit(ServerConstants.CONFIG_TASK_USER_MAX_BULK, DEFAULT_USER_MAX_RUNNING[BULK]));
+		}
+		return instance;
+	}
+
+	private static int getLimit(String key, int defaultValue) {
+		try {
+			return Integer.parseInt(PreferenceHelper.getString(key, Integer.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns the kind of a job, {@link #INTERACTIVE} or {@link #BULK}, given by its priority.
+	 */
+	public static int getKind(Job job) {
+		return job.getPriority() >= Job.LONG ? BULK : INTERACTIVE;
+	}
+
+	/**
+	 * Schedules a job run on behalf of a user. The job is scheduled with the job manager at once if the limits of its
+	 * kind allow it, otherwise it is queued until a job of the same kind completes.
+	 *
+	 * @param job
+	 *            The job, which must not be scheduled already.
+	 * @param userId
+	 *            The id of the user the job is run for.
+	 */
+	public void schedule(Job job, String userId) {
+		Entry entry = new Entry(job, userId, getKind(job));
+		List<Entry> start;
+		synchronized (this) {
+			UserJobs userJobs = users.get(userId);
+			if (userJobs == null) {
+				userJobs = new UserJobs();
+				users.put(userId, userJobs);
+			}
+			userJobs.waiting.get(entry.kind).add(entry);
+			turns.get(entry.kind).add(userId);
+			queued.put(job, entry);
+			start = takeStartable(entry.kind);
+		}
+		start(start);
+	}
+
+	/**
+	 * Removes a job that is waiting to be scheduled.
+	 *
+	 * @return <code>true</code> if the job was waiting, <code>false</code> if it has been scheduled with the job
+	 *         manager already, or was not scheduled with this scheduler.
+	 */
+	public synchronized boolean cancel(Job job) {
+		Entry entry = queued.remove(job);
+		if (entry == null) {
+			return false;
+		}
+		UserJobs userJobs = users.get(entry.userId);
+		LinkedList<Entry> waiting = userJobs.waiting.get(entry.kind);
+		waiting.remove(entry);
+		if (waiting.isEmpty()) {
+			turns.get(entry.kind).remove(entry.userId);
+		}
+		if (userJobs.isEmpty()) {
+			users.remove(entry.userId);
+		}
+		return true;
+	}
+
+	/**
+	 * Takes the jobs of the kind that can be started now, one job of each user in turn.
+	 */
+	private List<Entry> takeStartable(int kind) {
+		List<Entry> start = new ArrayList<Entry>();
+		LinkedHashSet<String> turn = turns.get(kind);
+		while (runningCount[kind] < maxRunning[kind]) {
+			// the user below the limit that has waited the longest since its last job started
+			UserJobs next = null;
+			for (String userId : turn) {
+				UserJobs userJobs = users.get(userId);
+				if (userJobs.runningCount[kind] < userMaxRunning[kind] && (next == null || userJobs.lastStarted[kind] < next.lastStarted[kind])) {
+					next = userJobs;
+				}
+			}
+			if (next == null) {
+				// every user with waiting jobs has reached the limit
+				break;
+			}
+			Entry entry = next.waiting.get(kind).removeFirst();
+			if (next.waiting.get(kind).isEmpty()) {
+				turn.remove(entry.userId);
+			}
+			next.running.add(entry);
+			next.runningCount[kind]++;
+			next.lastStarted[kind] = ++startedCount[kind];
+			queued.remove(entry.job);
+			running.put(entry.job, entry);
+			runningCount[kind]++;
+			long waitTime = System.currentTimeMillis() - entry.queued;
+			totalWaitTime[kind] += waitTime;
+			maxWaitTime[kind] = Math.max(maxWaitTime[kind], waitTime);
+			start.add(entry);
+		}
+		return start;
+	}
+
+	private void start(List<Entry> start) {
+		for (Entry entry : start) {
+			entry.job.addJobChangeListener(doneListener);
+			entry.job.schedule();
+		}
+	}
+
+	private void finished(Job job) {
+		List<Entry> start;
+		synchronized (this) {
+			Entry entry = running.remove(job);
+			if (entry == null) {
+				return;
+			}
+			UserJobs userJobs = users.get(entry.userId);
+			userJobs.running.remove(entry);
+			userJobs.runningCount[entry.kind]--;
+			runningCount[entry.kind]--;
+			if (userJobs.isEmpty()) {
+				users.remove(entry.userId);
+			}
+			start = takeStartable(entry.kind);
+		}
+		start(start);
+	}
+
+	/**
+	 * Returns the number of jobs of a user that are waiting or running and belong to the family.
+	 */
+	public synchronized int getJobCount(String userId, Object family) {
+		UserJobs userJobs = users.get(userId);
+		if (userJobs == null) {
+			return 0;
+		}
+		int count = 0;
+		for (Entry entry : userJobs.running) {
+			if (entry.job.belongsTo(family)) {
+				count++;
+			}
+		}
+		for (LinkedList<Entry> waiting : userJobs.waiting) {
+			for (Entry entry : waiting) {
+				if (entry.job.belongsTo(family)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of jobs of the kind that are waiting to be scheduled.
+	 */
+	public synchronized int getQueueDepth(int kind) {
+		int depth = 0;
+		for (UserJobs userJobs : users.values()) {
+			depth += userJobs.waiting.get(kind).size();
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the number of jobs of the kind that have been scheduled with the job manager and have not completed.
+	 */
+	public synchronized int getRunningCount(int kind) {
+		return runningCount[kind];
+	}
+
+	/**
+	 * Returns the average time in milliseconds the jobs of the kind waited before they were scheduled.
+	 */
+	public synchronized long getAverageWaitTime(int kind) {
+		return startedCount[kind] == 0 ? 0 : totalWaitTime[kind] / startedCount[kind];
+	}
+
+	/**
+	 * Returns the longest time in milliseconds a job of the kind waited before it was scheduled.
+	 */
+	public synchronized long getMaxWaitTime(int kind) {
+		return maxWaitTime[kind];
+	}
+}
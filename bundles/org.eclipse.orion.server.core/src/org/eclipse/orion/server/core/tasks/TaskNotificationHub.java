@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.core.tasks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wakes up the requests waiting for a task to change, so that clients can be told about the progress and the
+ * completion of a task as soon as it happens instead of polling the task service.
+ * <p>
+ * Only the tasks that have a waiting request are tracked, a change of any other task costs a single map lookup.
+ * </p>
+ */
+public class TaskNotificationHub {
+
+	private static final TaskNotificationHub instance = new TaskNotificationHub();
+
+	/**
+	 * The changes of one task, shared by all the subscriptions to it.
+	 */
+	private static final class Channel {
+		long version = 0;
+		int subscriptions = 0;
+	}
+
+	/**
+	 * A request waiting for the changes of a task. The subscription must be closed when the request is done.
+	 */
+	public final class Subscription {
+		private final String key;
+		private final Channel channel;
+		private long version;
+
+		Subscription(String key, Channel channel, long version) {
+			this.key = key;
+			this.channel = channel;
+			this.version = version;
+		}
+
+		/**
+		 * Waits until the task has changed since the subscription was created or since the last call to this method.
+		 *
+		 * @param timeout
+		 *            The maximum time to wait in milliseconds.
+		 * @return <code>true</code> if the task has changed, <code>false</code> if the time elapsed.
+		 * @throws InterruptedException
+		 *             if the thread was interrupted while waiting.
+		 */
+		public boolean await(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			synchronized (channel) {
+				long remaining = timeout;
+				while (channel.version == version && remaining > 0) {
+					channel.wait(remaining);
+					remaining = deadline - System.currentTimeMillis();
+				}
+				boolean changed = channel.version != version;
+				version = channel.version;
+				return changed;
+			}
+		}
+
+		/**
+		 * Stops tracking the task for this subscription.
+		 */
+		public void close() {
+			synchronized (channels) {
+				if (--channel.subscriptions == 0 && channels.get(key) == channel) {
+					channels.remove(key);
+				}
+			}
+		}
+	}
+
+	private final Map<String, Channel> channels = new HashMap<String, Channel>();
+
+	private TaskNotificationHub() {
+		// use getInstance()
+	}
+
+	public static TaskNotificationHub getInstance() {
+		return instance;
+	}
+
+	private static String getKey(String userId, String id, boolean keep) {
+		return userId + '\n' + id + '\n' + keep;
+	}
+
+	/**
+	 * Subscribes to the changes of a task. The subscription should be created before the task is read, so that a change
+	 * in between is not missed.
+	 *
+	 * @param userId
+	 *            The id of the owner of the task.
+	 * @param id
+	 *            The id of the task.
+	 * @param keep
+	 *            Whether the task is kept after it completes.
+	 * @return The subscription.
+	 */
+	public Subscription subscribe(String userId, String id, boolean keep) {
+		String key = getKey(userId, id, keep);
+		Channel channel;
+		synchronized (channels) {
+			channel = channels.get(key);
+			if (channel == null) {
+				channel = new Channel();
+				channels.put(key, channel);
+			}
+			channel.subscriptions++;
+		}
+		synchronized (channel) {
+			return new Subscription(key, channel, channel.version);
+		}
+	}
+
+	/**
+	 * Notifies the subscriptions of a task that it has been updated or removed.
+	 *
+	 * @param userId
+	 *            The id of the owner of the task.
+	 * @param id
+	 *            The id of the task.
+	 * @param keep
+	 *            Whether the task is kept after it completes.
+	 */
+	public void taskChanged(String userId, String id, boolean keep) {
+		Channel channel;
+		synchronized (channels) {
+			channel = channels.get(getKey(userId, id, keep));
+		}
+		if (channel == null) {
+			return;
+		}
+		synchronized (channel) {
+			channel.version++;
+			channel.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the number of tasks that have a subscription.
+	 */
+	public int getSubscribedTaskCount() {
+		synchronized (channels) {
+			return channels.size();
+		}
+	}
+}
@@ -12,8 +12,12 @@ package org.eclipse.orion.server.git;
 
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.orion.internal.server.servlets.file.FilesystemModificationListenerManager;
 import org.eclipse.orion.server.core.IWebResourceDecorator;
 import org.eclipse.orion.server.git.jobs.GitJob;
+import org.eclipse.orion.server.git.servlets.GitBlameCache;
+import org.eclipse.orion.server.git.servlets.GitCloneRegistry;
+import org.eclipse.orion.server.git.servlets.GitDirCache;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 
@@ -34,6 +38,10 @@ public class GitActivator implements BundleActivator {
 	public void start(BundleContext context) throws Exception {
 		context.registerService(IWebResourceDecorator.class, new GitFileDecorator(), null);
 		SshSessionFactory.setInstance(new GitSshSessionFactory());
+		FilesystemModificationListenerManager.getInstance().addListener(GitStatusCache.getInstance());
+		FilesystemModificationListenerManager.getInstance().addListener(GitDirCache.getListener());
+		FilesystemModificationListenerManager.getInstance().addListener(GitRepositoryCache.getListener());
+		FilesystemModificationListenerManager.getInstance().addListener(GitCloneRegistry.getListener());
 	}
 
 	/*
@@ -46,5 +54,17 @@ public class GitActivator implements BundleActivator {
 		Job.getJobManager().cancel(GitJob.FAMILY);
 		// TODO might have to use something to cancel this join
 		Job.getJobManager().join(GitJob.FAMILY, null);
+		FilesystemModificationListenerManager.getInstance().removeListener(GitStatusCache.getInstance());
+		FilesystemModificationListenerManager.getInstance().removeListener(GitDirCache.getListener());
+		FilesystemModificationListenerManager.getInstance().removeListener(GitRepositoryCache.getListener());
+		FilesystemModificationListenerManager.getInstance().removeListener(GitCloneRegistry.getListener());
+		GitDirCache.clear();
+		GitCloneRegistry.clear();
+		GitStatusCache.getInstance().clear();
+		GitRefCache.clear();
+		GitBlameCache.clear();
+		GitAheadBehindCache.clear();
+		GitDiffCache.clear();
+		GitRepositoryCache.clear();
 	}
 }
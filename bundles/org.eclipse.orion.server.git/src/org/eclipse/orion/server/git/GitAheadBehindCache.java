@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.RevWalkUtils;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * A cache of the merge base of two commits and of the number of commits each of them is ahead of the other, so that
+ * comparing a branch with its remote tracking branch does not walk their histories for every request.
+ * <p>
+ * The counts of two commits never change, so they are keyed by the repository and the commit pair. When the commits
+ * are the tips of named branches, the last pair of the branches is also remembered, and when one of the tips
+ * fast-forwards the counts are computed from the previous pair by walking the new commits only.
+ * </p>
+ */
+public class GitAheadBehindCache {
+
+	private static final int MAX_SIZE = 1000;
+
+	/**
+	 * The merge base of two commits and the number of commits reachable from each of them but not from the merge base.
+	 */
+	public static final class Counts {
+		private final ObjectId mergeBase;
+		private final int aheadCount;
+		private final int behindCount;
+
+		Counts(ObjectId mergeBase, int aheadCount, int behindCount) {
+			this.mergeBase = mergeBase;
+			this.aheadCount = aheadCount;
+			this.behindCount = behindCount;
+		}
+
+		/**
+		 * Returns the merge base, or <code>null</code> if the commits have no common history.
+		 */
+		public ObjectId getMergeBase() {
+			return mergeBase;
+		}
+
+		/**
+		 * Returns the number of commits of the <code>to</code> commit that are not in the merge base.
+		 */
+		public int getAheadCount() {
+			return aheadCount;
+		}
+
+		/**
+		 * Returns the number of commits of the <code>from</code> commit that are not in the merge base.
+		 */
+		public int getBehindCount() {
+			return behindCount;
+		}
+	}
+
+	private static final class Key {
+		final File gitDir;
+		final ObjectId to;
+		final ObjectId from;
+
+		Key(File gitDir, AnyObjectId to, AnyObjectId from) {
+			this.gitDir = gitDir;
+			this.to = to.copy();
+			this.from = from.copy();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return gitDir.equals(other.gitDir) && to.equals(other.to) && from.equals(other.from);
+		}
+
+		@Override
+		public int hashCode() {
+			return (gitDir.hashCode() * 31 + to.hashCode()) * 31 + from.hashCode();
+		}
+	}
+
+	private static final Map<Key, Counts> cache = new LinkedHashMap<Key, Counts>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Counts> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	/**
+	 * The last commit pair of each pair of branches.
+	 */
+	private static final Map<String, Key> branchPairs = new LinkedHashMap<String, Key>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Key> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	private static long incrementalCount = 0;
+
+	/**
+	 * Returns the merge base of the commits and the number of commits each of them is ahead of the other.
+	 *
+	 * @param db
+	 *            A repository.
+	 * @param toName
+	 *            The full name of the ref of the <code>to</code> commit, or <code>null</code> if it is not a ref.
+	 * @param to
+	 *            A commit.
+	 * @param fromName
+	 *            The full name of the ref of the <code>from</code> commit, or <code>null</code> if it is not a ref.
+	 * @param from
+	 *            The commit to compare with.
+	 * @return The counts.
+	 * @throws IOException
+	 *             if the commits could not be read.
+	 */
+	public static Counts getCounts(Repository db, String toName, ObjectId to, String fromName, ObjectId from) throws IOException {
+		File gitDir = db.getDirectory().getAbsoluteFile();
+		Key key = new Key(gitDir, to, from);
+		String branchPair = toName != null && fromName != null ? gitDir.getPath() + '\n' + toName + '\n' + fromName : null;
+		Key previous = null;
+		Counts previousCounts = null;
+		synchronized (cache) {
+			Counts counts = cache.get(key);
+			if (counts != null) {
+				hitCount++;
+				if (branchPair != null) {
+					branchPairs.put(branchPair, key);
+				}
+				return counts;
+			}
+			missCount++;
+			if (branchPair != null) {
+				previous = branchPairs.get(branchPair);
+				previousCounts = previous != null ? cache.get(previous) : null;
+			}
+		}
+
+		Counts counts = null;
+		RevWalk walk = new RevWalk(db);
+		try {
+			if (previousCounts != null && previousCounts.mergeBase != null) {
+				if (previous.from.equals(from)) {
+					counts = fastForward(walk, previousCounts, previous.to, to, from, true);
+				} else if (previous.to.equals(to)) {
+					counts = fastForward(walk, previousCounts, previous.from, from, to, false);
+				}
+			}
+			if (counts == null) {
+				walk.reset();
+				counts = compute(walk, to, from);
+			} else {
+				synchronized (cache) {
+					incrementalCount++;
+				}
+			}
+		} finally {
+			walk.dispose();
+		}
+
+		synchronized (cache) {
+			cache.put(key, counts);
+			if (branchPair != null) {
+				branchPairs.put(branchPair, key);
+			}
+		}
+		return counts;
+	}
+
+	private static Counts compute(RevWalk walk, ObjectId to, ObjectId from) throws IOException {
+		walk.setRevFilter(RevFilter.MERGE_BASE);
+		RevCommit toRevCommit = walk.lookupCommit(to);
+		walk.markStart(toRevCommit);
+		RevCommit fromRevCommit = walk.lookupCommit(from);
+		walk.markUninteresting(fromRevCommit);
+		RevCommit next = walk.next();
+		walk.reset();
+		walk.setRevFilter(RevFilter.ALL);
+		int aheadCount = RevWalkUtils.count(walk, toRevCommit, next);
+		int behindCount = RevWalkUtils.count(walk, fromRevCommit, next);
+		return new Counts(next != null ? next.copy() : null, aheadCount, behindCount);
+	}
+
+	/**
+	 * Returns the counts of a pair where one tip has moved since the previous pair, if the tip has fast-forwarded and
+	 * none of the new commits is reachable from the other tip, so that the merge base has not changed.
+	 *
+	 * @param ahead
+	 *            <code>true</code> if the <code>to</code> tip has moved, <code>false</code> if the <code>from</code> tip
+	 *            has.
+	 * @return The counts, or <code>null</code> if they have to be computed from scratch.
+	 */
+	private static Counts fastForward(RevWalk walk, Counts previous, ObjectId oldTip, ObjectId newTip, ObjectId otherTip, boolean ahead)
+			throws IOException {
+		RevCommit oldCommit = walk.lookupCommit(oldTip);
+		RevCommit newCommit = walk.lookupCommit(newTip);
+		walk.setRevFilter(RevFilter.MERGE_BASE);
+		walk.markStart(oldCommit);
+		walk.markStart(newCommit);
+		RevCommit base = walk.next();
+		if (base == null || !base.equals(oldCommit)) {
+			return null;
+		}
+		walk.reset();
+		walk.setRevFilter(RevFilter.ALL);
+		int added = RevWalkUtils.count(walk, newCommit, oldCommit);
+		walk.reset();
+		walk.markStart(newCommit);
+		walk.markUninteresting(oldCommit);
+		walk.markUninteresting(walk.lookupCommit(otherTip));
+		int notMerged = 0;
+		while (walk.next() != null) {
+			notMerged++;
+		}
+		if (notMerged != added) {
+			// the other tip has been merged, which changes the merge base
+			return null;
+		}
+		if (ahead) {
+			return new Counts(previous.mergeBase, previous.aheadCount + added, previous.behindCount);
+		}
+		return new Counts(previous.mergeBase, previous.aheadCount, previous.behindCount + added);
+	}
+
+	/**
+	 * Remove all counts from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+			branchPairs.clear();
+		}
+	}
+
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * Returns the number of misses whose counts were computed from the previous pair of the same branches.
+	 */
+	public static long getIncrementalCount() {
+		synchronized (cache) {
+			return incrementalCount;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * A cache of the files changed between two trees, so that the list of changes of a commit or of a comparison is not
+ * computed again when it is shown again.
+ * <p>
+ * Trees never change, so the changes are keyed by the repository, the ids of the two trees and the options of the
+ * comparison, such as the paths it is limited to.
+ * </p>
+ */
+public class GitDiffCache {
+
+	private static final int MAX_SIZE = 100;
+
+	private static final Map<String, List<DiffEntry>> cache = new LinkedHashMap<String, List<DiffEntry>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<DiffEntry>> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	private static String getKey(Repository db, AnyObjectId oldTree, AnyObjectId newTree, String options) {
+		return db.getDirectory().getAbsolutePath() + '\n' + oldTree.name() + '\n' + newTree.name() + '\n' + options;
+	}
+
+	/**
+	 * Returns the files changed between the trees, or <code>null</code> if the changes are not in the cache.
+	 *
+	 * @param options
+	 *            The options of the comparison, such as the paths it is limited to.
+	 */
+	public static List<DiffEntry> get(Repository db, AnyObjectId oldTree, AnyObjectId newTree, String options) {
+		String key = getKey(db, oldTree, newTree, options);
+		synchronized (cache) {
+			List<DiffEntry> entries = cache.get(key);
+			if (entries != null) {
+				hitCount++;
+			} else {
+				missCount++;
+			}
+			return entries;
+		}
+	}
+
+	/**
+	 * Add the files changed between two trees to the cache.
+	 *
+	 * @return The changes as kept in the cache, a list that is not modifiable.
+	 */
+	public static List<DiffEntry> put(Repository db, AnyObjectId oldTree, AnyObjectId newTree, String options, List<DiffEntry> entries) {
+		List<DiffEntry> result = Collections.unmodifiableList(entries);
+		synchronized (cache) {
+			cache.put(getKey(db, oldTree, newTree, options), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Remove all changes from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+}
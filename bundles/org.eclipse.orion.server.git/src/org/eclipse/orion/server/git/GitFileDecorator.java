@@ -48,6 +48,7 @@ import org.eclipse.orion.server.git.objects.RemoteBranch;
 import org.eclipse.orion.server.git.objects.Status;
 import org.eclipse.orion.server.git.objects.Tag;
 import org.eclipse.orion.server.git.objects.Tree;
+import org.eclipse.orion.server.git.servlets.GitDirCache;
 import org.eclipse.orion.server.git.servlets.GitServlet;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.json.JSONArray;
@@ -256,7 +257,7 @@ public class GitFileDecorator implements IWebResourceDecorator {
 		if (gitDir == null)
 			return null;
 
-		Repository db = FileRepositoryBuilder.create(gitDir);
+		Repository db = GitRepositoryCache.getRepository(gitDir);
 		return db;
 	}
 
@@ -285,6 +286,7 @@ public class GitFileDecorator implements IWebResourceDecorator {
 				try {
 					repo = FileRepositoryBuilder.create(gitDir);
 					repo.create();
+					GitDirCache.invalidate(localFile);
 					// we need to perform an initial commit to workaround JGit bug 339610.
 					Git git = Git.wrap(repo);
 					git.add().addFilepattern(".").call(); //$NON-NLS-1$
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * A cache of the branches and tags of repositories, so that decorating the commits of a log with their branches and
+ * tags does not read and peel all refs of the repository for every request.
+ * <p>
+ * A snapshot of the refs is used as long as the <code>HEAD</code> and <code>packed-refs</code> files and the folders
+ * holding the loose refs have not been modified since it was taken. Git and JGit update a loose ref by renaming a lock
+ * file over it, which modifies the folder holding it, so checking the folders is enough to find any change of the refs.
+ * </p>
+ */
+public class GitRefCache {
+
+	private static final int MAX_SIZE = 100;
+
+	/**
+	 * A file modified less than this many milliseconds before the snapshot is taken could be modified again without
+	 * changing its last modified time, so the snapshot is not reused.
+	 */
+	private static final long RACY_INTERVAL = 2000;
+
+	private static final Comparator<Ref> NAME_COMPARATOR = new Comparator<Ref>() {
+		@Override
+		public int compare(Ref o1, Ref o2) {
+			return o1.getName().compareTo(o2.getName());
+		}
+	};
+
+	/**
+	 * The branches and tags of a repository at a point in time. The lists and maps of a snapshot are not modifiable.
+	 */
+	public static final class Snapshot {
+		private final List<Ref> branches;
+		private final List<Ref> remoteBranches;
+		private final List<Ref> allBranches;
+		private final List<Ref> tags;
+		private final Map<ObjectId, List<String>> commitToBranches;
+		private final Map<ObjectId, Map<String, Ref>> commitToTags;
+
+		Snapshot(Repository db) throws IOException {
+			List<Ref> branches = new ArrayList<Ref>(db.getRefDatabase().getRefs(Constants.R_HEADS).values());
+			Ref head = db.getRef(Constants.HEAD);
+			if (head != null && head.getLeaf().getName().equals(Constants.HEAD)) {
+				// a detached HEAD is listed as a branch, as the branch list command does
+				branches.add(new ObjectIdRef.Unpeeled(Ref.Storage.LOOSE, head.getName(), head.getObjectId()));
+			}
+			Collections.sort(branches, NAME_COMPARATOR);
+			List<Ref> remoteBranches = new ArrayList<Ref>(db.getRefDatabase().getRefs(Constants.R_REMOTES).values());
+			Collections.sort(remoteBranches, NAME_COMPARATOR);
+			List<Ref> allBranches = new ArrayList<Ref>(branches);
+			allBranches.addAll(remoteBranches);
+			Collections.sort(allBranches, NAME_COMPARATOR);
+
+			Map<ObjectId, List<String>> commitToBranches = new HashMap<ObjectId, List<String>>();
+			for (Ref branch : allBranches) {
+				ObjectId commitId = branch.getLeaf().getObjectId();
+				List<String> names = commitToBranches.get(commitId);
+				if (names == null) {
+					names = new ArrayList<String>(1);
+					commitToBranches.put(commitId, names);
+				}
+				names.add(branch.getName());
+			}
+			for (Map.Entry<ObjectId, List<String>> entry : commitToBranches.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+
+			List<Ref> tags = new ArrayList<Ref>();
+			Map<ObjectId, Map<String, Ref>> commitToTags = new HashMap<ObjectId, Map<String, Ref>>();
+			for (Map.Entry<String, Ref> entry : new TreeMap<String, Ref>(db.getTags()).entrySet()) {
+				Ref tag = db.peel(entry.getValue());
+				tags.add(tag);
+				ObjectId commitId = tag.getPeeledObjectId();
+				if (commitId == null)
+					commitId = tag.getObjectId();
+				Map<String, Ref> commitTags = commitToTags.get(commitId);
+				if (commitTags == null) {
+					commitTags = new LinkedHashMap<String, Ref>(2);
+					commitToTags.put(commitId, commitTags);
+				}
+				commitTags.put(entry.getKey(), tag);
+			}
+			for (Map.Entry<ObjectId, Map<String, Ref>> entry : commitToTags.entrySet()) {
+				entry.setValue(Collections.unmodifiableMap(entry.getValue()));
+			}
+
+			this.branches = Collections.unmodifiableList(branches);
+			this.remoteBranches = Collections.unmodifiableList(remoteBranches);
+			this.allBranches = Collections.unmodifiableList(allBranches);
+			this.tags = Collections.unmodifiableList(tags);
+			this.commitToBranches = commitToBranches;
+			this.commitToTags = commitToTags;
+		}
+
+		/**
+		 * Returns the local branches sorted by name, as listed by <code>git.branchList()</code>.
+		 */
+		public List<Ref> getBranches() {
+			return branches;
+		}
+
+		/**
+		 * Returns the remote tracking branches sorted by name.
+		 */
+		public List<Ref> getRemoteBranches() {
+			return remoteBranches;
+		}
+
+		/**
+		 * Returns the local and remote tracking branches sorted by name, as listed by
+		 * <code>git.branchList().setListMode(ListMode.ALL)</code>.
+		 */
+		public List<Ref> getAllBranches() {
+			return allBranches;
+		}
+
+		/**
+		 * Returns the peeled tags sorted by name.
+		 */
+		public List<Ref> getTags() {
+			return tags;
+		}
+
+		/**
+		 * Returns the full names of the local and remote tracking branches pointing at the commit, or an empty list.
+		 */
+		public List<String> getBranches(ObjectId commitId) {
+			List<String> names = commitToBranches.get(commitId);
+			return names != null ? names : Collections.<String> emptyList();
+		}
+
+		/**
+		 * Returns the peeled tags pointing at the commit, by their short names, or an empty map.
+		 */
+		public Map<String, Ref> getTags(ObjectId commitId) {
+			Map<String, Ref> commitTags = commitToTags.get(commitId);
+			return commitTags != null ? commitTags : Collections.<String, Ref> emptyMap();
+		}
+	}
+
+	private static class CacheEntry {
+		final Snapshot snapshot;
+		final List<Long> signature;
+
+		CacheEntry(Snapshot snapshot, List<Long> signature) {
+			this.snapshot = snapshot;
+			this.signature = signature;
+		}
+	}
+
+	private static final Map<File, CacheEntry> cache = new LinkedHashMap<File, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CacheEntry> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	/**
+	 * Returns the branches and tags of the repository, from the cache when the refs have not changed since they were
+	 * read.
+	 *
+	 * @param db
+	 *            A repository.
+	 * @return A snapshot of the refs of the repository.
+	 * @throws IOException
+	 *             if the refs could not be read.
+	 */
+	public static Snapshot getSnapshot(Repository db) throws IOException {
+		File key = db.getDirectory().getAbsoluteFile();
+		long now = System.currentTimeMillis();
+		List<Long> signature = new ArrayList<Long>();
+		long lastModified = sign(db.getDirectory(), signature);
+		synchronized (cache) {
+			CacheEntry entry = cache.get(key);
+			if (entry != null && entry.signature.equals(signature)) {
+				hitCount++;
+				return entry.snapshot;
+			}
+			missCount++;
+		}
+		Snapshot snapshot = new Snapshot(db);
+		synchronized (cache) {
+			if (now - lastModified < RACY_INTERVAL) {
+				// a change in the same interval would not be detected
+				cache.remove(key);
+			} else {
+				cache.put(key, new CacheEntry(snapshot, signature));
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Adds the last modified time and length of the files holding the refs of the repository to the signature.
+	 *
+	 * @return the latest last modified time.
+	 */
+	private static long sign(File gitDir, List<Long> signature) {
+		long lastModified = 0;
+		for (String name : new String[] {Constants.HEAD, Constants.PACKED_REFS}) {
+			File file = new File(gitDir, name);
+			signature.add(file.lastModified());
+			signature.add(file.length());
+			lastModified = Math.max(lastModified, file.lastModified());
+		}
+		return Math.max(lastModified, signFolder(new File(gitDir, Constants.R_REFS), signature));
+	}
+
+	private static long signFolder(File folder, List<Long> signature) {
+		long lastModified = folder.lastModified();
+		signature.add(lastModified);
+		File[] children = folder.listFiles();
+		if (children == null) {
+			return lastModified;
+		}
+		// the order of the children is not specified, but does not change while the folder does not
+		for (File child : children) {
+			if (child.isDirectory()) {
+				lastModified = Math.max(lastModified, signFolder(child, signature));
+			}
+		}
+		return lastModified;
+	}
+
+	/**
+	 * Remove the refs of all repositories from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+}
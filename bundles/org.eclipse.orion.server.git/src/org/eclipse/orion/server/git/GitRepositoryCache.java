@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.internal.server.servlets.file.FileStoreNotificationWrapper;
+
+/**
+ * A size bounded cache of open repositories, so that the handlers and jobs working on the same clone share the
+ * pack indexes, refs and configuration that JGit has already read, instead of opening the repository for every
+ * request.
+ * <p>
+ * The cache holds one use of each repository, and {@link #getRepository(File)} adds another one that the caller
+ * releases with {@link Repository#close()} as before. A repository is closed once it has been removed from the cache
+ * and the last caller has closed it. Repositories that are not used for a while, or whose git directory no longer
+ * exists, are removed from the cache. A clone that is deleted or moved must be removed with {@link #invalidate(File)},
+ * which the {@link #getListener() listener} does for the folders deleted, moved or overwritten through the file API.
+ * </p>
+ */
+public class GitRepositoryCache {
+
+	private static final int MAX_SIZE = 100;
+
+	/**
+	 * The time in milliseconds a repository is kept in the cache after its last use.
+	 */
+	private static final long IDLE_TIMEOUT = 5 * 60 * 1000;
+
+	private static final long EVICTION_INTERVAL = 60 * 1000;
+
+	private static class CacheEntry {
+		final Repository repository;
+		long lastUsed;
+
+		CacheEntry(Repository repository) {
+			this.repository = repository;
+		}
+	}
+
+	private static final Map<File, CacheEntry> cache = new LinkedHashMap<File, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CacheEntry> eldest) {
+			if (size() > MAX_SIZE) {
+				evictionCount++;
+				eldest.getValue().repository.close();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	private static long evictionCount = 0;
+
+	private static final Job evictionJob = new Job("Orion Git Repository Cache") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (evictIdle(System.currentTimeMillis() - IDLE_TIMEOUT)) {
+				schedule(EVICTION_INTERVAL);
+			}
+			return Status.OK_STATUS;
+		}
+	};
+
+	private static final IFileStoreModificationListener listener = new IFileStoreModificationListener() {
+		@Override
+		public void changed(ChangeEvent event) {
+			switch (event.getChangeType()) {
+				case MOVE :
+					invalidate(event.getInitialLocation());
+					invalidate(event.getModifiedItem());
+					break;
+				case DELETE :
+				case COPY_INTO :
+					// a copy may overwrite a clone at the destination
+					invalidate(event.getModifiedItem());
+					break;
+				default :
+					// writing files or creating folders does not replace a repository
+			}
+		}
+	};
+
+	static {
+		evictionJob.setSystem(true);
+		evictionJob.setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Returns the repository with the git directory, from the cache if it is already open. The caller must
+	 * {@link Repository#close()} the repository when done with it, and must not use it afterwards.
+	 *
+	 * @param gitDir
+	 *            The git directory of the repository.
+	 * @return The repository.
+	 * @throws IOException
+	 *             if the repository could not be opened.
+	 */
+	public static Repository getRepository(File gitDir) throws IOException {
+		File key = gitDir.getAbsoluteFile();
+		if (!key.isDirectory()) {
+			// not a repository that can be shared, let the builder handle it as before
+			synchronized (cache) {
+				removeEntry(key);
+			}
+			return FileRepositoryBuilder.create(key);
+		}
+		synchronized (cache) {
+			Repository repository = use(key);
+			if (repository != null) {
+				hitCount++;
+				return repository;
+			}
+			missCount++;
+		}
+		// open the repository outside of the lock, another thread may be opening it too
+		Repository opened = FileRepositoryBuilder.create(key);
+		synchronized (cache) {
+			Repository repository = use(key);
+			if (repository != null) {
+				opened.close();
+				return repository;
+			}
+			boolean wasEmpty = cache.isEmpty();
+			cache.put(key, new CacheEntry(opened));
+			if (wasEmpty) {
+				evictionJob.schedule(EVICTION_INTERVAL);
+			}
+			return use(key);
+		}
+	}
+
+	private static Repository use(File key) {
+		CacheEntry entry = cache.get(key);
+		if (entry == null) {
+			return null;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		entry.repository.incrementOpen();
+		return entry.repository;
+	}
+
+	private static void removeEntry(File key) {
+		CacheEntry entry = cache.remove(key);
+		if (entry != null) {
+			entry.repository.close();
+		}
+	}
+
+	/**
+	 * Remove the repositories with a git directory in the folder, or the folder itself, from the cache. Must be
+	 * called before a clone is deleted, so that the files of the repository are not kept open.
+	 *
+	 * @param folder
+	 *            The git directory of a repository, or a folder containing repositories.
+	 */
+	public static void invalidate(File folder) {
+		File key = folder.getAbsoluteFile();
+		String prefix = key.getPath() + File.separator;
+		synchronized (cache) {
+			Iterator<Map.Entry<File, CacheEntry>> iterator = cache.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<File, CacheEntry> entry = iterator.next();
+				if (entry.getKey().equals(key) || entry.getKey().getPath().startsWith(prefix)) {
+					iterator.remove();
+					entry.getValue().repository.close();
+				}
+			}
+		}
+	}
+
+	private static void invalidate(IFileStore store) {
+		if (store == null) {
+			return;
+		}
+		try {
+			File file = FileStoreNotificationWrapper.unwrap(store).toLocalFile(EFS.NONE, null);
+			if (file != null) {
+				invalidate(file);
+			}
+		} catch (CoreException e) {
+			// not a local file, cannot be a cached repository
+		}
+	}
+
+	/**
+	 * Returns the listener removing the repositories in the folders deleted or moved through the file API from the
+	 * cache.
+	 */
+	public static IFileStoreModificationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Remove the repositories not used since the provided time from the cache.
+	 *
+	 * @return <code>true</code> if there are repositories left in the cache.
+	 */
+	static boolean evictIdle(long usedBefore) {
+		List<Repository> evicted = new ArrayList<Repository>();
+		boolean remaining;
+		synchronized (cache) {
+			Iterator<CacheEntry> iterator = cache.values().iterator();
+			while (iterator.hasNext()) {
+				CacheEntry entry = iterator.next();
+				if (entry.lastUsed < usedBefore) {
+					iterator.remove();
+					evicted.add(entry.repository);
+					evictionCount++;
+				}
+			}
+			remaining = !cache.isEmpty();
+		}
+		for (Repository repository : evicted) {
+			repository.close();
+		}
+		return remaining;
+	}
+
+	/**
+	 * Remove all repositories from the cache, used when the bundle is stopped.
+	 */
+	public static void clear() {
+		evictionJob.cancel();
+		evictIdle(Long.MAX_VALUE);
+	}
+
+	public static long getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+}
@@ -0,0 +1,516 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.internal.server.servlets.file.FileStoreNotificationWrapper;
+import org.eclipse.orion.server.core.PreferenceHelper;
+import org.eclipse.orion.server.core.ServerConstants;
+
+/**
+ * A cache of the working tree status of repositories, so that the status polled by the clients is not computed by
+ * comparing the whole working tree with the index on every request.
+ * <p>
+ * A cached status is used as long as the HEAD commit and the last modified time and length of the index are the ones
+ * it was computed with, which covers the git operations done by the server and on the command line. The working tree
+ * is checked on every request by comparing the last modified time and length of its files with the ones read when the
+ * status was computed, which is cheaper than comparing the files with the index, and only the status of the
+ * changed folders is computed again. Changes made through the Orion file API are also reported to the cache as
+ * modification events. The cache can be disabled with the {@link ServerConstants#CONFIG_GIT_STATUS_CACHE}
+ * configuration property.
+ * </p>
+ */
+public class GitStatusCache implements IFileStoreModificationListener {
+
+	private static final int MAX_SIZE = 100;
+
+	/**
+	 * The maximum number of changed paths whose status is computed on its own, more changes compute the full status.
+	 */
+	private static final int MAX_CHANGED_PATHS = 100;
+
+	/**
+	 * An index or a file modified less than this many milliseconds before the status is computed could be modified
+	 * again without changing its last modified time, so its status is not reused.
+	 */
+	private static final long RACY_INTERVAL = 2000;
+
+	/**
+	 * The stamp of a file, or the digest of a folder, that is never equal to the one read later.
+	 */
+	private static final long RACY = Long.MIN_VALUE;
+
+	/**
+	 * The stamp of a folder within its parent folder, changes of its contents change its own digest.
+	 */
+	private static final long FOLDER = 0;
+
+	private static GitStatusCache instance;
+
+	/**
+	 * The status of a working tree, with the sets of paths in each state as in {@link org.eclipse.jgit.api.Status}.
+	 */
+	public static final class Snapshot {
+		private final Set<String> added;
+		private final Set<String> changed;
+		private final Set<String> missing;
+		private final Set<String> modified;
+		private final Set<String> removed;
+		private final Set<String> untracked;
+		private final Set<String> conflicting;
+
+		public Snapshot(org.eclipse.jgit.api.Status status) {
+			this(status.getAdded(), status.getChanged(), status.getMissing(), status.getModified(), status.getRemoved(), status.getUntracked(), status.getConflicting());
+		}
+
+		private Snapshot(Set<String> added, Set<String> changed, Set<String> missing, Set<String> modified, Set<String> removed, Set<String> untracked, Set<String> conflicting) {
+			this.added = Collections.unmodifiableSet(new HashSet<String>(added));
+			this.changed = Collections.unmodifiableSet(new HashSet<String>(changed));
+			this.missing = Collections.unmodifiableSet(new HashSet<String>(missing));
+			this.modified = Collections.unmodifiableSet(new HashSet<String>(modified));
+			this.removed = Collections.unmodifiableSet(new HashSet<String>(removed));
+			this.untracked = Collections.unmodifiableSet(new HashSet<String>(untracked));
+			this.conflicting = Collections.unmodifiableSet(new HashSet<String>(conflicting));
+		}
+
+		/**
+		 * Returns a copy of this status with the state of the paths, and of the files below them, replaced by the
+		 * provided status of these paths.
+		 */
+		Snapshot update(Set<String> paths, org.eclipse.jgit.api.Status status) {
+			return new Snapshot(update(added, paths, status.getAdded()), update(changed, paths, status.getChanged()), update(missing, paths, status.getMissing()), update(modified, paths, status.getModified()), update(removed, paths, status.getRemoved()), update(untracked, paths, status.getUntracked()), update(conflicting, paths, status.getConflicting()));
+		}
+
+		private static Set<String> update(Set<String> cached, Set<String> paths, Set<String> current) {
+			Set<String> result = new HashSet<String>(cached);
+			Iterator<String> iterator = result.iterator();
+			while (iterator.hasNext()) {
+				if (isAffected(iterator.next(), paths)) {
+					iterator.remove();
+				}
+			}
+			result.addAll(current);
+			return result;
+		}
+
+		private static boolean isAffected(String file, Set<String> paths) {
+			if (paths.contains(file)) {
+				return true;
+			}
+			for (String path : paths) {
+				if (file.startsWith(path) && file.length() > path.length() && file.charAt(path.length()) == '/') {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Set<String> getAdded() {
+			return added;
+		}
+
+		public Set<String> getChanged() {
+			return changed;
+		}
+
+		public Set<String> getMissing() {
+			return missing;
+		}
+
+		public Set<String> getModified() {
+			return modified;
+		}
+
+		public Set<String> getRemoved() {
+			return removed;
+		}
+
+		public Set<String> getUntracked() {
+			return untracked;
+		}
+
+		public Set<String> getConflicting() {
+			return conflicting;
+		}
+	}
+
+	/**
+	 * The last modified time and length of the files of a working tree that are not ignored. The stamps of the
+	 * entries of the working tree folder are kept by name, the entries of each folder below it are kept as one digest
+	 * by folder, so that the state takes little memory and a change is still located in the folder that contains it.
+	 */
+	private static final class TreeState {
+		final Map<String, Long> entries = new HashMap<String, Long>();
+		final Map<String, Long> folders = new HashMap<String, Long>();
+
+		/**
+		 * Reads the state of the working tree of a repository.
+		 *
+		 * @param now
+		 *            The time the status is computed, files modified shortly before are racy.
+		 */
+		static TreeState read(Repository db, long now) throws IOException {
+			TreeState state = new TreeState();
+			TreeWalk walk = new TreeWalk(db);
+			try {
+				walk.addTree(new FileTreeIterator(db));
+				walk.addTree(new DirCacheIterator(db.readDirCache()));
+				while (walk.next()) {
+					WorkingTreeIterator file = walk.getTree(0, WorkingTreeIterator.class);
+					if (file == null) {
+						// a deleted file changes the digest of its folder by its absence
+						continue;
+					}
+					if (walk.getTree(1, DirCacheIterator.class) == null && file.isEntryIgnored()) {
+						// the status does not report ignored files
+						continue;
+					}
+					long stamp;
+					if (walk.isSubtree()) {
+						stamp = FOLDER;
+						walk.enterSubtree();
+					} else {
+						long modified = file.getEntryLastModified();
+						stamp = now - modified < RACY_INTERVAL ? RACY : modified * 31 + file.getEntryLength();
+					}
+					state.add(walk.getPathString(), stamp);
+				}
+			} finally {
+				walk.close();
+			}
+			return state;
+		}
+
+		private void add(String path, long stamp) {
+			int separator = path.lastIndexOf('/');
+			if (separator < 0) {
+				entries.put(path, Long.valueOf(stamp));
+				return;
+			}
+			String folder = path.substring(0, separator);
+			Long previous = folders.get(folder);
+			long digest;
+			if (stamp == RACY || (previous != null && previous.longValue() == RACY)) {
+				digest = RACY;
+			} else {
+				digest = ((previous == null ? 17 : previous.longValue()) * 31 + path.hashCode()) * 31 + stamp;
+			}
+			folders.put(folder, Long.valueOf(digest));
+		}
+
+		/**
+		 * Returns the paths relative to the working tree of the files and folders whose contents may have changed
+		 * since the previous state was read.
+		 */
+		Set<String> getChanges(TreeState previous) {
+			Set<String> changes = new HashSet<String>();
+			addChanges(entries, previous.entries, changes);
+			addChanges(folders, previous.folders, changes);
+			return changes;
+		}
+
+		private static void addChanges(Map<String, Long> current, Map<String, Long> previous, Set<String> changes) {
+			for (Map.Entry<String, Long> entry : current.entrySet()) {
+				if (entry.getValue().longValue() == RACY || !entry.getValue().equals(previous.get(entry.getKey()))) {
+					changes.add(entry.getKey());
+				}
+			}
+			for (String path : previous.keySet()) {
+				if (!current.containsKey(path)) {
+					changes.add(path);
+				}
+			}
+		}
+	}
+
+	private static class CacheEntry {
+		final String workTree;
+		Snapshot snapshot;
+		ObjectId head;
+		long indexModified;
+		long indexLength;
+		/**
+		 * The working tree the status was computed from.
+		 */
+		TreeState tree;
+		/**
+		 * The paths relative to the working tree changed since the status was computed, with the number of the last
+		 * change of each path. A path is only removed once a status computed after its last change is published.
+		 */
+		final Map<String, Long> changedPaths = new HashMap<String, Long>();
+		/**
+		 * The number of the last change recorded in {@link #changedPaths}.
+		 */
+		long lastChange;
+		/**
+		 * Whether the repository itself was changed since the status was computed.
+		 */
+		boolean stale;
+
+		CacheEntry(String workTree) {
+			this.workTree = workTree;
+		}
+	}
+
+	private final boolean enabled;
+
+	private final Map<File, CacheEntry> cache = new LinkedHashMap<File, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, CacheEntry> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+	private long updateCount = 0;
+
+	/**
+	 * Returns the cache used by the status handler, configured from the server configuration.
+	 */
+	public static synchronized GitStatusCache getInstance() {
+		if (instance == null) {
+			instance = new GitStatusCache(!"false".equals(PreferenceHelper.getString(ServerConstants.CONFIG_GIT_STATUS_CACHE, "true"))); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return instance;
+	}
+
+	/**
+	 * Create a cache of working tree status.
+	 *
+	 * @param enabled
+	 *            <code>false</code> to compute the status on every request.
+	 */
+	public GitStatusCache(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the status of the working tree of the repository, from the cache when the repository has not changed
+	 * since it was computed.
+	 *
+	 * @param db
+	 *            A repository with a working tree.
+	 * @return The status of the working tree.
+	 * @throws GitAPIException
+	 *             if the status could not be computed.
+	 * @throws IOException
+	 *             if the HEAD of the repository could not be read.
+	 */
+	public Snapshot getStatus(Repository db) throws GitAPIException, IOException {
+		Git git = Git.wrap(db);
+		if (!enabled || db.isBare()) {
+			return new Snapshot(git.status().call());
+		}
+		File key = db.getDirectory().getAbsoluteFile();
+		ObjectId head = db.resolve(Constants.HEAD);
+		File index = db.getIndexFile();
+		long indexModified = index.lastModified();
+		long indexLength = index.length();
+		long now = System.currentTimeMillis();
+		// a change made after the working tree is read is noticed by the next request
+		TreeState tree = TreeState.read(db, now);
+
+		CacheEntry entry;
+		Snapshot cached = null;
+		Set<String> paths = null;
+		long lastChange = 0;
+		synchronized (cache) {
+			entry = cache.get(key);
+			if (entry != null && isValid(entry, head, indexModified, indexLength)) {
+				Set<String> changes = tree.getChanges(entry.tree);
+				changes.addAll(entry.changedPaths.keySet());
+				if (changes.isEmpty()) {
+					hitCount++;
+					return entry.snapshot;
+				}
+				if (changes.size() <= MAX_CHANGED_PATHS) {
+					updateCount++;
+					cached = entry.snapshot;
+					// the paths stay pending until the updated status is published, so that a concurrent request
+					// does not take the previous status for a hit
+					paths = changes;
+					lastChange = entry.lastChange;
+				}
+			}
+			if (cached == null) {
+				missCount++;
+				// changes reported from now on are recorded on the new entry
+				entry = new CacheEntry(db.getWorkTree().getAbsolutePath());
+				cache.put(key, entry);
+			}
+		}
+
+		Snapshot result = null;
+		try {
+			if (cached == null) {
+				result = new Snapshot(git.status().call());
+			} else {
+				StatusCommand command = git.status();
+				for (String path : paths) {
+					command.addPath(path);
+				}
+				result = cached.update(paths, command.call());
+			}
+		} finally {
+			synchronized (cache) {
+				if (result == null || now - indexModified < RACY_INTERVAL) {
+					entry.stale = true;
+				} else if (!entry.stale && entry.snapshot == cached) {
+					// publish unless a concurrent request has already updated the status this one started from
+					entry.snapshot = result;
+					entry.head = head;
+					entry.indexModified = indexModified;
+					entry.indexLength = indexLength;
+					entry.tree = tree;
+					if (paths != null) {
+						for (String path : paths) {
+							// a path changed again while its status was computed stays pending
+							Long change = entry.changedPaths.get(path);
+							if (change != null && change.longValue() <= lastChange) {
+								entry.changedPaths.remove(path);
+							}
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private boolean isValid(CacheEntry entry, ObjectId head, long indexModified, long indexLength) {
+		if (entry.stale || entry.snapshot == null) {
+			return false;
+		}
+		if (head == null ? entry.head != null : !head.equals(entry.head)) {
+			return false;
+		}
+		return indexModified == entry.indexModified && indexLength == entry.indexLength;
+	}
+
+	/**
+	 * Record that the file or folder has changed, so that the status of the repositories containing it is computed
+	 * again.
+	 */
+	public void changed(File file) {
+		String path = file.getAbsolutePath();
+		synchronized (cache) {
+			Iterator<CacheEntry> iterator = cache.values().iterator();
+			while (iterator.hasNext()) {
+				CacheEntry entry = iterator.next();
+				if (path.equals(entry.workTree) || entry.workTree.startsWith(path + File.separator)) {
+					// the clone itself was changed
+					iterator.remove();
+				} else if (path.startsWith(entry.workTree + File.separator)) {
+					String relative = path.substring(entry.workTree.length() + 1).replace(File.separatorChar, '/');
+					if (relative.equals(Constants.DOT_GIT) || relative.startsWith(Constants.DOT_GIT + '/')) {
+						entry.stale = true;
+					} else {
+						entry.changedPaths.put(relative, Long.valueOf(++entry.lastChange));
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void changed(ChangeEvent event) {
+		switch (event.getChangeType()) {
+			case MKDIR :
+				// an empty folder does not change the status
+				break;
+			case MOVE :
+				changed(event.getInitialLocation());
+				changed(event.getModifiedItem());
+				break;
+			default :
+				changed(event.getModifiedItem());
+		}
+	}
+
+	private void changed(IFileStore store) {
+		if (store == null) {
+			return;
+		}
+		try {
+			File file = FileStoreNotificationWrapper.unwrap(store).toLocalFile(EFS.NONE, null);
+			if (file != null) {
+				changed(file);
+			}
+		} catch (CoreException e) {
+			// not a local file, cannot be in a repository
+		}
+	}
+
+	/**
+	 * Remove all status from the cache.
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * Returns the number of requests answered by computing the status of the changed paths only.
+	 */
+	public long getUpdateCount() {
+		synchronized (cache) {
+			return updateCount;
+		}
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+}
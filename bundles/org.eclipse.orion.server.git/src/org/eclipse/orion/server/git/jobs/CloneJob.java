@@ -25,8 +25,10 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.URIUtil;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.TransportConfigCallback;
@@ -51,6 +53,8 @@ import org.eclipse.orion.server.git.GitCredentialsProvider;
 import org.eclipse.orion.server.git.IGitHubTokenProvider;
 import org.eclipse.orion.server.git.objects.Clone;
 import org.eclipse.orion.server.git.servlets.GitCloneHandlerV1;
+import org.eclipse.orion.server.git.servlets.GitCloneRegistry;
+import org.eclipse.orion.server.git.servlets.GitDirCache;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -72,6 +76,8 @@ public class CloneJob extends GitJob {
 	public CloneJob(Clone clone, String userRunningTask, CredentialsProvider credentials, String user, String cloneLocation, ProjectInfo project,
 			String gitUserName, String gitUserMail, boolean initProject, boolean cloneSubmodules) {
 		super(userRunningTask, true, (GitCredentialsProvider) credentials);
+		// transfers and clones are bulk tasks, see TaskJobScheduler
+		setPriority(Job.LONG);
 		this.clone = clone;
 		this.user = user;
 		this.project = project;
@@ -138,6 +144,8 @@ public class CloneJob extends GitJob {
 				});
 			}
 			Git git = cc.call();
+			GitDirCache.invalidate(cloneFolder);
+			GitCloneRegistry.addClone(new Path(clone.getId()));
 
 			if (monitor.isCanceled()) {
 				return new Status(IStatus.CANCEL, GitActivator.PI_GIT, "Cancelled");
@@ -75,6 +75,11 @@ import org.eclipse.jgit.util.io.NullOutputStream;
  * @see <a href="http://www.kernel.org/pub/software/scm/git/docs/git-diff.html" >Git documentation about diff</a>
  */
 public class DiffCommand extends GitCommand<List<DiffEntry>> {
+	/**
+	 * The start of the line written after the last file of a patch that was cut at the maximum number of files.
+	 */
+	public static final String TRUNCATED_PREFIX = "# Diff truncated: "; //$NON-NLS-1$
+
 	private AbstractTreeIterator oldTree;
 
 	private AbstractTreeIterator newTree;
@@ -97,6 +102,12 @@ public class DiffCommand extends GitCommand<List<DiffEntry>> {
 
 	boolean ignoreWS;
 
+	private int maxFiles;
+
+	private int maxFileSize;
+
+	private int renameLimit;
+
 	/**
 	 * @param repo
 	 */
@@ -121,6 +132,12 @@ public class DiffCommand extends GitCommand<List<DiffEntry>> {
 			diffFmt.setDiffComparator(RawTextComparator.WS_IGNORE_ALL);
 		diffFmt.setRepository(repo);
 		diffFmt.setProgressMonitor(monitor);
+		if (maxFileSize > 0)
+			diffFmt.setBinaryFileThreshold(maxFileSize);
+		if (renameLimit > 0) {
+			diffFmt.setDetectRenames(true);
+			diffFmt.getRenameDetector().setRenameLimit(renameLimit);
+		}
 		try {
 			if (cached) {
 				if (oldTree == null) {
@@ -156,8 +173,17 @@ public class DiffCommand extends GitCommand<List<DiffEntry>> {
 					diffFmt.setNewPrefix(destinationPrefix);
 				if (sourcePrefix != null)
 					diffFmt.setOldPrefix(sourcePrefix);
-				diffFmt.format(result);
-				diffFmt.flush();
+				// write the files one at a time, so that each is sent as soon as it is formatted
+				int count = 0;
+				for (DiffEntry entry : result) {
+					if (maxFiles > 0 && count == maxFiles) {
+						writeTruncationNote(result.size() - count);
+						break;
+					}
+					count++;
+					diffFmt.format(entry);
+					diffFmt.flush();
+				}
 				return result;
 			}
 		} catch (IOException e) {
@@ -167,6 +193,16 @@ public class DiffCommand extends GitCommand<List<DiffEntry>> {
 		}
 	}
 
+	/**
+	 * Tell the reader of a patch cut at the maximum number of files how many files were left out, on a line after the
+	 * last file that patch tools ignore.
+	 */
+	private void writeTruncationNote(int omitted) throws IOException {
+		String note = TRUNCATED_PREFIX + omitted + " more files not shown, the diff is limited to " + maxFiles + " files\n"; //$NON-NLS-1$ //$NON-NLS-2$
+		out.write(note.getBytes("UTF-8")); //$NON-NLS-1$
+		out.flush();
+	}
+
 	/**
 	 *
 	 * @param cached
@@ -282,4 +318,42 @@ public class DiffCommand extends GitCommand<List<DiffEntry>> {
 		this.ignoreWS = ignoreWS;
 		return this;
 	}
+
+	/**
+	 * Set the maximum number of files whose differences are written to the output stream. When more files differ, the
+	 * patch ends with a line starting with {@link #TRUNCATED_PREFIX} that gives the number of files left out.
+	 *
+	 * @param maxFiles
+	 *            the number of files, <code>0</code> for no limit
+	 * @return this instance
+	 */
+	public DiffCommand setMaxFiles(int maxFiles) {
+		this.maxFiles = maxFiles;
+		return this;
+	}
+
+	/**
+	 * Set the size of the largest file whose differences are written line by line, larger files are written as binary
+	 * files.
+	 *
+	 * @param maxFileSize
+	 *            the size in bytes, <code>0</code> for the default of the diff formatter
+	 * @return this instance
+	 */
+	public DiffCommand setMaxFileSize(int maxFileSize) {
+		this.maxFileSize = maxFileSize;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of added and deleted files compared with each other to detect renamed files.
+	 *
+	 * @param renameLimit
+	 *            the limit, <code>0</code> to not detect renames
+	 * @return this instance
+	 */
+	public DiffCommand setRenameLimit(int renameLimit) {
+		this.renameLimit = renameLimit;
+		return this;
+	}
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.TransportConfigCallback;
@@ -35,7 +36,6 @@ import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.RefUpdate.Result;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.RefSpec;
@@ -47,6 +47,7 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.IGitHubTokenProvider;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.osgi.util.NLS;
@@ -65,6 +66,8 @@ public class FetchJob extends GitJob {
 
 	public FetchJob(String userRunningTask, CredentialsProvider credentials, Path path, boolean force) {
 		super(userRunningTask, true, (GitCredentialsProvider) credentials);
+		// transfers and clones are bulk tasks, see TaskJobScheduler
+		setPriority(Job.LONG);
 		// path: {remote}[/{branch}]/file/{...}
 		this.path = path;
 		this.remote = path.segment(0);
@@ -176,7 +179,7 @@ public class FetchJob extends GitJob {
 			p = path.removeFirstSegments(1);
 		else
 			p = path.removeFirstSegments(2);
-		return FileRepositoryBuilder.create(GitUtils.getGitDir(p));
+		return GitRepositoryCache.getRepository(GitUtils.getGitDir(p));
 	}
 
 	@Override
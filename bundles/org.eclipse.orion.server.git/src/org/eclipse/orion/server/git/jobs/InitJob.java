@@ -18,6 +18,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.InitCommand;
@@ -29,6 +30,8 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.objects.Clone;
 import org.eclipse.orion.server.git.servlets.GitCloneHandlerV1;
+import org.eclipse.orion.server.git.servlets.GitCloneRegistry;
+import org.eclipse.orion.server.git.servlets.GitDirCache;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -62,6 +65,8 @@ public class InitJob extends GitJob {
 			File directory = new File(clone.getContentLocation());
 			command.setDirectory(directory);
 			repository = command.call().getRepository();
+			GitDirCache.invalidate(directory);
+			GitCloneRegistry.addClone(new Path(clone.getId()));
 			Git git = Git.wrap(repository);
 
 			// configure the repo
@@ -22,20 +22,18 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
-import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
+import org.eclipse.orion.server.git.GitAheadBehindCache;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRefCache;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.objects.Branch;
 import org.eclipse.orion.server.git.objects.Log;
 import org.eclipse.orion.server.git.servlets.GitUtils;
@@ -56,6 +54,7 @@ public class ListBranchesJob extends GitJob {
 	private int pageSize;
 	private String baseLocation;
 	private String nameFilter;
+	private boolean aheadBehind;
 
 	/**
 	 * Creates job with given page range and adding <code>commitsSize</code> commits to every branch.
@@ -109,32 +108,70 @@ public class ListBranchesJob extends GitJob {
 		this(userRunningTask, repositoryPath, cloneLocation, commitsSize, 0, -1, null, null);
 	}
 
-	private ObjectId getCommitObjectId(Repository db, ObjectId oid) throws MissingObjectException, IncorrectObjectTypeException, IOException {
-		RevWalk walk = new RevWalk(db);
-		try {
-			return walk.parseCommit(oid);
-		} finally {
-			walk.close();
+	/**
+	 * Sets whether the number of commits each branch is ahead and behind its remote tracking branch is added to the
+	 * branches.
+	 */
+	public void setAheadBehind(boolean aheadBehind) {
+		this.aheadBehind = aheadBehind;
+	}
+
+	/**
+	 * Adds the number of commits the branch is ahead and behind its remote tracking branch, if it has one.
+	 */
+	private void addAheadBehind(Repository db, Branch branch, JSONObject result) throws Exception {
+		Ref trackingBranch = branch.getTrackingBranch();
+		if (trackingBranch == null || trackingBranch.getObjectId() == null)
+			return;
+		GitAheadBehindCache.Counts counts = GitAheadBehindCache.getCounts(db, branch.getName(true, false), ObjectId.fromString(branch.getHeadSHA()),
+				trackingBranch.getName(), trackingBranch.getObjectId());
+		result.put(GitConstants.KEY_AHEAD_COUNT, counts.getAheadCount());
+		result.put(GitConstants.KEY_BEHIND_COUNT, counts.getBehindCount());
+	}
+
+	/**
+	 * Returns the most recent commits of the branch, read with the walk shared by the listed branches so that the commits
+	 * they have in common are parsed once.
+	 */
+	private List<RevCommit> getCommits(RevWalk walk, RevCommit tip, int count) throws IOException {
+		if (count == 1) {
+			// single commit is requested and we already know it
+			walk.parseBody(tip);
+			return Collections.singletonList(tip);
+		}
+		List<RevCommit> commits = new ArrayList<RevCommit>(count);
+		walk.reset();
+		walk.markStart(tip);
+		while (commits.size() < count) {
+			RevCommit commit = walk.next();
+			if (commit == null)
+				break;
+			walk.parseBody(commit);
+			commits.add(commit);
 		}
+		return commits;
 	}
 
 	@Override
 	protected IStatus performJob() {
 		Repository db = null;
+		RevWalk walk = null;
 		try {
 			File gitDir = GitUtils.getGitDir(path);
-			db = FileRepositoryBuilder.create(gitDir);
-			Git git = Git.wrap(db);
-			List<Ref> branchRefs = git.branchList().call();
+			db = GitRepositoryCache.getRepository(gitDir);
+			List<Ref> branchRefs = GitRefCache.getSnapshot(db).getBranches();
+			// the branches are sorted by the time of their commits, only the commit headers are read for all of them
+			walk = new RevWalk(db);
+			walk.setRetainBody(false);
 			List<Branch> branches = new ArrayList<Branch>(branchRefs.size());
 			for (Ref ref : branchRefs) {
 				if (nameFilter != null && !nameFilter.equals("")) {
 					String shortName = Repository.shortenRefName(ref.getName());
 					if (shortName.toLowerCase().contains(nameFilter.toLowerCase())) {
-						branches.add(new Branch(cloneLocation, db, ref));
+						branches.add(new Branch(cloneLocation, db, ref, walk));
 					}
 				} else {
-					branches.add(new Branch(cloneLocation, db, ref));
+					branches.add(new Branch(cloneLocation, db, ref, walk));
 				}
 			}
 			Collections.sort(branches, Branch.COMPARATOR);
@@ -151,6 +188,9 @@ public class ListBranchesJob extends GitJob {
 				if (commitsSize > 0) {
 					prev += "&" + GitConstants.KEY_TAG_COMMITS + "=" + commitsSize;
 				}
+				if (aheadBehind) {
+					prev += "&aheadBehind=true";
+				}
 				result.put(ProtocolConstants.KEY_PREVIOUS_LOCATION, prev);
 			}
 			if (lastBranch < branches.size() - 1) {
@@ -161,12 +201,16 @@ public class ListBranchesJob extends GitJob {
 				if (commitsSize > 0) {
 					next += "&" + GitConstants.KEY_TAG_COMMITS + "=" + commitsSize;
 				}
+				if (aheadBehind) {
+					next += "&aheadBehind=true";
+				}
 				result.put(ProtocolConstants.KEY_NEXT_LOCATION, next);
 			}
 			for (int i = firstBranch; i <= lastBranch; i++) {
 				Branch branch = branches.get(i);
+				JSONObject branchJSON;
 				if (commitsSize == 0) {
-					children.put(branch.toJSON());
+					branchJSON = branch.toJSON();
 				} else {
 					String branchName = branch.getName(true, false);
 					ObjectId toObjectId = db.resolve(branchName);
@@ -175,23 +219,15 @@ public class ListBranchesJob extends GitJob {
 						String msg = NLS.bind("No ref or commit found: {0}", branchName);
 						return new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_NOT_FOUND, msg, null);
 					}
-					toObjectId = getCommitObjectId(db, toObjectId);
-
-					Log log = null;
-					// single commit is requested and we already know it, no need for LogCommand
-					if (commitsSize == 1 && toObjectId instanceof RevCommit) {
-						log = new Log(cloneLocation, db, Collections.singleton((RevCommit) toObjectId), null, null, toRefId);
-					} else {
-						LogCommand lc = git.log();
-						// set the commit range
-						lc.add(toObjectId);
-						lc.setMaxCount(this.commitsSize);
-						Iterable<RevCommit> commits = lc.call();
-						log = new Log(cloneLocation, db, commits, null, null, toRefId);
-					}
+					List<RevCommit> commits = getCommits(walk, walk.parseCommit(toObjectId), commitsSize);
+					Log log = new Log(cloneLocation, db, commits, null, null, toRefId);
 					log.setPaging(1, commitsSize);
-					children.put(branch.toJSON(log.toJSON()));
+					branchJSON = branch.toJSON(log.toJSON());
 				}
+				if (aheadBehind) {
+					addAheadBehind(db, branch, branchJSON);
+				}
+				children.put(branchJSON);
 			}
 			result.put(ProtocolConstants.KEY_CHILDREN, children);
 			result.put(ProtocolConstants.KEY_TYPE, Branch.TYPE);
@@ -200,6 +236,9 @@ public class ListBranchesJob extends GitJob {
 			String msg = NLS.bind("An error occured when listing branches for {0}", path);
 			return new Status(IStatus.ERROR, GitActivator.PI_GIT, msg, e);
 		} finally {
+			if (walk != null) {
+				walk.close();
+			}
 			if (db != null) {
 				db.close();
 			}
@@ -22,20 +22,17 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
-import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRefCache;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.objects.Log;
 import org.eclipse.orion.server.git.objects.Tag;
 import org.eclipse.orion.server.git.servlets.GitUtils;
@@ -109,35 +106,47 @@ public class ListTagsJob extends GitJob {
 		this(userRunningTask, repositoryPath, cloneLocation, 0, null);
 	}
 
-	private ObjectId getCommitObjectId(Repository db, ObjectId oid) throws MissingObjectException, IncorrectObjectTypeException, IOException {
-		RevWalk walk = new RevWalk(db);
-		try {
-			return walk.parseCommit(oid);
-		} finally {
-			walk.close();
+	/**
+	 * Returns the most recent commits of the tag, read with the walk shared by the listed tags so that the commits they
+	 * have in common are parsed once.
+	 */
+	private List<RevCommit> getCommits(RevWalk walk, RevCommit tip, int count) throws IOException {
+		List<RevCommit> commits = new ArrayList<RevCommit>(count);
+		walk.reset();
+		walk.markStart(tip);
+		while (commits.size() < count) {
+			RevCommit commit = walk.next();
+			if (commit == null)
+				break;
+			walk.parseBody(commit);
+			commits.add(commit);
 		}
+		return commits;
 	}
 
 	@Override
 	protected IStatus performJob() {
 		Repository db = null;
+		RevWalk walk = null;
 		try {
 			// list all tags
 			File gitDir = GitUtils.getGitDir(path);
-			db = FileRepositoryBuilder.create(gitDir);
-			Git git = Git.wrap(db);
-			List<Ref> refs = git.tagList().call();
+			db = GitRepositoryCache.getRepository(gitDir);
+			List<Ref> refs = GitRefCache.getSnapshot(db).getTags();
+			// the tags are sorted by the time of their commits, only the commit headers are read for all of them
+			walk = new RevWalk(db);
+			walk.setRetainBody(false);
 			JSONObject result = new JSONObject();
 			List<Tag> tags = new ArrayList<Tag>();
 			for (Ref ref : refs) {
 				if (nameFilter != null && !nameFilter.equals("")) {
 					String shortName = Repository.shortenRefName(ref.getName());
 					if (shortName.toLowerCase().contains(nameFilter.toLowerCase())) {
-						Tag tag = new Tag(cloneLocation, db, ref);
+						Tag tag = new Tag(cloneLocation, db, ref, walk);
 						tags.add(tag);
 					}
 				} else {
-					Tag tag = new Tag(cloneLocation, db, ref);
+					Tag tag = new Tag(cloneLocation, db, ref, walk);
 					tags.add(tag);
 				}
 			}
@@ -172,14 +181,9 @@ public class ListTagsJob extends GitJob {
 					children.put(tag.toJSON());
 				} else {
 					// add info about commits if requested
-					LogCommand lc = git.log();
 					String toCommitName = tag.getRevCommitName();
-					ObjectId toCommitId = db.resolve(toCommitName);
 					Ref toCommitRef = db.getRef(toCommitName);
-					toCommitId = getCommitObjectId(db, toCommitId);
-					lc.add(toCommitId);
-					lc.setMaxCount(this.commitsSize);
-					Iterable<RevCommit> commits = lc.call();
+					List<RevCommit> commits = getCommits(walk, walk.parseCommit(ObjectId.fromString(toCommitName)), commitsSize);
 					Log log = new Log(cloneLocation, db, commits, null, null, toCommitRef);
 					log.setPaging(1, commitsSize);
 					children.put(tag.toJSON(log.toJSON()));
@@ -192,6 +196,9 @@ public class ListTagsJob extends GitJob {
 			String msg = NLS.bind("An error occured when listing tags for {0}", path);
 			return new Status(IStatus.ERROR, GitActivator.PI_GIT, msg, e);
 		} finally {
+			if (walk != null) {
+				walk.close();
+			}
 			if (db != null) {
 				db.close();
 			}
@@ -110,6 +110,10 @@ public class LogCommand extends GitCommand<Iterable<RevCommit>> {
 
 	private final List<PathFilter> pathFilters = new ArrayList<PathFilter>();
 
+	private final List<ObjectId> starts = new ArrayList<ObjectId>();
+
+	private final List<ObjectId> uninteresting = new ArrayList<ObjectId>();
+
 	private int maxCount = -1;
 
 	private int skip = -1;
@@ -189,6 +193,27 @@ public class LogCommand extends GitCommand<Iterable<RevCommit>> {
 		return walk;
 	}
 
+	/**
+	 * Returns the walk configured by {@link #call()}, to read the commits one at a time.
+	 */
+	RevWalk getRevWalk() {
+		return walk;
+	}
+
+	/**
+	 * Returns the ids of the commits the graph traversal starts from, including <code>HEAD</code> once {@link #call()} has added it.
+	 */
+	List<ObjectId> getStarts() {
+		return starts;
+	}
+
+	/**
+	 * Returns the ids of the commits marked uninteresting.
+	 */
+	List<ObjectId> getUninteresting() {
+		return uninteresting;
+	}
+
 	/**
 	 * Mark a commit to start graph traversal from.
 	 *
@@ -375,9 +400,12 @@ public class LogCommand extends GitCommand<Iterable<RevCommit>> {
 		try {
 			if (include) {
 				walk.markStart(walk.lookupCommit(start));
+				starts.add(start.copy());
 				startSpecified = true;
-			} else
+			} else {
 				walk.markUninteresting(walk.lookupCommit(start));
+				uninteresting.add(start.copy());
+			}
 			return this;
 		} catch (MissingObjectException e) {
 			throw e;
@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Keeps where recent git logs stopped, so that the next page of a log is read by resuming the walk where the previous
+ * page ended instead of walking and skipping all commits of the previous pages again.
+ * <p>
+ * Each page is identified by a cursor that the log links of the page refer to. The cache keeps the ids of the commits
+ * pending in the walk when the page before it ended, and no commits or repositories. A cursor is only used for the
+ * same repository, start commits and query it was created for, and a request with an unknown cursor walks the log from
+ * the start as before. Logs of a path are not resumed, the walk does not report the commits that do not change the
+ * path. A resumed walk that reaches a commit older than one of its parents walks from the start instead, the commits
+ * of the previous pages could be reached again.
+ * </p>
+ */
+final class LogCursorCache {
+
+	private static final int MAX_SIZE = 100;
+
+	/**
+	 * The maximum number of commit ids kept for a page.
+	 */
+	private static final int MAX_IDS = 1000;
+
+	/**
+	 * Where the walk of a log stopped before a page: the commits pending in the walk, and the commits already walked
+	 * that have the same time as pending commits and could be walked again.
+	 */
+	private static class Continuation {
+		final File gitDir;
+		final String query;
+		final int pageSize;
+		final String previousCursor;
+		final List<ObjectId> starts;
+		final Set<ObjectId> walked;
+		String nextCursor;
+
+		Continuation(File gitDir, String query, int pageSize, String previousCursor, List<ObjectId> starts, Set<ObjectId> walked) {
+			this.gitDir = gitDir;
+			this.query = query;
+			this.pageSize = pageSize;
+			this.previousCursor = previousCursor;
+			this.starts = starts;
+			this.walked = walked;
+		}
+	}
+
+	/**
+	 * A filter recording the commits in the order the walk reaches them, before the filter of the log.
+	 */
+	private static class RecordingFilter extends RevFilter {
+		final RevFilter filter;
+		final Set<ObjectId> walked;
+		final boolean resumed;
+		final List<RevCommit> reached = new ArrayList<RevCommit>();
+		boolean skewed;
+
+		RecordingFilter(RevFilter filter, Set<ObjectId> walked, boolean resumed) {
+			this.filter = filter;
+			this.walked = walked;
+			this.resumed = resumed;
+		}
+
+		@Override
+		public boolean include(RevWalk walker, RevCommit commit) throws StopWalkException, MissingObjectException, IncorrectObjectTypeException,
+				IOException {
+			if (resumed) {
+				for (RevCommit parent : commit.getParents()) {
+					walker.parseHeaders(parent);
+					if (parent.getCommitTime() > commit.getCommitTime()) {
+						skewed = true;
+						throw StopWalkException.INSTANCE;
+					}
+				}
+			}
+			reached.add(commit);
+			return !walked.contains(commit) && filter.include(walker, commit);
+		}
+
+		@Override
+		public boolean requiresCommitBody() {
+			return filter.requiresCommitBody();
+		}
+
+		@Override
+		public RevFilter clone() {
+			return new RecordingFilter(filter.clone(), walked, resumed);
+		}
+	}
+
+	/**
+	 * A page of a log.
+	 */
+	static class Page {
+		final List<RevCommit> commits;
+		final String previousCursor;
+		final String nextCursor;
+
+		Page(List<RevCommit> commits, String previousCursor, String nextCursor) {
+			this.commits = commits;
+			this.previousCursor = previousCursor;
+			this.nextCursor = nextCursor;
+		}
+
+		/**
+		 * Returns the commits of the page, followed by the first commit of the next page if there is one.
+		 */
+		List<RevCommit> getCommits() {
+			return commits;
+		}
+
+		String getNextCursor() {
+			return nextCursor;
+		}
+
+		String getPreviousCursor() {
+			return previousCursor;
+		}
+	}
+
+	private static final Map<String, Continuation> continuations = new LinkedHashMap<String, Continuation>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Continuation> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private LogCursorCache() {
+		// static cache
+	}
+
+	/**
+	 * Returns a page of the log, resuming the walk of the previous page if the cursor is known for the repository,
+	 * start commits and query, and walking from the start of the log otherwise.
+	 *
+	 * @param command
+	 *            The log command, called and without skip or count limits.
+	 * @param query
+	 *            The options of the log that are not part of the command start and uninteresting commits.
+	 * @param cursor
+	 *            The cursor of the page, or <code>null</code>.
+	 * @param skip
+	 *            The number of commits before the page, used when the cursor is not known.
+	 */
+	static Page read(LogCommand command, File gitDir, String query, String cursor, int skip, int pageSize) throws IOException {
+		query = getStartsDigest(command) + '\n' + query;
+		Continuation from = null;
+		if (cursor != null) {
+			synchronized (continuations) {
+				from = continuations.get(cursor);
+			}
+			if (from != null && (!from.gitDir.equals(gitDir) || !from.query.equals(query) || from.pageSize != pageSize)) {
+				from = null;
+			}
+		}
+
+		RevWalk walk = command.getRevWalk();
+		RevFilter logFilter = walk.getRevFilter();
+		walk.setRetainBody(false);
+		List<RevCommit> starts = new ArrayList<RevCommit>();
+		List<RevCommit> commits = null;
+		RecordingFilter filter = null;
+		if (from != null) {
+			filter = new RecordingFilter(logFilter, from.walked, true);
+			commits = read(walk, from.starts, command.getUninteresting(), filter, starts, 0, pageSize);
+			if (filter.skewed) {
+				// the order of the commits is not known ahead, walk from the start
+				from = null;
+				commits = null;
+			}
+		}
+		if (commits == null) {
+			filter = new RecordingFilter(logFilter, Collections.<ObjectId> emptySet(), false);
+			starts.clear();
+			commits = read(walk, command.getStarts(), command.getUninteresting(), filter, starts, skip, pageSize);
+		}
+		for (RevCommit commit : commits) {
+			walk.parseBody(commit);
+		}
+
+		String previousCursor = from != null ? from.previousCursor : null;
+		String nextCursor = null;
+		if (commits.size() > pageSize && pageSize > 0 && walk.getTreeFilter() == TreeFilter.ALL) {
+			// the commits reached after the last commit of the page are reached again when the walk is resumed
+			int reached = filter.reached.lastIndexOf(commits.get(pageSize - 1)) + 1;
+			List<RevCommit> walked = new ArrayList<RevCommit>(filter.walked.size());
+			for (ObjectId id : filter.walked) {
+				walked.add(walk.parseCommit(id));
+			}
+			Continuation next = getContinuation(gitDir, query, pageSize, cursor, starts, filter.reached.subList(0, reached), walked);
+			if (next != null) {
+				synchronized (continuations) {
+					nextCursor = from != null && from.nextCursor != null ? from.nextCursor : UUID.randomUUID().toString();
+					if (from != null) {
+						from.nextCursor = nextCursor;
+					}
+					continuations.put(nextCursor, next);
+				}
+			}
+		}
+		return new Page(Collections.unmodifiableList(commits), previousCursor, nextCursor);
+	}
+
+	/**
+	 * Returns the page size commits after the skipped ones, plus the first commit of the next page if there is one.
+	 */
+	private static List<RevCommit> read(RevWalk walk, List<ObjectId> startIds, List<ObjectId> uninteresting, RecordingFilter filter,
+			List<RevCommit> starts, int skip, int pageSize) throws IOException {
+		walk.reset();
+		for (ObjectId id : startIds) {
+			RevCommit start = walk.parseCommit(id);
+			walk.markStart(start);
+			starts.add(start);
+		}
+		for (ObjectId id : uninteresting) {
+			walk.markUninteresting(walk.parseCommit(id));
+		}
+		walk.setRevFilter(filter);
+		for (int i = 0; i < skip && walk.next() != null; i++) {
+			// skipped
+		}
+		List<RevCommit> commits = new ArrayList<RevCommit>(pageSize + 1);
+		while (commits.size() <= pageSize) {
+			RevCommit commit = walk.next();
+			if (commit == null) {
+				break;
+			}
+			commits.add(commit);
+		}
+		return commits;
+	}
+
+	/**
+	 * Returns the state of a walk after the given commits have been reached, or <code>null</code> if it has too many
+	 * commits to be kept.
+	 *
+	 * @param walked
+	 *            The commits walked before the walk was resumed that could be reached again.
+	 */
+	private static Continuation getContinuation(File gitDir, String query, int pageSize, String cursor, List<RevCommit> starts, List<RevCommit> reached,
+			List<RevCommit> walked) {
+		// the pending commits in the order the walk queued them, the walk keeps that order for commits with the same time
+		Set<RevCommit> pending = new LinkedHashSet<RevCommit>(starts);
+		for (RevCommit commit : reached) {
+			for (RevCommit parent : commit.getParents()) {
+				pending.add(parent);
+			}
+		}
+		pending.removeAll(new HashSet<RevCommit>(reached));
+		pending.removeAll(walked);
+		List<ObjectId> ids = new ArrayList<ObjectId>(pending.size());
+		int latest = Integer.MIN_VALUE;
+		for (RevCommit commit : pending) {
+			if (!commit.has(RevFlag.UNINTERESTING)) {
+				ids.add(commit.copy());
+				latest = Math.max(latest, commit.getCommitTime());
+			}
+		}
+		// an ancestor of a pending commit can only have been reached before it if both have the same time
+		Set<ObjectId> again = new HashSet<ObjectId>();
+		for (RevCommit commit : reached) {
+			if (commit.getCommitTime() <= latest) {
+				again.add(commit.copy());
+			}
+		}
+		for (RevCommit commit : walked) {
+			if (commit.getCommitTime() <= latest) {
+				again.add(commit.copy());
+			}
+		}
+		if (ids.isEmpty() || ids.size() + again.size() > MAX_IDS) {
+			return null;
+		}
+		return new Continuation(gitDir, query, pageSize, cursor, ids, again);
+	}
+
+	/**
+	 * Returns a digest of the resolved start and uninteresting commits of the log, so that a cursor is not used once a
+	 * branch of the log has moved.
+	 */
+	private static String getStartsDigest(LogCommand command) {
+		MessageDigest digest = Constants.newMessageDigest();
+		byte[] buffer = new byte[Constants.OBJECT_ID_LENGTH];
+		for (ObjectId id : command.getStarts()) {
+			id.copyRawTo(buffer, 0);
+			digest.update(buffer);
+		}
+		digest.update((byte) '^');
+		for (ObjectId id : command.getUninteresting()) {
+			id.copyRawTo(buffer, 0);
+			digest.update(buffer);
+		}
+		return ObjectId.fromRaw(digest.digest()).name();
+	}
+}
@@ -21,14 +21,11 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.revwalk.RevWalkUtils;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
+import org.eclipse.orion.server.git.GitAheadBehindCache;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.objects.Log;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.osgi.util.NLS;
@@ -58,6 +55,7 @@ public class LogJob extends GitJob {
 	private String fromDate;
 	private String toDate;
 	private boolean mergeBaseFilter;
+	private String cursor;
 	private static Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.git");
 
 	/**
@@ -106,36 +104,35 @@ public class LogJob extends GitJob {
 		setFinalMessage("Generating git log completed.");
 	}
 
+	/**
+	 * Sets the cursor of the requested page, as found in the page links of a previous log.
+	 * 
+	 * @param cursor
+	 *            the cursor, or <code>null</code> to walk the log from the start
+	 */
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
 	@Override
 	protected IStatus performJob() {
 		Repository db = null;
 		LogCommand logCommand = null;
 		try {
 			File gitDir = GitUtils.getGitDir(filePath);
-			db = FileRepositoryBuilder.create(gitDir);
+			db = GitRepositoryCache.getRepository(gitDir);
 			int aheadCount = 0, behindCount = 0, maxCount = -1;
 			if (mergeBaseFilter) {
-				RevWalk walk = new RevWalk(db);
-				try {
-					walk.setRevFilter(RevFilter.MERGE_BASE);
-					RevCommit toRevCommit = walk.lookupCommit(toObjectId);
-					walk.markStart(toRevCommit);
-					RevCommit fromRevCommit = walk.lookupCommit(fromObjectId);
-					walk.markUninteresting(fromRevCommit);
-					RevCommit next = walk.next();
-					walk.reset();
-					walk.setRevFilter(RevFilter.ALL);
-					aheadCount = RevWalkUtils.count(walk, toRevCommit, next);
-					behindCount = RevWalkUtils.count(walk, fromRevCommit, next);
-					if (next != null) {
-						toObjectId = next.toObjectId();
-						fromObjectId = null;
-					} else {
-						// There is no merge base, return an empty log
-						maxCount = 0;
-					}
-				} finally {
-					walk.dispose();
+				GitAheadBehindCache.Counts counts = GitAheadBehindCache.getCounts(db, toRefId != null ? toRefId.getName() : null, toObjectId,
+						fromRefId != null ? fromRefId.getName() : null, fromObjectId);
+				aheadCount = counts.getAheadCount();
+				behindCount = counts.getBehindCount();
+				if (counts.getMergeBase() != null) {
+					toObjectId = counts.getMergeBase();
+					fromObjectId = null;
+				} else {
+					// There is no merge base, return an empty log
+					maxCount = 0;
 				}
 			}
 
@@ -188,21 +185,23 @@ public class LogJob extends GitJob {
 				logCommand.setDateFilter(null, toDate);
 			}
 
-			if (page > 0) {
-				logCommand.setSkip((page - 1) * pageSize);
-				logCommand.setMaxCount(pageSize + 1); // to check if next page
-														// link is needed
-			}
 			if (pattern != null && !pattern.isEmpty()) {
 				logCommand.addPath(pattern);
 			}
 			log.setPaging(page, pageSize);
 			if (maxCount != -1) {
 				logCommand.setMaxCount(maxCount);
+				log.setCommits(logCommand.call());
+			} else if (page > 0) {
+				// resume the walk where the previous page ended if the cursor is known, the page includes the first commit of
+				// the next page to check if next page link is needed
+				logCommand.call();
+				LogCursorCache.Page window = LogCursorCache.read(logCommand, gitDir, getQuery(), cursor, (page - 1) * pageSize, pageSize);
+				log.setCommits(window.getCommits());
+				log.setCursors(window.getPreviousCursor(), window.getNextCursor());
+			} else {
+				log.setCommits(logCommand.call());
 			}
-
-			Iterable<RevCommit> commits = logCommand.call();
-			log.setCommits(commits);
 			JSONObject result = log.toJSON();
 			if (mergeBaseFilter) {
 				result.put(GitConstants.KEY_BEHIND_COUNT, behindCount);
@@ -222,4 +221,17 @@ public class LogJob extends GitJob {
 			}
 		}
 	}
+
+	/**
+	 * Returns the options filtering the commits of the log, for a cursor to be used with the same log only. The start
+	 * commits of the log are checked by the cursor cache.
+	 */
+	private String getQuery() {
+		StringBuilder query = new StringBuilder();
+		String[] options = new String[] {pattern, messageFilter, authorFilter, committerFilter, sha1Filter, fromDate, toDate};
+		for (String option : options) {
+			query.append(option != null ? option : "").append('\n'); //$NON-NLS-1$
+		}
+		return query.toString();
+	}
 }
@@ -22,6 +22,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeResult.MergeStatus;
 import org.eclipse.jgit.api.PullCommand;
@@ -31,7 +32,6 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.Transport;
@@ -39,6 +39,7 @@ import org.eclipse.jgit.transport.TransportHttp;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.osgi.util.NLS;
 
@@ -52,6 +53,8 @@ public class PullJob extends GitJob {
 
 	public PullJob(String userRunningTask, CredentialsProvider credentials, Path path, boolean force) {
 		super(userRunningTask, true, (GitCredentialsProvider) credentials);
+		// transfers and clones are bulk tasks, see TaskJobScheduler
+		setPriority(Job.LONG);
 		// path: file/{...}
 		this.path = path;
 		this.projectName = path.lastSegment();
@@ -70,7 +73,7 @@ public class PullJob extends GitJob {
 		ProgressMonitor gitMonitor = new EclipseGitProgressTransformer(monitor);
 		Repository db = null;
 		try {
-			db = FileRepositoryBuilder.create(GitUtils.getGitDir(path));
+			db = GitRepositoryCache.getRepository(GitUtils.getGitDir(path));
 			Git git = Git.wrap(db);
 			PullCommand pc = git.pull();
 			pc.setProgressMonitor(gitMonitor);
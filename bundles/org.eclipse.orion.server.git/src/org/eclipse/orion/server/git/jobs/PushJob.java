@@ -25,6 +25,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.TransportConfigCallback;
@@ -35,7 +36,6 @@ import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.PushResult;
 import org.eclipse.jgit.transport.RefSpec;
@@ -49,6 +49,7 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.IGitHubTokenProvider;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.osgi.util.NLS;
@@ -71,6 +72,8 @@ public class PushJob extends GitJob {
 
 	public PushJob(String userRunningTask, CredentialsProvider credentials, Path path, String srcRef, boolean tags, boolean force) {
 		super(userRunningTask, true, (GitCredentialsProvider) credentials);
+		// transfers and clones are bulk tasks, see TaskJobScheduler
+		setPriority(Job.LONG);
 		this.path = path;
 		this.remote = path.segment(0);
 		this.branch = GitUtils.decode(path.segment(1));
@@ -93,7 +96,7 @@ public class PushJob extends GitJob {
 		Repository db = null;
 		JSONObject result = new JSONObject();
 		try {
-			db = FileRepositoryBuilder.create(gitDir);
+			db = GitRepositoryCache.getRepository(gitDir);
 			Git git = Git.wrap(db);
 
 			PushCommand pushCommand = git.push();
@@ -184,7 +187,7 @@ public class PushJob extends GitJob {
 				Repository db = null;
 				try {
 					File gitDir = GitUtils.getGitDir(path.removeFirstSegments(2));
-					db = FileRepositoryBuilder.create(gitDir);
+					db = GitRepositoryCache.getRepository(gitDir);
 					Git git = Git.wrap(db);
 					RemoteConfig remoteConfig = new RemoteConfig(git.getRepository().getConfig(), remote);
 					String repositoryUrl = remoteConfig.getURIs().get(0).toString();
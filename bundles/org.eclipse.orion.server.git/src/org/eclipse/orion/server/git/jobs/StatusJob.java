@@ -21,11 +21,11 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
+import org.eclipse.orion.server.git.GitRepositoryCache;
+import org.eclipse.orion.server.git.GitStatusCache;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.orion.server.git.servlets.GitUtils.Traverse;
 import org.eclipse.osgi.util.NLS;
@@ -68,9 +68,8 @@ public class StatusJob extends GitJob {
 				return new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_BAD_REQUEST, msg, null);
 			}
 			long t1 = System.currentTimeMillis();
-			db = FileRepositoryBuilder.create(gitDir);
-			Git git = Git.wrap(db);
-			org.eclipse.jgit.api.Status gitStatus = git.status().call();
+			db = GitRepositoryCache.getRepository(gitDir);
+			GitStatusCache.Snapshot gitStatus = GitStatusCache.getInstance().getStatus(db);
 			long t2 = System.currentTimeMillis();
 
 			String relativePath = GitUtils.getRelativePath(this.filePath, set.iterator().next().getKey());
@@ -78,7 +77,7 @@ public class StatusJob extends GitJob {
 			org.eclipse.orion.server.git.objects.Status status = new org.eclipse.orion.server.git.objects.Status(this.baseLocation, db, gitStatus, basePath);
 			ServerStatus result = new ServerStatus(Status.OK_STATUS, HttpServletResponse.SC_OK, status.toJSON());
 			if (logger.isDebugEnabled() && (t2 - t0) > GIT_PERF_THRESHOLD) {
-				logger.debug("Slow git status. Finding git dir: " + (t1 - t0) + "ms. JGit status call: " + (t2 - t1) + "ms");
+				logger.debug("Slow git status. Finding git dir: " + (t1 - t0) + "ms. Status: " + (t2 - t1) + "ms");
 			}
 			return result;
 		} catch (Exception e) {
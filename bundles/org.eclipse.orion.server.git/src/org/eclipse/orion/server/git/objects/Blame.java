@@ -13,8 +13,10 @@ package org.eclipse.orion.server.git.objects;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
@@ -40,9 +42,7 @@ public class Blame extends GitObject {
 
 	public static final String TYPE = "Blame"; //$NON-NLS-1$
 
-	private List<String> lines = new ArrayList<String>();
-
-	private List<RevCommit> commits = new ArrayList<RevCommit>();
+	private List<RevCommit> lines = Collections.emptyList();
 
 	private String filePath = null;
 
@@ -70,12 +70,12 @@ public class Blame extends GitObject {
 	 */
 
 	/**
-	 * Add Strings of commitIds for each line
+	 * Set the commits blamed for each line, a line without a commit belongs to the range of the previous line
 	 * 
-	 * @param line
+	 * @param lines
 	 */
-	public void addLine(String line) {
-		this.lines.add(line);
+	public void setLines(List<RevCommit> lines) {
+		this.lines = lines;
 	}
 
 	/**
@@ -87,25 +87,6 @@ public class Blame extends GitObject {
 		this.filePath = path;
 	}
 
-	/**
-	 * Add RevCommit to needed commits
-	 * 
-	 * @param commit
-	 */
-	public void addCommit(RevCommit commit) {
-		this.commits.add(commit);
-	}
-
-	/**
-	 * Check is commit is in the list
-	 * 
-	 * @param commit
-	 * @return boolean if exists
-	 */
-	public boolean commitExists(RevCommit commit) {
-		return this.commits.contains(commit);
-	}
-
 	/**
 	 * Get the file path for the blame object
 	 * 
@@ -115,13 +96,6 @@ public class Blame extends GitObject {
 		return this.filePath;
 	}
 
-	/**
-	 * clear lines array
-	 */
-	public void clearLines() {
-		this.lines = new ArrayList<String>();
-	}
-
 	/**
 	 * Set the Commit where the blameing will start from
 	 */
@@ -164,69 +138,57 @@ public class Blame extends GitObject {
 
 	@PropertyDescription(name = ProtocolConstants.KEY_CHILDREN)
 	private JSONArray getBlameJSON() throws URISyntaxException, JSONException, IOException {
-		if (lines.size() > 0 && commits.size() > 0) {
-			ArrayList<JSONArray> commitRanges = new ArrayList<JSONArray>();
-			JSONObject tempObj = null;
-			String lineId = null;
-			String currentCommitId = null;
-			for (int i = 0; i < commits.size(); i++) {
-				commitRanges.add(new JSONArray());
-			}
-			try {
-				for (int i = 0; i < lines.size(); i++) {
-					lineId = lines.get(i);
-					if (lineId != null && !lineId.equals(currentCommitId)) {
-						if (tempObj != null) {
-							tempObj.put(GitConstants.KEY_END_RANGE, i);
-							for (int j = 0; j < commits.size(); j++) {
-								if (commits.get(j).getId().getName().equals(currentCommitId)) {
-									commitRanges.get(j).put(tempObj);
-									break;
-								}
-							}
-
-						}
-						tempObj = new JSONObject();
-						tempObj.put(GitConstants.KEY_START_RANGE, i + 1);
-						currentCommitId = lineId;
-					}
-				}
-				tempObj.put(GitConstants.KEY_END_RANGE, lines.size());
-				for (int j = 0; j < commits.size(); j++) {
-					if (commits.get(j).getId().getName().equals(lineId)) {
-						commitRanges.get(j).put(tempObj);
-						break;
-					}
+		// the ranges of lines of each commit, in the order the commits first appear in the file
+		Map<RevCommit, JSONArray> commitRanges = new LinkedHashMap<RevCommit, JSONArray>();
+		RevCommit currentCommit = null;
+		int start = 0;
+		for (int i = 0; i < lines.size(); i++) {
+			RevCommit lineCommit = lines.get(i);
+			if (lineCommit != null && !lineCommit.equals(currentCommit)) {
+				if (currentCommit != null) {
+					addRange(commitRanges, currentCommit, start, i);
 				}
-			} catch (NullPointerException e) {
-				e.printStackTrace();
+				start = i + 1;
+				currentCommit = lineCommit;
 			}
-			JSONArray returnJSON = new JSONArray();
-			RevCommit tempCommit;
-			PersonIdent person;
-			for (int i = 0; i < commitRanges.size(); i++) {
-				tempObj = new JSONObject();
-				tempCommit = commits.get(i);
-				person = tempCommit.getAuthorIdent();
-				URI commitURI = BaseToCommitConverter.getCommitLocation(cloneLocation, tempCommit.getId().getName(), BaseToCommitConverter.REMOVE_FIRST_2);
-				tempObj = new JSONObject();
-				tempObj.put(GitConstants.KEY_COMMIT_TIME, (long) tempCommit.getCommitTime() * 1000);
-				tempObj.put(GitConstants.KEY_AUTHOR_EMAIL, person.getEmailAddress());
-				tempObj.put(GitConstants.KEY_AUTHOR_NAME, person.getName());
-				tempObj.put(GitConstants.KEY_AUTHOR_IMAGE, UserUtilities.getImageLink(person.getEmailAddress()));
-				person = tempCommit.getCommitterIdent();
-				tempObj.put(GitConstants.KEY_COMMITTER_EMAIL, person.getEmailAddress());
-				tempObj.put(GitConstants.KEY_COMMITTER_NAME, person.getName());
-				tempObj.put(GitConstants.KEY_COMMIT, commitURI);
-				tempObj.put(ProtocolConstants.KEY_CHILDREN, commitRanges.get(i));
-				tempObj.put(GitConstants.KEY_COMMIT_MESSAGE, tempCommit.getFullMessage());
-				tempObj.put(ProtocolConstants.KEY_NAME, tempCommit.getId().getName());
-				returnJSON.put(tempObj);
-			}
-			return returnJSON;
+		}
+		if (currentCommit == null) {
+			return null;
+		}
+		addRange(commitRanges, currentCommit, start, lines.size());
+
+		JSONArray returnJSON = new JSONArray();
+		for (Map.Entry<RevCommit, JSONArray> entry : commitRanges.entrySet()) {
+			RevCommit tempCommit = entry.getKey();
+			PersonIdent person = tempCommit.getAuthorIdent();
+			URI commitURI = BaseToCommitConverter.getCommitLocation(cloneLocation, tempCommit.getId().getName(), BaseToCommitConverter.REMOVE_FIRST_2);
+			JSONObject tempObj = new JSONObject();
+			tempObj.put(GitConstants.KEY_COMMIT_TIME, (long) tempCommit.getCommitTime() * 1000);
+			tempObj.put(GitConstants.KEY_AUTHOR_EMAIL, person.getEmailAddress());
+			tempObj.put(GitConstants.KEY_AUTHOR_NAME, person.getName());
+			tempObj.put(GitConstants.KEY_AUTHOR_IMAGE, UserUtilities.getImageLink(person.getEmailAddress()));
+			person = tempCommit.getCommitterIdent();
+			tempObj.put(GitConstants.KEY_COMMITTER_EMAIL, person.getEmailAddress());
+			tempObj.put(GitConstants.KEY_COMMITTER_NAME, person.getName());
+			tempObj.put(GitConstants.KEY_COMMIT, commitURI);
+			tempObj.put(ProtocolConstants.KEY_CHILDREN, entry.getValue());
+			tempObj.put(GitConstants.KEY_COMMIT_MESSAGE, tempCommit.getFullMessage());
+			tempObj.put(ProtocolConstants.KEY_NAME, tempCommit.getId().getName());
+			returnJSON.put(tempObj);
+		}
+		return returnJSON;
+	}
 
+	private static void addRange(Map<RevCommit, JSONArray> commitRanges, RevCommit commit, int start, int end) throws JSONException {
+		JSONArray ranges = commitRanges.get(commit);
+		if (ranges == null) {
+			ranges = new JSONArray();
+			commitRanges.put(commit, ranges);
 		}
-		return null;
+		JSONObject range = new JSONObject();
+		range.put(GitConstants.KEY_START_RANGE, start);
+		range.put(GitConstants.KEY_END_RANGE, end);
+		ranges.put(range);
 	}
 
 	/**
@@ -82,12 +82,22 @@ public class Branch extends GitObject {
 	}
 
 	private Ref ref;
+	private RevCommit commit;
+	private String currentBranch;
 
 	public Branch(URI cloneLocation, Repository db, Ref ref) {
 		super(cloneLocation, db);
 		this.ref = ref;
 	}
 
+	/**
+	 * Creates a branch whose commit is parsed with the given walk, shared by the branches listed together.
+	 */
+	public Branch(URI cloneLocation, Repository db, Ref ref, RevWalk walk) {
+		this(cloneLocation, db, ref);
+		this.commit = parseCommit(walk);
+	}
+
 	/**
 	 * Returns a JSON representation of this local branch.
 	 */
@@ -98,7 +108,9 @@ public class Branch extends GitObject {
 
 	@PropertyDescription(name = GitConstants.KEY_BRANCH_CURRENT)
 	public boolean isCurrent() throws IOException {
-		return getName(false, false).equals(db.getBranch())||(isDetached()&&this.getHeadSHA().equals(db.getBranch()));
+		if (currentBranch == null)
+			currentBranch = db.getBranch();
+		return getName(false, false).equals(currentBranch)||(isDetached()&&this.getHeadSHA().equals(currentBranch));
 	}
 	
 	@PropertyDescription(name = GitConstants.KEY_BRANCH_DETACHED)
@@ -153,6 +165,25 @@ public class Branch extends GitObject {
 		return result;
 	}
 
+	/**
+	 * Returns the remote tracking branch listed first in the remotes of this branch, or <code>null</code> if the branch
+	 * has not been pushed to the remote.
+	 */
+	public Ref getTrackingBranch() throws URISyntaxException, IOException {
+		if (isDetached())
+			return null;
+		String branchName = Repository.shortenRefName(ref.getName());
+		String remoteName = getConfig().getString(ConfigConstants.CONFIG_BRANCH_SECTION, branchName, ConfigConstants.CONFIG_KEY_REMOTE);
+		for (RemoteConfig remoteConfig : RemoteConfig.getAllRemoteConfigs(getConfig())) {
+			if (!remoteConfig.getFetchRefSpecs().isEmpty() && (remoteName == null || remoteConfig.getName().equals(remoteName))) {
+				Ref trackingBranch = db.getRef(Constants.R_REMOTES + remoteConfig.getName() + "/" + branchName); //$NON-NLS-1$
+				if (trackingBranch != null)
+					return trackingBranch;
+			}
+		}
+		return null;
+	}
+
 	@PropertyDescription(name = ProtocolConstants.KEY_NAME)
 	private String getName() {
 		return getName(false, false);
@@ -225,16 +256,25 @@ public class Branch extends GitObject {
 	}
 
 	private RevCommit parseCommit() {
+		if (commit == null) {
+			RevWalk walk = new RevWalk(db);
+			try {
+				commit = parseCommit(walk);
+			} finally {
+				walk.close();
+			}
+		}
+		return commit;
+	}
+
+	private RevCommit parseCommit(RevWalk walk) {
 		ObjectId oid = ref.getObjectId();
 		if (oid == null)
 			return null;
-		RevWalk walk = new RevWalk(db);
 		try {
 			return walk.parseCommit(oid);
 		} catch (IOException e) {
 			// ignore and return null
-		} finally {
-			walk.close();
 		}
 		return null;
 	}
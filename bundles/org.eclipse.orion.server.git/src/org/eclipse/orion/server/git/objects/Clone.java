@@ -25,7 +25,6 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.submodule.SubmoduleStatus;
 import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.URIish;
@@ -39,6 +38,7 @@ import org.eclipse.orion.server.core.resources.Serializer;
 import org.eclipse.orion.server.core.resources.annotations.PropertyDescription;
 import org.eclipse.orion.server.core.resources.annotations.ResourceDescription;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.servlets.GitServlet;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.json.JSONArray;
@@ -97,7 +97,10 @@ public class Clone {
 		this.id = id;
 	}
 
-	private String getId() {
+	/**
+	 * Returns the clone id, see {@link #setId(String)}.
+	 */
+	public String getId() {
 		return this.id;
 	}
 
@@ -274,7 +277,7 @@ public class Clone {
 			submodules = new JSONArray();
 			Repository parentRepository = null;
 			try {
-				parentRepository = FileRepositoryBuilder.create(GitUtils.resolveGitDir(localFile));
+				parentRepository = GitRepositoryCache.getRepository(GitUtils.resolveGitDir(localFile));
 				SubmoduleWalk walk = SubmoduleWalk.forIndex(parentRepository);
 				while (walk.next()) {
 					String cloneUrl;
@@ -14,7 +14,6 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -51,6 +50,8 @@ import org.eclipse.orion.server.core.resources.annotations.ResourceDescription;
 import org.eclipse.orion.server.core.users.UserUtilities;
 import org.eclipse.orion.server.git.BaseToCommitConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitDiffCache;
+import org.eclipse.orion.server.git.GitRefCache;
 import org.eclipse.orion.server.git.servlets.GitServlet;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -92,8 +93,7 @@ public class Commit extends GitObject {
 	 * Whether this is a commit at the root of the repository, or only a particular path (git commit -o {path}).
 	 */
 	protected boolean isRoot = true;
-	protected Map<ObjectId, JSONArray> commitToBranchMap;
-	protected Map<ObjectId, Map<String, Ref>> commitToTagMap;
+	protected GitRefCache.Snapshot refs;
 
 	public Commit(URI cloneLocation, Repository db, RevCommit revCommit, String pattern) {
 		super(cloneLocation, db);
@@ -108,24 +108,17 @@ public class Commit extends GitObject {
 		}
 	}
 
-	public void setCommitToBranchMap(Map<ObjectId, JSONArray> map) {
-		this.commitToBranchMap = map;
-	}
-
-	public void setCommitToTagMap(Map<ObjectId, Map<String, Ref>> map) {
-		this.commitToTagMap = map;
-	}
-
-	public Map<ObjectId, JSONArray> getCommitToBranchMap() throws GitAPIException, JSONException, URISyntaxException, IOException, CoreException {
-		if (commitToBranchMap == null)
-			commitToBranchMap = Log.getCommitToBranchMap(cloneLocation, db);
-		return commitToBranchMap;
+	/**
+	 * Sets the branches and tags to decorate the commit with, so that the commits of a log share them.
+	 */
+	public void setRefs(GitRefCache.Snapshot refs) {
+		this.refs = refs;
 	}
 
-	public Map<ObjectId, Map<String, Ref>> getCommitToTagMap() throws GitAPIException, JSONException, URISyntaxException, IOException, CoreException {
-		if (commitToTagMap == null)
-			commitToTagMap = Log.getCommitToTagMap(cloneLocation, db);
-		return commitToTagMap;
+	public GitRefCache.Snapshot getRefs() throws IOException {
+		if (refs == null)
+			refs = GitRefCache.getSnapshot(db);
+		return refs;
 	}
 
 	/**
@@ -222,7 +215,16 @@ public class Commit extends GitObject {
 	// TODO: expandable
 	@PropertyDescription(name = GitConstants.KEY_BRANCHES)
 	protected JSONArray getBranches() throws JSONException, GitAPIException, URISyntaxException, IOException, CoreException {
-		return getCommitToBranchMap().get(revCommit.getId());
+		List<String> names = getRefs().getBranches(revCommit.getId());
+		if (names.isEmpty())
+			return null;
+		JSONArray branches = new JSONArray();
+		for (String name : names) {
+			JSONObject branch = new JSONObject();
+			branch.put(ProtocolConstants.KEY_FULL_NAME, name);
+			branches.put(branch);
+		}
+		return branches;
 	}
 
 	// TODO: expandable?
@@ -238,21 +240,29 @@ public class Commit extends GitObject {
 		JSONObject result = new JSONObject();
 		TreeWalk tw = null;
 		try {
-			tw = new TreeWalk(db);
-			tw.setRecursive(true);
 			List<DiffEntry> l = null;
 			String fromName = null;
+			RevCommit parent = null;
+			ObjectId oldTree = ObjectId.zeroId();
 			if (revCommit.getParentCount() > 0) {
-				RevCommit parent = parseCommit(revCommit.getParent(0));
+				parent = parseCommit(revCommit.getParent(0));
+				oldTree = parent.getTree();
+				fromName = revCommit.getParent(0).getName();
+			}
+			// the changes of a commit never change, only the paths they are limited to
+			String options = filter != null ? filter.toString() : ""; //$NON-NLS-1$
+			l = GitDiffCache.get(db, oldTree, revCommit.getTree(), options);
+			if (l == null && parent != null) {
+				tw = new TreeWalk(db);
+				tw.setRecursive(true);
 				tw.reset(parent.getTree(), revCommit.getTree());
 				if (filter != null)
 					tw.setFilter(filter);
 				else
 					tw.setFilter(TreeFilter.ANY_DIFF);
 
-				l = DiffEntry.scan(tw);
-				fromName = revCommit.getParent(0).getName();
-			} else {
+				l = GitDiffCache.put(db, oldTree, revCommit.getTree(), options, DiffEntry.scan(tw));
+			} else if (l == null) {
 				RevWalk rw = null;
 				DiffFormatter diffFormat = null;
 				try {
@@ -262,6 +272,7 @@ public class Commit extends GitObject {
 					if (filter != null)
 						diffFormat.setPathFilter(filter);
 					l = diffFormat.scan(new EmptyTreeIterator(), new CanonicalTreeParser(null, rw.getObjectReader(), revCommit.getTree()));
+					l = GitDiffCache.put(db, oldTree, revCommit.getTree(), options, l);
 				} finally {
 					diffFormat.close();
 					rw.close();
@@ -300,7 +311,8 @@ public class Commit extends GitObject {
 				result.put(ProtocolConstants.KEY_NEXT_LOCATION, nextLocation);
 			}
 		} finally {
-			tw.close();
+			if (tw != null)
+				tw.close();
 		}
 		return result;
 	}
@@ -320,10 +332,7 @@ public class Commit extends GitObject {
 	}
 
 	protected Map<String, Ref> getTagsForCommit() throws MissingObjectException, IOException, GitAPIException, JSONException, URISyntaxException, CoreException {
-		Map<String, Ref> tags = getCommitToTagMap().get(revCommit.getId());
-		if (tags == null)
-			tags = new HashMap<String, Ref>();
-		return tags;
+		return getRefs().getTags(revCommit.getId());
 	}
 
 	protected URI createDiffLocation(String toRefId, String fromRefId, String path) throws URISyntaxException {
@@ -16,11 +16,8 @@ import java.net.URISyntaxException;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jgit.errors.ConfigInvalidException;
-import org.eclipse.jgit.internal.storage.file.FileRepository;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
-import org.eclipse.jgit.util.FS;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.core.resources.Property;
 import org.eclipse.orion.server.core.resources.ResourceShape;
@@ -66,7 +63,7 @@ public class ConfigOption extends GitObject {
 
 	public ConfigOption(URI cloneLocation, Repository db) throws IOException {
 		super(cloneLocation, db);
-		this.config = getLocalConfig();
+		this.config = GitUtils.getLocalConfig(db);
 	}
 
 	public ConfigOption(URI cloneLocation, Repository db, String key) throws IOException {
@@ -123,25 +120,6 @@ public class ConfigOption extends GitObject {
 		return BaseToConfigEntryConverter.CLONE.baseToConfigEntryLocation(cloneLocation, GitUtils.encode(key));
 	}
 
-	/**
-	 * Retrieves local config without any base config.
-	 */
-	private FileBasedConfig getLocalConfig() throws IOException {
-		// TODO: remove usage of internal type
-		if (db instanceof FileRepository) {
-			FileRepository fr = (FileRepository) db;
-			FileBasedConfig config = new FileBasedConfig(fr.getConfig().getFile(), FS.detect());
-			try {
-				config.load();
-			} catch (ConfigInvalidException e) {
-				throw new IOException(e);
-			}
-			return config;
-		} else {
-			throw new IllegalArgumentException("Repository is not file based.");
-		}
-	}
-
 	/**
 	 * Converts array of the key segments to the string representation.
 	 * 
@@ -15,21 +15,14 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.ListBranchCommand.ListMode;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.Constants;
-import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -41,6 +34,7 @@ import org.eclipse.orion.server.core.resources.annotations.PropertyDescription;
 import org.eclipse.orion.server.core.resources.annotations.ResourceDescription;
 import org.eclipse.orion.server.git.BaseToCommitConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRefCache;
 import org.eclipse.orion.server.git.servlets.GitUtils;
 import org.eclipse.osgi.util.NLS;
 import org.json.JSONArray;
@@ -81,6 +75,8 @@ public class Log extends GitObject {
 	private Ref fromRefId;
 	private int page;
 	private int pageSize;
+	private String previousCursor;
+	private String nextCursor;
 
 	public Log(URI cloneLocation, Repository db, Iterable<RevCommit> commits, String pattern, Ref toRefId, Ref fromRefId) {
 		super(cloneLocation, db);
@@ -106,6 +102,19 @@ public class Log extends GitObject {
 		this.pageSize = pageSize;
 	}
 
+	/**
+	 * Sets the cursors the previous and next page links resume the log from.
+	 * 
+	 * @param previousCursor
+	 *            the cursor of the previous page, or <code>null</code>
+	 * @param nextCursor
+	 *            the cursor of the next page, or <code>null</code>
+	 */
+	public void setCursors(String previousCursor, String nextCursor) {
+		this.previousCursor = previousCursor;
+		this.nextCursor = nextCursor;
+	}
+
 	public void setMessagePattern(String messagePattern) {
 		this.messagePattern = messagePattern;
 	}
@@ -142,14 +151,12 @@ public class Log extends GitObject {
 
 	@PropertyDescription(name = ProtocolConstants.KEY_CHILDREN)
 	private JSONArray getChildren() throws GitAPIException, JSONException, URISyntaxException, IOException, CoreException {
-		Map<ObjectId, JSONArray> commitToBranchMap = getCommitToBranchMap(cloneLocation, db);
-		Map<ObjectId, Map<String, Ref>> commitToTagMap = getCommitToTagMap(cloneLocation, db);
+		GitRefCache.Snapshot refs = GitRefCache.getSnapshot(db);
 		JSONArray children = new JSONArray();
 		int i = 0;
 		for (RevCommit revCommit : commits) {
 			Commit commit = new Commit(cloneLocation, db, revCommit, pattern);
-			commit.setCommitToBranchMap(commitToBranchMap);
-			commit.setCommitToTagMap(commitToTagMap);
+			commit.setRefs(refs);
 			children.put(commit.toJSON());
 			if (i++ == pageSize - 1)
 				break;
@@ -183,7 +190,7 @@ public class Log extends GitObject {
 			String q = getCommitQuery();
 			if (page > 1) {
 				return BaseToCommitConverter.getCommitLocation(cloneLocation, GitUtils.encode(c), pattern,
-						BaseToCommitConverter.REMOVE_FIRST_2.setQuery(String.format(q, page - 1, pageSize)));
+						BaseToCommitConverter.REMOVE_FIRST_2.setQuery(String.format(q, page - 1, pageSize) + getCursorQuery(previousCursor)));
 			}
 		}
 		return null;
@@ -226,13 +233,18 @@ public class Log extends GitObject {
 		return q;
 	}
 
+	private String getCursorQuery(String cursor) {
+		// the page number is kept in the links for when the cursor has expired
+		return cursor == null ? "" : "&cursor=" + cursor; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
 	@PropertyDescription(name = ProtocolConstants.KEY_NEXT_LOCATION)
 	private URI getNextPageLocation() throws URISyntaxException {
 		if (hasNextPage()) {
 			String c = getRefRange();
 			String q = getCommitQuery();
 			return BaseToCommitConverter.getCommitLocation(cloneLocation, GitUtils.encode(c), pattern,
-					BaseToCommitConverter.REMOVE_FIRST_2.setQuery(String.format(q, page + 1, pageSize)));
+					BaseToCommitConverter.REMOVE_FIRST_2.setQuery(String.format(q, page + 1, pageSize) + getCursorQuery(nextCursor)));
 		}
 		return null;
 	}
@@ -287,45 +299,4 @@ public class Log extends GitObject {
 		// TODO: lost paging info
 		return BaseToCommitConverter.getCommitLocation(cloneLocation, GitUtils.encode(c.toString()), pattern, BaseToCommitConverter.REMOVE_FIRST_2);
 	}
-
-	static Map<ObjectId, JSONArray> getCommitToBranchMap(URI cloneLocation, Repository db) throws GitAPIException, JSONException {
-		HashMap<ObjectId, JSONArray> commitToBranch = new HashMap<ObjectId, JSONArray>();
-		Git git = Git.wrap(db);
-		List<Ref> branchRefs = git.branchList().setListMode(ListMode.ALL).call();
-		for (Ref branchRef : branchRefs) {
-			ObjectId commitId = branchRef.getLeaf().getObjectId();
-			JSONObject branch = new JSONObject();
-			branch.put(ProtocolConstants.KEY_FULL_NAME, branchRef.getName());
-
-			JSONArray branchesArray = commitToBranch.get(commitId);
-			if (branchesArray != null) {
-				branchesArray.put(branch);
-			} else {
-				branchesArray = new JSONArray();
-				branchesArray.put(branch);
-				commitToBranch.put(commitId, branchesArray);
-			}
-		}
-		return commitToBranch;
-	}
-
-	static Map<ObjectId, Map<String, Ref>> getCommitToTagMap(URI cloneLocation, Repository db) throws MissingObjectException, IOException {
-		HashMap<ObjectId, Map<String, Ref>> commitToTag = new HashMap<ObjectId, Map<String, Ref>>();
-		for (Entry<String, Ref> tag : db.getTags().entrySet()) {
-			Ref ref = db.peel(tag.getValue());
-			ObjectId commitId = ref.getPeeledObjectId();
-			if (commitId == null)
-				commitId = ref.getObjectId();
-
-			Map<String, Ref> tags = commitToTag.get(commitId);
-			if (tags != null) {
-				tags.put(tag.getKey(), tag.getValue());
-			} else {
-				tags = new HashMap<String, Ref>();
-				tags.put(tag.getKey(), tag.getValue());
-				commitToTag.put(commitId, tags);
-			}
-		}
-		return commitToTag;
-	}
 }
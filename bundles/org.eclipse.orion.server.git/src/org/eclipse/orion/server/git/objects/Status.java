@@ -30,6 +30,7 @@ import org.eclipse.orion.server.core.resources.annotations.PropertyDescription;
 import org.eclipse.orion.server.core.resources.annotations.ResourceDescription;
 import org.eclipse.orion.server.git.BaseToCloneConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitStatusCache;
 import org.eclipse.orion.server.git.servlets.GitServlet;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -61,10 +62,10 @@ public class Status extends GitObject {
 	}
 
 	private URI baseLocation;
-	private org.eclipse.jgit.api.Status status;
+	private GitStatusCache.Snapshot status;
 	private IPath basePath;
 
-	public Status(URI baseLocation, Repository db, org.eclipse.jgit.api.Status status, IPath basePath) throws URISyntaxException, CoreException {
+	public Status(URI baseLocation, Repository db, GitStatusCache.Snapshot status, IPath basePath) throws URISyntaxException, CoreException {
 		super(BaseToCloneConverter.getCloneLocation(baseLocation, BaseToCloneConverter.STATUS), db);
 		this.baseLocation = baseLocation;
 		this.status = status;
@@ -86,6 +86,15 @@ public class Tag extends GitObject {
 		this.ref = ref;
 	}
 
+	/**
+	 * Creates a tag whose commit is parsed with the given walk, shared by the tags listed together.
+	 * @throws IOException if the tag or its commit cannot be read.
+	 */
+	public Tag(URI cloneLocation, Repository db, Ref ref, RevWalk walk) throws IOException, CoreException {
+		this(cloneLocation, db, ref);
+		parse(walk);
+	}
+
 	@Override
 	public JSONObject toJSON() throws JSONException, URISyntaxException, IOException, CoreException {
 		return jsonSerializer.serialize(this, DEFAULT_RESOURCE_SHAPE);
@@ -114,18 +123,8 @@ public class Tag extends GitObject {
 	private RevCommit parseCommit() {
 		if (this.commit == null) {
 			RevWalk rw = new RevWalk(db);
-			RevObject any;
 			try {
-				any = rw.parseAny(this.ref.getObjectId());
-				if (any instanceof RevTag) {
-					this.tag = (RevTag) any;
-					RevObject o = rw.peel(any);
-					if (o instanceof RevCommit) {
-						this.commit = (RevCommit) rw.peel(any);
-					}
-				} else if (any instanceof RevCommit) {
-					this.commit = (RevCommit) any;
-				}
+				parse(rw);
 			} catch (IOException e) {
 			} finally {
 				rw.dispose();
@@ -134,6 +133,19 @@ public class Tag extends GitObject {
 		return commit;
 	}
 
+	private void parse(RevWalk rw) throws IOException {
+		RevObject any = rw.parseAny(this.ref.getObjectId());
+		if (any instanceof RevTag) {
+			this.tag = (RevTag) any;
+			RevObject o = rw.peel(any);
+			if (o instanceof RevCommit) {
+				this.commit = (RevCommit) o;
+			}
+		} else if (any instanceof RevCommit) {
+			this.commit = (RevCommit) any;
+		}
+	}
+
 	public JSONObject toJSON(JSONObject log) throws JSONException, URISyntaxException, IOException, CoreException {
 		JSONObject tagJSON = this.toJSON();
 		tagJSON.put(GitConstants.KEY_TAG_COMMIT, log);
@@ -26,12 +26,12 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
 import org.eclipse.orion.internal.server.servlets.workspace.authorization.AuthorizationService;
 import org.eclipse.orion.server.core.LogHelper;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.GitActivator;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.servlets.GitUtils.Traverse;
 import org.eclipse.orion.server.servlets.OrionServlet;
 import org.eclipse.osgi.util.NLS;
@@ -109,7 +109,7 @@ public abstract class AbstractGitHandler extends ServletResourceHandler<String>
 				return statusHandler.handleRequest(request, response, new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_BAD_REQUEST, msg, null));
 			}
 			String relativePath = GitUtils.getRelativePath(filePath, firstGitDir.getKey());
-			db = FileRepositoryBuilder.create(gitDir);
+			db = GitRepositoryCache.getRepository(gitDir);
 			RequestInfo requestInfo = new RequestInfo(request, response, db, gitSegment, relativePath, filePath);
 			switch (getMethod(request)) {
 			case GET:
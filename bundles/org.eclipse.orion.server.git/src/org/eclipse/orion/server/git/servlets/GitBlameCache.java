@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git.servlets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * A cache of the commits blamed for the lines of files, so that opening the annotations of a file again does not run
+ * the blame again.
+ * <p>
+ * The blame of a file is keyed by the repository, the path of the file and the commit the blame starts from. The blame
+ * of a file in <code>HEAD</code> also includes the changes in the index and the working tree, so it is only reused while
+ * the HEAD commit and the last modified time and length of the index and of the file have not changed.
+ * </p>
+ */
+public class GitBlameCache {
+
+	private static final int MAX_SIZE = 100;
+
+	/**
+	 * A file modified less than this many milliseconds before the blame could be modified again without changing its
+	 * last modified time, so the blame is not cached.
+	 */
+	private static final long RACY_INTERVAL = 2000;
+
+	private static final Map<String, List<RevCommit>> cache = new LinkedHashMap<String, List<RevCommit>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<RevCommit>> eldest) {
+			return size() > MAX_SIZE;
+		}
+	};
+
+	private static long hitCount = 0;
+
+	private static long missCount = 0;
+
+	/**
+	 * Returns the key of the blame of the file.
+	 *
+	 * @param startCommit
+	 *            The commit the blame starts from, or <code>null</code> for <code>HEAD</code> and the working tree.
+	 * @return The key, or <code>null</code> if the blame must not be cached.
+	 */
+	static String getKey(Repository db, String path, ObjectId startCommit) throws IOException {
+		StringBuilder key = new StringBuilder();
+		key.append(db.getDirectory().getAbsolutePath()).append('\n').append(path).append('\n');
+		if (startCommit != null) {
+			return key.append(startCommit.name()).toString();
+		}
+		ObjectId head = db.resolve(Constants.HEAD);
+		if (head == null) {
+			return null;
+		}
+		key.append(head.name());
+		if (!db.isBare()) {
+			long now = System.currentTimeMillis();
+			for (File file : new File[] {db.getIndexFile(), new File(db.getWorkTree(), path)}) {
+				long lastModified = file.lastModified();
+				if (now - lastModified < RACY_INTERVAL) {
+					return null;
+				}
+				key.append('\n').append(lastModified).append('\n').append(file.length());
+			}
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the commits blamed for the lines of the file, or <code>null</code> if the blame is not in the cache.
+	 */
+	static List<RevCommit> get(String key) {
+		synchronized (cache) {
+			List<RevCommit> lines = cache.get(key);
+			if (lines != null) {
+				hitCount++;
+			} else {
+				missCount++;
+			}
+			return lines;
+		}
+	}
+
+	/**
+	 * Add the commits blamed for the lines of a file to the cache.
+	 *
+	 * @param lines
+	 *            The commits blamed for each line, the list must not be modified.
+	 */
+	static void put(String key, List<RevCommit> lines) {
+		synchronized (cache) {
+			cache.put(key, lines);
+		}
+	}
+
+	/**
+	 * Remove all blames from the cache.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	public static long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public static long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+}
@@ -12,6 +12,9 @@ package org.eclipse.orion.server.git.servlets;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -89,42 +92,30 @@ public class GitBlameHandlerV1 extends AbstractGitHandler {
 			if (blame.getStartCommit() != null) {
 				blameCommand.setStartCommit(blame.getStartCommit());
 			}
-			BlameResult result;
-
-			try {
-				result = blameCommand.call();
-			} catch (Exception e1) {
-				return;
-			}
-			if (result != null) {
-				blame.clearLines();
-				RevCommit commit;
-				RevCommit prevCommit = null;
-				String path;
-				String prevPath = null;
-				for (int i = 0; i < result.getResultContents().size(); i++) {
-					try {
-						commit = result.getSourceCommit(i);
-						prevCommit = commit;
-					} catch (NullPointerException e) {
-						commit = prevCommit;
-					}
-
-					if (!blame.commitExists(commit)) {
-						if (commit != null) {
-							blame.addCommit(commit);
-						}
-					}
-
-					try {
-						path = commit.getId().getName();
-						prevPath = path;
-					} catch (NullPointerException e) {
-						path = prevPath;
-					}
-					blame.addLine(path);
+			String key = GitBlameCache.getKey(db, filePath, blame.getStartCommit());
+			List<RevCommit> lines = key != null ? GitBlameCache.get(key) : null;
+			if (lines == null) {
+				BlameResult result;
+				try {
+					result = blameCommand.call();
+				} catch (Exception e1) {
+					return;
+				}
+				if (result == null) {
+					return;
+				}
+				// the lines not committed yet have no commit
+				int size = result.getResultContents().size();
+				lines = new ArrayList<RevCommit>(size);
+				for (int i = 0; i < size; i++) {
+					lines.add(result.getSourceCommit(i));
+				}
+				lines = Collections.unmodifiableList(lines);
+				if (key != null) {
+					GitBlameCache.put(key, lines);
 				}
 			}
+			blame.setLines(lines);
 		}
 	}
 
@@ -33,6 +33,7 @@ import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.BaseToCloneConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRefCache;
 import org.eclipse.orion.server.git.jobs.ListBranchesJob;
 import org.eclipse.orion.server.git.objects.Branch;
 import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
@@ -72,10 +73,11 @@ public class GitBranchHandlerV1 extends AbstractGitHandler {
 					job = new ListBranchesJob(TaskJobHandler.getUserId(request), filePath, BaseToCloneConverter.getCloneLocation(getURI(request),
 							BaseToCloneConverter.BRANCH_LIST), commitsNumber);
 				}
+				job.setAheadBehind("true".equals(request.getParameter("aheadBehind"))); //$NON-NLS-1$ //$NON-NLS-2$
 				return TaskJobHandler.handleTaskJob(request, response, job, statusHandler, JsonURIUnqualificationStrategy.ALL_NO_GIT);
 			}
 			// branch details: expected path /git/branch/{name}/file/{filePath}
-			List<Ref> branches = Git.wrap(db).branchList().call();
+			List<Ref> branches = GitRefCache.getSnapshot(db).getBranches();
 			JSONObject result = null;
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.BRANCH);
 			for (Ref ref : branches) {
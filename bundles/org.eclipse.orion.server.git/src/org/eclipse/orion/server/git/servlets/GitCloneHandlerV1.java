@@ -62,6 +62,8 @@ import org.eclipse.orion.server.core.metastore.UserInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
+import org.eclipse.orion.server.git.GitStatusCache;
 import org.eclipse.orion.server.git.jobs.CloneJob;
 import org.eclipse.orion.server.git.jobs.InitJob;
 import org.eclipse.orion.server.git.jobs.PullJob;
@@ -301,8 +303,7 @@ public class GitCloneHandlerV1 extends ServletResourceHandler<String> {
 					ProjectInfo project = OrionConfiguration.getMetaStore().readProject(workspace.getUniqueId(), projectName);
 					// this is the location of the project metadata
 					if (project != null && isAccessAllowed(user, project)) {
-						IPath projectPath = GitUtils.pathFromProject(workspace, project);
-						Map<IPath, File> gitDirs = GitUtils.getGitDirs(projectPath, Traverse.GO_DOWN);
+						Map<IPath, File> gitDirs = GitCloneRegistry.getGitDirs(workspace, project);
 						for (Map.Entry<IPath, File> entry : gitDirs.entrySet()) {
 							children.put(new Clone().toJSON(entry.getKey(), baseLocation, GitUtils.getCloneUrl(entry.getValue())));
 						}
@@ -320,7 +321,7 @@ public class GitCloneHandlerV1 extends ServletResourceHandler<String> {
 			ProjectInfo webProject = GitUtils.projectFromPath(path);
 			IPath projectRelativePath = path.removeFirstSegments(3);
 			if (webProject != null && isAccessAllowed(user, webProject) && webProject.getProjectStore().getFileStore(projectRelativePath).fetchInfo().exists()) {
-				Map<IPath, File> gitDirs = GitUtils.getGitDirs(path, Traverse.GO_DOWN);
+				Map<IPath, File> gitDirs = GitCloneRegistry.getGitDirs(path);
 				JSONObject result = new JSONObject();
 				JSONArray children = new JSONArray();
 				for (Map.Entry<IPath, File> entry : gitDirs.entrySet()) {
@@ -368,7 +369,7 @@ public class GitCloneHandlerV1 extends ServletResourceHandler<String> {
 
 				Repository db = null;
 				try {
-					db = FileRepositoryBuilder.create(gitDir);
+					db = GitRepositoryCache.getRepository(gitDir);
 					Git git = Git.wrap(db);
 					if (paths != null) {
 						Set<String> toRemove = new HashSet<String>();
@@ -385,13 +386,20 @@ public class GitCloneHandlerV1 extends ServletResourceHandler<String> {
 								checkout.addPath(p);
 							}
 						}
-						checkout.call();
-						for (String p : toRemove) {
-							File f = new File(git.getRepository().getWorkTree(), p);
-							if (f.isDirectory()) {
-								FileUtils.delete(f, FileUtils.RECURSIVE);
-							} else {
-								f.delete();
+						try {
+							checkout.call();
+							for (String p : toRemove) {
+								File f = new File(git.getRepository().getWorkTree(), p);
+								if (f.isDirectory()) {
+									FileUtils.delete(f, FileUtils.RECURSIVE);
+								} else {
+									f.delete();
+								}
+							}
+						} finally {
+							// the files are rewritten without changing HEAD or the index
+							for (int i = 0; i < paths.length(); i++) {
+								GitStatusCache.getInstance().changed(new File(db.getWorkTree(), paths.getString(i)));
 							}
 						}
 						return true;
@@ -473,9 +481,13 @@ public class GitCloneHandlerV1 extends ServletResourceHandler<String> {
 				File gitDir = GitUtils.getGitDirs(path, Traverse.CURRENT).values().iterator().next();
 				Repository repo = FileRepositoryBuilder.create(gitDir);
 				repo.close();
+				// close the shared repository before its files are deleted
+				GitRepositoryCache.invalidate(gitDir);
 				FileUtils.delete(repo.getWorkTree(), FileUtils.RECURSIVE | FileUtils.RETRY);
+				GitDirCache.invalidate(repo.getWorkTree());
 				if (path.segmentCount() == 3)
 					return statusHandler.handleRequest(request, response, removeProject(request.getRemoteUser(), webProject));
+				GitCloneRegistry.removeClone(path);
 				return true;
 			}
 			String msg = NLS.bind("Nothing found for the given ID: {0}", EncodingUtils.encodeForHTML(path.toString()));
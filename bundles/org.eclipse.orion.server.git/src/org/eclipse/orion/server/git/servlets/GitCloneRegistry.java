@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git.servlets;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.internal.server.servlets.file.FileStoreNotificationWrapper;
+import org.eclipse.orion.server.core.OrionConfiguration;
+import org.eclipse.orion.server.core.metastore.IMetaStore;
+import org.eclipse.orion.server.core.metastore.ProjectInfo;
+import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
+import org.eclipse.orion.server.git.servlets.GitUtils.Traverse;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the locations of the clones in each project, so that the clones of a user are listed without walking all
+ * folders of the projects to find git repositories.
+ * <p>
+ * The clones found by walking a project are kept in memory together with the last modified time of the project folder,
+ * and are used until the project folder changes, a folder that may contain a repository is created, copied or moved
+ * into the project through the file API, or they are older than {@link #VERIFY_INTERVAL}, which bounds the time a
+ * clone created by other means, such as <code>git init</code> on the server, is missing from the listings.
+ * </p>
+ * <p>
+ * So that the first listing after a restart does not walk the project either, the clones are also kept as a property of
+ * the project metadata, written when a clone is created, inited or deleted, together with the last modified time of
+ * the project folder. The property is only a hint: it is used while the project folder has the same last modified time,
+ * and it is dropped when the file API changes the project in a way that may add a repository. The metadata is never
+ * written when clones are listed.
+ * </p>
+ */
+public class GitCloneRegistry {
+
+	/**
+	 * The name of the project property holding the JSON array of the clone paths relative to the project.
+	 */
+	static final String PROPERTY_CLONES = "GitClones"; //$NON-NLS-1$
+
+	/**
+	 * The name of the project property holding the last modified time of the project folder when the clones were
+	 * recorded.
+	 */
+	static final String PROPERTY_CLONES_MODIFIED = "GitClonesModified"; //$NON-NLS-1$
+
+	/**
+	 * The time in milliseconds the clones found by walking a project are used for.
+	 */
+	private static final long VERIFY_INTERVAL = 10 * 60 * 1000;
+
+	private static final Object lock = new Object();
+
+	private static class Clones {
+		final TreeSet<String> paths;
+		final long folderModified;
+		final long walked;
+
+		Clones(TreeSet<String> paths, long folderModified, long walked) {
+			this.paths = paths;
+			this.folderModified = folderModified;
+			this.walked = walked;
+		}
+	}
+
+	/**
+	 * The clones of the projects listed since the server started, by project folder.
+	 */
+	private static final ConcurrentHashMap<String, Clones> known = new ConcurrentHashMap<String, Clones>();
+
+	private static final IFileStoreModificationListener listener = new IFileStoreModificationListener() {
+		@Override
+		public void changed(ChangeEvent event) {
+			switch (event.getChangeType()) {
+				case MKDIR :
+					// a repository appears with its .git folder, for example when a zip file is imported
+					if (!Constants.DOT_GIT.equals(event.getModifiedItem().getName())) {
+						break;
+					}
+					//$FALL-THROUGH$
+				case COPY_INTO :
+				case MOVE :
+					// the copied or moved folder may contain repositories, a clone moved away is verified when listed
+					File file = toLocalFile(event.getModifiedItem());
+					if (file != null) {
+						forget(file);
+					}
+					if (event.getSource() instanceof ProjectInfo) {
+						dropHint((ProjectInfo) event.getSource());
+					}
+					break;
+				default :
+					// deleted clones are verified when listed
+			}
+		}
+	};
+
+	/**
+	 * Returns the git repositories in the given path, as {@link GitUtils#getGitDirs(IPath, Traverse)} does when walking
+	 * down the folders.
+	 *
+	 * @param path
+	 *            expected format /file/{Workspace}/{projectName}[/{path}]
+	 * @return a map of all git repositories found, or <code>null</code> if the path is not in a project.
+	 */
+	public static Map<IPath, File> getGitDirs(IPath path) throws CoreException {
+		ProjectInfo project = GitUtils.projectFromPath(path);
+		if (project == null) {
+			return null;
+		}
+		IPath projectPath = path.uptoSegment(3);
+		IPath relativePath = path.removeFirstSegments(3);
+		Map<IPath, File> result = new LinkedHashMap<IPath, File>();
+		for (Map.Entry<IPath, File> entry : getGitDirs(project, projectPath).entrySet()) {
+			if (relativePath.isPrefixOf(entry.getKey().removeFirstSegments(2))) {
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the git repositories in the project.
+	 *
+	 * @return a map of the paths of the clones, in the format {Workspace}/{projectName}/[{path}/], to their git
+	 *         directories.
+	 */
+	public static Map<IPath, File> getGitDirs(WorkspaceInfo workspace, ProjectInfo project) throws CoreException {
+		return getGitDirs(project, GitUtils.pathFromProject(workspace, project));
+	}
+
+	private static Map<IPath, File> getGitDirs(ProjectInfo project, IPath projectPath) throws CoreException {
+		Map<IPath, File> result = new LinkedHashMap<IPath, File>();
+		File projectFolder = project.getProjectStore().toLocalFile(EFS.NONE, null);
+		if (projectFolder == null) {
+			// not on the local file system, cannot contain repositories
+			return result;
+		}
+		String key = projectFolder.getAbsolutePath();
+		long folderModified = projectFolder.lastModified();
+		long now = System.currentTimeMillis();
+		TreeSet<String> paths = null;
+		Clones clones = known.get(key);
+		if (clones != null) {
+			if (clones.folderModified == folderModified && now - clones.walked < VERIFY_INTERVAL) {
+				paths = clones.paths;
+			}
+		} else if (Long.toString(folderModified).equals(project.getProperty(PROPERTY_CLONES_MODIFIED))) {
+			// first listing since the server started, use the clones recorded with the project
+			paths = parse(project.getProperty(PROPERTY_CLONES));
+			if (paths != null) {
+				known.put(key, new Clones(paths, folderModified, now));
+			}
+		}
+		if (paths == null) {
+			paths = walk(projectPath);
+			if (paths == null) {
+				return result;
+			}
+			known.put(key, new Clones(paths, folderModified, now));
+		}
+
+		// keys in the same format as the walk, without the /file segment
+		IPath clonesPath = projectPath.removeFirstSegments(1);
+		for (String relative : paths) {
+			File gitDir = GitUtils.resolveGitDir(relative.length() == 0 ? projectFolder : new File(projectFolder, relative));
+			if (gitDir != null) {
+				// clones deleted by other means are left out, and dropped from the registry the next time it is written
+				result.put(clonesPath.append(relative).addTrailingSeparator(), gitDir);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Walks the project to find its clones.
+	 *
+	 * @return the paths of the clones relative to the project, or <code>null</code> if the project cannot be walked.
+	 */
+	private static TreeSet<String> walk(IPath projectPath) throws CoreException {
+		Map<IPath, File> gitDirs = GitUtils.getGitDirs(projectPath, Traverse.GO_DOWN);
+		if (gitDirs == null) {
+			return null;
+		}
+		TreeSet<String> paths = new TreeSet<String>();
+		for (IPath clonePath : gitDirs.keySet()) {
+			paths.add(clonePath.removeFirstSegments(2).removeTrailingSeparator().toString());
+		}
+		return paths;
+	}
+
+	/**
+	 * Record a clone created in the given path.
+	 *
+	 * @param path
+	 *            expected format /file/{Workspace}/{projectName}[/{path}]
+	 */
+	public static void addClone(IPath path) {
+		register(path);
+	}
+
+	/**
+	 * Remove a deleted clone from the registry.
+	 *
+	 * @param path
+	 *            expected format /file/{Workspace}/{projectName}[/{path}]
+	 */
+	public static void removeClone(IPath path) {
+		register(path);
+	}
+
+	/**
+	 * Walks the project containing the path, which has just gained or lost a clone, and records its clones with the
+	 * project.
+	 */
+	private static void register(IPath path) {
+		try {
+			synchronized (lock) {
+				ProjectInfo project = GitUtils.projectFromPath(path);
+				if (project == null) {
+					return;
+				}
+				File projectFolder = project.getProjectStore().toLocalFile(EFS.NONE, null);
+				if (projectFolder == null) {
+					return;
+				}
+				// the time is taken before the walk, so that a change during the walk is not covered by it
+				long folderModified = projectFolder.lastModified();
+				TreeSet<String> paths = walk(path.uptoSegment(3));
+				if (paths == null) {
+					return;
+				}
+				known.put(projectFolder.getAbsolutePath(), new Clones(paths, folderModified, System.currentTimeMillis()));
+				project.setProperty(PROPERTY_CLONES, new JSONArray(paths).toString());
+				project.setProperty(PROPERTY_CLONES_MODIFIED, Long.toString(folderModified));
+				OrionConfiguration.getMetaStore().updateProject(project);
+			}
+		} catch (CoreException e) {
+			// the project will be walked when it is listed
+			Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.git"); //$NON-NLS-1$
+			logger.warn("Unable to register the clones of " + path, e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Forget the clones of the projects containing the folder, so that they are walked when they are listed.
+	 */
+	private static void forget(File folder) {
+		String path = folder.getAbsolutePath();
+		Iterator<String> iterator = known.keySet().iterator();
+		while (iterator.hasNext()) {
+			String projectFolder = iterator.next();
+			if (path.equals(projectFolder) || path.startsWith(projectFolder + File.separator)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drop the clones recorded with the project, which may miss a clone added through the file API.
+	 */
+	private static void dropHint(ProjectInfo source) {
+		try {
+			synchronized (lock) {
+				IMetaStore metaStore = OrionConfiguration.getMetaStore();
+				ProjectInfo project = metaStore.readProject(source.getWorkspaceId(), source.getFullName());
+				if (project != null && project.getProperty(PROPERTY_CLONES_MODIFIED) != null) {
+					project.setProperty(PROPERTY_CLONES_MODIFIED, null);
+					metaStore.updateProject(project);
+				}
+			}
+		} catch (CoreException e) {
+			Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.git"); //$NON-NLS-1$
+			logger.warn("Unable to update the clones of project " + source.getFullName(), e); //$NON-NLS-1$
+		}
+	}
+
+	private static File toLocalFile(IFileStore store) {
+		if (store == null) {
+			return null;
+		}
+		try {
+			return FileStoreNotificationWrapper.unwrap(store).toLocalFile(EFS.NONE, null);
+		} catch (CoreException e) {
+			// not a local file, cannot be in a project with clones
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the listener forgetting the clones of the projects changed through the file API in a way that may add a
+	 * repository.
+	 */
+	public static IFileStoreModificationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Forget the clones of all projects.
+	 */
+	public static void clear() {
+		known.clear();
+	}
+
+	/**
+	 * Returns the clone paths of the property value, or <code>null</code> if the project is not registered.
+	 */
+	private static TreeSet<String> parse(String clones) {
+		if (clones == null) {
+			return null;
+		}
+		TreeSet<String> paths = new TreeSet<String>();
+		try {
+			JSONArray array = new JSONArray(clones);
+			for (int i = 0; i < array.length(); i++) {
+				paths.add(new Path(array.getString(i)).makeRelative().removeTrailingSeparator().toString());
+			}
+		} catch (JSONException e) {
+			// treat as not registered, the project is walked again
+			return null;
+		}
+		return paths;
+	}
+}
@@ -225,6 +225,7 @@ public class GitCommitHandlerV1 extends AbstractGitHandler {
 		String fromDate = request.getParameter("fromDate"); //$NON-NLS-1$
 		String toDate = request.getParameter("toDate"); //$NON-NLS-1$
 		String mergeBaseFilter = request.getParameter("mergeBase"); //$NON-NLS-1$
+		String cursor = request.getParameter("cursor"); //$NON-NLS-1$
 		ObjectId toObjectId = null;
 		ObjectId fromObjectId = null;
 
@@ -270,6 +271,7 @@ public class GitCommitHandlerV1 extends AbstractGitHandler {
 
 		LogJob job = new LogJob(TaskJobHandler.getUserId(request), filePath, cloneLocation, page, pageSize, toObjectId, fromObjectId, toRefId, fromRefId,
 				refIdsRange, pattern, messageFilter, authorFilter, committerFilter, sha1Filter, "true".equals(mergeBaseFilter), fromDate, toDate);
+		job.setCursor(cursor);
 		return TaskJobHandler.handleTaskJob(request, response, job, statusHandler, JsonURIUnqualificationStrategy.ALL_NO_GIT);
 	}
 
@@ -28,13 +28,13 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
 import org.eclipse.orion.internal.server.servlets.workspace.authorization.AuthorizationService;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.git.BaseToCloneConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.objects.Clone;
 import org.eclipse.orion.server.git.objects.ConfigOption;
 import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
@@ -101,7 +101,7 @@ public class GitConfigHandlerV1 extends ServletResourceHandler<String> {
 								null));
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				URI cloneLocation = BaseToCloneConverter.getCloneLocation(baseLocation, BaseToCloneConverter.CONFIG);
 				ConfigOption configOption = new ConfigOption(cloneLocation, db);
 				OrionServlet.writeJSONResponse(request, response, configOption.toJSON(/* all */), JsonURIUnqualificationStrategy.ALL_NO_GIT);
@@ -121,7 +121,7 @@ public class GitConfigHandlerV1 extends ServletResourceHandler<String> {
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(baseLocation, BaseToCloneConverter.CONFIG_OPTION);
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				ConfigOption configOption = new ConfigOption(cloneLocation, db, p.segment(0));
 				if (!configOption.exists())
 					return statusHandler.handleRequest(request, response, new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_NOT_FOUND,
@@ -161,7 +161,7 @@ public class GitConfigHandlerV1 extends ServletResourceHandler<String> {
 						"Config entry value must be provided", null));
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				ConfigOption configOption = new ConfigOption(cloneLocation, db, key);
 				boolean present = configOption.exists();
 				ArrayList<String> valList = new ArrayList<String>();
@@ -201,7 +201,7 @@ public class GitConfigHandlerV1 extends ServletResourceHandler<String> {
 			Repository db = null;
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.CONFIG_OPTION);
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				ConfigOption configOption = new ConfigOption(cloneLocation, db, p.segment(0));
 
 				JSONObject toPut = OrionServlet.readJSONRequest(request);
@@ -258,7 +258,7 @@ public class GitConfigHandlerV1 extends ServletResourceHandler<String> {
 			Repository db = null;
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.CONFIG_OPTION);
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				ConfigOption configOption = new ConfigOption(cloneLocation, db, GitUtils.decode(p.segment(0)));
 				if (configOption.exists()) {
 					String query = request.getParameter("index"); //$NON-NLS-1$
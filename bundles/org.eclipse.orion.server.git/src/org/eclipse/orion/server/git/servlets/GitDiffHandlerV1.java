@@ -60,11 +60,14 @@ import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.NullOutputStream;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
 import org.eclipse.orion.server.core.IOUtilities;
+import org.eclipse.orion.server.core.PreferenceHelper;
 import org.eclipse.orion.server.core.ProtocolConstants;
+import org.eclipse.orion.server.core.ServerConstants;
 import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.core.resources.UniversalUniqueIdentifier;
 import org.eclipse.orion.server.git.BaseToCloneConverter;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitDiffCache;
 import org.eclipse.orion.server.git.jobs.DiffCommand;
 import org.eclipse.orion.server.git.objects.Diff;
 import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
@@ -75,6 +78,12 @@ import org.json.JSONObject;
 
 /**
  * A handler for Git Diff operation.
+ * <p>
+ * A patch is limited to the number of files set by the {@link ServerConstants#CONFIG_GIT_DIFF_MAX_FILES} configuration
+ * property. When more files differ, the patch ends with a line starting with {@link DiffCommand#TRUNCATED_PREFIX}
+ * that gives the number of files left out, so that clients can tell a partial diff from a complete one. The list of
+ * the changed files returned for <code>parts=diffs</code> is never limited.
+ * </p>
  */
 public class GitDiffHandlerV1 extends AbstractGitHandler {
 
@@ -83,6 +92,11 @@ public class GitDiffHandlerV1 extends AbstractGitHandler {
 	 */
 	private static final String EOL = "\r\n"; //$NON-NLS-1$
 
+	/**
+	 * The default size in bytes of the largest file whose differences are written line by line.
+	 */
+	private static final int DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+
 	private HttpClient httpClient;
 
 	GitDiffHandlerV1(ServletResourceHandler<IStatus> statusHandler) {
@@ -122,7 +136,16 @@ public class GitDiffHandlerV1 extends AbstractGitHandler {
 		if (command == null)
 			return true;
 
-		List<DiffEntry> l = command.call();
+		// the files changed between two trees are cached, the other scopes include the index or the working tree
+		ObjectId[] trees = getTrees(db, scope);
+		String options = getDiffOptions(request, pattern);
+		List<DiffEntry> l = trees != null ? GitDiffCache.get(db, trees[0], trees[1], options) : null;
+		if (l == null) {
+			command.setShowNameAndStatusOnly(true);
+			l = command.call();
+			if (trees != null)
+				l = GitDiffCache.put(db, trees[0], trees[1], options, l);
+		}
 		JSONArray diffs = new JSONArray();
 		URI diffLocation = getURI(request);
 		if (pattern != null) {
@@ -168,6 +191,44 @@ public class GitDiffHandlerV1 extends AbstractGitHandler {
 		return true;
 	}
 
+	/**
+	 * Returns the ids of the old and new trees of a diff between two commits, or <code>null</code> for the other scopes.
+	 */
+	private ObjectId[] getTrees(Repository db, String scope) throws IOException {
+		String[] commits = scope.split("\\.\\."); //$NON-NLS-1$
+		if (commits.length != 2)
+			return null;
+		ObjectId oldTree = db.resolve(commits[0] + "^{tree}"); //$NON-NLS-1$
+		ObjectId newTree = db.resolve(commits[1] + "^{tree}"); //$NON-NLS-1$
+		if (oldTree == null || newTree == null)
+			return null;
+		return new ObjectId[] {oldTree, newTree};
+	}
+
+	/**
+	 * Returns the options changing the files listed in a diff between two trees.
+	 */
+	private String getDiffOptions(HttpServletRequest request, String pattern) {
+		StringBuilder options = new StringBuilder();
+		options.append(getLimit(ServerConstants.CONFIG_GIT_DIFF_RENAME_LIMIT, 0)).append('\n');
+		options.append(pattern != null ? pattern : ""); //$NON-NLS-1$
+		String[] paths = request.getParameterValues(ProtocolConstants.KEY_PATH);
+		if (paths != null) {
+			for (String path : paths) {
+				options.append('\n').append(path);
+			}
+		}
+		return options.toString();
+	}
+
+	private static int getLimit(String key, int defaultValue) {
+		try {
+			return Integer.parseInt(PreferenceHelper.getString(key, Integer.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
 	private URI createDiffLocation(URI diffLocation, String path) throws URISyntaxException {
 		if (path == null)
 			return diffLocation;
@@ -207,6 +268,9 @@ public class GitDiffHandlerV1 extends AbstractGitHandler {
 		DiffCommand diff = new DiffCommand(db);
 		diff.setOutputStream(out);
 		diff.setIgnoreWhiteSpace(ignoreWS);
+		diff.setMaxFiles(getLimit(ServerConstants.CONFIG_GIT_DIFF_MAX_FILES, 0));
+		diff.setMaxFileSize(getLimit(ServerConstants.CONFIG_GIT_DIFF_MAX_FILE_SIZE, DEFAULT_MAX_FILE_SIZE));
+		diff.setRenameLimit(getLimit(ServerConstants.CONFIG_GIT_DIFF_RENAME_LIMIT, 0));
 		AbstractTreeIterator oldTree;
 		AbstractTreeIterator newTree = new FileTreeIterator(db);
 		response.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$
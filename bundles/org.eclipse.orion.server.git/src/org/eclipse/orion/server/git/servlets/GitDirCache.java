@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.git.servlets;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.internal.server.servlets.file.FileStoreNotificationWrapper;
+
+/**
+ * Caches the git directory found by {@link GitUtils#resolveGitDir(File)} for each folder, including the folders that
+ * are not the root of a repository, so that listing a workspace or a folder does not probe the disk for repositories
+ * again for every request.
+ * <p>
+ * Whether a folder is the root of a repository only depends on the folder and its <code>.git</code> child. The
+ * entries are removed by {@link #invalidate(File)} when a repository is cloned, initialized or deleted, and by the
+ * modification events of the file API. A folder that became a repository by other means is found once its negative
+ * entry has expired, and a repository whose git directory no longer exists is probed again.
+ * </p>
+ */
+public class GitDirCache {
+
+	private static final int MAX_SIZE = 10000;
+
+	/**
+	 * The time in milliseconds a folder is known not to be the root of a repository.
+	 */
+	private static final long NEGATIVE_TIMEOUT = 60 * 1000;
+
+	private static class CacheEntry {
+		final File gitDir;
+		final long created;
+
+		CacheEntry(File gitDir, long created) {
+			this.gitDir = gitDir;
+			this.created = created;
+		}
+	}
+
+	private static final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
+
+	private static final IFileStoreModificationListener listener = new IFileStoreModificationListener() {
+		@Override
+		public void changed(ChangeEvent event) {
+			File file = toLocalFile(event.getModifiedItem());
+			if (file == null) {
+				return;
+			}
+			switch (event.getChangeType()) {
+				case WRITE :
+				case PUTINFO :
+					// only a change of a .git file or folder can change a repository root
+					File root = getRepositoryRoot(file);
+					if (root != null) {
+						cache.remove(root.getPath());
+					}
+					break;
+				case MKDIR :
+					cache.remove(file.getPath());
+					cache.remove(file.getParent());
+					break;
+				case MOVE :
+					invalidateChange(toLocalFile(event.getInitialLocation()));
+					invalidateChange(file);
+					break;
+				default :
+					invalidateChange(file);
+			}
+		}
+	};
+
+	/**
+	 * Returns the git directory of the folder, from the cache if it has been resolved before.
+	 *
+	 * @param folder
+	 *            The folder that may be the root of a repository.
+	 * @return The git directory, or <code>null</code> if the folder is not the root of a repository.
+	 */
+	static File resolveGitDir(File folder) {
+		String key = folder.getAbsolutePath();
+		long now = System.currentTimeMillis();
+		CacheEntry entry = cache.get(key);
+		if (entry != null) {
+			if (entry.gitDir == null ? now - entry.created < NEGATIVE_TIMEOUT : entry.gitDir.isDirectory()) {
+				return entry.gitDir;
+			}
+		}
+		File gitDir = GitUtils.findGitDir(folder);
+		if (cache.size() >= MAX_SIZE) {
+			// the cache only saves probing the disk, start over rather than tracking the use of the entries
+			cache.clear();
+		}
+		cache.put(key, new CacheEntry(gitDir, now));
+		return gitDir;
+	}
+
+	/**
+	 * Remove the folder and all folders inside it from the cache. Must be called when a repository is created or
+	 * deleted in the folder.
+	 *
+	 * @param folder
+	 *            The work tree of a repository, or a folder containing repositories.
+	 */
+	public static void invalidate(File folder) {
+		String key = folder.getAbsolutePath();
+		String prefix = key + File.separator;
+		cache.remove(key);
+		Iterator<String> iterator = cache.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static void invalidateChange(File file) {
+		if (file == null) {
+			return;
+		}
+		invalidate(file);
+		File parent = file.getParentFile();
+		if (parent != null) {
+			cache.remove(parent.getPath());
+		}
+		File root = getRepositoryRoot(file);
+		if (root != null) {
+			cache.remove(root.getPath());
+		}
+	}
+
+	/**
+	 * Returns the folder containing the <code>.git</code> file or folder the file is or is inside of, or
+	 * <code>null</code>.
+	 */
+	private static File getRepositoryRoot(File file) {
+		for (File f = file; f != null; f = f.getParentFile()) {
+			if (Constants.DOT_GIT.equals(f.getName())) {
+				return f.getParentFile();
+			}
+		}
+		return null;
+	}
+
+	private static File toLocalFile(IFileStore store) {
+		if (store == null) {
+			return null;
+		}
+		try {
+			File file = FileStoreNotificationWrapper.unwrap(store).toLocalFile(EFS.NONE, null);
+			return file == null ? null : file.getAbsoluteFile();
+		} catch (CoreException e) {
+			// not a local file, cannot be a repository
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the listener removing the folders changed through the file API from the cache.
+	 */
+	public static IFileStoreModificationListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Remove all folders from the cache.
+	 */
+	public static void clear() {
+		cache.clear();
+	}
+
+	public static int size() {
+		return cache.size();
+	}
+}
@@ -28,7 +28,6 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteConfig;
 import org.eclipse.jgit.transport.URIish;
@@ -41,6 +40,7 @@ import org.eclipse.orion.server.git.BaseToCloneConverter;
 import org.eclipse.orion.server.git.GitActivator;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.jobs.FetchJob;
 import org.eclipse.orion.server.git.jobs.PushJob;
 import org.eclipse.orion.server.git.jobs.RemoteDetailsJob;
@@ -103,7 +103,7 @@ public class GitRemoteHandlerV1 extends ServletResourceHandler<String> {
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.REMOTE_LIST);
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				Set<String> configNames = db.getConfig().getSubsections(ConfigConstants.CONFIG_REMOTE_SECTION);
 				JSONObject result = new JSONObject();
 				JSONArray children = new JSONArray();
@@ -143,7 +143,7 @@ public class GitRemoteHandlerV1 extends ServletResourceHandler<String> {
 			URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.REMOTE_BRANCH);
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
+				db = GitRepositoryCache.getRepository(gitDir);
 				Remote remote = new Remote(cloneLocation, db, p.segment(0));
 				RemoteBranch remoteBranch = new RemoteBranch(cloneLocation, db, remote, GitUtils.decode(p.segment(1)));
 				if (remoteBranch.exists()) {
@@ -176,8 +176,8 @@ public class GitRemoteHandlerV1 extends ServletResourceHandler<String> {
 			File gitDir = GitUtils.getGitDir(p.removeFirstSegments(1));
 			Repository db = null;
 			try {
-				db = FileRepositoryBuilder.create(gitDir);
-				StoredConfig config = db.getConfig();
+				db = GitRepositoryCache.getRepository(gitDir);
+				StoredConfig config = GitUtils.getLocalConfig(db);
 				config.unsetSection(ConfigConstants.CONFIG_REMOTE_SECTION, remoteName);
 				config.save();
 				// TODO: handle result
@@ -264,8 +264,8 @@ public class GitRemoteHandlerV1 extends ServletResourceHandler<String> {
 		URI cloneLocation = BaseToCloneConverter.getCloneLocation(getURI(request), BaseToCloneConverter.REMOTE_LIST);
 		Repository db = null;
 		try {
-			db = FileRepositoryBuilder.create(gitDir);
-			StoredConfig config = db.getConfig();
+			db = GitRepositoryCache.getRepository(gitDir);
+			StoredConfig config = GitUtils.getLocalConfig(db);
 
 			RemoteConfig rc = new RemoteConfig(config, remoteName);
 			rc.addURI(new URIish(remoteURI));
@@ -37,7 +37,6 @@ import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.storage.file.FileBasedConfig;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.submodule.SubmoduleStatus;
 import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.util.FS;
@@ -50,6 +49,7 @@ import org.eclipse.orion.server.core.metastore.IMetaStore;
 import org.eclipse.orion.server.core.metastore.ProjectInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.eclipse.orion.server.git.servlets.GitUtils.Traverse;
 import org.eclipse.osgi.util.NLS;
 import org.json.JSONObject;
@@ -160,7 +160,7 @@ public class GitSubmoduleHandlerV1 extends AbstractGitHandler {
 			Map<IPath, File> parents = GitUtils.getGitDirs(requestInfo.filePath.removeLastSegments(1), Traverse.GO_UP);
 			if (parents.size() < 1)
 				return false;
-			parentRepo = FileRepositoryBuilder.create(parents.entrySet().iterator().next().getValue());
+			parentRepo = GitRepositoryCache.getRepository(parents.entrySet().iterator().next().getValue());
 			String pathToSubmodule = db.getWorkTree().toString().substring(parentRepo.getWorkTree().toString().length() + 1);
 			removeSubmodule(db, parentRepo, pathToSubmodule);
 			return true;
@@ -199,6 +199,7 @@ public class GitSubmoduleHandlerV1 extends AbstractGitHandler {
 		addCommand.setPath(targetPath);
 		Repository repository = addCommand.call();
 		repository.close();
+		GitDirCache.invalidate(new File(repo.getWorkTree(), targetPath));
 	}
 	
 	public static void removeSubmodule(Repository db, Repository parentRepo, String pathToSubmodule) throws Exception {
@@ -206,7 +207,7 @@ public class GitSubmoduleHandlerV1 extends AbstractGitHandler {
 		StoredConfig gitSubmodulesConfig = getGitSubmodulesConfig(parentRepo);
 		gitSubmodulesConfig.unsetSection(CONFIG_SUBMODULE_SECTION, pathToSubmodule);
 		gitSubmodulesConfig.save();
-		StoredConfig repositoryConfig = parentRepo.getConfig();
+		StoredConfig repositoryConfig = GitUtils.getLocalConfig(parentRepo);
 		repositoryConfig.unsetSection(CONFIG_SUBMODULE_SECTION, pathToSubmodule);
 		repositoryConfig.save();
 		Git git = Git.wrap(parentRepo);
@@ -218,6 +219,7 @@ public class GitSubmoduleHandlerV1 extends AbstractGitHandler {
 		rm.call();
 		FileUtils.delete(db.getWorkTree(), FileUtils.RECURSIVE);
 		FileUtils.delete(db.getDirectory(), FileUtils.RECURSIVE);
+		GitDirCache.invalidate(db.getWorkTree());
 	}
 	
 	private static StoredConfig getGitSubmodulesConfig( Repository repository ) throws IOException, ConfigInvalidException {
@@ -26,9 +26,6 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.URIUtil;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.ListBranchCommand.ListMode;
-import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectStream;
@@ -40,6 +37,7 @@ import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
+import org.eclipse.orion.server.core.ByteRange;
 import org.eclipse.orion.server.core.IOUtilities;
 import org.eclipse.orion.server.core.LogHelper;
 import org.eclipse.orion.server.core.OrionConfiguration;
@@ -48,7 +46,7 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.core.metastore.ProjectInfo;
 import org.eclipse.orion.server.core.metastore.UserInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
-import org.eclipse.orion.server.git.servlets.GitUtils.Traverse;
+import org.eclipse.orion.server.git.GitRefCache;
 import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
 import org.eclipse.orion.server.servlets.OrionServlet;
 import org.json.JSONArray;
@@ -57,6 +55,11 @@ import org.json.JSONObject;
 
 public class GitTreeHandlerV1 extends AbstractGitHandler {
 
+	/**
+	 * The cache control of file contents addressed by a commit id, which never change.
+	 */
+	private static final String CACHE_IMMUTABLE = "private, max-age=31536000, immutable"; //$NON-NLS-1$
+
 	GitTreeHandlerV1(ServletResourceHandler<IStatus> statusHandler) {
 		super(statusHandler);
 	}
@@ -137,8 +140,7 @@ public class GitTreeHandlerV1 extends AbstractGitHandler {
 					for (String projectName : workspace.getProjectNames()) {
 						ProjectInfo project = OrionConfiguration.getMetaStore().readProject(workspace.getUniqueId(), projectName);
 						if (isAccessAllowed(user.getUserName(), project)) {
-							IPath projectPath = GitUtils.pathFromProject(workspace, project);
-							Map<IPath, File> gitDirs = GitUtils.getGitDirs(projectPath, Traverse.GO_DOWN);
+							Map<IPath, File> gitDirs = GitCloneRegistry.getGitDirs(workspace, project);
 							for (Map.Entry<IPath, File> entry : gitDirs.entrySet()) {
 								JSONObject repo = listEntry(entry.getKey().lastSegment(), 0, true, 0, baseLocationFile, entry.getKey().toPortableString());
 								children.put(repo);
@@ -175,7 +177,7 @@ public class GitTreeHandlerV1 extends AbstractGitHandler {
 			if (filterPath.segmentCount() == 0) {
 				JSONArray children = new JSONArray();
 				URI baseLocation = getURI(request);
-				List<Ref> call = Git.wrap(repo).branchList().setListMode(ListMode.ALL).call();
+				List<Ref> call = GitRefCache.getSnapshot(repo).getAllBranches();
 				for (Ref ref : call) {
 					String branchName = Repository.shortenRefName(ref.getName());
 					JSONObject branch = listEntry(branchName, 0, true, 0, baseLocation, GitUtils.encode(branchName));
@@ -241,7 +243,9 @@ public class GitTreeHandlerV1 extends AbstractGitHandler {
 						if ("meta".equals(meta)) { //$NON-NLS-1$
 							result = listEntry(treeWalk.getNameString(), 0, false, 0, locationWalk, treeWalk.getNameString());
 						} else {
-							return getFileContents(request, response, repo, treeWalk, tree);
+							// the contents of a file in a commit named by its id never change
+							boolean immutable = head.getName().equals(gitSegment);
+							return getFileContents(request, response, loader, objId, immutable);
 						}
 					} else {
 						String name = treeWalk.getNameString();
@@ -270,17 +274,42 @@ public class GitTreeHandlerV1 extends AbstractGitHandler {
 		}
 	}
 
-	private boolean getFileContents(HttpServletRequest request, HttpServletResponse response, Repository repo, TreeWalk treeWalk, RevTree tree) {
+	/**
+	 * Writes the contents of a file, identified by the id of its blob so that the same contents found in other commits
+	 * are not sent again.
+	 *
+	 * @param immutable
+	 *            whether the request names the file in a way that always gives the same contents
+	 */
+	private boolean getFileContents(HttpServletRequest request, HttpServletResponse response, ObjectLoader loader, ObjectId objId, boolean immutable) {
 		ObjectStream stream = null;
 		try {
-			ObjectId objId = treeWalk.getObjectId(0);
-			ObjectLoader loader = repo.open(objId);
-			response.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$
-			response.setHeader("ETag", "\"" + tree.getId().getName() + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+			String etag = "\"" + objId.getName() + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+			response.setHeader("Cache-Control", immutable ? CACHE_IMMUTABLE : "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
+			response.setHeader(ProtocolConstants.KEY_ETAG, etag);
+			if (matches(request.getHeader(ProtocolConstants.HEADER_IF_NONE_MATCH), etag)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return true;
+			}
+			response.setHeader(ProtocolConstants.HEADER_ACCEPT_RANGES, "bytes"); //$NON-NLS-1$
+			long size = loader.getSize();
+			ByteRange range = ByteRange.getRange(request, size, etag);
+			if (range != null && !range.isSatisfiable()) {
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_RANGE, range.getContentRange());
+				response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return true;
+			}
 			response.setContentType("application/octet-stream"); //$NON-NLS-1$
 			stream = loader.openStream();
-			IOUtilities.pipe(stream, response.getOutputStream(), true, false);
-		} catch (MissingObjectException e) {
+			if (range != null) {
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_RANGE, range.getContentRange());
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_LENGTH, Long.toString(range.getLength()));
+				range.write(stream, response.getOutputStream());
+			} else {
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_LENGTH, Long.toString(size));
+				IOUtilities.pipe(stream, response.getOutputStream(), true, false);
+			}
 		} catch (IOException e) {
 		} finally {
 			try {
@@ -291,4 +320,20 @@ public class GitTreeHandlerV1 extends AbstractGitHandler {
 		}
 		return true;
 	}
+
+	/**
+	 * Returns whether the value of an <code>If-None-Match</code> header matches the entity tag.
+	 */
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null)
+			return false;
+		for (String tag : ifNoneMatch.split(",")) { //$NON-NLS-1$
+			tag = tag.trim();
+			if (tag.startsWith("W/")) //$NON-NLS-1$
+				tag = tag.substring(2);
+			if (tag.equals("*") || tag.equals(etag)) //$NON-NLS-1$
+				return true;
+		}
+		return false;
+	}
 }
@@ -32,6 +32,7 @@ import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ConfigConstants;
@@ -39,7 +40,7 @@ import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.StoredConfig;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
 import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.util.FS;
 import org.eclipse.jgit.util.IO;
@@ -52,6 +53,7 @@ import org.eclipse.orion.server.core.metastore.ProjectInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
 import org.eclipse.orion.server.git.GitConstants;
 import org.eclipse.orion.server.git.GitCredentialsProvider;
+import org.eclipse.orion.server.git.GitRepositoryCache;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -150,8 +152,11 @@ public class GitUtils {
 			logger.error("Unable to get the root location from " + OrionConfiguration.getRootLocation());
 			return;
 		}
+		boolean exists = false;
 		while (file != null && !file.getAbsolutePath().equals(workspaceRoot.getAbsolutePath())) {
-			if (file.exists()) {
+			// the parents of an existing file exist too
+			exists = exists || file.exists();
+			if (exists) {
 				File gitDir = resolveGitDir(file);
 				if (gitDir != null && !gitDir.equals(file)) {
 					gitDirs.put(getPathForLevelUp(levelUp), gitDir);
@@ -359,7 +364,7 @@ public class GitUtils {
 	public static String getCloneUrl(File gitDir) {
 		Repository db = null;
 		try {
-			db = FileRepositoryBuilder.create(resolveGitDir(gitDir));
+			db = GitRepositoryCache.getRepository(resolveGitDir(gitDir));
 			return getCloneUrl(db);
 		} catch (IOException e) {
 			// ignore and skip Git URL
@@ -380,6 +385,27 @@ public class GitUtils {
 		StoredConfig config = db.getConfig();
 		return config.getString(ConfigConstants.CONFIG_REMOTE_SECTION, Constants.DEFAULT_REMOTE_NAME, ConfigConstants.CONFIG_KEY_URL);
 	}
+
+	/**
+	 * Returns a private copy of the repository configuration, without any base config. Changes must be made to such a
+	 * copy rather than to {@link Repository#getConfig()}, which is shared by all the users of a cached repository and
+	 * would keep a change that failed to be saved. The shared configuration is reloaded once the copy has been saved.
+	 *
+	 * @param db
+	 *            The repository.
+	 * @return The configuration read from the config file of the repository.
+	 * @throws IOException
+	 *             if the config file could not be read.
+	 */
+	public static FileBasedConfig getLocalConfig(Repository db) throws IOException {
+		FileBasedConfig config = new FileBasedConfig(new File(db.getDirectory(), Constants.CONFIG), db.getFS());
+		try {
+			config.load();
+		} catch (ConfigInvalidException e) {
+			throw new IOException(e);
+		}
+		return config;
+	}
 	
 	/**
 	 * Returns a unique project name that does not exist in the given workspace, for the given clone name.
@@ -406,6 +432,13 @@ public class GitUtils {
 	 * @return the .git folder if found or <code>null</code> the give path cannot be resolved to a file or it's not under control of a git repository
 	 */
 	public static File resolveGitDir(File file) {
+		return GitDirCache.resolveGitDir(file);
+	}
+
+	/**
+	 * Probes the file system for the Git repository directory of the given folder, see {@link #resolveGitDir(File)}.
+	 */
+	static File findGitDir(File file) {
 		File dot = new File(file, Constants.DOT_GIT);
 		if (RepositoryCache.FileKey.isGitRepository(dot, FS.DETECTED)) {
 			return dot;
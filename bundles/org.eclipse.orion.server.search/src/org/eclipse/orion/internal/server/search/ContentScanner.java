@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans the contents of files for a search pattern without decoding them line by line. A file is read into a reused
+ * direct buffer, or mapped into memory when it is large, and the first block is checked for binary content before
+ * anything is decoded.
+ * <p>
+ * A literal search term is matched directly on the bytes of the file with a Boyer-Moore-Horspool search when the
+ * default encoding is UTF-8, folding the ASCII letters for a case insensitive search like {@link Pattern} does. Other
+ * search terms are matched on the decoded contents, one line at a time using matcher regions.
+ * </p>
+ * The files are decoded with the default encoding, and a line with a null character ends the searched part of the
+ * file, as with the line based search this replaces.
+ */
+public class ContentScanner {
+
+	/**
+	 * A file with a null character in this many first bytes is treated as binary and never matches.
+	 */
+	static final int BINARY_SNIFF_LENGTH = 8000;
+
+	/**
+	 * Files up to this size are read into a reused buffer, larger files are mapped into memory.
+	 */
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * Files larger than this are decoded a line at a time rather than all at once for a regular expression search.
+	 * Files too large to be mapped are always searched a line at a time.
+	 */
+	private static final long MAX_DECODED_LENGTH = 16 * 1024 * 1024;
+
+	/**
+	 * The buffers of a worker thread, reused for all the files it scans.
+	 */
+	private static class ScanBuffers {
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		final CharsetDecoder decoder = Charset.defaultCharset().newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+		CharBuffer getChars(int capacity) {
+			if (chars.capacity() < capacity) {
+				chars = CharBuffer.allocate(capacity);
+			}
+			chars.clear();
+			return chars;
+		}
+
+		void releaseChars() {
+			if (chars.capacity() > BUFFER_SIZE) {
+				// do not hold on to the buffer of an unusually large file
+				chars = CharBuffer.allocate(BUFFER_SIZE);
+			}
+		}
+	}
+
+	private static final ThreadLocal<ScanBuffers> buffers = new ThreadLocal<ScanBuffers>() {
+		@Override
+		protected ScanBuffers initialValue() {
+			return new ScanBuffers();
+		}
+	};
+
+	/**
+	 * The UTF-8 bytes of a literal search term, folded to lower case for a case insensitive search, or
+	 * <code>null</code> if the pattern is matched on the decoded contents.
+	 */
+	private final byte[] literal;
+
+	private final boolean ignoreCase;
+
+	private final int[] shift;
+
+	/**
+	 * Create a scanner for the search pattern.
+	 * @param pattern the search pattern.
+	 * @param literalTerm the search term if the pattern matches it literally, or <code>null</code>.
+	 */
+	public ContentScanner(Pattern pattern, String literalTerm) {
+		this.ignoreCase = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0 && (pattern.flags() & Pattern.UNICODE_CASE) == 0;
+		if (literalTerm != null && literalTerm.length() > 0 && isLiteralSearchable(literalTerm)) {
+			literal = literalTerm.getBytes(Charset.forName("UTF-8")); //$NON-NLS-1$
+			if (ignoreCase) {
+				for (int i = 0; i < literal.length; i++) {
+					literal[i] = fold(literal[i]);
+				}
+			}
+			shift = new int[256];
+			for (int i = 0; i < shift.length; i++) {
+				shift[i] = literal.length;
+			}
+			for (int i = 0; i < literal.length - 1; i++) {
+				shift[literal[i] & 0xff] = literal.length - 1 - i;
+			}
+		} else {
+			literal = null;
+			shift = null;
+		}
+	}
+
+	/**
+	 * Returns whether the term can be matched on the raw bytes of the files with the same result as matching the
+	 * decoded lines.
+	 */
+	private static boolean isLiteralSearchable(String term) {
+		if (!"UTF-8".equals(Charset.defaultCharset().name())) { //$NON-NLS-1$
+			return false;
+		}
+		// a line never contains a line separator, and a replacement character may come from malformed input
+		return term.indexOf('\n') == -1 && term.indexOf('\r') == -1 && term.indexOf('\uFFFD') == -1;
+	}
+
+	private static byte fold(byte b) {
+		return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+	}
+
+	/**
+	 * Returns whether the file contains a match.
+	 * @param file the file to scan.
+	 * @param matcher a matcher for the search pattern, only used by the current thread.
+	 * @return <code>true</code> if a line of the file before any binary content matches.
+	 * @throws IOException if the file could not be read.
+	 */
+	public boolean matches(File file, Matcher matcher) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			if (size == 0) {
+				return false;
+			}
+			ByteBuffer bytes;
+			if (size <= BUFFER_SIZE || size > Integer.MAX_VALUE || (literal == null && size > MAX_DECODED_LENGTH)) {
+				bytes = buffers.get().bytes;
+				bytes.clear();
+				while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+					// read the whole file, or the first part of a large file
+				}
+				bytes.flip();
+			} else {
+				bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			int length = bytes.limit();
+			int sniffLength = Math.min(length, BINARY_SNIFF_LENGTH);
+			for (int i = 0; i < sniffLength; i++) {
+				if (bytes.get(i) == 0) {
+					// file contains binary content
+					return false;
+				}
+			}
+			if (length < size) {
+				return matchesStreaming(file, matcher);
+			}
+			int limit = getSearchLimit(bytes, sniffLength, length);
+			if (literal != null) {
+				return indexOfLiteral(bytes, limit) != -1;
+			}
+			return matchesLines(bytes, limit, matcher);
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Returns the end of the part of the file that is searched, the start of the first line with a null character.
+	 */
+	private static int getSearchLimit(ByteBuffer bytes, int from, int length) {
+		for (int i = from; i < length; i++) {
+			if (bytes.get(i) == 0) {
+				int lineStart = i;
+				while (lineStart > 0 && bytes.get(lineStart - 1) != '\n' && bytes.get(lineStart - 1) != '\r') {
+					lineStart--;
+				}
+				return lineStart;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Boyer-Moore-Horspool search of the literal in the bytes before the limit.
+	 */
+	private int indexOfLiteral(ByteBuffer bytes, int limit) {
+		int last = literal.length - 1;
+		int i = 0;
+		while (i + last < limit) {
+			int j = last;
+			while (j >= 0 && (ignoreCase ? fold(bytes.get(i + j)) : bytes.get(i + j)) == literal[j]) {
+				j--;
+			}
+			if (j < 0) {
+				return i;
+			}
+			byte next = bytes.get(i + last);
+			i += shift[(ignoreCase ? fold(next) : next) & 0xff];
+		}
+		return -1;
+	}
+
+	/**
+	 * Decode the bytes before the limit and match the pattern against each line.
+	 */
+	private boolean matchesLines(ByteBuffer bytes, int limit, Matcher matcher) {
+		ScanBuffers scanBuffers = buffers.get();
+		CharsetDecoder decoder = scanBuffers.decoder;
+		ByteBuffer input = bytes.duplicate();
+		input.position(0);
+		input.limit(limit);
+		CharBuffer chars = scanBuffers.getChars((int) Math.ceil(limit * (double) decoder.maxCharsPerByte()) + 1);
+		try {
+			decoder.reset();
+			decoder.decode(input, chars, true);
+			decoder.flush(chars);
+			chars.flip();
+			matcher.reset(chars);
+			int length = chars.limit();
+			int lineStart = 0;
+			for (int i = 0; i < length; i++) {
+				char c = chars.get(i);
+				if (c == '\n' || c == '\r') {
+					matcher.region(lineStart, i);
+					if (matcher.find()) {
+						return true;
+					}
+					if (c == '\r' && i + 1 < length && chars.get(i + 1) == '\n') {
+						i++;
+					}
+					lineStart = i + 1;
+				}
+			}
+			if (lineStart < length) {
+				matcher.region(lineStart, length);
+				return matcher.find();
+			}
+			return false;
+		} finally {
+			matcher.reset("");
+			scanBuffers.releaseChars();
+		}
+	}
+
+	/**
+	 * Match the pattern against each line of a file too large to decode at once.
+	 */
+	private static boolean matchesStreaming(File file, Matcher matcher) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.indexOf('\0') != -1) {
+					// file contains binary content
+					return false;
+				}
+				matcher.reset(line);
+				if (matcher.find()) {
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -12,20 +12,25 @@ package org.eclipse.orion.internal.server.search;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
-import org.apache.commons.io.DirectoryWalker;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.LineIterator;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.orion.server.core.metastore.ProjectInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
 import org.slf4j.Logger;
@@ -33,28 +38,82 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A grep style search that walks the directories looking for files that contain occurrences of a search string.
+ * <p>
+ * The directories are searched in parallel by a pool of worker threads shared by all the searches, one task per
+ * directory. Results are handed to a {@link ResultCollector} as soon as they are found, or returned sorted by path once
+ * the search has completed, and the workers stop as soon as the maximum number of rows has been found.
+ * </p>
  * 
  * @author Aidan Redpath
  * @author Anthony Hunter
  */
-public class FileGrepper extends DirectoryWalker<SearchResult> {
+public class FileGrepper {
+
 	/**
-	 * The project currently being searched by the directory walker.
+	 * Receives the results of a search as they are found. The collector is called from the worker threads.
 	 */
-	private ProjectInfo currentProject;
+	public interface ResultCollector {
+		public void add(SearchResult result);
+	}
+
 	/**
-	 * The workspace currently being searched by the directory walker.
+	 * The workspace, project and index of a search scope.
 	 */
-	private WorkspaceInfo currentWorkspace;
+	private static class ScopeContext {
+		final WorkspaceInfo workspace;
+		final ProjectInfo project;
+		/**
+		 * The index of the workspace, or <code>null</code> if the index is not used.
+		 */
+		final TrigramIndex index;
+		/**
+		 * Whether files that are missing from or out of date in the index were found.
+		 */
+		volatile boolean indexStale;
 
-	private Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.config"); //$NON-NLS-1$
+		ScopeContext(WorkspaceInfo workspace, ProjectInfo project, TrigramIndex index) {
+			this.workspace = workspace;
+			this.project = project;
+			this.index = index;
+		}
+	}
 
-	private Matcher matcher;
+	private static final int WORKER_COUNT = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+	private static ThreadPoolExecutor workers;
+
+	private Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.config"); //$NON-NLS-1$
 
 	private SearchOptions options;
 
 	private Pattern pattern;
 
+	/**
+	 * The search term when it is matched literally, without wildcards or whole word matching.
+	 */
+	private String literalTerm;
+
+	private ContentScanner scanner;
+
+	/**
+	 * The trigrams a file must contain to match the search pattern, or <code>null</code> if the index is not used.
+	 */
+	private TrigramQuery query;
+
+	/**
+	 * The number of results found, including any found after the maximum number of rows was reached.
+	 */
+	private final AtomicInteger found = new AtomicInteger();
+
+	/**
+	 * The number of directory tasks submitted and not yet completed. The search waits on this counter.
+	 */
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+
+	private volatile boolean stopped = false;
+
+	private ResultCollector collector;
+
 	/**
 	 * The constructor for FileGrepper
 	 * @param options the search options
@@ -65,13 +124,42 @@ public class FileGrepper extends DirectoryWalker<SearchResult> {
 		this.options = options;
 		if (options.isFileContentsSearch()) {
 			pattern = buildSearchPattern();
-			matcher = pattern.matcher("");
+			scanner = new ContentScanner(pattern, literalTerm);
+			if (TrigramIndexManager.isEnabled()) {
+				query = TrigramQuery.create(pattern);
+			}
 		} else {
 			// remove the Lucene escaped characters, see bugzilla 458450
 			options.setFilenamePattern(undoLuceneEscape(options.getFilenamePattern()));
 		}
 	}
 
+	private static synchronized ThreadPoolExecutor getWorkers() {
+		if (workers == null) {
+			workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Orion Search Worker " + count.incrementAndGet()); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			workers.allowCoreThreadTimeOut(true);
+		}
+		return workers;
+	}
+
+	/**
+	 * Stop the worker threads, called when the search bundle is stopped.
+	 */
+	static synchronized void shutdown() {
+		if (workers != null) {
+			workers.shutdownNow();
+			workers = null;
+		}
+	}
+
 	/**
 	 * Check if the file path is acceptable.
 	 * @param filename The file path string.
@@ -122,6 +210,7 @@ public class FileGrepper extends DirectoryWalker<SearchResult> {
 					searchTerm = searchTerm.replace("*", ".*");
 				}
 			} else {
+				literalTerm = searchTerm;
 				searchTerm = Pattern.quote(searchTerm);
 			}
 		}
@@ -129,6 +218,7 @@ public class FileGrepper extends DirectoryWalker<SearchResult> {
 			flags |= Pattern.CASE_INSENSITIVE;
 		}
 		if (options.isSearchWholeWord()){
+			literalTerm = null;
 			searchTerm = "\\b" + searchTerm + "\\b";
 		}
 		/* Possible flags
@@ -147,30 +237,48 @@ public class FileGrepper extends DirectoryWalker<SearchResult> {
 		}
 	}
 
-	@Override
-	protected boolean handleDirectory(File directory, int depth, Collection<SearchResult> results) {
-		if (results.size() >= options.getRows()) {
-			// stop if we already have the max number of results to return
-			return false;
-		} else if (directory.getName().startsWith(".")) {
+
+	/**
+	 * Search a directory, the subdirectories are submitted as new tasks.
+	 */
+	private void searchDirectory(File directory, ScopeContext scope) {
+		if (stopped || directory.getName().startsWith(".")) {
 			// ignore directories starting with a dot like '.git'
-			return false;
-		} else {
-			return true;
+			return;
 		}
-	}
-
-	@Override
-	protected void handleFile(File file, int depth, Collection<SearchResult> results) {
-		if (results.size() >= options.getRows()) {
-			// stop if we already have the max number of results to return
+		File[] children = directory.listFiles();
+		if (children == null) {
 			return;
 		}
+		Matcher matcher = pattern == null ? null : pattern.matcher("");
+		for (File child : children) {
+			if (stopped) {
+				return;
+			}
+			if (child.isDirectory()) {
+				submit(child, scope);
+			} else {
+				handleFile(child, scope, matcher);
+			}
+		}
+	}
+
+	private void handleFile(File file, ScopeContext scope, Matcher matcher) {
 		// Check if the path is acceptable
 		if (!acceptFilename(file.getName()))
 			return;
+		if (scope.index != null) {
+			Boolean mayContain = scope.index.mayContain(file, query);
+			if (Boolean.FALSE.equals(mayContain)) {
+				// the index shows the file cannot contain the search term
+				return;
+			} else if (mayContain == null) {
+				// search the file and update the index later
+				scope.indexStale = true;
+			}
+		}
 		// Add if it is a filename search or search the file contents.
-		if (!options.isFileContentsSearch() || searchFile(file)) {
+		if (!options.isFileContentsSearch() || searchFile(file, matcher)) {
 			IFileStore fileStore;
 			try {
 				fileStore = EFS.getStore(file.toURI());
@@ -178,65 +286,131 @@ public class FileGrepper extends DirectoryWalker<SearchResult> {
 				logger.error("FileGrepper.handleFile: " + e.getLocalizedMessage(), e);
 				return;
 			}
-			results.add(new SearchResult(fileStore, currentWorkspace, currentProject));
+			int count = found.incrementAndGet();
+			if (count > options.getRows()) {
+				// another worker found the last result
+				stopped = true;
+				return;
+			}
+			collector.add(new SearchResult(fileStore, scope.workspace, scope.project));
+			if (count == options.getRows()) {
+				// stop if we already have the max number of results to return
+				stopped = true;
+			}
+		}
+	}
+
+	private void submit(final File directory, final ScopeContext scope) {
+		pendingTasks.incrementAndGet();
+		try {
+			getWorkers().execute(new Runnable() {
+				public void run() {
+					try {
+						searchDirectory(directory, scope);
+					} catch (RuntimeException e) {
+						logger.error("FileGrepper.searchDirectory: " + e.getLocalizedMessage(), e);
+					} finally {
+						taskDone();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the bundle is stopping
+			stopped = true;
+			taskDone();
+		}
+	}
+
+	private void taskDone() {
+		if (pendingTasks.decrementAndGet() == 0) {
+			synchronized (pendingTasks) {
+				pendingTasks.notifyAll();
+			}
 		}
 	}
 
 	/**
 	 * Performs the search from the HTTP request
-	 * @return A list of files which contain the search term, and pass the filename patterns.
+	 * @param monitor The progress monitor used to cancel the search.
+	 * @return A list of files which contain the search term, and pass the filename patterns, sorted by path.
 	 * @throws SearchException If there is a problem accessing any of the files.
 	 */
-	public List<SearchResult> search(SearchOptions options) throws SearchException {
-		List<SearchResult> files = new LinkedList<SearchResult>();
-		try {
-			for (SearchScope scope : options.getScopes()) {
-				currentWorkspace = scope.getWorkspace();
-				currentProject = scope.getProject();
-				File file = scope.getFile();
-				if (!file.isDirectory()) {
-					file = file.getParentFile();
+	public List<SearchResult> search(IProgressMonitor monitor) throws SearchException {
+		final List<SearchResult> files = new ArrayList<SearchResult>();
+		search(new ResultCollector() {
+			public void add(SearchResult result) {
+				synchronized (files) {
+					files.add(result);
 				}
+			}
+		}, monitor);
+		synchronized (files) {
+			// the workers find the files in no particular order
+			List<SearchResult> sorted = new ArrayList<SearchResult>(files);
+			Collections.sort(sorted, new Comparator<SearchResult>() {
+				public int compare(SearchResult result1, SearchResult result2) {
+					return result1.getFile().getPath().compareTo(result2.getFile().getPath());
+				}
+			});
+			return sorted;
+		}
+	}
 
-				super.walk(file, files);
+	/**
+	 * Performs the search from the HTTP request, the results are passed to the collector as they are found.
+	 * @param resultCollector The collector of the search results.
+	 * @param monitor The progress monitor used to cancel the search.
+	 * @throws SearchException If there is a problem accessing any of the files.
+	 */
+	public void search(ResultCollector resultCollector, IProgressMonitor monitor) throws SearchException {
+		this.collector = resultCollector;
+		List<ScopeContext> contexts = new ArrayList<ScopeContext>();
+		for (SearchScope scope : options.getScopes()) {
+			TrigramIndex index = null;
+			if (query != null && scope.getWorkspace() != null) {
+				index = TrigramIndexManager.getIndex(scope.getWorkspace().getUniqueId());
+			}
+			ScopeContext context = new ScopeContext(scope.getWorkspace(), scope.getProject(), index);
+			contexts.add(context);
+			File file = scope.getFile();
+			if (!file.isDirectory()) {
+				file = file.getParentFile();
+			}
+			submit(file, context);
+		}
+		try {
+			synchronized (pendingTasks) {
+				while (pendingTasks.get() > 0) {
+					if (monitor.isCanceled()) {
+						stopped = true;
+					}
+					pendingTasks.wait(100);
+				}
+			}
+		} catch (InterruptedException e) {
+			stopped = true;
+			Thread.currentThread().interrupt();
+		}
+		for (ScopeContext context : contexts) {
+			if (context.indexStale) {
+				TrigramIndexManager.scheduleUpdate(context.workspace.getUniqueId());
 			}
-		} catch (IOException e) {
-			throw (new SearchException(e));
 		}
-		return files;
 	}
 
 	/**
 	 * Searches the contents of a file
 	 * @param file The file to search
+	 * @param matcher The matcher for the search pattern
 	 * @return returns whether the search was successful
-	 * @throws IOException thrown if there is an error reading the file
 	 */
-	private boolean searchFile(File file) {
-		LineIterator lineIterator = null;
+	private boolean searchFile(File file, Matcher matcher) {
 		try {
-			lineIterator = FileUtils.lineIterator(file);
+			return scanner.matches(file, matcher);
 		} catch (IOException e) {
 			logger.error("FileGrepper.searchFile: " + e.getLocalizedMessage());
 			return false;
 		}
-		try {
-			while (lineIterator.hasNext()) {
-				String line = lineIterator.nextLine();
-				if (line.contains("\0")) {
-					// file contains binary content
-					return false;
-				}
-				matcher.reset(line);
-				if (matcher.find()) {
-					return true;
-				}
-			}
-		} finally {
-			if (lineIterator != null)
-				lineIterator.close();
-		}
-		return false;
 	}
 
 	/**
@@ -18,6 +18,8 @@ public class SearchActivator implements BundleActivator {
 	private static BundleContext context;
 
 	private static SearchActivator instance;
+
+	private TrigramIndexUpdater indexUpdater;
 	public static final String PI_SEARCH = "org.eclipse.orion.server.core.search"; //$NON-NLS-1$
 
 	static BundleContext getContext() {
@@ -28,6 +30,13 @@ public class SearchActivator implements BundleActivator {
 		return instance;
 	}
 
+	/**
+	 * Returns the updater of the search indexes, or <code>null</code> if the indexed search is not enabled.
+	 */
+	public TrigramIndexUpdater getIndexUpdater() {
+		return indexUpdater;
+	}
+
 	public SearchActivator() {
 		super();
 		instance = this;
@@ -35,12 +44,24 @@ public class SearchActivator implements BundleActivator {
 
 	public void start(BundleContext bundleContext) throws Exception {
 		SearchActivator.context = bundleContext;
+		if (TrigramIndexManager.isEnabled()) {
+			indexUpdater = new TrigramIndexUpdater();
+			indexUpdater.start();
+		}
 	}
 
 	public void stop(BundleContext bundleContext) throws Exception {
+		if (indexUpdater != null) {
+			indexUpdater.stop();
+			indexUpdater = null;
+		}
 		// cancel all the running search jobs
 		Job.getJobManager().cancel(SearchJob.FAMILY);
 		Job.getJobManager().join(SearchJob.FAMILY, null);
+		FileGrepper.shutdown();
+		Job.getJobManager().cancel(TrigramIndexJob.FAMILY);
+		Job.getJobManager().join(TrigramIndexJob.FAMILY, null);
+		Job.getJobManager().join(TrigramIndexUpdater.FAMILY, null);
 	}
 
 }
@@ -11,16 +11,19 @@
 package org.eclipse.orion.internal.server.search;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.orion.internal.server.servlets.Activator;
+import org.eclipse.orion.server.core.tasks.TaskJobScheduler;
 
 /**
  * A job that wraps and runs a search task. We currently limit one running
- * search job per user.
+ * search job per user. The job can wait in the queue of the scheduler
+ * before it runs, so the servlet waits for the search with {@link #waitForSearch()}.
  * 
  * @author Anthony Hunter
  */
@@ -39,16 +42,35 @@ public class SearchJob extends Job {
 		return FAMILY.equals(family);
 	}
 
+	private final CountDownLatch done = new CountDownLatch(1);
+
 	private List<SearchResult> files;
 
+	private IStatus searchStatus;
+
+	/**
+	 * Returns the files found by the search, sorted by path.
+	 */
 	public List<SearchResult> getSearchResults() {
 		return files;
 	}
 
+	/**
+	 * Waits until the search has run.
+	 * @return the status of the search.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public IStatus waitForSearch() throws InterruptedException {
+		done.await();
+		return searchStatus;
+	}
+
 	public SearchJob(SearchOptions options) {
 		super("Orion Search Job " + options.getUsername());
 		this.options = options;
 		this.username = options.getUsername();
+		// the results are written to the response while the user waits
+		setPriority(Job.SHORT);
 	}
 
 	@Override
@@ -56,23 +78,19 @@ public class SearchJob extends Job {
 		IStatus result = null;
 		try {
 			FileGrepper grepper = new FileGrepper(options);
-			files = grepper.search(options);
-			result = Status.OK_STATUS;
+			files = grepper.search(monitor);
+			result = monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
 		} catch (SearchException exception) {
 			result = new Status(IStatus.ERROR, Activator.PI_SERVER_SERVLETS, exception.getLocalizedMessage(), exception);
+		} finally {
+			searchStatus = result;
+			done.countDown();
 		}
 		return result;
 	}
 
 	public static boolean isSearchJobRunning(String remoteUser) {
-		Job[] jobs = Job.getJobManager().find(FAMILY);
-		int count = 0;
-		for (int i = 0; i < jobs.length; i++) {
-			SearchJob searchJob = (SearchJob) jobs[i];
-			if (searchJob.getUsername().equals(remoteUser)) {
-				count++;
-			}
-		}
+		int count = TaskJobScheduler.getDefault().getJobCount(remoteUser, FAMILY);
 		if (count > 5) {
 			// TODO: allow five search jobs per user, see Bug 459325
 			return true;
@@ -25,11 +25,13 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.orion.server.core.OrionConfiguration;
 import org.eclipse.orion.server.core.metastore.ProjectInfo;
 import org.eclipse.orion.server.core.metastore.UserInfo;
 import org.eclipse.orion.server.core.metastore.WorkspaceInfo;
+import org.eclipse.orion.server.core.tasks.TaskJobScheduler;
 import org.eclipse.orion.server.core.users.UserConstants;
 import org.eclipse.orion.server.servlets.OrionServlet;
 import org.json.JSONArray;
@@ -141,59 +143,36 @@ public class SearchServlet extends OrionServlet {
 	}
 
 	/**
-	 * Convert the list of file results to JSON format for return to the client.
-	 * @param contextPath the context path of the server that is added to the location for each result.
-	 * @param files The list of files matching the search query.
+	 * Create the response header of the search results.
 	 * @param options The search options.
-	 * @return the file results in JSON format.
+	 * @return the response header in JSON format.
+	 * @throws JSONException
 	 */
-	private JSONObject convertListToJson(String contextPath, List<SearchResult> files, SearchOptions options) {
-		JSONObject resultsJSON = new JSONObject();
-		JSONObject responseJSON = new JSONObject();
-		try {
-			resultsJSON.put("numFound", files.size());
-			resultsJSON.put("start", 0);
-
-			JSONArray docs = new JSONArray();
-			for (SearchResult file : files) {
-				docs.put(file.toJSON(contextPath));
-			}
-			resultsJSON.put("docs", docs);
-			// Add to parent JSON
-			JSONObject responseHeader = new JSONObject();
-			responseHeader.put("status", 0);
-			//responseHeader.put("QTime", 77);
-			JSONObject params = new JSONObject();
-			params.put("wt", "json");
-			params.put("fl", FIELD_NAMES);
-			JSONArray fq = new JSONArray();
-			if (options.getDefaultLocation() != null) {
-				fq.put("Location:" + options.getDefaultLocation());
-			} else if (options.getLocation() != null) {
-				fq.put("Location:" + options.getLocation());
-			} else {
-				throw new RuntimeException("Scope or DefaultScope is missing");
-			}
-			if (options.getUsername() != null) {
-				fq.put("UserName:" + options.getUsername());
-			} else {
-				throw new RuntimeException("UserName is missing");
-			}
-			params.put("fq", fq);
-			params.put("rows", "10000");
-			params.put("start", "0");
-			params.put("sort", "Path asc");
-			responseHeader.put("params", params);
-			responseJSON.put("responseHeader", responseHeader);
-			responseJSON.put("response", resultsJSON);
-		} catch (JSONException e) {
-			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
-		} catch (CoreException e) {
-			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
-		} catch (URISyntaxException e) {
-			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
+	private JSONObject createResponseHeader(SearchOptions options) throws JSONException {
+		JSONObject responseHeader = new JSONObject();
+		responseHeader.put("status", 0);
+		//responseHeader.put("QTime", 77);
+		JSONObject params = new JSONObject();
+		params.put("wt", "json");
+		params.put("fl", FIELD_NAMES);
+		JSONArray fq = new JSONArray();
+		if (options.getDefaultLocation() != null) {
+			fq.put("Location:" + options.getDefaultLocation());
+		} else if (options.getLocation() != null) {
+			fq.put("Location:" + options.getLocation());
+		} else {
+			throw new RuntimeException("Scope or DefaultScope is missing");
 		}
-		return responseJSON;
+		if (options.getUsername() != null) {
+			fq.put("UserName:" + options.getUsername());
+		} else {
+			throw new RuntimeException("UserName is missing");
+		}
+		params.put("fq", fq);
+		params.put("rows", "10000");
+		params.put("start", "0");
+		responseHeader.put("params", params);
+		return responseHeader;
 	}
 
 	public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
@@ -207,12 +186,21 @@ public class SearchServlet extends OrionServlet {
 				return;
 			}
 			SearchJob searchJob = new SearchJob(options);
-			searchJob.schedule();
-			searchJob.join();
-			if (!searchJob.getResult().isOK()) {
-				resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, searchJob.getResult().getMessage());
+			TaskJobScheduler.getDefault().schedule(searchJob, req.getRemoteUser());
+			IStatus status;
+			try {
+				status = searchJob.waitForSearch();
+			} finally {
+				// stop the search if the request was interrupted while waiting
+				if (!TaskJobScheduler.getDefault().cancel(searchJob)) {
+					searchJob.cancel();
+				}
 			}
 			List<SearchResult> files = searchJob.getSearchResults();
+			if (files == null) {
+				resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, status != null ? status.getMessage() : null);
+				return;
+			}
 			writeResponse(req, resp, files, options);
 		} catch (SearchException e) {
 			resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
@@ -339,6 +327,33 @@ public class SearchServlet extends OrionServlet {
 		}
 	}
 
+	/**
+	 * Convert the search results to JSON, in the same format as the Solr based search. The locations in the results are
+	 * already server relative.
+	 */
+	private JSONObject convertListToJson(String contextPath, List<SearchResult> files, SearchOptions options) {
+		JSONObject responseJSON = new JSONObject();
+		try {
+			JSONObject resultsJSON = new JSONObject();
+			resultsJSON.put("numFound", files.size());
+			resultsJSON.put("start", 0);
+			JSONArray docs = new JSONArray();
+			for (SearchResult file : files) {
+				docs.put(file.toJSON(contextPath));
+			}
+			resultsJSON.put("docs", docs);
+			responseJSON.put("responseHeader", createResponseHeader(options));
+			responseJSON.put("response", resultsJSON);
+		} catch (JSONException e) {
+			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
+		} catch (CoreException e) {
+			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
+		} catch (URISyntaxException e) {
+			logger.error("SearchServlet.convertListToJson: " + e.getLocalizedMessage(), e);
+		}
+		return responseJSON;
+	}
+
 	private void writeResponse(HttpServletRequest req, HttpServletResponse resp, List<SearchResult> files, SearchOptions options) throws IOException {
 		try {
 			JSONObject json = convertListToJson(req.getContextPath(), files, options);
@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A persistent trigram index of the files in a workspace. For each indexed file the index keeps the last modified
+ * time and length of the file, and a bloom filter of the case folded trigrams found in the lines of the file that the
+ * {@link FileGrepper} would search, that is the lines before the first line with binary content.
+ * <p>
+ * The index only ever answers that a file cannot match a query or that it does not know. A file that is not indexed,
+ * or that has changed since it was indexed, must be searched with the grep path.
+ * </p>
+ */
+public class TrigramIndex {
+
+	/**
+	 * Files larger than this are not indexed and are always searched with the grep path.
+	 */
+	static final long MAX_INDEXED_LENGTH = 1024 * 1024;
+
+	/**
+	 * Files modified this close to the time they are indexed may still be changing within the resolution of the file
+	 * system time stamps, so they are not indexed until the next update.
+	 */
+	private static final long RACY_MODIFICATION_WINDOW = 2000;
+
+	private static final int INDEX_MAGIC = 0x4f544749;
+
+	private static final int INDEX_VERSION = 1;
+
+	private static final int MIN_FILTER_BITS = 256;
+
+	private static final int MAX_FILTER_BITS = 1 << 18;
+
+	private static class Entry {
+		final long lastModified;
+		final long length;
+		final long[] filter;
+
+		Entry(long lastModified, long length, long[] filter) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.filter = filter;
+		}
+
+		boolean isCurrent(File file) {
+			return lastModified == file.lastModified() && length == file.length();
+		}
+	}
+
+	private final File indexFile;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private volatile boolean dirty = false;
+
+	/**
+	 * Create an empty index persisted in the provided file.
+	 * @param indexFile the file to save the index in, or <code>null</code> for an index kept only in memory.
+	 */
+	public TrigramIndex(File indexFile) {
+		this.indexFile = indexFile;
+	}
+
+	/**
+	 * Load the index persisted in the provided file. A missing or unreadable index file results in an empty index.
+	 * @param indexFile the index file.
+	 * @return the index.
+	 */
+	public static TrigramIndex load(File indexFile) {
+		TrigramIndex index = new TrigramIndex(indexFile);
+		if (indexFile == null || !indexFile.isFile()) {
+			return index;
+		}
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+				return index;
+			}
+			int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				String path = input.readUTF();
+				long lastModified = input.readLong();
+				long length = input.readLong();
+				long[] filter = new long[input.readInt()];
+				for (int j = 0; j < filter.length; j++) {
+					filter[j] = input.readLong();
+				}
+				index.entries.put(path, new Entry(lastModified, length, filter));
+			}
+		} catch (IOException e) {
+			// a damaged index is rebuilt by the next update
+			index.entries.clear();
+		} catch (RuntimeException e) {
+			index.entries.clear();
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Save the index if it has changed since it was loaded or last saved. The index is written to a temporary file
+	 * first so a failure never leaves a partial index behind.
+	 * @throws IOException if the index could not be written.
+	 */
+	public synchronized void save() throws IOException {
+		if (indexFile == null || !dirty) {
+			return;
+		}
+		dirty = false;
+		File parent = indexFile.getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		File tempFile = new File(indexFile.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+		try {
+			// take a snapshot, the entries are updated concurrently by searches
+			Map<String, Entry> snapshot = new HashMap<String, Entry>(entries);
+			output.writeInt(INDEX_MAGIC);
+			output.writeInt(INDEX_VERSION);
+			output.writeInt(snapshot.size());
+			for (Map.Entry<String, Entry> mapEntry : snapshot.entrySet()) {
+				Entry entry = mapEntry.getValue();
+				output.writeUTF(mapEntry.getKey());
+				output.writeLong(entry.lastModified);
+				output.writeLong(entry.length);
+				output.writeInt(entry.filter.length);
+				for (long word : entry.filter) {
+					output.writeLong(word);
+				}
+			}
+		} catch (IOException e) {
+			dirty = true;
+			throw e;
+		} finally {
+			output.close();
+		}
+		if (indexFile.exists() && !indexFile.delete()) {
+			dirty = true;
+			throw new IOException("Unable to replace the search index " + indexFile); //$NON-NLS-1$
+		}
+		if (!tempFile.renameTo(indexFile)) {
+			dirty = true;
+			throw new IOException("Unable to write the search index " + indexFile); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns whether the file may contain a line matching the query.
+	 * @param file the file.
+	 * @param query the trigrams required by the search.
+	 * @return {@link Boolean#FALSE} if the file cannot contain a match, {@link Boolean#TRUE} if it may contain a match,
+	 * or <code>null</code> if the file is not indexed or has changed since it was indexed.
+	 */
+	public Boolean mayContain(File file, TrigramQuery query) {
+		Entry entry = entries.get(file.getAbsolutePath());
+		if (entry == null || !entry.isCurrent(file)) {
+			return null;
+		}
+		for (long trigram : query.getTrigrams()) {
+			if (!contains(entry.filter, trigram)) {
+				return Boolean.FALSE;
+			}
+		}
+		return Boolean.TRUE;
+	}
+
+	/**
+	 * Returns whether the index has an up to date entry for the file.
+	 */
+	public boolean isCurrent(File file) {
+		Entry entry = entries.get(file.getAbsolutePath());
+		return entry != null && entry.isCurrent(file);
+	}
+
+	/**
+	 * Index the contents of the file, replacing any previous entry for it.
+	 * @param file the file to index.
+	 * @throws IOException if the file could not be read.
+	 */
+	public void update(File file) throws IOException {
+		String path = file.getAbsolutePath();
+		long now = System.currentTimeMillis();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		if (lastModified == 0L || length > MAX_INDEXED_LENGTH || now - lastModified < RACY_MODIFICATION_WINDOW) {
+			if (entries.remove(path) != null) {
+				dirty = true;
+			}
+			return;
+		}
+		long[] trigrams = readTrigrams(file);
+		if (lastModified != file.lastModified() || length != file.length()) {
+			// the file changed while it was read
+			if (entries.remove(path) != null) {
+				dirty = true;
+			}
+			return;
+		}
+		entries.put(path, new Entry(lastModified, length, buildFilter(trigrams)));
+		dirty = true;
+	}
+
+	/**
+	 * Remove the entry for the file from the index.
+	 */
+	public void remove(File file) {
+		if (entries.remove(file.getAbsolutePath()) != null) {
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Remove the entries of all the files under the folder.
+	 */
+	public void removeFolder(File folder) {
+		String prefix = folder.getAbsolutePath() + File.separator;
+		Iterator<String> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().startsWith(prefix)) {
+				iterator.remove();
+				dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * Remove the entries that are not in the provided set of paths.
+	 * @param paths the absolute paths of the files to keep.
+	 */
+	public void retain(Set<String> paths) {
+		Iterator<String> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (!paths.contains(iterator.next())) {
+				iterator.remove();
+				dirty = true;
+			}
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the distinct, case folded trigrams of the lines of the file searched by the grep path, sorted.
+	 */
+	static long[] readTrigrams(File file) throws IOException {
+		// read the file the same way as the FileGrepper, with the default encoding
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		long[] trigrams = new long[1024];
+		int count = 0;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.indexOf('\0') != -1) {
+					// the grep path stops at binary content
+					break;
+				}
+				for (int i = 0; i + 2 < line.length(); i++) {
+					if (count == trigrams.length) {
+						trigrams = Arrays.copyOf(trigrams, count * 2);
+					}
+					trigrams[count++] = TrigramQuery.pack(line.charAt(i), line.charAt(i + 1), line.charAt(i + 2));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		Arrays.sort(trigrams, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || trigrams[distinct - 1] != trigrams[i]) {
+				trigrams[distinct++] = trigrams[i];
+			}
+		}
+		return Arrays.copyOf(trigrams, distinct);
+	}
+
+	/**
+	 * Build a bloom filter of the trigrams with about eight bits per trigram and three hash functions, which keeps the
+	 * false positive rate of a single trigram at a few percent.
+	 */
+	static long[] buildFilter(long[] trigrams) {
+		int bits = MIN_FILTER_BITS;
+		while (bits < trigrams.length * 8 && bits < MAX_FILTER_BITS) {
+			bits <<= 1;
+		}
+		long[] filter = new long[bits / 64];
+		for (long trigram : trigrams) {
+			long hash = hash(trigram);
+			for (int i = 0; i < 3; i++) {
+				int bit = (int) (hash >>> (i * 21)) & (bits - 1);
+				filter[bit >>> 6] |= 1L << bit;
+			}
+		}
+		return filter;
+	}
+
+	private static boolean contains(long[] filter, long trigram) {
+		int bits = filter.length * 64;
+		long hash = hash(trigram);
+		for (int i = 0; i < 3; i++) {
+			int bit = (int) (hash >>> (i * 21)) & (bits - 1);
+			if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long hash(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+
+}
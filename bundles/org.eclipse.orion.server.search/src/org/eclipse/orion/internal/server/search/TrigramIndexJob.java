@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A job that brings the trigram index of a workspace up to date with the files on disk. Files that are new or have a
+ * different last modified time or length than the indexed one are indexed again, and files that no longer exist are
+ * removed from the index. Directories starting with a dot are skipped, like the {@link FileGrepper} does.
+ */
+public class TrigramIndexJob extends Job {
+
+	public static final Object FAMILY = "org.eclipse.orion.server.search.jobs.TrigramIndexJob"; //$NON-NLS-1$
+
+	private final String workspaceId;
+
+	private Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.config"); //$NON-NLS-1$
+
+	public TrigramIndexJob(String workspaceId) {
+		super("Orion Search Index " + workspaceId); //$NON-NLS-1$
+		this.workspaceId = workspaceId;
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return FAMILY.equals(family);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		TrigramIndexManager.updateStarted(workspaceId);
+		TrigramIndex index = TrigramIndexManager.getIndex(workspaceId);
+		if (index == null) {
+			return Status.OK_STATUS;
+		}
+		File root = TrigramIndexManager.getRoot(workspaceId);
+		if (root == null || !root.isDirectory()) {
+			return Status.OK_STATUS;
+		}
+		Set<String> paths = new HashSet<String>();
+		LinkedList<File> directories = new LinkedList<File>();
+		directories.add(root);
+		while (!directories.isEmpty()) {
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			File[] children = directories.removeFirst().listFiles();
+			if (children == null) {
+				continue;
+			}
+			for (File child : children) {
+				if (child.isDirectory()) {
+					if (!child.getName().startsWith(".")) { //$NON-NLS-1$
+						directories.add(child);
+					}
+				} else {
+					paths.add(child.getAbsolutePath());
+					if (!index.isCurrent(child)) {
+						try {
+							index.update(child);
+						} catch (IOException e) {
+							// an unreadable file is left to the grep path
+							index.remove(child);
+						}
+					}
+				}
+			}
+		}
+		index.retain(paths);
+		try {
+			index.save();
+		} catch (IOException e) {
+			logger.error("TrigramIndexJob.run: " + e.getLocalizedMessage(), e); //$NON-NLS-1$
+		}
+		return Status.OK_STATUS;
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.orion.server.core.OrionConfiguration;
+import org.eclipse.orion.server.core.PreferenceHelper;
+import org.eclipse.orion.server.core.ServerConstants;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Provides the trigram indexes of the workspaces. The indexes are persisted in the state area of the search bundle,
+ * and the most recently used ones are kept in memory. The indexed search is only used when the
+ * {@link ServerConstants#CONFIG_SEARCH_INDEX_ENABLED} configuration property is set to <code>true</code>.
+ */
+public class TrigramIndexManager {
+
+	private static final int MAX_LOADED_INDEXES = 50;
+
+	private static final String INDEX_FOLDER = "index"; //$NON-NLS-1$
+
+	private static final Map<String, TrigramIndex> indexes = new LinkedHashMap<String, TrigramIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, TrigramIndex> eldest) {
+			if (size() > MAX_LOADED_INDEXES) {
+				roots.remove(eldest.getKey());
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * The content locations of the workspaces with a loaded index, guarded by the lock on the indexes.
+	 */
+	private static final Map<String, File> roots = new HashMap<String, File>();
+
+	private static final Set<String> scheduledUpdates = new HashSet<String>();
+
+	private static Boolean enabled;
+
+	/**
+	 * Returns whether the indexed search is enabled on this server.
+	 */
+	public static boolean isEnabled() {
+		if (enabled == null) {
+			enabled = Boolean.valueOf(PreferenceHelper.getString(ServerConstants.CONFIG_SEARCH_INDEX_ENABLED, "false")); //$NON-NLS-1$
+		}
+		return enabled.booleanValue() && SearchActivator.getContext() != null;
+	}
+
+	/**
+	 * Returns the index of the workspace, loading it if required.
+	 * @param workspaceId the unique id of the workspace.
+	 * @return the index, or <code>null</code> if the indexed search is not enabled.
+	 */
+	public static TrigramIndex getIndex(String workspaceId) {
+		if (!isEnabled()) {
+			return null;
+		}
+		synchronized (indexes) {
+			TrigramIndex index = indexes.get(workspaceId);
+			if (index == null) {
+				index = TrigramIndex.load(getIndexFile(workspaceId));
+				indexes.put(workspaceId, index);
+				roots.put(workspaceId, getContentLocation(workspaceId));
+			}
+			return index;
+		}
+	}
+
+	private static File getContentLocation(String workspaceId) {
+		try {
+			return OrionConfiguration.getMetaStore().getWorkspaceContentLocation(workspaceId).toLocalFile(EFS.NONE, null);
+		} catch (CoreException e) {
+			// the workspace content is not on the local file system
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the local content location of a workspace with a loaded index, or <code>null</code> if the index is not
+	 * loaded or the workspace content is not local.
+	 */
+	static File getRoot(String workspaceId) {
+		synchronized (indexes) {
+			return roots.get(workspaceId);
+		}
+	}
+
+	/**
+	 * Returns the workspace with a loaded index whose content location contains the file, or <code>null</code> if
+	 * there is none. Files in workspaces with an index that is not loaded are reconciled when the index is loaded.
+	 */
+	static String findWorkspace(File file) {
+		String path = file.getAbsolutePath();
+		synchronized (indexes) {
+			for (Map.Entry<String, File> root : roots.entrySet()) {
+				if (root.getValue() == null) {
+					continue;
+				}
+				String rootPath = root.getValue().getAbsolutePath();
+				if (path.equals(rootPath) || path.startsWith(rootPath + File.separator)) {
+					return root.getKey();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the unique ids of the workspaces with a loaded index.
+	 */
+	static List<String> getLoadedWorkspaces() {
+		synchronized (indexes) {
+			return new ArrayList<String>(indexes.keySet());
+		}
+	}
+
+	private static File getIndexFile(String workspaceId) {
+		BundleContext context = SearchActivator.getContext();
+		return context.getDataFile(INDEX_FOLDER + File.separator + workspaceId + ".idx"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Schedule a background update of the index of the workspace, unless one is already scheduled.
+	 * @param workspaceId the unique id of the workspace.
+	 */
+	public static void scheduleUpdate(String workspaceId) {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (scheduledUpdates) {
+			if (!scheduledUpdates.add(workspaceId)) {
+				return;
+			}
+		}
+		new TrigramIndexJob(workspaceId).schedule();
+	}
+
+	/**
+	 * Called by the index job when it starts, so that changes made during the update schedule another update.
+	 */
+	static void updateStarted(String workspaceId) {
+		synchronized (scheduledUpdates) {
+			scheduledUpdates.remove(workspaceId);
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.internal.server.servlets.file.FilesystemModificationListenerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the loaded trigram indexes up to date with the changes made through the Orion file API. The changed paths
+ * are queued and de-duplicated, and a background job updates the indexes in batches once the changes have settled.
+ * A second job periodically reconciles the loaded indexes with the file system, to catch changes made outside of the
+ * file API such as a git checkout.
+ * <p>
+ * The depth of the queue and the delay between a change and the update of the index are available as metrics.
+ * </p>
+ */
+public class TrigramIndexUpdater implements IFileStoreModificationListener {
+
+	/**
+	 * The time a change is left in the queue before the index is updated, so that a file being written is not
+	 * indexed while it is still changing. This is longer than the racy modification window of the index.
+	 */
+	private static final long UPDATE_DELAY = 3000;
+
+	private static final long RECONCILE_INTERVAL = 10 * 60 * 1000;
+
+	public static final Object FAMILY = "org.eclipse.orion.server.search.jobs.TrigramIndexUpdater"; //$NON-NLS-1$
+
+	private Logger logger = LoggerFactory.getLogger("org.eclipse.orion.server.config"); //$NON-NLS-1$
+
+	/**
+	 * The changed paths and the time they were last changed, in the order they were changed.
+	 */
+	private final Map<String, Long> queue = new LinkedHashMap<String, Long>();
+
+	private long updateCount = 0;
+
+	private long lastUpdateLag = 0;
+
+	private long maxUpdateLag = 0;
+
+	private final Job updateJob = new Job("Orion Search Index Update") { //$NON-NLS-1$
+		@Override
+		public boolean belongsTo(Object family) {
+			return FAMILY.equals(family);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			processQueue(monitor);
+			return Status.OK_STATUS;
+		}
+	};
+
+	private final Job reconcileJob = new Job("Orion Search Index Reconcile") { //$NON-NLS-1$
+		@Override
+		public boolean belongsTo(Object family) {
+			return FAMILY.equals(family);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			for (String workspaceId : TrigramIndexManager.getLoadedWorkspaces()) {
+				TrigramIndexManager.scheduleUpdate(workspaceId);
+			}
+			schedule(RECONCILE_INTERVAL);
+			return Status.OK_STATUS;
+		}
+	};
+
+	public TrigramIndexUpdater() {
+		updateJob.setSystem(true);
+		updateJob.setPriority(Job.DECORATE);
+		reconcileJob.setSystem(true);
+		reconcileJob.setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Start listening to changes and start the periodic reconciliation.
+	 */
+	public void start() {
+		FilesystemModificationListenerManager.getInstance().addListener(this);
+		reconcileJob.schedule(RECONCILE_INTERVAL);
+	}
+
+	/**
+	 * Stop listening to changes, the changes still in the queue are dropped and picked up by the next reconciliation.
+	 */
+	public void stop() {
+		FilesystemModificationListenerManager.getInstance().removeListener(this);
+		reconcileJob.cancel();
+		updateJob.cancel();
+		synchronized (queue) {
+			queue.clear();
+		}
+	}
+
+	public void changed(ChangeEvent event) {
+		switch (event.getChangeType()) {
+			case MOVE :
+				enqueue(event.getInitialLocation());
+				enqueue(event.getModifiedItem());
+				break;
+			case MKDIR :
+				// an empty directory has nothing to index
+				break;
+			default :
+				enqueue(event.getModifiedItem());
+		}
+	}
+
+	private void enqueue(IFileStore store) {
+		if (store == null) {
+			return;
+		}
+		File file;
+		try {
+			file = store.toLocalFile(EFS.NONE, null);
+		} catch (CoreException e) {
+			return;
+		}
+		if (file == null || TrigramIndexManager.findWorkspace(file) == null) {
+			// the workspace index is not loaded, it is reconciled when it is loaded
+			return;
+		}
+		synchronized (queue) {
+			// move a path changed again to the end of the queue
+			String path = file.getAbsolutePath();
+			queue.remove(path);
+			queue.put(path, Long.valueOf(System.currentTimeMillis()));
+		}
+		updateJob.schedule(UPDATE_DELAY);
+	}
+
+	private void processQueue(IProgressMonitor monitor) {
+		long now = System.currentTimeMillis();
+		Map<String, Long> batch = new LinkedHashMap<String, Long>();
+		boolean remaining = false;
+		synchronized (queue) {
+			Iterator<Map.Entry<String, Long>> iterator = queue.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, Long> entry = iterator.next();
+				if (now - entry.getValue().longValue() < UPDATE_DELAY) {
+					// the queue is in order, the rest of the changes are too recent
+					remaining = true;
+					break;
+				}
+				batch.put(entry.getKey(), entry.getValue());
+				iterator.remove();
+			}
+		}
+		Set<TrigramIndex> updated = new HashSet<TrigramIndex>();
+		for (Map.Entry<String, Long> entry : batch.entrySet()) {
+			if (monitor.isCanceled()) {
+				return;
+			}
+			File file = new File(entry.getKey());
+			String workspaceId = TrigramIndexManager.findWorkspace(file);
+			TrigramIndex index = workspaceId == null ? null : TrigramIndexManager.getIndex(workspaceId);
+			if (index == null || isHidden(file, TrigramIndexManager.getRoot(workspaceId))) {
+				continue;
+			}
+			update(index, file);
+			updated.add(index);
+			long lag = System.currentTimeMillis() - entry.getValue().longValue();
+			synchronized (queue) {
+				updateCount++;
+				lastUpdateLag = lag;
+				maxUpdateLag = Math.max(maxUpdateLag, lag);
+			}
+		}
+		for (TrigramIndex index : updated) {
+			try {
+				index.save();
+			} catch (IOException e) {
+				logger.error("TrigramIndexUpdater.processQueue: " + e.getLocalizedMessage(), e); //$NON-NLS-1$
+			}
+		}
+		if (logger.isDebugEnabled() && !batch.isEmpty()) {
+			logger.debug(this.toString());
+		}
+		if (remaining) {
+			updateJob.schedule(UPDATE_DELAY);
+		}
+	}
+
+	/**
+	 * Returns whether the file is in a directory starting with a dot below the workspace root, which the search skips.
+	 */
+	private static boolean isHidden(File file, File root) {
+		File parent = file.getParentFile();
+		while (parent != null && !parent.equals(root)) {
+			if (parent.getName().startsWith(".")) { //$NON-NLS-1$
+				return true;
+			}
+			parent = parent.getParentFile();
+		}
+		return false;
+	}
+
+	private static void update(TrigramIndex index, File file) {
+		if (!file.exists()) {
+			index.remove(file);
+			index.removeFolder(file);
+			return;
+		}
+		LinkedList<File> files = new LinkedList<File>();
+		files.add(file);
+		while (!files.isEmpty()) {
+			File next = files.removeFirst();
+			if (next.isDirectory()) {
+				File[] children = next.listFiles();
+				if (children != null) {
+					for (File child : children) {
+						if (!child.isDirectory() || !child.getName().startsWith(".")) { //$NON-NLS-1$
+							files.add(child);
+						}
+					}
+				}
+			} else if (!index.isCurrent(next)) {
+				try {
+					index.update(next);
+				} catch (IOException e) {
+					index.remove(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of changed paths waiting to be applied to the indexes.
+	 */
+	public int getQueueDepth() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Returns the number of changed paths applied to the indexes.
+	 */
+	public long getUpdateCount() {
+		synchronized (queue) {
+			return updateCount;
+		}
+	}
+
+	/**
+	 * Returns the time in milliseconds between the most recent applied change and the update of its index.
+	 */
+	public long getLastUpdateLag() {
+		synchronized (queue) {
+			return lastUpdateLag;
+		}
+	}
+
+	/**
+	 * Returns the longest time in milliseconds between a change and the update of its index.
+	 */
+	public long getMaxUpdateLag() {
+		synchronized (queue) {
+			return maxUpdateLag;
+		}
+	}
+
+	@Override
+	public String toString() {
+		synchronized (queue) {
+			return "TrigramIndexUpdater [queueDepth=" + queue.size() + ", updates=" + updateCount + ", lastLag=" + lastUpdateLag + "ms, maxLag=" + maxUpdateLag + "ms]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		}
+	}
+}
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The trigrams that any line matching a search pattern must contain. The trigrams are extracted from the literal
+ * runs of the regular expression built by the {@link FileGrepper}, which covers literal, wildcard and regular
+ * expression searches. The extraction is conservative: any construct that is not understood ends the current literal
+ * run, and alternation or inline flags disable the narrowing altogether.
+ * <p>
+ * Trigrams are case folded with {@link Character#toLowerCase(char)} both here and when indexing, so the trigrams of a
+ * case insensitive search are always a subset of the trigrams of a matching file.
+ * </p>
+ */
+public class TrigramQuery {
+
+	private final long[] trigrams;
+
+	private TrigramQuery(long[] trigrams) {
+		this.trigrams = trigrams;
+	}
+
+	/**
+	 * Build the query for the search pattern.
+	 * @param pattern the search pattern.
+	 * @return the query, or <code>null</code> if the pattern does not require any trigrams.
+	 */
+	public static TrigramQuery create(Pattern pattern) {
+		if ((pattern.flags() & (Pattern.COMMENTS | Pattern.LITERAL)) != 0) {
+			return null;
+		}
+		List<String> runs = getLiteralRuns(pattern.pattern());
+		if (runs == null) {
+			return null;
+		}
+		Set<Long> trigrams = new LinkedHashSet<Long>();
+		for (String run : runs) {
+			for (int i = 0; i + 2 < run.length(); i++) {
+				trigrams.add(Long.valueOf(pack(run.charAt(i), run.charAt(i + 1), run.charAt(i + 2))));
+			}
+		}
+		if (trigrams.isEmpty()) {
+			return null;
+		}
+		long[] result = new long[trigrams.size()];
+		int i = 0;
+		for (Long trigram : trigrams) {
+			result[i++] = trigram.longValue();
+		}
+		return new TrigramQuery(result);
+	}
+
+	/**
+	 * Returns the literal runs of the regular expression, or <code>null</code> if the expression cannot be narrowed.
+	 */
+	static List<String> getLiteralRuns(String regex) {
+		if (regex.contains("(?")) { //$NON-NLS-1$
+			// inline flags can change the meaning of the rest of the expression
+			return null;
+		}
+		List<String> runs = new ArrayList<String>();
+		StringBuilder run = new StringBuilder();
+		int length = regex.length();
+		int i = 0;
+		while (i < length) {
+			char c = regex.charAt(i);
+			switch (c) {
+				case '\\' :
+					if (i + 1 >= length) {
+						return null;
+					}
+					char next = regex.charAt(i + 1);
+					if (next == 'Q') {
+						int end = regex.indexOf("\\E", i + 2); //$NON-NLS-1$
+						run.append(end == -1 ? regex.substring(i + 2) : regex.substring(i + 2, end));
+						i = end == -1 ? length : end + 2;
+					} else if (Character.isLetterOrDigit(next)) {
+						// a character class, boundary, back reference or character code: skip it and any argument
+						flush(run, runs);
+						i = skipEscape(regex, i + 1);
+					} else {
+						run.append(next);
+						i += 2;
+					}
+					break;
+				case '{' :
+					int close = regex.indexOf('}', i);
+					if (close == -1) {
+						return null;
+					}
+					dropLast(run);
+					flush(run, runs);
+					i = close + 1;
+					break;
+				case '*' :
+				case '?' :
+					// the previous character is optional
+					dropLast(run);
+					flush(run, runs);
+					i++;
+					break;
+				case '+' :
+				case '.' :
+				case '^' :
+				case '$' :
+					flush(run, runs);
+					i++;
+					break;
+				case '(' :
+				case '[' :
+					flush(run, runs);
+					i = skipGroup(regex, i);
+					if (i == -1) {
+						return null;
+					}
+					break;
+				case '|' :
+				case ')' :
+				case ']' :
+					return null;
+				default :
+					run.append(c);
+					i++;
+			}
+		}
+		flush(run, runs);
+		return runs;
+	}
+
+	private static void dropLast(StringBuilder run) {
+		int length = run.length();
+		if (length == 0) {
+			return;
+		}
+		if (length > 1 && Character.isLowSurrogate(run.charAt(length - 1)) && Character.isHighSurrogate(run.charAt(length - 2))) {
+			run.setLength(length - 2);
+		} else {
+			run.setLength(length - 1);
+		}
+	}
+
+	private static void flush(StringBuilder run, List<String> runs) {
+		if (run.length() >= 3) {
+			runs.add(run.toString());
+		}
+		run.setLength(0);
+	}
+
+	/**
+	 * Skip the escape sequence starting at the character after the backslash, returns the index after it.
+	 */
+	private static int skipEscape(String regex, int index) {
+		char c = regex.charAt(index);
+		int i = index + 1;
+		if ((c == 'x' || c == 'p' || c == 'P') && i < regex.length() && regex.charAt(i) == '{') {
+			int end = regex.indexOf('}', i);
+			return end == -1 ? regex.length() : end + 1;
+		}
+		if (c == 'k' && i < regex.length() && regex.charAt(i) == '<') {
+			int end = regex.indexOf('>', i);
+			return end == -1 ? regex.length() : end + 1;
+		}
+		int argument;
+		switch (c) {
+			case 'x' :
+				argument = 2;
+				break;
+			case 'u' :
+				argument = 4;
+				break;
+			case 'c' :
+			case 'p' :
+			case 'P' :
+				argument = 1;
+				break;
+			default :
+				argument = 0;
+		}
+		if (Character.isDigit(c)) {
+			// octal escapes and back references, skip all the following digits
+			while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+				i++;
+			}
+			return i;
+		}
+		return Math.min(regex.length(), i + argument);
+	}
+
+	/**
+	 * Skip a group or character class starting at the index, returns the index after it or -1 if it is not closed.
+	 */
+	private static int skipGroup(String regex, int index) {
+		int length = regex.length();
+		int depth = 0;
+		int classDepth = 0;
+		int i = index;
+		while (i < length) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+					int end = regex.indexOf("\\E", i + 2); //$NON-NLS-1$
+					if (end == -1) {
+						return -1;
+					}
+					i = end + 2;
+				} else {
+					i += 2;
+				}
+			} else if (classDepth > 0) {
+				if (c == '[') {
+					classDepth++;
+				} else if (c == ']') {
+					classDepth--;
+					if (classDepth == 0 && depth == 0) {
+						return i + 1;
+					}
+				}
+				i++;
+			} else if (c == '[') {
+				classDepth = 1;
+				i++;
+				// a closing bracket first in a class is a literal
+				if (i < length && regex.charAt(i) == '^') {
+					i++;
+				}
+				if (i < length && regex.charAt(i) == ']') {
+					i++;
+				}
+			} else {
+				if (c == '(') {
+					depth++;
+				} else if (c == ')') {
+					depth--;
+					if (depth == 0) {
+						return i + 1;
+					}
+				}
+				i++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Pack three case folded characters into a single trigram value.
+	 */
+	static long pack(char c1, char c2, char c3) {
+		return ((long) Character.toLowerCase(c1) << 32) | ((long) Character.toLowerCase(c2) << 16) | Character.toLowerCase(c3);
+	}
+
+	/**
+	 * Returns the trigrams that a matching file must contain.
+	 */
+	long[] getTrigrams() {
+		return trigrams;
+	}
+}
@@ -18,6 +18,8 @@ import java.util.Properties;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.orion.internal.server.core.metastore.SimpleMetaStoreUtil;
+import org.eclipse.orion.internal.server.servlets.file.FileETagCache;
+import org.eclipse.orion.internal.server.servlets.file.FilesystemModificationListenerManager;
 import org.eclipse.orion.internal.server.servlets.workspace.ProjectParentDecorator;
 import org.eclipse.orion.internal.server.servlets.workspace.authorization.AuthorizationService;
 import org.eclipse.orion.internal.server.servlets.xfer.TransferResourceDecorator;
@@ -116,9 +118,11 @@ public class Activator implements BundleActivator {
 		authServiceTracker = new AuthServiceTracker(context);
 		authServiceTracker.open();
 		initializeAdminUser();
+		FilesystemModificationListenerManager.getInstance().addListener(FileETagCache.getInstance());
 	}
 
 	public void stop(BundleContext context) throws Exception {
+		FilesystemModificationListenerManager.getInstance().removeListener(FileETagCache.getInstance());
 		if (authServiceTracker != null) {
 			authServiceTracker.close();
 			authServiceTracker = null;
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.servlets.file;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener;
+import org.eclipse.orion.server.core.HashUtilities;
+import org.eclipse.orion.server.core.PreferenceHelper;
+import org.eclipse.orion.server.core.ServerConstants;
+
+/**
+ * A size bounded, least recently used cache of the ETags of files, so that the SHA-1 hash of a file is not computed
+ * again for every request. Each entry remembers the last modified time and length of the file it was computed for,
+ * and is only used while the file still has the same ones.
+ * <p>
+ * Writes made through a {@link FileStoreNotificationWrapper} hash the contents as they are written and add the ETag
+ * to the cache, other changes made through the wrapper remove the affected entries. A file changed outside of the
+ * file API keeps its last modified time and length only if it is changed again within the resolution of the file
+ * system timestamps, so a hash computed for a file modified in the last few seconds is not cached. The ETag of a file
+ * written within those seconds is only kept for the thread that wrote it, and used once by the response to the
+ * request that wrote the file.
+ * </p>
+ * When the {@link ServerConstants#CONFIG_FILE_ETAG_MODE} configuration property is <code>timestamp</code>, the ETag
+ * is derived from the last modified time and length of the file and nothing is hashed or cached.
+ */
+public class FileETagCache implements IFileStoreModificationListener {
+
+	/**
+	 * The default maximum number of files kept in the cache.
+	 */
+	public static final int DEFAULT_SIZE = 10000;
+
+	/**
+	 * The ETag mode computing a hash of the file contents, the default.
+	 */
+	public static final String MODE_CONTENT = "content"; //$NON-NLS-1$
+
+	/**
+	 * The ETag mode using the last modified time and length of the file.
+	 */
+	public static final String MODE_TIMESTAMP = "timestamp"; //$NON-NLS-1$
+
+	/**
+	 * A hash computed for a file modified within this many milliseconds is not cached, since the file may be
+	 * changed again without changing its last modified time.
+	 */
+	private static final long RACY_MODIFICATION_WINDOW = 2000;
+
+	private static FileETagCache instance;
+
+	private static class CacheEntry {
+		final String etag;
+		final long lastModified;
+		final long length;
+
+		CacheEntry(String etag, long lastModified, long length) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * The entry of a file written in the racy window, kept for the thread that wrote it.
+	 */
+	private static class WrittenEntry extends CacheEntry {
+		final String key;
+
+		WrittenEntry(String key, String etag, long lastModified, long length) {
+			super(etag, lastModified, length);
+			this.key = key;
+		}
+	}
+
+	private final int maxSize;
+
+	private final boolean timestampMode;
+
+	private final Map<String, CacheEntry> cache;
+
+	/**
+	 * The file last written by the current thread while the file was in the racy window.
+	 */
+	private final ThreadLocal<WrittenEntry> lastWritten = new ThreadLocal<WrittenEntry>();
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+	private long evictionCount = 0;
+
+	/**
+	 * Returns the cache used by the file servlet, configured from the server configuration.
+	 */
+	public static synchronized FileETagCache getInstance() {
+		if (instance == null) {
+			int size = DEFAULT_SIZE;
+			try {
+				size = Integer.parseInt(PreferenceHelper.getString(ServerConstants.CONFIG_FILE_ETAG_CACHE_SIZE, Integer.toString(DEFAULT_SIZE)));
+			} catch (NumberFormatException e) {
+				// use the default size
+			}
+			String mode = PreferenceHelper.getString(ServerConstants.CONFIG_FILE_ETAG_MODE, MODE_CONTENT);
+			instance = new FileETagCache(size, MODE_TIMESTAMP.equals(mode));
+		}
+		return instance;
+	}
+
+	/**
+	 * Create a cache holding the ETags of at most the provided number of files.
+	 *
+	 * @param maxSize
+	 *            The maximum number of entries, a value less than one disables the cache.
+	 * @param timestampMode
+	 *            <code>true</code> to derive the ETags from the last modified time and length of the files rather
+	 *            than from their contents.
+	 */
+	public FileETagCache(final int maxSize, boolean timestampMode) {
+		this.maxSize = maxSize;
+		this.timestampMode = timestampMode;
+		this.cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+				if (size() > maxSize) {
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the ETag of the file, from the cache when the file has not changed since it was computed.
+	 *
+	 * @param file
+	 *            The file.
+	 * @return The ETag, or an empty string if the file does not exist.
+	 */
+	public String getETag(IFileStore file) throws NoSuchAlgorithmException, IOException, CoreException {
+		IFileInfo info = file.fetchInfo();
+		if (!info.exists())
+			return ""; //$NON-NLS-1$
+		if (timestampMode)
+			return Long.toHexString(info.getLastModified()) + '-' + Long.toHexString(info.getLength());
+		String key = getKey(file);
+		WrittenEntry written = lastWritten.get();
+		if (written != null) {
+			// the ETag of a recent write is used by the request that wrote the file only
+			lastWritten.remove();
+			if (written.key.equals(key) && written.lastModified == info.getLastModified() && written.length == info.getLength()) {
+				synchronized (cache) {
+					hitCount++;
+				}
+				return written.etag;
+			}
+		}
+		synchronized (cache) {
+			CacheEntry entry = cache.get(key);
+			if (entry != null && entry.lastModified == info.getLastModified() && entry.length == info.getLength()) {
+				hitCount++;
+				return entry.etag;
+			}
+			if (entry != null) {
+				// the file was changed outside of the file API
+				cache.remove(key);
+			}
+			missCount++;
+		}
+		String etag = HashUtilities.getHash(file.openInputStream(EFS.NONE, null), true, HashUtilities.SHA_1);
+		IFileInfo after = file.fetchInfo();
+		if (after.getLastModified() == info.getLastModified() && after.getLength() == info.getLength()
+				&& System.currentTimeMillis() - info.getLastModified() >= RACY_MODIFICATION_WINDOW) {
+			put(key, etag, info);
+		}
+		return etag;
+	}
+
+	/**
+	 * Add the ETag of a file that was just written to the cache. Like a computed hash, the ETag is not cached while
+	 * the file is within the racy window, since another write in the same timestamp tick would not be noticed. It is
+	 * then kept for the next ETag requested by the current thread only.
+	 *
+	 * @param file
+	 *            The file.
+	 * @param etag
+	 *            The SHA-1 hash of the contents that were written.
+	 */
+	public void written(IFileStore file, String etag) {
+		if (!isEnabled()) {
+			return;
+		}
+		IFileInfo info = file.fetchInfo();
+		String key = getKey(file);
+		lastWritten.remove();
+		if (info.exists() && System.currentTimeMillis() - info.getLastModified() >= RACY_MODIFICATION_WINDOW) {
+			put(key, etag, info);
+		} else {
+			remove(file);
+			if (info.exists()) {
+				lastWritten.set(new WrittenEntry(key, etag, info.getLastModified(), info.getLength()));
+			}
+		}
+	}
+
+	private void put(String key, String etag, IFileInfo info) {
+		if (!isEnabled()) {
+			return;
+		}
+		synchronized (cache) {
+			cache.put(key, new CacheEntry(etag, info.getLastModified(), info.getLength()));
+		}
+	}
+
+	/**
+	 * Remove the file, and any files below it, from the cache.
+	 *
+	 * @param file
+	 *            The file or folder.
+	 */
+	public void remove(IFileStore file) {
+		if (!isEnabled() || file == null) {
+			return;
+		}
+		String key = getKey(file);
+		String prefix = key.endsWith("/") ? key : key + '/'; //$NON-NLS-1$
+		synchronized (cache) {
+			Iterator<String> iterator = cache.keySet().iterator();
+			while (iterator.hasNext()) {
+				String next = iterator.next();
+				if (next.equals(key) || next.startsWith(prefix)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	public void changed(ChangeEvent event) {
+		switch (event.getChangeType()) {
+			case WRITE :
+				// the wrapper adds the written file to the cache
+				break;
+			case MKDIR :
+				break;
+			case MOVE :
+				remove(event.getInitialLocation());
+				remove(event.getModifiedItem());
+				break;
+			default :
+				remove(event.getModifiedItem());
+		}
+	}
+
+	private static String getKey(IFileStore file) {
+		return FileStoreNotificationWrapper.unwrap(file).toURI().toString();
+	}
+
+	public long getEvictionCount() {
+		synchronized (cache) {
+			return evictionCount;
+		}
+	}
+
+	public long getHitCount() {
+		synchronized (cache) {
+			return hitCount;
+		}
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getMissCount() {
+		synchronized (cache) {
+			return missCount;
+		}
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0 && !timestampMode;
+	}
+
+	public boolean isTimestampMode() {
+		return timestampMode;
+	}
+
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+}
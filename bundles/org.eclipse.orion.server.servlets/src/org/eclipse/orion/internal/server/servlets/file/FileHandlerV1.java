@@ -238,7 +238,7 @@ class FileHandlerV1 extends GenericFileHandler {
 					}
 					break;
 				default:
-					return handleFileContents(request, response, file);
+					return handleFileContents(request, response, file, fileETag);
 				}
 				return true;
 			}
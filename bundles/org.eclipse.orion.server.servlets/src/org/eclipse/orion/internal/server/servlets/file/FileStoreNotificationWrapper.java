@@ -15,7 +15,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
+import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.filesystem.IFileSystem;
@@ -24,6 +27,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.orion.internal.server.servlets.ChangeEvent;
 import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener.ChangeType;
+import org.eclipse.orion.server.core.HashUtilities;
 
 /**
  * Wraps an ordinary {@link IFileStore} to provide notifications after write operations have 
@@ -168,21 +172,33 @@ public class FileStoreNotificationWrapper implements IFileStore {
 
 	public OutputStream openOutputStream(int options, IProgressMonitor monitor) throws CoreException {
 		final OutputStream out = wrapped.openOutputStream(options, monitor);
+		// hash the contents as they are written so the ETag of the file is known after the write
+		final MessageDigest digest = (options & EFS.APPEND) == 0 ? createDigest() : null;
 
 		return new OutputStream() {
+			private boolean failed = false;
+
 			@Override
 			public void write(int b) throws IOException {
-				out.write(b);
+				write(new byte[] {(byte) b}, 0, 1);
 			}
 
 			@Override
 			public void write(byte[] b) throws IOException {
-				out.write(b);
+				write(b, 0, b.length);
 			}
 
 			@Override
 			public void write(byte[] b, int off, int len) throws IOException {
-				out.write(b, off, len);
+				try {
+					out.write(b, off, len);
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				}
+				if (digest != null) {
+					digest.update(b, off, len);
+				}
 			}
 
 			@Override
@@ -194,6 +210,14 @@ public class FileStoreNotificationWrapper implements IFileStore {
 			public void close() throws IOException {
 				try {
 					out.close();
+					if (digest != null && !failed) {
+						FileETagCache.getInstance().written(wrapped, HashUtilities.bytesToHex(digest.digest()));
+					} else {
+						FileETagCache.getInstance().remove(wrapped);
+					}
+				} catch (IOException e) {
+					FileETagCache.getInstance().remove(wrapped);
+					throw e;
 				} finally {
 					// Tested by CoreFilesTest.testListenerWriteFile()
 					notifyOfWrite(new ChangeEvent(source, ChangeType.WRITE, wrapped));
@@ -202,6 +226,14 @@ public class FileStoreNotificationWrapper implements IFileStore {
 		};
 	}
 
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(HashUtilities.SHA_1);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
 	public void putInfo(IFileInfo info, int options, IProgressMonitor monitor) throws CoreException {
 		wrapped.putInfo(info, options, monitor);
 
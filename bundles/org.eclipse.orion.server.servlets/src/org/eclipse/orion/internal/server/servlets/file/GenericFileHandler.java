@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2014 IBM Corporation and others.
+ * Copyright (c) 2010, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,19 @@
  *******************************************************************************/
 package org.eclipse.orion.internal.server.servlets.file;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -19,10 +30,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
 import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
-import org.eclipse.orion.server.core.HashUtilities;
+import org.eclipse.orion.server.core.ByteRange;
 import org.eclipse.orion.server.core.IOUtilities;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.osgi.util.NLS;
@@ -38,16 +50,31 @@ class GenericFileHandler extends ServletResourceHandler<IFileStore> {
 		this.context = context;
 	}
 
-	protected boolean handleFileContents(HttpServletRequest request, HttpServletResponse response, IFileStore file) throws CoreException, IOException, NoSuchAlgorithmException {
+	/**
+	 * Reads or writes the contents of a file.
+	 *
+	 * @param etag The file's ETag, computed once for the request
+	 */
+	protected boolean handleFileContents(HttpServletRequest request, HttpServletResponse response, IFileStore file, String etag) throws CoreException, IOException {
 		switch (getMethod(request)) {
 			case GET :
-				setCacheHeaders(response, file);
-				response.setHeader(ProtocolConstants.HEADER_CONTENT_TYPE, context.getMimeType(file.getName()));
+				IFileInfo info = file.fetchInfo(EFS.NONE, null);
+				long lastModified = info.getLastModified();
+				setCacheHeaders(response, etag);
+				if (lastModified > 0) {
+					response.setDateHeader(ProtocolConstants.HEADER_LAST_MODIFIED, lastModified);
+				}
+				if (handleIfModifiedSinceHeader(request, response, lastModified)) {
+					return true;
+				}
+				String contentType = context.getMimeType(file.getName());
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_TYPE, contentType);
 				response.setHeader(ProtocolConstants.HEADER_ACCEPT_PATCH, ProtocolConstants.CONTENT_TYPE_JSON_PATCH);
-				IOUtilities.pipe(file.openInputStream(EFS.NONE, null), response.getOutputStream(), true, false);
+				response.setHeader(ProtocolConstants.HEADER_ACCEPT_RANGES, "bytes"); //$NON-NLS-1$
+				writeFileContents(request, response, file, info.getLength(), contentType, etag, lastModified);
 				break;
 			case PUT :
-				setCacheHeaders(response, file);
+				setCacheHeaders(response, etag);
 				IOUtilities.pipe(request.getInputStream(), file.openOutputStream(EFS.NONE, null), false, true);
 				break;
 			default :
@@ -56,9 +83,103 @@ class GenericFileHandler extends ServletResourceHandler<IFileStore> {
 		return true;
 	}
 
-	private void setCacheHeaders(HttpServletResponse response, IFileStore file) throws NoSuchAlgorithmException, IOException, CoreException {
+	private void setCacheHeaders(HttpServletResponse response, String etag) {
 		response.setHeader("Cache-Control", "no-cache"); //$NON-NLS-1$ //$NON-NLS-2$
-		response.setHeader(ProtocolConstants.KEY_ETAG, generateFileETag(file));
+		response.setHeader(ProtocolConstants.KEY_ETAG, etag);
+	}
+
+	/**
+	 * Writes the requested ranges of the file, or the whole file. Local files are read through their file channel, so
+	 * that a range is read from its position instead of skipping the bytes before it.
+	 */
+	private void writeFileContents(HttpServletRequest request, HttpServletResponse response, IFileStore file, long length, String contentType, String etag, long lastModified) throws CoreException, IOException {
+		List<ByteRange> ranges = ByteRange.getRanges(request, length, etag, lastModified);
+		if (ranges != null && !ranges.get(0).isSatisfiable()) {
+			response.setHeader(ProtocolConstants.HEADER_CONTENT_RANGE, ranges.get(0).getContentRange());
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+		File localFile = file.toLocalFile(EFS.NONE, null);
+		FileInputStream localStream = localFile != null ? new FileInputStream(localFile) : null;
+		try {
+			if (ranges == null) {
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_LENGTH, Long.toString(length));
+				if (localStream != null) {
+					transfer(localStream.getChannel(), 0, length, response.getOutputStream());
+				} else {
+					IOUtilities.pipe(file.openInputStream(EFS.NONE, null), response.getOutputStream(), true, false);
+				}
+				return;
+			}
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			if (ranges.size() == 1) {
+				ByteRange range = ranges.get(0);
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_RANGE, range.getContentRange());
+				response.setHeader(ProtocolConstants.HEADER_CONTENT_LENGTH, Long.toString(range.getLength()));
+				writeRange(file, localStream, range, response.getOutputStream());
+				return;
+			}
+			// several ranges are sent as the parts of a multipart/byteranges body
+			String boundary = UUID.randomUUID().toString();
+			List<byte[]> partHeaders = new ArrayList<byte[]>(ranges.size());
+			long contentLength = 0;
+			for (ByteRange range : ranges) {
+				String partHeader = "--" + boundary + "\r\n" //$NON-NLS-1$ //$NON-NLS-2$
+						+ ProtocolConstants.HEADER_CONTENT_TYPE + ": " + (contentType != null ? contentType : "application/octet-stream") + "\r\n" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ ProtocolConstants.HEADER_CONTENT_RANGE + ": " + range.getContentRange() + "\r\n\r\n"; //$NON-NLS-1$ //$NON-NLS-2$
+				partHeaders.add(partHeader.getBytes("ISO-8859-1")); //$NON-NLS-1$
+				contentLength += partHeaders.get(partHeaders.size() - 1).length + range.getLength() + 2;
+			}
+			byte[] end = ("--" + boundary + "--\r\n").getBytes("ISO-8859-1"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			contentLength += end.length;
+			response.setHeader(ProtocolConstants.HEADER_CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary); //$NON-NLS-1$
+			response.setHeader(ProtocolConstants.HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+			OutputStream out = response.getOutputStream();
+			for (int i = 0; i < ranges.size(); i++) {
+				out.write(partHeaders.get(i));
+				writeRange(file, localStream, ranges.get(i), out);
+				out.write('\r');
+				out.write('\n');
+			}
+			out.write(end);
+		} finally {
+			if (localStream != null) {
+				localStream.close();
+			}
+		}
+	}
+
+	private void writeRange(IFileStore file, FileInputStream localStream, ByteRange range, OutputStream out) throws CoreException, IOException {
+		if (localStream != null) {
+			transfer(localStream.getChannel(), range.getFirst(), range.getLength(), out);
+			return;
+		}
+		InputStream in = file.openInputStream(EFS.NONE, null);
+		try {
+			range.write(in, out);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Copies bytes of a file to a stream with {@link FileChannel#transferTo(long, long, WritableByteChannel)}. The
+	 * response stream is neither a file nor a socket channel, so the bytes are still copied through a heap buffer.
+	 *
+	 * @throws EOFException
+	 *             if the file has been truncated since its length was read, the response must not end as if it were
+	 *             complete
+	 */
+	private static void transfer(FileChannel channel, long position, long count, OutputStream out) throws IOException {
+		WritableByteChannel target = Channels.newChannel(out);
+		long end = position + count;
+		while (position < end) {
+			long transferred = channel.transferTo(position, end - position, target);
+			if (transferred <= 0) {
+				throw new EOFException("File truncated while it was sent: " + (end - position) + " bytes missing"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			position += transferred;
+		}
 	}
 
 	@Override
@@ -76,7 +197,7 @@ class GenericFileHandler extends ServletResourceHandler<IFileStore> {
 				return true;
 			}
 
-			return handleFileContents(request, response, file);
+			return handleFileContents(request, response, file, fileETag);
 		} catch (Exception e) {
 			if (!handleAuthFailure(request, response, e))
 				throw new ServletException(NLS.bind("Error retrieving file: {0}", file), e);
@@ -85,13 +206,11 @@ class GenericFileHandler extends ServletResourceHandler<IFileStore> {
 	}
 
 	/**
-	 * Returns an ETag calculated using SHA-1 hash function.
+	 * Returns an ETag calculated using SHA-1 hash function, or an empty string if the file does not exist.
+	 * The hashes are cached by the {@link FileETagCache}.
 	 */
 	public static String generateFileETag(IFileStore file) throws NoSuchAlgorithmException, IOException, CoreException {
-		//give empty ETag if file does not exist
-		if (!file.fetchInfo().exists())
-			return ""; //$NON-NLS-1$
-		return HashUtilities.getHash(file.openInputStream(EFS.NONE, null), true, HashUtilities.SHA_1);
+		return FileETagCache.getInstance().getETag(file);
 	}
 
 	/**
@@ -140,4 +259,30 @@ class GenericFileHandler extends ServletResourceHandler<IFileStore> {
 		}
 		return false;
 	}
+
+	/**
+	 * Handles If-Modified-Since header precondition, which is ignored when the request has an If-None-Match header
+	 *
+	 * @param request The HTTP request object
+	 * @param response The servlet response object
+	 * @param lastModified The time the file was last modified, or {@code 0} if it is not known
+	 * @return {@code true} if the file has not been modified since the given date, {@code false} otherwise
+	 */
+	protected boolean handleIfModifiedSinceHeader(HttpServletRequest request, HttpServletResponse response, long lastModified) {
+		if (lastModified <= 0 || request.getHeader(ProtocolConstants.HEADER_IF_NONE_MATCH) != null) {
+			return false;
+		}
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader(ProtocolConstants.HEADER_IF_MODIFIED_SINCE);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		// HTTP dates have a resolution of one second
+		if (ifModifiedSince < 0 || lastModified / 1000 > ifModifiedSince / 1000) {
+			return false;
+		}
+		response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		return true;
+	}
 }
\ No newline at end of file
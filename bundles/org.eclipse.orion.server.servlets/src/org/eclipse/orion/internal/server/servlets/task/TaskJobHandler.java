@@ -13,6 +13,7 @@ package org.eclipse.orion.internal.server.servlets.task;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -20,7 +21,6 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
 import org.eclipse.orion.server.core.ProtocolConstants;
@@ -28,6 +28,7 @@ import org.eclipse.orion.server.core.ServerStatus;
 import org.eclipse.orion.server.core.tasks.IURIUnqualificationStrategy;
 import org.eclipse.orion.server.core.tasks.TaskInfo;
 import org.eclipse.orion.server.core.tasks.TaskJob;
+import org.eclipse.orion.server.core.tasks.TaskJobScheduler;
 import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
 import org.eclipse.orion.server.servlets.OrionServlet;
 import org.json.JSONException;
@@ -84,20 +85,23 @@ public class TaskJobHandler {
 	 */
 	public static boolean handleTaskJob(HttpServletRequest request, HttpServletResponse response, TaskJob job, ServletResourceHandler<IStatus> statusHandler, IURIUnqualificationStrategy strategy) throws IOException, ServletException, URISyntaxException, JSONException {
 		final Object jobIsDone = new Object();
+		// the job may wait in the scheduler queue, so its state does not tell whether it is done
+		final AtomicBoolean done = new AtomicBoolean();
 		final JobChangeAdapter jobListener = new JobChangeAdapter() {
 			public void done(IJobChangeEvent event) {
 				synchronized (jobIsDone) {
+					done.set(true);
 					jobIsDone.notify();
 				}
 			}
 		};
 		job.addJobChangeListener(jobListener);
 
-		job.schedule();
+		TaskJobScheduler.getDefault().schedule(job, getUserId(request));
 
 		try {
 			synchronized (jobIsDone) {
-				if (job.getState() != Job.NONE) {
+				if (!done.get()) {
 					jobIsDone.wait(WAIT_TIME);
 				}
 			}
@@ -105,7 +109,7 @@ public class TaskJobHandler {
 		}
 		job.removeJobChangeListener(jobListener);
 
-		if (job.getState() == Job.NONE || job.getRealResult() != null) {
+		if (done.get() || job.getRealResult() != null) {
 			if (job.getRealResult() == null) {
 				logger.error("Job RealResult is null result=" + job.getResult(), job.getResult() != null ? job.getResult().getException() : null);
 			}
@@ -11,11 +11,14 @@
 package org.eclipse.orion.internal.server.servlets.task;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -34,7 +37,10 @@ import org.eclipse.orion.server.core.tasks.IURIUnqualificationStrategy;
 import org.eclipse.orion.server.core.tasks.TaskDoesNotExistException;
 import org.eclipse.orion.server.core.tasks.TaskInfo;
 import org.eclipse.orion.server.core.tasks.TaskInfo.TaskStatus;
+import org.eclipse.orion.server.core.tasks.TaskNotificationHub;
 import org.eclipse.orion.server.core.tasks.TaskOperationException;
+import org.eclipse.orion.server.servlets.JSONResponseWriter;
+import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
 import org.eclipse.orion.server.servlets.OrionServlet;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -51,8 +57,42 @@ public class TaskServlet extends OrionServlet {
 	public static final int LONGPOLLING_WAIT_TIME = 60000;
 	public static final String KEY_RUNNING_ONLY = "RunningOnly";//$NON-NLS-1$
 
+	/**
+	 * The parameter with the time in milliseconds to wait for a running task to complete before responding.
+	 */
+	public static final String PARAM_WAIT = "wait";//$NON-NLS-1$
+
+	private static final String CONTENT_TYPE_EVENT_STREAM = "text/event-stream";//$NON-NLS-1$
+
+	/**
+	 * The time after which an event stream is closed, the client reconnects to continue it. The stream holds a request
+	 * thread while it is open.
+	 */
+	private static final long EVENT_STREAM_TIME = 60000;
+
+	/**
+	 * The time in milliseconds after which a client that has been refused a stream reconnects.
+	 */
+	private static final long EVENT_STREAM_RETRY_TIME = 5000;
+
+	/**
+	 * The number of requests of a user that wait for a task at the same time, long polls and event streams together.
+	 * The requests that come when the limit is reached are answered at once.
+	 */
+	private static final int USER_MAX_WAITING = 2;
+
+	/**
+	 * The time after which a comment is sent on an idle event stream, so that proxies do not close it.
+	 */
+	private static final long EVENT_STREAM_KEEP_ALIVE_TIME = 15000;
+
 	ServiceTracker<ITaskService, ITaskService> taskTracker;
 
+	/**
+	 * The number of requests of each user that wait for a task.
+	 */
+	private final Map<String, Integer> waiting = new HashMap<String, Integer>();
+
 	public TaskServlet() {
 		initTaskService();
 	}
@@ -205,7 +245,23 @@ public class TaskServlet extends OrionServlet {
 		}
 		String taskId = path.segment(1);
 		boolean keep = "id".equals(path.segment(0));
-		TaskInfo task = taskService.getTask(TaskJobHandler.getUserId(req), taskId, keep);
+		String userId = TaskJobHandler.getUserId(req);
+		String accept = req.getHeader("Accept");//$NON-NLS-1$
+		if (accept != null && accept.contains(CONTENT_TYPE_EVENT_STREAM)) {
+			streamTask(req, resp, taskService, userId, taskId, keep);
+			return;
+		}
+		long wait = getWaitTime(req);
+		TaskInfo task;
+		if (wait > 0 && startWaiting(userId)) {
+			try {
+				task = waitForTask(taskService, userId, taskId, keep, wait);
+			} finally {
+				stopWaiting(userId);
+			}
+		} else {
+			task = taskService.getTask(userId, taskId, keep);
+		}
 
 		if (task == null) {
 			JSONObject errorDescription = new JSONObject();
@@ -230,4 +286,161 @@ public class TaskServlet extends OrionServlet {
 		IURIUnqualificationStrategy strategy = task.getUnqualificationStrategy();
 		writeJSONResponse(req, resp, result, strategy);
 	}
+
+	/**
+	 * Returns the time to wait for a running task requested with the <code>wait</code> parameter, at most
+	 * {@link #LONGPOLLING_WAIT_TIME}.
+	 */
+	private static long getWaitTime(HttpServletRequest req) {
+		String wait = req.getParameter(PARAM_WAIT);
+		if (wait == null) {
+			return 0;
+		}
+		try {
+			return Math.min(Math.max(Long.parseLong(wait), 0), LONGPOLLING_WAIT_TIME);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Counts a request of the user that waits for a task.
+	 *
+	 * @return <code>true</code> if the request may wait, <code>false</code> if the user has too many requests waiting.
+	 */
+	private boolean startWaiting(String userId) {
+		synchronized (waiting) {
+			Integer count = waiting.get(userId);
+			if (count == null) {
+				count = 0;
+			} else if (count >= USER_MAX_WAITING) {
+				return false;
+			}
+			waiting.put(userId, count + 1);
+			return true;
+		}
+	}
+
+	private void stopWaiting(String userId) {
+		synchronized (waiting) {
+			Integer count = waiting.get(userId);
+			if (count == null || count <= 1) {
+				waiting.remove(userId);
+			} else {
+				waiting.put(userId, count - 1);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the task is no longer running, it is removed or the time elapses.
+	 *
+	 * @return The task, or <code>null</code> if it does not exist.
+	 */
+	private static TaskInfo waitForTask(ITaskService taskService, String userId, String taskId, boolean keep, long wait) {
+		long deadline = System.currentTimeMillis() + wait;
+		TaskNotificationHub.Subscription subscription = TaskNotificationHub.getInstance().subscribe(userId, taskId, keep);
+		try {
+			TaskInfo task = taskService.getTask(userId, taskId, keep);
+			while (task != null && task.isRunning()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0 || !subscription.await(remaining)) {
+					break;
+				}
+				task = taskService.getTask(userId, taskId, keep);
+			}
+			return task;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return taskService.getTask(userId, taskId, keep);
+		} finally {
+			subscription.close();
+		}
+	}
+
+	/**
+	 * Sends the task as a stream of server-sent events, one event with the task as JSON for each change of the task,
+	 * until the task is no longer running or it is removed. When the user has too many requests waiting already, only
+	 * the current state of the task is sent and the client is asked to reconnect later.
+	 */
+	private void streamTask(HttpServletRequest req, HttpServletResponse resp, ITaskService taskService, String userId, String taskId, boolean keep) throws IOException {
+		long deadline = System.currentTimeMillis() + EVENT_STREAM_TIME;
+		TaskNotificationHub.Subscription subscription = TaskNotificationHub.getInstance().subscribe(userId, taskId, keep);
+		boolean isWaiting = false;
+		try {
+			TaskInfo task = taskService.getTask(userId, taskId, keep);
+			if (task == null) {
+				handleException(resp, "Task not found: " + taskId, null, HttpServletResponse.SC_NOT_FOUND);
+				return;
+			}
+			resp.setContentType(CONTENT_TYPE_EVENT_STREAM);
+			resp.setCharacterEncoding("UTF-8");//$NON-NLS-1$
+			resp.setHeader("Cache-Control", "no-cache");//$NON-NLS-1$ //$NON-NLS-2$
+			PrintWriter writer = resp.getWriter();
+			if (task.isRunning()) {
+				isWaiting = startWaiting(userId);
+				if (!isWaiting) {
+					writeTaskEvent(req, writer, task);
+					writer.write("retry: " + EVENT_STREAM_RETRY_TIME + "\n\n");//$NON-NLS-1$ //$NON-NLS-2$
+					writer.flush();
+					return;
+				}
+			}
+			while (true) {
+				writeTaskEvent(req, writer, task);
+				if (!task.isRunning()) {
+					return;
+				}
+				// wait for the next change, keeping the connection alive while the task is idle
+				boolean changed = false;
+				while (!changed) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						return;
+					}
+					changed = subscription.await(Math.min(remaining, EVENT_STREAM_KEEP_ALIVE_TIME));
+					if (!changed) {
+						writer.write(": keep-alive\n\n");//$NON-NLS-1$
+						writer.flush();
+						if (writer.checkError()) {
+							// the client has gone away
+							return;
+						}
+					}
+				}
+				task = taskService.getTask(userId, taskId, keep);
+				if (task == null) {
+					writer.write("event: removed\ndata: {}\n\n");//$NON-NLS-1$
+					writer.flush();
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ServletException e) {
+			throw new IOException(e.getMessage(), e);
+		} finally {
+			if (isWaiting) {
+				stopWaiting(userId);
+			}
+			subscription.close();
+		}
+	}
+
+	private static void writeTaskEvent(HttpServletRequest req, PrintWriter writer, TaskInfo task) throws IOException {
+		JSONObject result = task.toJSON();
+		if (task.isKeep() && result.optString(ProtocolConstants.KEY_LOCATION, "").equals("")) {
+			try {
+				result.put(ProtocolConstants.KEY_LOCATION, ServletResourceHandler.getURI(req));
+			} catch (JSONException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		IURIUnqualificationStrategy strategy = task.getUnqualificationStrategy();
+		writer.write("data: ");//$NON-NLS-1$
+		// the JSON is written on a single line, as a line break would end the data of the event
+		new JSONResponseWriter(writer, false).write(req, result, strategy == null ? JsonURIUnqualificationStrategy.ALL : strategy);
+		writer.write("\n\n");//$NON-NLS-1$
+		writer.flush();
+	}
 }
@@ -30,6 +30,7 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.URIUtil;
 import org.eclipse.orion.internal.server.servlets.Activator;
 import org.eclipse.orion.internal.server.servlets.ServletResourceHandler;
+import org.eclipse.orion.internal.server.servlets.file.FileStoreNotificationWrapper;
 import org.eclipse.orion.internal.server.servlets.file.NewFileServlet;
 import org.eclipse.orion.server.core.LogHelper;
 import org.eclipse.orion.server.core.OrionConfiguration;
@@ -136,7 +137,8 @@ public class WorkspaceResourceHandler extends MetadataInfoResourceHandler<Worksp
 		IFileStore projectStore = OrionConfiguration.getMetaStore().getDefaultContentLocation(project);
 		URI defaultLocation = projectStore.toURI();
 		if (URIUtil.sameURI(defaultLocation, contentURI)) {
-			projectStore.delete(EFS.NONE, null);
+			// notify the listeners, so that the caches of the project contents are cleared
+			FileStoreNotificationWrapper.wrap(project, projectStore).delete(EFS.NONE, null);
 		}
 
 		OrionConfiguration.getMetaStore().deleteProject(workspace.getUniqueId(), project.getFullName());
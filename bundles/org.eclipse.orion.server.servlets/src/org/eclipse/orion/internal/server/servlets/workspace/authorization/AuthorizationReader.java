@@ -28,7 +28,7 @@ public abstract class AuthorizationReader {
 	/**
 	 * The current version of the authorization data storage format.
 	 */
-	private static final int CURRENT_VERSION = 3;
+	static final int CURRENT_VERSION = 3;
 
 	public static JSONArray getAuthorizationData(UserInfo user) throws CoreException {
 		String versionString = user.getProperty(ProtocolConstants.KEY_USER_RIGHTS_VERSION);
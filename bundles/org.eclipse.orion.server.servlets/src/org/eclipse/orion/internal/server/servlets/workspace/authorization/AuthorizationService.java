@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2010, 2014 IBM Corporation and others.
+ * Copyright (c) 2010, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.orion.internal.server.servlets.workspace.authorization;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.runtime.CoreException;
@@ -37,6 +40,32 @@ public class AuthorizationService {
 	private static final String PREFIX_EXPORT = "/xfer/export/"; //$NON-NLS-1$
 	private static final String PREFIX_IMPORT = "/xfer/import/"; //$NON-NLS-1$
 	private static final String ANONYMOUS_LOGIN_VALUE = "Anonymous"; //$NON-NLS-1$
+	private static final int USER_RIGHTS_CACHE_SIZE = 1000;
+
+	/**
+	 * The compiled rights of the most recently checked users, keyed by user id.
+	 */
+	private static final Map<String, CachedUserRights> userRightsCache = new LinkedHashMap<String, CachedUserRights>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedUserRights> eldest) {
+			return size() > USER_RIGHTS_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * The compiled rights of a user along with the persisted rights they were compiled from.
+	 */
+	private static class CachedUserRights {
+		final String source;
+		final UserRightsMatcher matcher;
+
+		CachedUserRights(String source, UserRightsMatcher matcher) {
+			this.source = source;
+			this.matcher = matcher;
+		}
+	}
 
 	/**
 	 * Adds the right for the given user to put, post, get, or delete the given URI.
@@ -63,6 +92,7 @@ public class AuthorizationService {
 			userRightArray.put(userRight);
 
 			AuthorizationReader.saveRights(user, userRightArray);
+			invalidateUserRights(userId);
 		} catch (Exception e) {
 			String msg = "Error persisting user rights";
 			throw new CoreException(new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, msg, e));
@@ -104,20 +134,43 @@ public class AuthorizationService {
 			return true;
 		}
 		UserInfo user = OrionConfiguration.getMetaStore().readUser(userId);
-		JSONArray userRightArray = AuthorizationReader.getAuthorizationData(user);
-		for (int i = 0; i < userRightArray.length(); i++) {
-			try {
-				JSONObject userRight = (JSONObject) userRightArray.get(i);
-				String patternToMatch = userRight.getString(ProtocolConstants.KEY_USER_RIGHT_URI);
-				int methodToMatch = userRight.getInt(ProtocolConstants.KEY_USER_RIGHT_METHOD);
-				if (wildCardMatch(uri, patternToMatch) && ((methodMask & methodToMatch) == methodMask))
-					return true;
-			} catch (JSONException e) {
-				//sk
+		return getUserRights(userId, user).matches(uri, methodMask);
+	}
+
+	/**
+	 * Returns the compiled rights of the given user, compiling and caching them if the persisted rights have
+	 * changed since they were last compiled.
+	 */
+	private static UserRightsMatcher getUserRights(String userId, UserInfo user) throws CoreException {
+		String version = user.getProperty(ProtocolConstants.KEY_USER_RIGHTS_VERSION);
+		String source = user.getProperty(ProtocolConstants.KEY_USER_RIGHTS);
+		boolean current = source != null && Integer.toString(AuthorizationReader.CURRENT_VERSION).equals(version);
+		if (current) {
+			synchronized (userRightsCache) {
+				CachedUserRights cached = userRightsCache.get(userId);
+				// the rights may also change outside this service, for example when a user is renamed
+				if (cached != null && cached.source.equals(source)) {
+					return cached.matcher;
+				}
 			}
 		}
+		// older formats are migrated by the reader and compiled on the next check
+		UserRightsMatcher matcher = new UserRightsMatcher(AuthorizationReader.getAuthorizationData(user));
+		if (current) {
+			synchronized (userRightsCache) {
+				userRightsCache.put(userId, new CachedUserRights(source, matcher));
+			}
+		}
+		return matcher;
+	}
 
-		return false;
+	/**
+	 * Discards the compiled rights of the given user.
+	 */
+	private static void invalidateUserRights(String userId) {
+		synchronized (userRightsCache) {
+			userRightsCache.remove(userId);
+		}
 	}
 
 	/**
@@ -160,28 +213,9 @@ public class AuthorizationService {
 					userRightArray.remove(i);
 			}
 			AuthorizationReader.saveRights(user, userRightArray);
+			invalidateUserRights(userId);
 		} catch (Exception e) {
 			throw new CoreException(new ServerStatus(IStatus.ERROR, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error persisting user rights", e));
 		}
 	}
-
-	private static boolean wildCardMatch(String text, String pattern) {
-		String[] cards = pattern.split("\\*"); //$NON-NLS-1$
-		if (!pattern.startsWith("*") && !text.startsWith(cards[0])) { //$NON-NLS-1$
-			return false;
-		}
-		if (!pattern.endsWith("*") && !text.endsWith(cards[cards.length - 1])) { //$NON-NLS-1$
-			return false;
-		}
-
-		for (String card : cards) {
-			int idex = text.indexOf(card);
-			if (idex == -1) {
-				return false;
-			}
-			text = text.substring(idex + card.length());
-		}
-
-		return true;
-	}
 }
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.internal.server.servlets.workspace.authorization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.orion.server.core.ProtocolConstants;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An immutable, compiled form of the user rights of a single user. The URI patterns of the rights are stored in a
+ * prefix trie carrying the method bit masks of the rights, so that a check walks the request URI once instead of
+ * splitting and matching every pattern.
+ * <p>
+ * The matching is the same as the original wildcard match of {@link AuthorizationService}: a pattern without a
+ * <code>*</code> matches a URI that starts and ends with the pattern, a pattern with a single trailing <code>*</code>
+ * matches a URI that starts with the pattern prefix, and any other pattern is matched card by card.
+ * </p>
+ * A small cache of the most recent decisions is kept with each matcher. Since the matcher is immutable, the
+ * decisions are discarded together with the matcher when the rights of the user change.
+ */
+public class UserRightsMatcher {
+
+	private static final int DECISION_CACHE_SIZE = 64;
+
+	private static class Node {
+		final Map<Character, Node> children = new HashMap<Character, Node>(4);
+		// the pattern ending at this node has no wildcard
+		boolean literal;
+		int literalMask;
+		// the pattern ending at this node is followed by a single trailing wildcard
+		boolean prefix;
+		int prefixMask;
+	}
+
+	private static class WildcardPattern {
+		final String[] cards;
+		final boolean leadingWildcard;
+		final boolean trailingWildcard;
+		final int methodMask;
+
+		WildcardPattern(String pattern, int methodMask) {
+			this.cards = pattern.split("\\*"); //$NON-NLS-1$
+			this.leadingWildcard = pattern.startsWith("*"); //$NON-NLS-1$
+			this.trailingWildcard = pattern.endsWith("*"); //$NON-NLS-1$
+			this.methodMask = methodMask;
+		}
+
+		boolean matches(String text) {
+			if (!leadingWildcard && !text.startsWith(cards[0])) {
+				return false;
+			}
+			if (!trailingWildcard && !text.endsWith(cards[cards.length - 1])) {
+				return false;
+			}
+			int index = 0;
+			for (String card : cards) {
+				index = text.indexOf(card, index);
+				if (index == -1) {
+					return false;
+				}
+				index += card.length();
+			}
+			return true;
+		}
+	}
+
+	private final Node root = new Node();
+
+	private final List<WildcardPattern> wildcardPatterns = new ArrayList<WildcardPattern>();
+
+	private final Map<String, Boolean> decisions = new LinkedHashMap<String, Boolean>(DECISION_CACHE_SIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > DECISION_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Compile the provided user rights.
+	 *
+	 * @param userRights The user rights, an array of JSON objects with a URI pattern and a method mask.
+	 */
+	public UserRightsMatcher(JSONArray userRights) {
+		for (int i = 0; i < userRights.length(); i++) {
+			try {
+				JSONObject userRight = (JSONObject) userRights.get(i);
+				String pattern = userRight.getString(ProtocolConstants.KEY_USER_RIGHT_URI);
+				int methodMask = userRight.getInt(ProtocolConstants.KEY_USER_RIGHT_METHOD);
+				addPattern(pattern, methodMask);
+			} catch (JSONException e) {
+				//skip malformed rights
+			} catch (ClassCastException e) {
+				//skip malformed rights
+			}
+		}
+	}
+
+	private void addPattern(String pattern, int methodMask) {
+		int wildcard = pattern.indexOf('*');
+		if (wildcard == -1) {
+			Node node = getNode(pattern, pattern.length());
+			node.literal = true;
+			node.literalMask |= methodMask;
+		} else if (wildcard == pattern.length() - 1 && wildcard > 0) {
+			Node node = getNode(pattern, wildcard);
+			node.prefix = true;
+			node.prefixMask |= methodMask;
+		} else {
+			wildcardPatterns.add(new WildcardPattern(pattern, methodMask));
+		}
+	}
+
+	private Node getNode(String pattern, int length) {
+		Node node = root;
+		for (int i = 0; i < length; i++) {
+			Character c = Character.valueOf(pattern.charAt(i));
+			Node child = node.children.get(c);
+			if (child == null) {
+				child = new Node();
+				node.children.put(c, child);
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	private static boolean allows(int rightMask, int methodMask) {
+		return (methodMask & rightMask) == methodMask;
+	}
+
+	/**
+	 * Returns whether these rights allow the method on the URI.
+	 *
+	 * @param uri The request URI
+	 * @param methodMask The method, one of the method constants of {@link AuthorizationService}
+	 * @return <code>true</code> if access is allowed and <code>false</code> otherwise.
+	 */
+	public boolean matches(String uri, int methodMask) {
+		String key = methodMask + ":" + uri; //$NON-NLS-1$
+		synchronized (decisions) {
+			Boolean decision = decisions.get(key);
+			if (decision != null) {
+				return decision.booleanValue();
+			}
+		}
+		boolean result = computeMatch(uri, methodMask);
+		synchronized (decisions) {
+			decisions.put(key, Boolean.valueOf(result));
+		}
+		return result;
+	}
+
+	private boolean computeMatch(String uri, int methodMask) {
+		Node node = root;
+		int length = uri.length();
+		for (int i = 0;; i++) {
+			int consumed = i;
+			if (node.prefix && allows(node.prefixMask, methodMask)) {
+				return true;
+			}
+			if (node.literal && allows(node.literalMask, methodMask) && uri.regionMatches(length - consumed, uri, 0, consumed)) {
+				// the uri starts with the pattern, and also has to end with it
+				return true;
+			}
+			if (i == length) {
+				break;
+			}
+			node = node.children.get(Character.valueOf(uri.charAt(i)));
+			if (node == null) {
+				break;
+			}
+		}
+		for (WildcardPattern pattern : wildcardPatterns) {
+			if (allows(pattern.methodMask, methodMask) && pattern.matches(uri)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
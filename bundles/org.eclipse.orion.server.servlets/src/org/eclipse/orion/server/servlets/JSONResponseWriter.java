@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.servlets;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.orion.server.core.tasks.IURIUnqualificationStrategy;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONString;
+
+/**
+ * Serializes a tree of {@link JSONObject} and {@link JSONArray} instances directly to a writer, without building the
+ * string representation of the whole tree in memory first. The output is compact unless pretty printing is requested.
+ * <p>
+ * When the URI unqualification strategy is a {@link JsonURIUnqualificationStrategy}, the URIs are rewritten as they
+ * are written and the tree is left unchanged. Other strategies are run on the tree before it is written.
+ * </p>
+ */
+public class JSONResponseWriter {
+
+	private static final int INDENT = 2;
+
+	private final Writer out;
+
+	private final boolean pretty;
+
+	private JsonURIUnqualificationStrategy.Rewriter rewriter;
+
+	/**
+	 * Create a writer of JSON trees.
+	 * @param out the writer to write to, it is not flushed or closed.
+	 * @param pretty <code>true</code> to indent the output.
+	 */
+	public JSONResponseWriter(Writer out, boolean pretty) {
+		this.out = out;
+		this.pretty = pretty;
+	}
+
+	/**
+	 * Write the JSON tree without rewriting any URIs.
+	 * @param result a {@link JSONObject} or {@link JSONArray}.
+	 */
+	public void write(Object result) throws IOException {
+		writeValue(result, 0);
+	}
+
+	/**
+	 * Write the JSON tree, unqualifying the URIs it contains with the strategy.
+	 * @param req the request the tree is the response to.
+	 * @param result a {@link JSONObject} or {@link JSONArray}.
+	 * @param uriStrategy the URI unqualification strategy.
+	 */
+	public void write(HttpServletRequest req, Object result, IURIUnqualificationStrategy uriStrategy) throws IOException {
+		if (uriStrategy instanceof JsonURIUnqualificationStrategy) {
+			rewriter = ((JsonURIUnqualificationStrategy) uriStrategy).createRewriter(req);
+		} else if (uriStrategy != null) {
+			uriStrategy.run(req, result);
+		}
+		try {
+			writeValue(result, 0);
+		} finally {
+			rewriter = null;
+		}
+	}
+
+	private void writeObject(JSONObject object, int depth) throws IOException {
+		out.write('{');
+		boolean first = true;
+		Iterator<?> keys = object.keys();
+		while (keys.hasNext()) {
+			String key = keys.next().toString();
+			Object value = object.opt(key);
+			if (rewriter != null && !(value instanceof JSONObject || value instanceof JSONArray)) {
+				value = rewriter.unqualifyObjectValue(key, value);
+			}
+			if (!first) {
+				out.write(',');
+			}
+			first = false;
+			newLine(depth + 1);
+			out.write(JSONObject.quote(key));
+			out.write(pretty ? ": " : ":"); //$NON-NLS-1$ //$NON-NLS-2$
+			writeValue(value, depth + 1);
+		}
+		if (!first) {
+			newLine(depth);
+		}
+		out.write('}');
+	}
+
+	private void writeArray(JSONArray array, int depth) throws IOException {
+		out.write('[');
+		int length = array.length();
+		for (int i = 0; i < length; i++) {
+			Object value = array.opt(i);
+			if (rewriter != null && !(value instanceof JSONObject || value instanceof JSONArray)) {
+				value = rewriter.unqualifyArrayElement(i, value);
+			}
+			if (i > 0) {
+				out.write(',');
+			}
+			newLine(depth + 1);
+			writeValue(value, depth + 1);
+		}
+		if (length > 0) {
+			newLine(depth);
+		}
+		out.write(']');
+	}
+
+	private void writeValue(Object value, int depth) throws IOException {
+		if (value instanceof JSONObject) {
+			writeObject((JSONObject) value, depth);
+		} else if (value instanceof JSONArray) {
+			writeArray((JSONArray) value, depth);
+		} else if (value instanceof String) {
+			out.write(JSONObject.quote((String) value));
+		} else if (value == null || JSONObject.NULL.equals(value)) {
+			out.write("null"); //$NON-NLS-1$
+		} else if (value instanceof Number) {
+			try {
+				out.write(JSONObject.numberToString((Number) value));
+			} catch (JSONException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		} else if (value instanceof Boolean) {
+			out.write(String.valueOf(value));
+		} else if (value instanceof JSONString) {
+			out.write(((JSONString) value).toJSONString());
+		} else {
+			out.write(JSONObject.quote(value.toString()));
+		}
+	}
+
+	private void newLine(int depth) throws IOException {
+		if (!pretty) {
+			return;
+		}
+		out.write('\n');
+		for (int i = 0; i < depth * INDENT; i++) {
+			out.write(' ');
+		}
+	}
+}
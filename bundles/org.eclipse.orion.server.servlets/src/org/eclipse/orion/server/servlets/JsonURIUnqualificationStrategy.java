@@ -1,10 +1,10 @@
 /*******************************************************************************
- * Copyright (c) 2012, 2014 IBM Corporation and others.
+ * Copyright (c) 2012, 2016 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
  * http://www.eclipse.org/legal/epl-v10.html
- * 
+ *
  * Contributors:
  *     IBM Corporation - initial API and implementation
  *******************************************************************************/
@@ -12,6 +12,7 @@ package org.eclipse.orion.server.servlets;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Iterator;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -22,7 +23,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 /**
- * Controls which URLs found in JSON API response bodies will be "unqualified" (rewritten to remove the hostname 
+ * Controls which URLs found in JSON API response bodies will be "unqualified" (rewritten to remove the hostname
  * and port of this server).
  */
 public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificationStrategy {
@@ -31,13 +32,13 @@ public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificat
 	 */
 	public static final IURIUnqualificationStrategy ALL = new JsonURIUnqualificationStrategy() {
 		@Override
-		protected URI unqualifyObjectProperty(String key, URI uri, String scheme, String hostname, int port) {
-			return unqualifyURI(uri, scheme, hostname, port);
+		protected boolean isUnqualifiedObjectProperty(String key) {
+			return true;
 		}
 
 		@Override
-		protected URI unqualifyArrayValue(int index, URI uri, String scheme, String hostname, int port) {
-			return unqualifyURI(uri, scheme, hostname, port);
+		protected boolean isUnqualifiedArrayValue(int index) {
+			return true;
 		}
 
 		public String getName() {
@@ -49,16 +50,13 @@ public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificat
 	 */
 	public static final IURIUnqualificationStrategy LOCATION_ONLY = new JsonURIUnqualificationStrategy() {
 		@Override
-		protected URI unqualifyObjectProperty(String key, URI uri, String scheme, String hostname, int port) {
-			if (!ProtocolConstants.KEY_LOCATION.equals(key))
-				return uri;
-			else
-				return unqualifyURI(uri, scheme, hostname, port);
+		protected boolean isUnqualifiedObjectProperty(String key) {
+			return ProtocolConstants.KEY_LOCATION.equals(key);
 		}
 
 		@Override
-		protected URI unqualifyArrayValue(int index, URI uri, String scheme, String hostname, int port) {
-			return uri;
+		protected boolean isUnqualifiedArrayValue(int index) {
+			return false;
 		}
 
 		public String getName() {
@@ -70,17 +68,14 @@ public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificat
 	 */
 	public static final IURIUnqualificationStrategy ALL_NO_GIT = new JsonURIUnqualificationStrategy() {
 		@Override
-		protected URI unqualifyObjectProperty(String key, URI uri, String scheme, String hostname, int port) {
+		protected boolean isUnqualifiedObjectProperty(String key) {
 			//need to make this real constant
-			if ("GitUrl".equals(key))
-				return uri;
-			else
-				return unqualifyURI(uri, scheme, hostname, port);
+			return !"GitUrl".equals(key);
 		}
 
 		@Override
-		protected URI unqualifyArrayValue(int index, URI uri, String scheme, String hostname, int port) {
-			return uri;
+		protected boolean isUnqualifiedArrayValue(int index) {
+			return false;
 		}
 
 		public String getName() {
@@ -88,79 +83,185 @@ public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificat
 		}
 	};
 
-	/* (non-Javadoc)
-	 * @see org.eclipse.orion.server.servlets.IURIUnqualificationStrategy#run(javax.servlet.http.HttpServletRequest, java.lang.Object)
+	private static final String ORION_SCHEME = "orion:"; //$NON-NLS-1$
+
+	/**
+	 * Unqualifies the URLs of the response to one request. The prefixes of the URLs of this server are computed once,
+	 * and a URL string with one of them is unqualified by removing the prefix without parsing it. Strings that may be
+	 * URLs of this server in another form, such as with user info or escaped characters, are parsed and unqualified
+	 * with {@link URI} as before.
 	 */
-	public void run(HttpServletRequest req, Object result) {
-		rewrite(result, req.getScheme(), req.getServerName(), req.getServerPort(), req.getContextPath());
-	}
+	final class Rewriter {
+		private final String scheme;
+		private final String hostname;
+		private final int port;
+		private final String contextPath;
+		/**
+		 * The scheme and "://".
+		 */
+		private final String authorityPrefix;
+		/**
+		 * The URL prefixes of this server, with and without the default port.
+		 */
+		private final String[] serverPrefixes;
+		private final boolean contextPathSafe;
 
-	private void rewrite(JSONObject json, String scheme, String hostname, int port, String contextPath) {
-		String[] names = JSONObject.getNames(json);
-		if (names == null)
-			return;
-		for (String name : names) {
-			Object o = json.opt(name);
-			if (o instanceof URI) {
+		Rewriter(String scheme, String hostname, int port, String contextPath) {
+			this.scheme = scheme;
+			this.hostname = hostname;
+			this.port = port;
+			this.contextPath = contextPath;
+			this.authorityPrefix = scheme + "://"; //$NON-NLS-1$
+			String prefix = authorityPrefix + hostname;
+			if (port == getDefaultPort(scheme))
+				serverPrefixes = new String[] {prefix + ':' + port, prefix};
+			else
+				serverPrefixes = new String[] {prefix + ':' + port};
+			this.contextPathSafe = isSafe(contextPath, 0);
+		}
+
+		/**
+		 * Returns the value of an object property with its URI unqualified, or the value itself if it is not a URI
+		 * of this server.
+		 */
+		Object unqualifyObjectValue(String name, Object o) {
+			if (o instanceof String) {
+				String string = (String) o;
+				if (string.startsWith(ORION_SCHEME)) {
+					return toContextPath(string);
+				}
+				if (!isUnqualifiedObjectProperty(name) || !string.startsWith(scheme))
+					return o;
+				return unqualifyString(string);
+			} else if (o instanceof URI) {
+				URI uri = (URI) o;
 				try {
-					URI uri = (URI) o;
 					if ("orion".equals(uri.getScheme())) {
 						uri = new URI(null, null, contextPath + uri.getPath(), uri.getQuery(), uri.getFragment());
 					}
-					json.put(name, unqualifyObjectProperty(name, uri, scheme, hostname, port));
-				} catch (JSONException e) {
 				} catch (URISyntaxException e) {
+					return o;
 				}
-			} else if (o instanceof String) {
-				String string = (String) o;
-				if (string.startsWith(scheme) || string.startsWith("orion:/")) {
-					try {
-						URI uri = new URI(string);
-						if ("orion".equals(uri.getScheme())) {
-							uri = new URI(null, null, contextPath + uri.getPath(), uri.getQuery(), uri.getFragment());
-						}
-						json.put(name, unqualifyObjectProperty(name, uri, scheme, hostname, port));
-					} catch (JSONException e) {
-					} catch (URISyntaxException e) {
+				return isUnqualifiedObjectProperty(name) ? unqualifyURI(uri, scheme, hostname, port) : uri;
+			}
+			return o;
+		}
+
+		/**
+		 * Returns the array element with its URI unqualified, or the element itself if it is not a URI of this
+		 * server.
+		 */
+		Object unqualifyArrayElement(int index, Object v) {
+			if (!isUnqualifiedArrayValue(index))
+				return v;
+			if (v instanceof String) {
+				String string = (String) v;
+				return string.startsWith(scheme) ? unqualifyString(string) : v;
+			} else if (v instanceof URI) {
+				return unqualifyURI((URI) v, scheme, hostname, port);
+			}
+			return v;
+		}
+
+		private Object unqualifyString(String string) {
+			if (string.startsWith(authorityPrefix)) {
+				for (String prefix : serverPrefixes) {
+					int length = prefix.length();
+					if (string.startsWith(prefix) && (string.length() == length || isAuthorityEnd(string.charAt(length))) && isSafe(string, length)) {
+						return string.substring(length);
 					}
 				}
-			} else {
-				rewrite(o, scheme, hostname, port, contextPath);
+				int start = authorityPrefix.length();
+				if (!string.startsWith(hostname, start) && !hasUserInfo(string, start)) {
+					// a URL of another server
+					return string;
+				}
+			}
+			try {
+				return unqualifyURI(new URI(string), scheme, hostname, port);
+			} catch (URISyntaxException e) {
+				return string;
 			}
 		}
+
+		private Object toContextPath(String string) {
+			if (string.startsWith("orion:/") && !string.startsWith("orion://") && contextPathSafe && isSafe(string, ORION_SCHEME.length())) { //$NON-NLS-1$ //$NON-NLS-2$
+				return contextPath + string.substring(ORION_SCHEME.length());
+			}
+			try {
+				URI uri = new URI(string);
+				if (!"orion".equals(uri.getScheme()) || uri.getPath() == null) //$NON-NLS-1$
+					return string;
+				return new URI(null, null, contextPath + uri.getPath(), uri.getQuery(), uri.getFragment());
+			} catch (URISyntaxException e) {
+				return string;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.orion.server.servlets.IURIUnqualificationStrategy#run(javax.servlet.http.HttpServletRequest, java.lang.Object)
+	 */
+	public void run(HttpServletRequest req, Object result) {
+		rewrite(result, createRewriter(req));
 	}
 
-	private void rewrite(Object o, String scheme, String hostname, int port, String contextPath) {
+	/**
+	 * Returns a rewriter for the URLs of the response to the request. Used by the {@link JSONResponseWriter} to
+	 * unqualify the URLs as it writes them.
+	 */
+	Rewriter createRewriter(HttpServletRequest req) {
+		return new Rewriter(req.getScheme(), req.getServerName(), req.getServerPort(), req.getContextPath());
+	}
+
+	private void rewrite(Object o, Rewriter rewriter) {
 		if (o instanceof JSONObject) {
-			rewrite((JSONObject) o, scheme, hostname, port, contextPath);
+			JSONObject json = (JSONObject) o;
+			Iterator<?> keys = json.keys();
+			while (keys.hasNext()) {
+				String name = keys.next().toString();
+				Object value = json.opt(name);
+				if (value instanceof JSONObject || value instanceof JSONArray) {
+					rewrite(value, rewriter);
+				} else {
+					Object rewritten = rewriter.unqualifyObjectValue(name, value);
+					if (rewritten != value) {
+						try {
+							// replacing the value of an existing key does not change the keys being iterated
+							json.put(name, rewritten);
+						} catch (JSONException e) {
+						}
+					}
+				}
+			}
 		} else if (o instanceof JSONArray) {
 			JSONArray a = (JSONArray) o;
 			for (int i = 0; i < a.length(); i++) {
 				Object v = a.opt(i);
-				if (v instanceof URI) {
-					try {
-						a.put(i, unqualifyArrayValue(i, (URI) v, scheme, hostname, port));
-					} catch (JSONException e) {
-					}
-				} else if (v instanceof String) {
-					String string = (String) v;
-					if (string.startsWith(scheme)) {
+				if (v instanceof JSONObject || v instanceof JSONArray) {
+					rewrite(v, rewriter);
+				} else {
+					Object rewritten = rewriter.unqualifyArrayElement(i, v);
+					if (rewritten != v) {
 						try {
-							a.put(i, unqualifyArrayValue(i, new URI(string), scheme, hostname, port));
+							a.put(i, rewritten);
 						} catch (JSONException e) {
-						} catch (URISyntaxException e) {
 						}
 					}
-				} else {
-					rewrite(v, scheme, hostname, port, contextPath);
 				}
 			}
 		}
 	}
 
-	protected abstract URI unqualifyObjectProperty(String key, URI uri, String scheme, String hostname, int port);
+	/**
+	 * Returns whether a URL of this server that is the value of the key in a JSON object is unqualified.
+	 */
+	protected abstract boolean isUnqualifiedObjectProperty(String key);
 
-	protected abstract URI unqualifyArrayValue(int index, URI uri, String scheme, String hostname, int port);
+	/**
+	 * Returns whether a URL of this server that is the element at the index of a JSON array is unqualified.
+	 */
+	protected abstract boolean isUnqualifiedArrayValue(int index);
 
 	protected static URI unqualifyURI(URI uri, String scheme, String hostname, int port) {
 		URI simpleURI = uri;
@@ -187,4 +288,62 @@ public abstract class JsonURIUnqualificationStrategy implements IURIUnqualificat
 		}
 		return -1;
 	}
+
+	private static boolean isAuthorityEnd(char c) {
+		return c == '/' || c == '?' || c == '#';
+	}
+
+	private static boolean hasUserInfo(String string, int start) {
+		for (int i = start; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c == '@')
+				return true;
+			if (isAuthorityEnd(c))
+				return false;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the rest of the string is made of the characters that {@link URI} accepts and does not quote
+	 * again when it is rebuilt from its parts, so that the string is the same as the unqualified URI.
+	 */
+	private static boolean isSafe(String string, int start) {
+		boolean fragment = false;
+		for (int i = start; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+				continue;
+			switch (c) {
+				case '#' :
+					if (fragment)
+						return false;
+					fragment = true;
+					break;
+				case '/' :
+				case '?' :
+				case '-' :
+				case '.' :
+				case '_' :
+				case '~' :
+				case '!' :
+				case '$' :
+				case '&' :
+				case '\'' :
+				case '(' :
+				case ')' :
+				case '*' :
+				case '+' :
+				case ',' :
+				case ';' :
+				case '=' :
+				case ':' :
+				case '@' :
+					break;
+				default :
+					return false;
+			}
+		}
+		return true;
+	}
 }
@@ -35,6 +35,7 @@ import org.eclipse.orion.server.core.tasks.IURIUnqualificationStrategy;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -50,16 +51,6 @@ public abstract class OrionServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 	private static final ServletResourceHandler<IStatus> statusHandler = new ServletStatusHandler();
 
-	private static String prettyPrint(Object result) {
-		try {
-			if (result instanceof JSONObject)
-				return ((JSONObject) result).toString(2);
-		} catch (JSONException e) {
-			//fall through below
-		}
-		return result.toString();
-	}
-
 	public static void writeJSONResponse(HttpServletRequest req, HttpServletResponse resp, Object result) throws IOException {
 		writeJSONResponse(req, resp, result, JsonURIUnqualificationStrategy.ALL);
 	}
@@ -76,13 +67,20 @@ public abstract class OrionServlet extends HttpServlet {
 		if (strategy == null) {
 			strategy = JsonURIUnqualificationStrategy.ALL;
 		}
-		strategy.run(req, result);
 
 		//TODO look at accept header and chose appropriate response representation
 		resp.setContentType(ProtocolConstants.CONTENT_TYPE_JSON);
-		String response = prettyPrint(result);
-		resp.getWriter().print(response);
-		LoggerFactory.getLogger(OrionServlet.class).debug(response);
+		Logger logger = LoggerFactory.getLogger(OrionServlet.class);
+		if (logger.isDebugEnabled()) {
+			// the response is logged, so build it in memory
+			StringWriter response = new StringWriter();
+			new JSONResponseWriter(response, true).write(req, result, strategy);
+			logger.debug(response.toString());
+			resp.getWriter().print(response.toString());
+			return;
+		}
+		boolean pretty = "true".equals(IOUtilities.getQueryParameter(req, ProtocolConstants.PARM_PRETTY)); //$NON-NLS-1$
+		new JSONResponseWriter(resp.getWriter(), pretty).write(req, result, strategy);
 	}
 
 	/**
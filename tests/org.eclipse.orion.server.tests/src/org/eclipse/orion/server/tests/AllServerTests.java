@@ -13,6 +13,7 @@ package org.eclipse.orion.server.tests;
 import org.eclipse.orion.server.tests.cf.AllCFTests;
 import org.eclipse.orion.server.tests.filters.ExcludedExtensionGzipFilterTest;
 import org.eclipse.orion.server.tests.metastore.ProjectInfoTests;
+import org.eclipse.orion.server.tests.metastore.SimpleMetaStoreCacheTests;
 import org.eclipse.orion.server.tests.metastore.SimpleMetaStoreConcurrencyTests;
 import org.eclipse.orion.server.tests.metastore.SimpleMetaStoreLiveMigrationConcurrencyTests;
 import org.eclipse.orion.server.tests.metastore.SimpleMetaStoreLiveMigrationTests;
@@ -25,12 +26,17 @@ import org.eclipse.orion.server.tests.metastore.SimpleUserPasswordUtilTests;
 import org.eclipse.orion.server.tests.metastore.UserInfoTests;
 import org.eclipse.orion.server.tests.metastore.WorkspaceInfoTests;
 import org.eclipse.orion.server.tests.prefs.PreferenceTest;
+import org.eclipse.orion.server.tests.search.ContentScannerTest;
 import org.eclipse.orion.server.tests.search.SearchTest;
+import org.eclipse.orion.server.tests.search.TrigramIndexTest;
+import org.eclipse.orion.server.tests.servlets.JSONResponseWriterTest;
 import org.eclipse.orion.server.tests.servlets.files.AdvancedFilesTest;
 import org.eclipse.orion.server.tests.servlets.files.CoreFilesTest;
+import org.eclipse.orion.server.tests.servlets.files.FileETagCacheTest;
 import org.eclipse.orion.server.tests.servlets.git.AllGitTests;
 import org.eclipse.orion.server.tests.servlets.site.AllSiteTests;
 import org.eclipse.orion.server.tests.servlets.users.BasicUsersTest;
+import org.eclipse.orion.server.tests.servlets.workspace.UserRightsMatcherTest;
 import org.eclipse.orion.server.tests.servlets.workspace.WorkspaceServiceTest;
 import org.eclipse.orion.server.tests.servlets.xfer.TransferTest;
 import org.eclipse.orion.server.tests.tasks.AllTaskTests;
@@ -48,12 +54,16 @@ import org.junit.runners.Suite.SuiteClasses;
 		AllTaskTests.class, //
 		Base64Test.class, //
 		BasicUsersTest.class, //
+		ContentScannerTest.class, //
 		CoreFilesTest.class, //
 		ExcludedExtensionGzipFilterTest.class, //
+		FileETagCacheTest.class, //
+		JSONResponseWriterTest.class, //
 		MetaStoreTest.class, //
 		PreferenceTest.class, //
 		ProjectInfoTests.class, //
 		SearchTest.class, //
+		SimpleMetaStoreCacheTests.class, //
 		SimpleMetaStoreConcurrencyTests.class, //
 		SimpleMetaStoreLiveMigrationTests.class, //
 		SimpleMetaStoreLiveMigrationConcurrencyTests.class, //
@@ -63,7 +73,9 @@ import org.junit.runners.Suite.SuiteClasses;
 		SimpleMetaStoreUtilTest.class, //
 		SimpleUserPasswordUtilTests.class, //
 		TransferTest.class, //
+		TrigramIndexTest.class, //
 		UserInfoTests.class, //
+		UserRightsMatcherTest.class, //
 		WorkspaceInfoTests.class, //
 		WorkspaceServiceTest.class, //
 		SimpleMetaStoreWorkspaceProjectListConcurrencyTests.class, //
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.eclipse.orion.server.core.ByteRange;
+import org.junit.Test;
+
+public class ByteRangeTest {
+	@Test
+	public void testParse() {
+		ByteRange range = ByteRange.parse("bytes=2-5", 10);
+		assertEquals(2, range.getFirst());
+		assertEquals(5, range.getLast());
+		assertEquals(4, range.getLength());
+		assertEquals("bytes 2-5/10", range.getContentRange());
+
+		// open ended and suffix ranges
+		assertEquals("bytes 7-9/10", ByteRange.parse("bytes=7-", 10).getContentRange());
+		assertEquals("bytes 7-9/10", ByteRange.parse("bytes=-3", 10).getContentRange());
+		assertEquals("bytes 0-9/10", ByteRange.parse("bytes=-30", 10).getContentRange());
+		assertEquals("bytes 8-9/10", ByteRange.parse("bytes=8-20", 10).getContentRange());
+	}
+
+	@Test
+	public void testWholeBody() {
+		assertNull(ByteRange.parse("bytes=0-1,4-5", 10));
+		assertNull(ByteRange.parse("items=0-1", 10));
+		assertNull(ByteRange.parse("bytes=5-2", 10));
+		assertNull(ByteRange.parse("bytes=a-b", 10));
+	}
+
+	@Test
+	public void testNotSatisfiable() {
+		ByteRange range = ByteRange.parse("bytes=10-", 10);
+		assertFalse(range.isSatisfiable());
+		assertEquals("bytes */10", range.getContentRange());
+		assertTrue(ByteRange.parse("bytes=9-", 10).isSatisfiable());
+	}
+
+	@Test
+	public void testParseRanges() {
+		List<ByteRange> ranges = ByteRange.parseRanges("bytes=0-1, 20-30, -2", 10);
+		assertEquals(2, ranges.size());
+		assertEquals("bytes 0-1/10", ranges.get(0).getContentRange());
+		assertEquals("bytes 8-9/10", ranges.get(1).getContentRange());
+
+		// none satisfiable
+		ranges = ByteRange.parseRanges("bytes=10-,20-", 10);
+		assertEquals(1, ranges.size());
+		assertFalse(ranges.get(0).isSatisfiable());
+
+		assertNull(ByteRange.parseRanges("bytes=0-1,a-b", 10));
+		assertNull(ByteRange.parseRanges("bytes=0-0,1-1,2-2,3-3,4-4,5-5,6-6,7-7,8-8,9-9,0-0,1-1,2-2,3-3,4-4,5-5,6-6", 10));
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteRange.parse("bytes=3-5", 10).write(new ByteArrayInputStream("0123456789".getBytes("UTF-8")), out);
+		assertEquals("345", out.toString("UTF-8"));
+	}
+}
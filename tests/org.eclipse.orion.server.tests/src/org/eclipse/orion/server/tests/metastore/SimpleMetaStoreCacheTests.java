@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.metastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.eclipse.orion.internal.server.core.metastore.SimpleMetaStoreCache;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for a {@link SimpleMetaStoreCache}.
+ */
+public class SimpleMetaStoreCacheTests {
+
+	private File tempFolder;
+
+	@Before
+	public void createTempFolder() throws IOException {
+		tempFolder = File.createTempFile("metastorecache", "");
+		tempFolder.delete();
+		assertTrue(tempFolder.mkdirs());
+	}
+
+	@After
+	public void deleteTempFolder() {
+		File[] files = tempFolder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		tempFolder.delete();
+	}
+
+	private File writeFile(String name, String contents) throws IOException {
+		File file = new File(tempFolder, name + ".json");
+		FileWriter fileWriter = new FileWriter(file);
+		fileWriter.write(contents);
+		fileWriter.close();
+		return file;
+	}
+
+	@Test
+	public void testCacheHitAndMiss() throws IOException, JSONException {
+		SimpleMetaStoreCache cache = new SimpleMetaStoreCache(10);
+		JSONObject jsonObject = new JSONObject().put("name", "value");
+		File file = writeFile("file", jsonObject.toString());
+
+		assertNull(cache.get(file));
+		assertEquals(1, cache.getMissCount());
+
+		cache.put(file, jsonObject);
+		assertSame(jsonObject, cache.get(file));
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testCacheDisabled() throws IOException, JSONException {
+		SimpleMetaStoreCache cache = new SimpleMetaStoreCache(0);
+		JSONObject jsonObject = new JSONObject().put("name", "value");
+		File file = writeFile("file", jsonObject.toString());
+
+		cache.put(file, jsonObject);
+		assertNull(cache.get(file));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testChangedFileIsNotServed() throws IOException, JSONException {
+		SimpleMetaStoreCache cache = new SimpleMetaStoreCache(10);
+		JSONObject jsonObject = new JSONObject().put("name", "value");
+		File file = writeFile("file", jsonObject.toString());
+		cache.put(file, jsonObject);
+
+		// change the file outside of the cache
+		writeFile("file", new JSONObject().put("name", "a different value").toString());
+		assertNull(cache.get(file));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEviction() throws IOException, JSONException {
+		SimpleMetaStoreCache cache = new SimpleMetaStoreCache(2);
+		JSONObject first = new JSONObject().put("name", "first");
+		JSONObject second = new JSONObject().put("name", "second");
+		JSONObject third = new JSONObject().put("name", "third");
+		File firstFile = writeFile("first", first.toString());
+		File secondFile = writeFile("second", second.toString());
+		File thirdFile = writeFile("third", third.toString());
+
+		cache.put(firstFile, first);
+		cache.put(secondFile, second);
+		// touch the first file so the second is the least recently used
+		assertNotNull(cache.get(firstFile));
+		cache.put(thirdFile, third);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(first, cache.get(firstFile));
+		assertNull(cache.get(secondFile));
+		assertSame(third, cache.get(thirdFile));
+	}
+
+	@Test
+	public void testRemoveFolder() throws IOException, JSONException {
+		SimpleMetaStoreCache cache = new SimpleMetaStoreCache(10);
+		JSONObject jsonObject = new JSONObject().put("name", "value");
+		File file = writeFile("file", jsonObject.toString());
+		cache.put(file, jsonObject);
+		assertEquals(1, cache.size());
+
+		cache.removeFolder(tempFolder);
+		assertEquals(0, cache.size());
+	}
+}
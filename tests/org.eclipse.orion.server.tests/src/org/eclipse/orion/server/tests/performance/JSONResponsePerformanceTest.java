@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.performance;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.orion.server.servlets.JSONResponseWriter;
+import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Measures the time to write git log and status like responses with their URLs unqualified, without a server.
+ */
+public class JSONResponsePerformanceTest {
+
+	private static final String SERVER = "http://localhost:8080"; //$NON-NLS-1$
+
+	private static final int ITERATIONS = 200;
+
+	/**
+	 * A writer that discards the response.
+	 */
+	private static final Writer NULL_WRITER = new Writer() {
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			// discard
+		}
+
+		@Override
+		public void write(String str) {
+			// discard
+		}
+
+		@Override
+		public void flush() {
+			// nothing to flush
+		}
+
+		@Override
+		public void close() {
+			// nothing to close
+		}
+	};
+
+	private static HttpServletRequest createRequest() {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getScheme()).thenReturn("http");
+		when(request.getServerName()).thenReturn("localhost");
+		when(request.getServerPort()).thenReturn(8080);
+		when(request.getContextPath()).thenReturn("");
+		return request;
+	}
+
+	private static JSONObject createLog(int count) throws JSONException {
+		JSONArray children = new JSONArray();
+		for (int i = 0; i < count; i++) {
+			String id = Integer.toHexString(0x10000000 + i) + "0123456789abcdef0123456789abcdef";
+			String commit = SERVER + "/gitapi/commit/" + id + "/file/project/";
+			JSONObject entry = new JSONObject();
+			entry.put("Name", id);
+			entry.put("Message", "Commit message number " + i);
+			entry.put("AuthorName", "Author");
+			entry.put("AuthorEmail", "author@example.org");
+			entry.put("Time", 1450000000000L + i);
+			entry.put("Location", commit);
+			entry.put("ContentLocation", commit + "?parts=body");
+			entry.put("DiffLocation", SERVER + "/gitapi/diff/" + id + "/file/project/");
+			entry.put("TreeLocation", SERVER + "/gitapi/tree/file/project/" + id + "/");
+			entry.put("CloneLocation", SERVER + "/gitapi/clone/file/project/");
+			JSONObject parent = new JSONObject();
+			parent.put("Name", id);
+			parent.put("Location", commit);
+			entry.put("Parents", new JSONArray().put(parent));
+			JSONArray diffs = new JSONArray();
+			for (int j = 0; j < 3; j++) {
+				JSONObject diff = new JSONObject();
+				diff.put("ChangeType", "MODIFY");
+				diff.put("NewPath", "folder/file" + j + ".js");
+				diff.put("ContentLocation", SERVER + "/file/project/folder/file" + j + ".js");
+				diff.put("DiffLocation", SERVER + "/gitapi/diff/" + id + "/file/project/folder/file" + j + ".js");
+				diffs.put(diff);
+			}
+			entry.put("Diffs", diffs);
+			children.put(entry);
+		}
+		JSONObject log = new JSONObject();
+		log.put("Children", children);
+		log.put("Location", SERVER + "/gitapi/commit/HEAD/file/project/");
+		log.put("CloneLocation", SERVER + "/gitapi/clone/file/project/");
+		return log;
+	}
+
+	private static JSONObject createStatus(int count) throws JSONException {
+		JSONObject status = new JSONObject();
+		String[] groups = {"Added", "Changed", "Modified", "Untracked"};
+		for (String group : groups) {
+			JSONArray files = new JSONArray();
+			for (int i = 0; i < count; i++) {
+				String path = "folder" + i % 10 + "/file" + i + ".js";
+				JSONObject file = new JSONObject();
+				file.put("Name", "file" + i + ".js");
+				file.put("Path", path);
+				file.put("Location", SERVER + "/file/project/" + path);
+				file.put("Git", new JSONObject().put("DiffLocation", SERVER + "/gitapi/diff/Default/file/project/" + path).put("CommitLocation", SERVER + "/gitapi/commit/HEAD/file/project/" + path).put("IndexLocation", SERVER + "/gitapi/index/file/project/" + path));
+				files.put(file);
+			}
+			status.put(group, files);
+		}
+		status.put("Location", SERVER + "/gitapi/status/file/project/");
+		status.put("CloneLocation", SERVER + "/gitapi/clone/file/project/");
+		return status;
+	}
+
+	private void measure(String name, JSONObject response) throws IOException {
+		HttpServletRequest request = createRequest();
+		Performance performance = Performance.getDefault();
+		PerformanceMeter meter = performance.createPerformanceMeter(name);
+		try {
+			for (int i = 0; i < ITERATIONS; i++) {
+				meter.start();
+				new JSONResponseWriter(NULL_WRITER, false).write(request, response, JsonURIUnqualificationStrategy.ALL);
+				meter.stop();
+			}
+			meter.commit();
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	@Test
+	public void testWriteLog() throws Exception {
+		measure("JSONResponsePerformanceTest#testWriteLog", createLog(100));
+	}
+
+	@Test
+	public void testWriteStatus() throws Exception {
+		measure("JSONResponsePerformanceTest#testWriteStatus", createStatus(250));
+	}
+}
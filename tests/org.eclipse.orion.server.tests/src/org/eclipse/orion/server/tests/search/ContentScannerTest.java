@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.search;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.eclipse.orion.internal.server.search.ContentScanner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ContentScanner} used by the file search.
+ */
+public class ContentScannerTest {
+
+	private File file;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("contentscanner", ".txt");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private boolean matches(String contents, String literalTerm, Pattern pattern) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(contents.getBytes("UTF-8"));
+		output.close();
+		return new ContentScanner(pattern, literalTerm).matches(file, pattern.matcher(""));
+	}
+
+	private boolean matchesLiteral(String contents, String term, boolean caseSensitive) throws IOException {
+		return matches(contents, term, Pattern.compile(Pattern.quote(term), caseSensitive ? 0 : Pattern.CASE_INSENSITIVE));
+	}
+
+	private boolean matchesRegEx(String contents, String regex) throws IOException {
+		return matches(contents, null, Pattern.compile(regex));
+	}
+
+	private static String lines(int count) {
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			lines.append("line of text number ").append(i).append('\n');
+		}
+		return lines.toString();
+	}
+
+	@Test
+	public void testLiteral() throws IOException {
+		assertTrue(matchesLiteral("first line\nsecond searchTerm line\n", "searchTerm", true));
+		assertFalse(matchesLiteral("first line\nsecond searchTerm line\n", "SEARCHTERM", true));
+		assertTrue(matchesLiteral("first line\nsecond searchTerm line\n", "SEARCHTERM", false));
+		assertFalse(matchesLiteral("first line\nsecond line\n", "searchTerm", false));
+		assertFalse(matchesLiteral("", "searchTerm", false));
+	}
+
+	@Test
+	public void testRegEx() throws IOException {
+		assertTrue(matchesRegEx("first line\r\nsearchTerm\rlast line", "^searchTerm$"));
+		assertFalse(matchesRegEx("first line\r\nthe searchTerm\rlast line", "^searchTerm"));
+		assertTrue(matchesRegEx("first line\nlast line", "last line$"));
+	}
+
+	@Test
+	public void testBinaryContent() throws IOException {
+		// a null character at the start of the file makes it binary
+		assertFalse(matchesLiteral("\0searchTerm\n", "searchTerm", true));
+		assertFalse(matchesRegEx("\0searchTerm\n", "searchTerm"));
+		// later on, the search stops at the line with the null character
+		String text = lines(1000);
+		assertTrue(matchesLiteral(text + "searchTerm\n\0", "searchTerm", true));
+		assertFalse(matchesLiteral(text + "\0 searchTerm\n", "searchTerm", true));
+		assertFalse(matchesRegEx(text + "\0 searchTerm\n", "searchTerm"));
+		assertTrue(matchesRegEx(text + "\0 searchTerm\n", "number 999$"));
+	}
+
+	@Test
+	public void testLargeFile() throws IOException {
+		StringBuilder contents = new StringBuilder(lines(100000));
+		contents.append("searchTerm\n");
+		assertTrue(matchesLiteral(contents.toString(), "searchterm", false));
+		assertTrue(matchesRegEx(contents.toString(), "search[A-Z]erm"));
+		assertFalse(matchesLiteral(contents.toString(), "missingTerm", false));
+	}
+}
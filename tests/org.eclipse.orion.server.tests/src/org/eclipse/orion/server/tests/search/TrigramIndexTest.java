@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import org.eclipse.orion.internal.server.search.TrigramIndex;
+import org.eclipse.orion.internal.server.search.TrigramQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TrigramIndex} and {@link TrigramQuery} used by the indexed search.
+ */
+public class TrigramIndexTest {
+
+	private File tempFolder;
+
+	@Before
+	public void createTempFolder() throws IOException {
+		tempFolder = File.createTempFile("trigramindex", "");
+		tempFolder.delete();
+		assertTrue(tempFolder.mkdirs());
+	}
+
+	@After
+	public void deleteTempFolder() {
+		File[] files = tempFolder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		tempFolder.delete();
+	}
+
+	private File writeFile(String name, String contents) throws IOException {
+		File file = new File(tempFolder, name);
+		FileWriter fileWriter = new FileWriter(file);
+		fileWriter.write(contents);
+		fileWriter.close();
+		// make sure the file is not considered as still being modified
+		file.setLastModified(System.currentTimeMillis() - 60000);
+		return file;
+	}
+
+	@Test
+	public void testQueryCreation() {
+		assertNotNull(TrigramQuery.create(Pattern.compile(Pattern.quote("searchTerm"))));
+		assertNotNull(TrigramQuery.create(Pattern.compile("search.*Term", Pattern.CASE_INSENSITIVE)));
+		assertNotNull(TrigramQuery.create(Pattern.compile("\\bsearch[A-Z]+Term\\b")));
+		// nothing can be required from an alternation, a short term or inline flags
+		assertNull(TrigramQuery.create(Pattern.compile("search|Term")));
+		assertNull(TrigramQuery.create(Pattern.compile("ab")));
+		assertNull(TrigramQuery.create(Pattern.compile("(?i)searchTerm")));
+		assertNull(TrigramQuery.create(Pattern.compile("se?a*r{0,2}")));
+	}
+
+	@Test
+	public void testMayContain() throws IOException {
+		File file = writeFile("file.js", "var searchTerm = 1;\nfunction other() {}\n");
+		TrigramIndex index = new TrigramIndex(null);
+		assertNull(index.mayContain(file, TrigramQuery.create(Pattern.compile("searchTerm"))));
+
+		index.update(file);
+		assertTrue(index.isCurrent(file));
+		assertEquals(Boolean.TRUE, index.mayContain(file, TrigramQuery.create(Pattern.compile("searchTerm"))));
+		assertEquals(Boolean.TRUE, index.mayContain(file, TrigramQuery.create(Pattern.compile("SEARCHTERM", Pattern.CASE_INSENSITIVE))));
+		assertEquals(Boolean.TRUE, index.mayContain(file, TrigramQuery.create(Pattern.compile("search.*= 1"))));
+		assertEquals(Boolean.FALSE, index.mayContain(file, TrigramQuery.create(Pattern.compile("missingWord"))));
+		// trigrams are only taken within a line
+		assertEquals(Boolean.FALSE, index.mayContain(file, TrigramQuery.create(Pattern.compile(Pattern.quote(";\nfun")))));
+	}
+
+	@Test
+	public void testBinaryContentIsNotIndexed() throws IOException {
+		File file = writeFile("file.bin", "textBefore\n\0binary\ntextAfter\n");
+		TrigramIndex index = new TrigramIndex(null);
+		index.update(file);
+		assertEquals(Boolean.TRUE, index.mayContain(file, TrigramQuery.create(Pattern.compile("textBefore"))));
+		assertEquals(Boolean.FALSE, index.mayContain(file, TrigramQuery.create(Pattern.compile("textAfter"))));
+	}
+
+	@Test
+	public void testChangedFileIsStale() throws IOException {
+		File file = writeFile("file.txt", "first contents");
+		TrigramIndex index = new TrigramIndex(null);
+		index.update(file);
+		assertEquals(Boolean.FALSE, index.mayContain(file, TrigramQuery.create(Pattern.compile("second"))));
+
+		writeFile("file.txt", "second contents, longer");
+		assertFalse(index.isCurrent(file));
+		assertNull(index.mayContain(file, TrigramQuery.create(Pattern.compile("second"))));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		File file = writeFile("file.txt", "persistent contents");
+		File indexFile = new File(tempFolder, "workspace.idx");
+		TrigramIndex index = new TrigramIndex(indexFile);
+		index.update(file);
+		index.save();
+		assertTrue(indexFile.isFile());
+
+		TrigramIndex loaded = TrigramIndex.load(indexFile);
+		assertEquals(1, loaded.size());
+		assertEquals(Boolean.TRUE, loaded.mayContain(file, TrigramQuery.create(Pattern.compile("persistent"))));
+		assertEquals(Boolean.FALSE, loaded.mayContain(file, TrigramQuery.create(Pattern.compile("transient"))));
+	}
+}
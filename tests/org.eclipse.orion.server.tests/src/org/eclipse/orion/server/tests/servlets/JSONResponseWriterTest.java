@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.net.URI;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.orion.server.servlets.JSONResponseWriter;
+import org.eclipse.orion.server.servlets.JsonURIUnqualificationStrategy;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link JSONResponseWriter} used to write JSON responses.
+ */
+public class JSONResponseWriterTest {
+
+	private static JSONObject createTree() throws Exception {
+		JSONObject child = new JSONObject();
+		child.put("Name", "child \"one\"\n");
+		child.put("Length", 42L);
+		child.put("Directory", false);
+		child.put("Empty", new JSONArray());
+		JSONObject tree = new JSONObject();
+		tree.put("Children", new JSONArray().put(child).put(JSONObject.NULL).put(1.5d));
+		tree.put("Attributes", new JSONObject());
+		tree.put("Location", "http://localhost:8080/file/project/");
+		return tree;
+	}
+
+	private static HttpServletRequest createRequest() {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getScheme()).thenReturn("http");
+		when(request.getServerName()).thenReturn("localhost");
+		when(request.getServerPort()).thenReturn(8080);
+		when(request.getContextPath()).thenReturn("/orion");
+		return request;
+	}
+
+	@Test
+	public void testCompact() throws Exception {
+		JSONObject tree = createTree();
+		StringWriter out = new StringWriter();
+		new JSONResponseWriter(out, false).write(tree);
+		assertEquals(tree.toString(), out.toString());
+	}
+
+	@Test
+	public void testPretty() throws Exception {
+		JSONObject tree = createTree();
+		StringWriter out = new StringWriter();
+		new JSONResponseWriter(out, true).write(tree);
+		assertEquals(tree.toString(), new JSONObject(out.toString()).toString());
+	}
+
+	@Test
+	public void testUnqualify() throws Exception {
+		JSONObject tree = new JSONObject();
+		tree.put("Location", "http://localhost:8080/file/project/");
+		tree.put("ContentLocation", new URI("orion:/file/project/"));
+		tree.put("GitUrl", "http://localhost:8080/git/project.git");
+		tree.put("Remote", "http://example.org:8080/file/project/");
+		tree.put("Links", new JSONArray().put("http://localhost:8080/file/a").put(new URI("http://localhost:8080/file/b")));
+
+		StringWriter out = new StringWriter();
+		new JSONResponseWriter(out, false).write(createRequest(), tree, JsonURIUnqualificationStrategy.ALL);
+		JSONObject result = new JSONObject(out.toString());
+		assertEquals("/file/project/", result.getString("Location"));
+		assertEquals("/orion/file/project/", result.getString("ContentLocation"));
+		assertEquals("/git/project.git", result.getString("GitUrl"));
+		assertEquals("http://example.org:8080/file/project/", result.getString("Remote"));
+		assertEquals("/file/a", result.getJSONArray("Links").getString(0));
+		assertEquals("/file/b", result.getJSONArray("Links").getString(1));
+		// the tree itself is not changed
+		assertEquals("http://localhost:8080/file/project/", tree.getString("Location"));
+
+		out = new StringWriter();
+		new JSONResponseWriter(out, false).write(createRequest(), tree, JsonURIUnqualificationStrategy.ALL_NO_GIT);
+		result = new JSONObject(out.toString());
+		assertEquals("http://localhost:8080/git/project.git", result.getString("GitUrl"));
+		assertEquals("http://localhost:8080/file/a", result.getJSONArray("Links").getString(0));
+	}
+
+	@Test
+	public void testUnqualifyForms() throws Exception {
+		JSONObject tree = new JSONObject();
+		tree.put("Query", "http://localhost:8080/gitapi/commit/HEAD/file/p/?page=1&pageSize=20#top");
+		tree.put("Escaped", "http://localhost:8080/file/p/a%20b");
+		tree.put("UserInfo", "http://user@localhost:8080/file/p/");
+		tree.put("OtherPort", "http://localhost:80800/file/p/");
+		tree.put("OtherScheme", "https://localhost:8080/file/p/");
+		tree.put("Server", "http://localhost:8080");
+		tree.put("Orion", "orion:/file/p/?parts=meta");
+		tree.put("Invalid", "http://localhost:8080/file/p/a b");
+
+		StringWriter out = new StringWriter();
+		new JSONResponseWriter(out, false).write(createRequest(), tree, JsonURIUnqualificationStrategy.ALL);
+		JSONObject result = new JSONObject(out.toString());
+		assertEquals("/gitapi/commit/HEAD/file/p/?page=1&pageSize=20#top", result.getString("Query"));
+		assertEquals("/file/p/a%20b", result.getString("Escaped"));
+		assertEquals("/file/p/", result.getString("UserInfo"));
+		assertEquals("http://localhost:80800/file/p/", result.getString("OtherPort"));
+		assertEquals("https://localhost:8080/file/p/", result.getString("OtherScheme"));
+		assertEquals("", result.getString("Server"));
+		assertEquals("/orion/file/p/?parts=meta", result.getString("Orion"));
+		assertEquals("http://localhost:8080/file/p/a b", result.getString("Invalid"));
+
+		// the same rewriting is done on the tree
+		JsonURIUnqualificationStrategy.ALL.run(createRequest(), tree);
+		for (String name : JSONObject.getNames(tree)) {
+			assertEquals(result.getString(name), tree.get(name).toString());
+		}
+	}
+}
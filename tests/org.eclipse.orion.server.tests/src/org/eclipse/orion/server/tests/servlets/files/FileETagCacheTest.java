@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.orion.internal.server.servlets.file.FileETagCache;
+import org.eclipse.orion.server.core.HashUtilities;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link FileETagCache} used by the file servlet.
+ */
+public class FileETagCacheTest {
+
+	private File file;
+
+	private IFileStore store;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("etagcache", ".txt");
+		store = EFS.getLocalFileSystem().fromLocalFile(file);
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private void write(String contents, long lastModified) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		output.write(contents.getBytes("UTF-8"));
+		output.close();
+		file.setLastModified(lastModified);
+	}
+
+	private static String hash(String contents) throws Exception {
+		return HashUtilities.getHash(new ByteArrayInputStream(contents.getBytes("UTF-8")), true, HashUtilities.SHA_1);
+	}
+
+	@Test
+	public void testCachedETag() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		long lastModified = System.currentTimeMillis() - 60000;
+		write("first contents", lastModified);
+		assertEquals(hash("first contents"), cache.getETag(store));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(hash("first contents"), cache.getETag(store));
+		assertEquals(1, cache.getHitCount());
+
+		// a file changed on disk is hashed again
+		write("second contents", lastModified + 1000);
+		assertEquals(hash("second contents"), cache.getETag(store));
+		assertEquals(2, cache.getMissCount());
+
+		// a file that does not exist has an empty ETag
+		file.delete();
+		assertEquals("", cache.getETag(store));
+	}
+
+	@Test
+	public void testRecentlyModifiedFileNotCached() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		write("contents", System.currentTimeMillis());
+		assertEquals(hash("contents"), cache.getETag(store));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testWrittenAndRemoved() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		write("contents", System.currentTimeMillis() - 60000);
+		cache.written(store, hash("contents"));
+		assertEquals(1, cache.size());
+		assertEquals(hash("contents"), cache.getETag(store));
+		assertEquals(1, cache.getHitCount());
+
+		cache.remove(store.getParent());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRecentlyWrittenFileNotCached() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		write("first contents", System.currentTimeMillis() - 60000);
+		cache.written(store, hash("first contents"));
+		assertEquals(1, cache.size());
+
+		// a write within the racy window drops the entry of the previous write
+		write("other contents", System.currentTimeMillis());
+		cache.written(store, hash("other contents"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRecentlyWrittenETagUsedByWriter() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		write("contents", System.currentTimeMillis());
+		cache.written(store, hash("contents"));
+
+		// the response to the write uses the written ETag without hashing the file
+		assertEquals(hash("contents"), cache.getETag(store));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+
+		// later requests hash the file again while it is in the racy window
+		assertEquals(hash("contents"), cache.getETag(store));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testRecentlyWrittenETagNotUsedByOtherThreads() throws Exception {
+		final FileETagCache cache = new FileETagCache(10, false);
+		write("contents", System.currentTimeMillis());
+		cache.written(store, hash("contents"));
+
+		final String[] etag = new String[1];
+		Thread other = new Thread() {
+			@Override
+			public void run() {
+				try {
+					etag[0] = cache.getETag(store);
+				} catch (Exception e) {
+					// the ETag is checked below
+				}
+			}
+		};
+		other.start();
+		other.join();
+		assertEquals(hash("contents"), etag[0]);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testRecentlyWrittenETagNotUsedAfterChange() throws Exception {
+		FileETagCache cache = new FileETagCache(10, false);
+		write("contents", System.currentTimeMillis());
+		cache.written(store, hash("contents"));
+
+		// changed outside of the file API after the write
+		write("other contents", System.currentTimeMillis());
+		assertEquals(hash("other contents"), cache.getETag(store));
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		FileETagCache cache = new FileETagCache(1, false);
+		File other = File.createTempFile("etagcache", ".txt");
+		try {
+			file.setLastModified(System.currentTimeMillis() - 60000);
+			other.setLastModified(System.currentTimeMillis() - 60000);
+			cache.written(store, hash(""));
+			cache.written(EFS.getLocalFileSystem().fromLocalFile(other), hash(""));
+			assertEquals(1, cache.size());
+			assertEquals(1, cache.getEvictionCount());
+		} finally {
+			other.delete();
+		}
+	}
+
+	@Test
+	public void testTimestampMode() throws Exception {
+		FileETagCache cache = new FileETagCache(10, true);
+		long lastModified = System.currentTimeMillis() - 60000;
+		write("contents", lastModified);
+		String etag = cache.getETag(store);
+		assertFalse(etag.equals(hash("contents")));
+		assertEquals(etag, cache.getETag(store));
+		assertEquals(0, cache.size());
+		assertTrue(cache.isTimestampMode());
+
+		write("other contents", lastModified);
+		assertFalse(etag.equals(cache.getETag(store)));
+	}
+}
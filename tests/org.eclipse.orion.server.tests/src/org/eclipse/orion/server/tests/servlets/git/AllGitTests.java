@@ -40,6 +40,11 @@ import org.junit.runners.Suite.SuiteClasses;
 		GitLogTest.class, //
 		GitTagTest.class, //
 		GitUtilsTest.class, //
+		GitRepositoryCacheTest.class, //
+		GitDirCacheTest.class, //
+		GitStatusCacheTest.class, //
+		GitRefCacheTest.class, //
+		GitAheadBehindCacheTest.class, //
 		GitCheckoutTest.class, //
 		GitBranchTest.class, //
 		GitCherryPickTest.class, //
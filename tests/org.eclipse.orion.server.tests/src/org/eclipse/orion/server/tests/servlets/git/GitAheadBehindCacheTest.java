@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.orion.server.git.GitAheadBehindCache;
+import org.eclipse.orion.server.git.GitAheadBehindCache.Counts;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GitAheadBehindCache} used to compare branches with their remote tracking branches.
+ */
+public class GitAheadBehindCacheTest {
+
+	private static final String LOCAL = Constants.R_HEADS + Constants.MASTER;
+
+	private static final String REMOTE = Constants.R_REMOTES + "origin/" + Constants.MASTER;
+
+	private File workTree;
+
+	private Git git;
+
+	private Repository db;
+
+	private RevCommit base;
+
+	@Before
+	public void createRepository() throws Exception {
+		GitAheadBehindCache.clear();
+		workTree = File.createTempFile("aheadbehind", "");
+		workTree.delete();
+		git = Git.init().setDirectory(workTree).call();
+		db = git.getRepository();
+		base = commit("base");
+	}
+
+	@After
+	public void deleteRepository() throws IOException {
+		GitAheadBehindCache.clear();
+		db.close();
+		FileUtils.delete(workTree, FileUtils.RECURSIVE | FileUtils.RETRY);
+	}
+
+	private RevCommit commit(String message) throws Exception {
+		return git.commit().setMessage(message).call();
+	}
+
+	private Counts getCounts(ObjectId to, ObjectId from) throws IOException {
+		return GitAheadBehindCache.getCounts(db, LOCAL, to, REMOTE, from);
+	}
+
+	private void assertCounts(ObjectId mergeBase, int ahead, int behind, Counts counts) {
+		assertEquals(mergeBase, counts.getMergeBase());
+		assertEquals(ahead, counts.getAheadCount());
+		assertEquals(behind, counts.getBehindCount());
+	}
+
+	@Test
+	public void testCachedCounts() throws Exception {
+		RevCommit local = commit("local");
+		Counts counts = getCounts(local, base);
+		assertCounts(base, 1, 0, counts);
+		long misses = GitAheadBehindCache.getMissCount();
+		assertSame(counts, getCounts(local, base));
+		assertEquals(misses, GitAheadBehindCache.getMissCount());
+	}
+
+	@Test
+	public void testFastForward() throws Exception {
+		git.checkout().setCreateBranch(true).setName("remote").call();
+		RevCommit remote = commit("remote 1");
+		git.checkout().setName(Constants.MASTER).call();
+		RevCommit local = commit("local 1");
+		assertCounts(base, 1, 1, getCounts(local, remote));
+
+		// both tips move forward one at a time
+		RevCommit local2 = commit("local 2");
+		RevCommit local3 = commit("local 3");
+		long incremental = GitAheadBehindCache.getIncrementalCount();
+		assertCounts(base, 3, 1, getCounts(local3, remote));
+		git.checkout().setName("remote").call();
+		RevCommit remote2 = commit("remote 2");
+		assertCounts(base, 3, 2, getCounts(local3, remote2));
+		assertEquals(incremental + 2, GitAheadBehindCache.getIncrementalCount());
+
+		// the same counts as computed from scratch
+		GitAheadBehindCache.clear();
+		assertCounts(base, 3, 2, getCounts(local3, remote2));
+		assertCounts(base, 2, 2, GitAheadBehindCache.getCounts(db, null, local2, null, remote2));
+	}
+
+	@Test
+	public void testMergeChangesMergeBase() throws Exception {
+		git.checkout().setCreateBranch(true).setName("remote").call();
+		RevCommit remote = commit("remote 1");
+		git.checkout().setName(Constants.MASTER).call();
+		RevCommit local = commit("local 1");
+		assertCounts(base, 1, 1, getCounts(local, remote));
+
+		ObjectId merge = git.merge().include(remote).call().getNewHead();
+		long incremental = GitAheadBehindCache.getIncrementalCount();
+		assertCounts(remote, 2, 0, getCounts(merge, remote));
+		assertEquals(incremental, GitAheadBehindCache.getIncrementalCount());
+	}
+
+	@Test
+	public void testNoMergeBase() throws Exception {
+		git.checkout().setOrphan(true).setName("orphan").call();
+		RevCommit orphan = commit("orphan");
+		Counts counts = getCounts(orphan, base);
+		assertNull(counts.getMergeBase());
+		assertEquals(1, counts.getAheadCount());
+		assertEquals(1, counts.getBehindCount());
+	}
+}
@@ -15,14 +15,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.orion.internal.server.core.metastore.SimpleMetaStore;
 import org.eclipse.orion.server.core.ProtocolConstants;
 import org.eclipse.orion.server.git.GitConstants;
+import org.eclipse.orion.server.git.servlets.GitBlameCache;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -468,6 +472,165 @@ public class GitBlameTest extends GitTest {
 		}
 	}
 
+	@Test
+	public void testBlameRanges() throws IOException, SAXException, JSONException, CoreException {
+
+		createWorkspace(SimpleMetaStore.DEFAULT_WORKSPACE_NAME);
+		IPath[] clonePaths = createTestProjects(workspaceLocation);
+
+		for (IPath clonePath : clonePaths) {
+			//clone a repo
+			JSONObject clone = clone(clonePath);
+			String cloneContentLocation = clone.getString(ProtocolConstants.KEY_CONTENT_LOCATION);
+
+			//get project/folder metadata
+			WebRequest request = getGetRequest(cloneContentLocation);
+			WebResponse response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			JSONObject folder = new JSONObject(response.getText());
+			JSONObject gitSection = folder.getJSONObject(GitConstants.KEY_GIT);
+			String gitHeadUri = gitSection.getString(GitConstants.KEY_HEAD);
+
+			JSONObject testTxt = getChild(folder, "test.txt");
+			String blameUri = testTxt.getJSONObject(GitConstants.KEY_GIT).getString(GitConstants.KEY_BLAME);
+
+			// the lines of the two commits alternate in the file
+			modifyFile(testTxt, "line one\nline two\nline three\nline four\n");
+			addFile(testTxt);
+			request = GitCommitTest.getPostGitCommitRequest(gitHeadUri, "first commit", false);
+			response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+
+			modifyFile(testTxt, "line one\nLINE TWO\nline three\nLINE FOUR\nline five\n");
+			addFile(testTxt);
+			request = GitCommitTest.getPostGitCommitRequest(gitHeadUri, "second commit", false);
+			response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+
+			// each commit has all of its ranges, the commits are in the order they first appear in the file
+			JSONArray blame = getBlame(blameUri);
+			assertEquals(2, blame.length());
+			assertEquals("first commit", blame.getJSONObject(0).getString(GitConstants.KEY_COMMIT_MESSAGE));
+			assertRanges(blame.getJSONObject(0), 1, 1, 3, 3);
+			assertEquals("second commit", blame.getJSONObject(1).getString(GitConstants.KEY_COMMIT_MESSAGE));
+			assertRanges(blame.getJSONObject(1), 2, 2, 4, 5);
+
+			// a line that is not committed yet is in the range of the line before it
+			modifyFile(testTxt, "line one\nLINE TWO\nline three\nLINE FOUR\nline five\nline six\n");
+			blame = getBlame(blameUri);
+			assertEquals(2, blame.length());
+			assertRanges(blame.getJSONObject(0), 1, 1, 3, 3);
+			assertRanges(blame.getJSONObject(1), 2, 2, 4, 6);
+		}
+	}
+
+	@Test
+	public void testBlameCacheAfterCommit() throws IOException, SAXException, JSONException, CoreException {
+
+		createWorkspace(SimpleMetaStore.DEFAULT_WORKSPACE_NAME);
+		IPath[] clonePaths = createTestProjects(workspaceLocation);
+
+		for (IPath clonePath : clonePaths) {
+			//clone a repo
+			JSONObject clone = clone(clonePath);
+			String cloneContentLocation = clone.getString(ProtocolConstants.KEY_CONTENT_LOCATION);
+
+			//get project/folder metadata
+			WebRequest request = getGetRequest(cloneContentLocation);
+			WebResponse response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			JSONObject folder = new JSONObject(response.getText());
+			JSONObject gitSection = folder.getJSONObject(GitConstants.KEY_GIT);
+			String gitHeadUri = gitSection.getString(GitConstants.KEY_HEAD);
+
+			JSONObject testTxt = getChild(folder, "test.txt");
+			String blameUri = testTxt.getJSONObject(GitConstants.KEY_GIT).getString(GitConstants.KEY_BLAME);
+
+			modifyFile(testTxt, "line one\nline two\n");
+			addFile(testTxt);
+			request = GitCommitTest.getPostGitCommitRequest(gitHeadUri, "first commit", false);
+			response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			makeOld(cloneContentLocation);
+
+			// the second blame is read from the cache
+			long hits = GitBlameCache.getHitCount();
+			long misses = GitBlameCache.getMissCount();
+			JSONArray blame = getBlame(blameUri);
+			assertEquals(misses + 1, GitBlameCache.getMissCount());
+			assertEquals(1, blame.length());
+			assertRanges(blame.getJSONObject(0), 1, 2);
+			assertEquals(blame.toString(), getBlame(blameUri).toString());
+			assertEquals(hits + 1, GitBlameCache.getHitCount());
+
+			modifyFile(testTxt, "line one\nline two\nline three\n");
+			addFile(testTxt);
+			request = GitCommitTest.getPostGitCommitRequest(gitHeadUri, "second commit", false);
+			response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			makeOld(cloneContentLocation);
+
+			// the blame before the commit is not used
+			hits = GitBlameCache.getHitCount();
+			blame = getBlame(blameUri);
+			assertEquals(hits, GitBlameCache.getHitCount());
+			assertEquals(2, blame.length());
+			assertEquals("first commit", blame.getJSONObject(0).getString(GitConstants.KEY_COMMIT_MESSAGE));
+			assertRanges(blame.getJSONObject(0), 1, 2);
+			assertEquals("second commit", blame.getJSONObject(1).getString(GitConstants.KEY_COMMIT_MESSAGE));
+			assertRanges(blame.getJSONObject(1), 3, 3);
+		}
+	}
+
+	@Test
+	public void testBlameCacheAfterEdit() throws IOException, SAXException, JSONException, CoreException {
+
+		createWorkspace(SimpleMetaStore.DEFAULT_WORKSPACE_NAME);
+		IPath[] clonePaths = createTestProjects(workspaceLocation);
+
+		for (IPath clonePath : clonePaths) {
+			//clone a repo
+			JSONObject clone = clone(clonePath);
+			String cloneContentLocation = clone.getString(ProtocolConstants.KEY_CONTENT_LOCATION);
+
+			//get project/folder metadata
+			WebRequest request = getGetRequest(cloneContentLocation);
+			WebResponse response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			JSONObject folder = new JSONObject(response.getText());
+			JSONObject gitSection = folder.getJSONObject(GitConstants.KEY_GIT);
+			String gitHeadUri = gitSection.getString(GitConstants.KEY_HEAD);
+
+			JSONObject testTxt = getChild(folder, "test.txt");
+			String blameUri = testTxt.getJSONObject(GitConstants.KEY_GIT).getString(GitConstants.KEY_BLAME);
+
+			modifyFile(testTxt, "line one\nline two\n");
+			addFile(testTxt);
+			request = GitCommitTest.getPostGitCommitRequest(gitHeadUri, "first commit", false);
+			response = webConversation.getResponse(request);
+			assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+			makeOld(cloneContentLocation);
+
+			// the second blame is read from the cache
+			long hits = GitBlameCache.getHitCount();
+			JSONArray blame = getBlame(blameUri);
+			assertRanges(blame.getJSONObject(0), 1, 2);
+			getBlame(blameUri);
+			assertEquals(hits + 1, GitBlameCache.getHitCount());
+
+			// edit the file without committing it
+			modifyFile(testTxt, "line one\nline two\nline three\n");
+			makeOld(cloneContentLocation);
+
+			// the blame before the edit is not used
+			hits = GitBlameCache.getHitCount();
+			blame = getBlame(blameUri);
+			assertEquals(hits, GitBlameCache.getHitCount());
+			assertEquals(1, blame.length());
+			assertRanges(blame.getJSONObject(0), 1, 3);
+		}
+	}
+
 	protected static WebRequest getGetGitBlameRequest(String location) {
 		String requestURI = toAbsoluteURI(location);
 		WebRequest request = new GetMethodWebRequest(requestURI);
@@ -476,4 +639,45 @@ public class GitBlameTest extends GitTest {
 		return request;
 	}
 
+	private JSONArray getBlame(String blameUri) throws IOException, SAXException, JSONException {
+		WebRequest request = getGetGitBlameRequest(blameUri);
+		WebResponse response = webConversation.getResource(request);
+		assertEquals(HttpURLConnection.HTTP_OK, response.getResponseCode());
+		return new JSONObject(response.getText()).getJSONArray(ProtocolConstants.KEY_CHILDREN);
+	}
+
+	/**
+	 * Asserts the ranges of lines of a commit in the blame, given as pairs of the first and last line.
+	 */
+	private static void assertRanges(JSONObject commit, int... lines) throws JSONException {
+		JSONArray ranges = commit.getJSONArray(ProtocolConstants.KEY_CHILDREN);
+		assertEquals(lines.length / 2, ranges.length());
+		for (int i = 0; i < ranges.length(); i++) {
+			JSONObject range = ranges.getJSONObject(i);
+			assertEquals(lines[2 * i], range.getInt(GitConstants.KEY_START_RANGE));
+			assertEquals(lines[2 * i + 1], range.getInt(GitConstants.KEY_END_RANGE));
+		}
+	}
+
+	/**
+	 * The blame of a file is not cached when the file or the index has just been written, as they could change again
+	 * unnoticed.
+	 */
+	private static void makeOld(String cloneContentLocation) throws CoreException, IOException {
+		Repository db = getRepositoryForContentLocation(cloneContentLocation);
+		makeOld(db.getWorkTree());
+		db.getIndexFile().setLastModified(System.currentTimeMillis() - 10000);
+	}
+
+	private static void makeOld(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				if (!child.getName().equals(Constants.DOT_GIT)) {
+					makeOld(child);
+				}
+			}
+		}
+		file.setLastModified(System.currentTimeMillis() - 10000);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener.ChangeType;
+import org.eclipse.orion.server.git.servlets.GitDirCache;
+import org.eclipse.orion.server.git.servlets.GitUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GitDirCache} used to find the repositories of folders.
+ */
+public class GitDirCacheTest {
+
+	private File folder;
+
+	@Before
+	public void createFolder() throws IOException {
+		folder = File.createTempFile("gitdircache", "");
+		folder.delete();
+		folder.mkdir();
+	}
+
+	@After
+	public void deleteFolder() throws IOException {
+		GitDirCache.invalidate(folder);
+		FileUtils.delete(folder, FileUtils.RECURSIVE | FileUtils.RETRY);
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		assertNull(GitUtils.resolveGitDir(folder));
+
+		// known not to be a repository until invalidated
+		Git.init().setDirectory(folder).call().getRepository().close();
+		assertNull(GitUtils.resolveGitDir(folder));
+
+		GitDirCache.invalidate(folder);
+		assertEquals(new File(folder, Constants.DOT_GIT), GitUtils.resolveGitDir(folder));
+	}
+
+	@Test
+	public void testDeletedRepository() throws Exception {
+		Git.init().setDirectory(folder).call().getRepository().close();
+		File gitDir = new File(folder, Constants.DOT_GIT);
+		assertEquals(gitDir, GitUtils.resolveGitDir(folder));
+
+		FileUtils.delete(gitDir, FileUtils.RECURSIVE);
+		GitDirCache.getListener().changed(new ChangeEvent(this, ChangeType.DELETE, EFS.getLocalFileSystem().fromLocalFile(gitDir)));
+		assertNull(GitUtils.resolveGitDir(folder));
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.orion.server.git.GitRefCache;
+import org.eclipse.orion.server.git.GitRefCache.Snapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GitRefCache} used to decorate commits with their branches and tags.
+ */
+public class GitRefCacheTest {
+
+	private File workTree;
+
+	private Git git;
+
+	private Repository db;
+
+	private RevCommit initial;
+
+	@Before
+	public void createRepository() throws Exception {
+		GitRefCache.clear();
+		workTree = File.createTempFile("refcache", "");
+		workTree.delete();
+		git = Git.init().setDirectory(workTree).call();
+		db = git.getRepository();
+		Files.write(new File(workTree, "test.txt").toPath(), "test".getBytes("UTF-8"));
+		git.add().addFilepattern(".").call();
+		initial = git.commit().setMessage("initial").call();
+		git.tag().setName("annotated").setMessage("annotated").call();
+		git.tag().setName("lightweight").setAnnotated(false).call();
+		makeRefsOld();
+	}
+
+	@After
+	public void deleteRepository() throws IOException {
+		GitRefCache.clear();
+		db.close();
+		FileUtils.delete(workTree, FileUtils.RECURSIVE | FileUtils.RETRY);
+	}
+
+	/**
+	 * The refs are not reused when they have just been written, as they could change again unnoticed.
+	 */
+	private void makeRefsOld() {
+		long old = System.currentTimeMillis() - 10000;
+		new File(db.getDirectory(), Constants.HEAD).setLastModified(old);
+		makeOld(new File(db.getDirectory(), Constants.R_REFS), old);
+	}
+
+	private static void makeOld(File file, long old) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				makeOld(child, old);
+			}
+		}
+		file.setLastModified(old);
+	}
+
+	@Test
+	public void testCachedSnapshot() throws Exception {
+		long misses = GitRefCache.getMissCount();
+		Snapshot first = GitRefCache.getSnapshot(db);
+		assertSame(first, GitRefCache.getSnapshot(db));
+		assertEquals(misses + 1, GitRefCache.getMissCount());
+	}
+
+	@Test
+	public void testBranchesAndTags() throws Exception {
+		Snapshot snapshot = GitRefCache.getSnapshot(db);
+		assertEquals(1, snapshot.getBranches().size());
+		assertEquals(Arrays.asList(Constants.R_HEADS + Constants.MASTER), snapshot.getBranches(initial));
+		assertEquals(2, snapshot.getTags().size());
+		// the annotated tag is peeled to the commit it tags
+		assertEquals(2, snapshot.getTags(initial).size());
+		assertTrue(snapshot.getTags(initial).containsKey("annotated"));
+		assertTrue(snapshot.getTags(initial).containsKey("lightweight"));
+	}
+
+	@Test
+	public void testRefsChanged() throws Exception {
+		Snapshot first = GitRefCache.getSnapshot(db);
+		git.branchCreate().setName("topic").call();
+		Snapshot second = GitRefCache.getSnapshot(db);
+		assertNotSame(first, second);
+		assertEquals(2, second.getBranches().size());
+		assertEquals(2, second.getBranches(initial).size());
+
+		git.tagDelete().setTags("lightweight").call();
+		assertEquals(1, GitRefCache.getSnapshot(db).getTags(initial).size());
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener.ChangeType;
+import org.eclipse.orion.server.git.GitRepositoryCache;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GitRepositoryCache} shared by the git handlers and jobs.
+ */
+public class GitRepositoryCacheTest {
+
+	private File workTree;
+
+	private File gitDir;
+
+	@Before
+	public void createRepository() throws Exception {
+		workTree = File.createTempFile("repositorycache", "");
+		workTree.delete();
+		Git.init().setDirectory(workTree).call().getRepository().close();
+		gitDir = new File(workTree, Constants.DOT_GIT);
+	}
+
+	@After
+	public void deleteRepository() throws IOException {
+		GitRepositoryCache.invalidate(gitDir);
+		FileUtils.delete(workTree, FileUtils.RECURSIVE | FileUtils.RETRY);
+	}
+
+	@Test
+	public void testSharedRepository() throws Exception {
+		long hits = GitRepositoryCache.getHitCount();
+		Repository first = GitRepositoryCache.getRepository(gitDir);
+		Repository second = GitRepositoryCache.getRepository(gitDir);
+		try {
+			assertSame(first, second);
+			assertEquals(hits + 1, GitRepositoryCache.getHitCount());
+		} finally {
+			first.close();
+			second.close();
+		}
+
+		// closed by the callers, but still open in the cache
+		Repository third = GitRepositoryCache.getRepository(gitDir);
+		try {
+			assertSame(first, third);
+			assertEquals(Constants.MASTER, third.getBranch());
+		} finally {
+			third.close();
+		}
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		Repository first = GitRepositoryCache.getRepository(gitDir);
+		first.close();
+		GitRepositoryCache.invalidate(workTree);
+		Repository second = GitRepositoryCache.getRepository(gitDir);
+		try {
+			assertNotSame(first, second);
+		} finally {
+			second.close();
+		}
+	}
+
+	@Test
+	public void testDeletedThroughFileAPI() throws Exception {
+		Repository first = GitRepositoryCache.getRepository(gitDir);
+		first.close();
+		// deleting or moving the project folder of a clone removes the repository from the cache
+		GitRepositoryCache.getListener().changed(new ChangeEvent(this, ChangeType.DELETE, EFS.getLocalFileSystem().fromLocalFile(workTree)));
+		Repository second = GitRepositoryCache.getRepository(gitDir);
+		try {
+			assertNotSame(first, second);
+		} finally {
+			second.close();
+		}
+	}
+
+	@Test
+	public void testMissingRepository() throws Exception {
+		File missing = new File(workTree, "missing");
+		int size = GitRepositoryCache.size();
+		Repository first = GitRepositoryCache.getRepository(missing);
+		Repository second = GitRepositoryCache.getRepository(missing);
+		try {
+			assertNotSame(first, second);
+			assertEquals(size, GitRepositoryCache.size());
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.orion.internal.server.servlets.ChangeEvent;
+import org.eclipse.orion.internal.server.servlets.IFileStoreModificationListener.ChangeType;
+import org.eclipse.orion.server.git.GitStatusCache;
+import org.eclipse.orion.server.git.GitStatusCache.Snapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GitStatusCache} used by the status handler.
+ */
+public class GitStatusCacheTest {
+
+	private File workTree;
+
+	private Git git;
+
+	private Repository db;
+
+	@Before
+	public void createRepository() throws Exception {
+		workTree = File.createTempFile("statuscache", "");
+		workTree.delete();
+		git = Git.init().setDirectory(workTree).call();
+		db = git.getRepository();
+		write("folder/tracked.txt", "tracked");
+		git.add().addFilepattern(".").call();
+		git.commit().setMessage("initial").call();
+		makeOld(workTree);
+		db.getIndexFile().setLastModified(System.currentTimeMillis() - 10000);
+	}
+
+	@After
+	public void deleteRepository() throws IOException {
+		db.close();
+		FileUtils.delete(workTree, FileUtils.RECURSIVE | FileUtils.RETRY);
+	}
+
+	private File write(String path, String contents) throws Exception {
+		File file = new File(workTree, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), contents.getBytes("UTF-8"));
+		return file;
+	}
+
+	/**
+	 * The status of a file is not reused when the file has just been written, as it could change again unnoticed.
+	 */
+	private static void makeOld(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				if (!child.getName().equals(".git")) {
+					makeOld(child);
+				}
+			}
+		}
+		file.setLastModified(System.currentTimeMillis() - 10000);
+	}
+
+	private static ChangeEvent createEvent(File file) {
+		return new ChangeEvent(file, ChangeType.WRITE, EFS.getLocalFileSystem().fromLocalFile(file));
+	}
+
+	@Test
+	public void testCachedStatus() throws Exception {
+		GitStatusCache cache = new GitStatusCache(true);
+		Snapshot first = cache.getStatus(db);
+		assertTrue(first.getModified().isEmpty());
+		assertSame(first, cache.getStatus(db));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testChangedPaths() throws Exception {
+		GitStatusCache cache = new GitStatusCache(true);
+		cache.getStatus(db);
+
+		cache.changed(createEvent(write("folder/tracked.txt", "changed")));
+		cache.changed(createEvent(write("untracked.txt", "untracked")));
+		Snapshot status = cache.getStatus(db);
+		assertEquals(1, cache.getUpdateCount());
+		assertEquals(1, status.getModified().size());
+		assertTrue(status.getModified().contains("folder/tracked.txt"));
+		assertEquals(1, status.getUntracked().size());
+		assertTrue(status.getUntracked().contains("untracked.txt"));
+
+		// the status of the changed paths is computed again, the other ones are kept
+		cache.changed(createEvent(write("folder/tracked.txt", "tracked")));
+		status = cache.getStatus(db);
+		assertTrue(status.getModified().isEmpty());
+		assertTrue(status.getUntracked().contains("untracked.txt"));
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testChangedOutsideServer() throws Exception {
+		GitStatusCache cache = new GitStatusCache(true);
+		assertTrue(cache.getStatus(db).getModified().isEmpty());
+
+		// no modification event, the changed file is found in the working tree
+		write("folder/tracked.txt", "changed");
+		Snapshot status = cache.getStatus(db);
+		assertEquals(1, status.getModified().size());
+		assertTrue(status.getModified().contains("folder/tracked.txt"));
+		assertEquals(1, cache.getUpdateCount());
+
+		// the status of a file that has just been written is computed again, until the file is old enough
+		makeOld(workTree);
+		cache.getStatus(db);
+		assertEquals(2, cache.getUpdateCount());
+		assertTrue(cache.getStatus(db).getModified().contains("folder/tracked.txt"));
+		assertEquals(1, cache.getHitCount());
+
+		assertTrue(new File(workTree, "folder/tracked.txt").delete());
+		status = cache.getStatus(db);
+		assertTrue(status.getModified().isEmpty());
+		assertTrue(status.getMissing().contains("folder/tracked.txt"));
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testIndexChanged() throws Exception {
+		GitStatusCache cache = new GitStatusCache(true);
+		write("added.txt", "added");
+		assertTrue(cache.getStatus(db).getUntracked().contains("added.txt"));
+
+		git.add().addFilepattern("added.txt").call();
+		Snapshot status = cache.getStatus(db);
+		assertTrue(status.getAdded().contains("added.txt"));
+		assertTrue(status.getUntracked().isEmpty());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testDisabled() throws Exception {
+		GitStatusCache cache = new GitStatusCache(false);
+		cache.getStatus(db);
+		write("untracked.txt", "untracked");
+		assertTrue(cache.getStatus(db).getUntracked().contains("untracked.txt"));
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.servlets.workspace;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.orion.internal.server.servlets.workspace.authorization.AuthorizationService;
+import org.eclipse.orion.internal.server.servlets.workspace.authorization.UserRightsMatcher;
+import org.eclipse.orion.server.core.ProtocolConstants;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Tests for {@link UserRightsMatcher}.
+ */
+public class UserRightsMatcherTest {
+
+	private static final int ALL = AuthorizationService.POST | AuthorizationService.PUT | AuthorizationService.GET | AuthorizationService.DELETE;
+
+	private static JSONObject right(String uri, int method) throws JSONException {
+		JSONObject userRight = new JSONObject();
+		userRight.put(ProtocolConstants.KEY_USER_RIGHT_URI, uri);
+		userRight.put(ProtocolConstants.KEY_USER_RIGHT_METHOD, method);
+		return userRight;
+	}
+
+	@Test
+	public void testExactAndPrefixPatterns() throws JSONException {
+		JSONArray rights = new JSONArray();
+		rights.put(right("/workspace/anthony-OrionContent", ALL));
+		rights.put(right("/workspace/anthony-OrionContent/*", ALL));
+		rights.put(right("/file/anthony-OrionContent", ALL));
+		rights.put(right("/file/anthony-OrionContent/*", ALL));
+		UserRightsMatcher matcher = new UserRightsMatcher(rights);
+
+		assertTrue(matcher.matches("/workspace/anthony-OrionContent", AuthorizationService.GET));
+		assertTrue(matcher.matches("/file/anthony-OrionContent/project/file.txt", AuthorizationService.PUT));
+		assertFalse(matcher.matches("/file/anthony-OrionContentOther/project/file.txt", AuthorizationService.GET));
+		assertFalse(matcher.matches("/file/bob-OrionContent/project/file.txt", AuthorizationService.GET));
+		assertFalse(matcher.matches("/file", AuthorizationService.GET));
+	}
+
+	@Test
+	public void testMethodMask() throws JSONException {
+		JSONArray rights = new JSONArray();
+		rights.put(right("/file/anthony-OrionContent/*", AuthorizationService.GET));
+		UserRightsMatcher matcher = new UserRightsMatcher(rights);
+
+		assertTrue(matcher.matches("/file/anthony-OrionContent/project/", AuthorizationService.GET));
+		assertFalse(matcher.matches("/file/anthony-OrionContent/project/", AuthorizationService.PUT));
+		assertFalse(matcher.matches("/file/anthony-OrionContent/project/", AuthorizationService.DELETE));
+	}
+
+	@Test
+	public void testEmbeddedWildcards() throws JSONException {
+		JSONArray rights = new JSONArray();
+		rights.put(right("/users/*/profile", ALL));
+		rights.put(right("*.html", AuthorizationService.GET));
+		UserRightsMatcher matcher = new UserRightsMatcher(rights);
+
+		assertTrue(matcher.matches("/users/anthony/profile", AuthorizationService.PUT));
+		assertFalse(matcher.matches("/users/anthony/profile/other", AuthorizationService.PUT));
+		assertTrue(matcher.matches("/site/index.html", AuthorizationService.GET));
+		assertFalse(matcher.matches("/site/index.html", AuthorizationService.POST));
+	}
+
+	@Test
+	public void testRepeatedChecksUseSameDecision() throws JSONException {
+		JSONArray rights = new JSONArray();
+		rights.put(right("/users/*", ALL));
+		UserRightsMatcher matcher = new UserRightsMatcher(rights);
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(matcher.matches("/users/anthony", AuthorizationService.GET));
+			assertFalse(matcher.matches("/workspace/anthony", AuthorizationService.GET));
+		}
+	}
+}
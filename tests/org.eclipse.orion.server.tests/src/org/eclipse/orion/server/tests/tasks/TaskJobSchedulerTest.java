@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.orion.server.core.tasks.TaskJobScheduler;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TaskJobScheduler} that shares the running jobs between users.
+ */
+public class TaskJobSchedulerTest {
+
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * A job that runs until it is released.
+	 */
+	private static class BlockingJob extends Job {
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		BlockingJob(String name, int priority) {
+			super(name);
+			setPriority(priority);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return Status.OK_STATUS;
+		}
+
+		void release() {
+			release.countDown();
+		}
+
+		boolean isScheduled() {
+			return getState() != Job.NONE;
+		}
+	}
+
+	private final List<BlockingJob> jobs = new ArrayList<BlockingJob>();
+
+	@After
+	public void tearDown() throws InterruptedException {
+		for (BlockingJob job : jobs) {
+			job.release();
+		}
+		for (BlockingJob job : jobs) {
+			job.join();
+		}
+	}
+
+	private BlockingJob schedule(TaskJobScheduler scheduler, String name, String userId, int priority) {
+		BlockingJob job = new BlockingJob(name, priority);
+		jobs.add(job);
+		scheduler.schedule(job, userId);
+		return job;
+	}
+
+	/**
+	 * Releases a running job and waits until it has completed.
+	 */
+	private static void complete(BlockingJob job) throws InterruptedException {
+		job.release();
+		job.join();
+	}
+
+	/**
+	 * Waits until a job is scheduled with the job manager, the scheduler starts the next job after the job that
+	 * completed has notified its listeners.
+	 */
+	private static boolean awaitScheduled(BlockingJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!job.isScheduled()) {
+			if (System.currentTimeMillis() > deadline) {
+				return false;
+			}
+			Thread.sleep(10);
+		}
+		return true;
+	}
+
+	@Test
+	public void testKind() {
+		assertEquals(TaskJobScheduler.INTERACTIVE, TaskJobScheduler.getKind(new BlockingJob("short", Job.SHORT)));
+		assertEquals(TaskJobScheduler.INTERACTIVE, TaskJobScheduler.getKind(new BlockingJob("interactive", Job.INTERACTIVE)));
+		assertEquals(TaskJobScheduler.BULK, TaskJobScheduler.getKind(new BlockingJob("long", Job.LONG)));
+		assertEquals(TaskJobScheduler.BULK, TaskJobScheduler.getKind(new BlockingJob("build", Job.BUILD)));
+	}
+
+	@Test
+	public void testQueued() throws InterruptedException {
+		TaskJobScheduler scheduler = new TaskJobScheduler(1, 1, 1, 1);
+		BlockingJob first = schedule(scheduler, "first", "test", Job.SHORT);
+		BlockingJob second = schedule(scheduler, "second", "test", Job.SHORT);
+		assertTrue(first.isScheduled());
+		assertFalse(second.isScheduled());
+		assertEquals(1, scheduler.getRunningCount(TaskJobScheduler.INTERACTIVE));
+		assertEquals(1, scheduler.getQueueDepth(TaskJobScheduler.INTERACTIVE));
+
+		complete(first);
+		assertTrue(awaitScheduled(second));
+		assertEquals(0, scheduler.getQueueDepth(TaskJobScheduler.INTERACTIVE));
+	}
+
+	@Test
+	public void testBulkDoesNotDelayInteractive() {
+		TaskJobScheduler scheduler = new TaskJobScheduler(1, 1, 1, 1);
+		schedule(scheduler, "clone", "test", Job.LONG);
+		BlockingJob waiting = schedule(scheduler, "fetch", "test", Job.LONG);
+		BlockingJob status = schedule(scheduler, "status", "test", Job.SHORT);
+		assertFalse(waiting.isScheduled());
+		assertTrue(status.isScheduled());
+		assertEquals(1, scheduler.getRunningCount(TaskJobScheduler.BULK));
+		assertEquals(1, scheduler.getRunningCount(TaskJobScheduler.INTERACTIVE));
+	}
+
+	@Test
+	public void testRoundRobin() throws InterruptedException {
+		TaskJobScheduler scheduler = new TaskJobScheduler(1, 1, 1, 1);
+		BlockingJob a1 = schedule(scheduler, "a1", "alice", Job.LONG);
+		BlockingJob a2 = schedule(scheduler, "a2", "alice", Job.LONG);
+		BlockingJob a3 = schedule(scheduler, "a3", "alice", Job.LONG);
+		BlockingJob b1 = schedule(scheduler, "b1", "bob", Job.LONG);
+		assertTrue(a1.isScheduled());
+
+		// bob's job has waited for one job of alice only
+		complete(a1);
+		assertTrue(awaitScheduled(b1));
+		assertFalse(a2.isScheduled());
+
+		complete(b1);
+		assertTrue(awaitScheduled(a2));
+		assertFalse(a3.isScheduled());
+	}
+
+	@Test
+	public void testUserLimits() {
+		TaskJobScheduler scheduler = new TaskJobScheduler(32, 8, 4, 2);
+		for (int i = 0; i < 6; i++) {
+			schedule(scheduler, "interactive" + i, "test", Job.SHORT);
+			schedule(scheduler, "bulk" + i, "test", Job.LONG);
+		}
+		assertEquals(4, scheduler.getRunningCount(TaskJobScheduler.INTERACTIVE));
+		assertEquals(2, scheduler.getQueueDepth(TaskJobScheduler.INTERACTIVE));
+		assertEquals(2, scheduler.getRunningCount(TaskJobScheduler.BULK));
+		assertEquals(4, scheduler.getQueueDepth(TaskJobScheduler.BULK));
+
+		// the limits of one user do not delay the others
+		assertTrue(schedule(scheduler, "other", "other", Job.SHORT).isScheduled());
+		assertTrue(schedule(scheduler, "other bulk", "other", Job.LONG).isScheduled());
+	}
+
+	@Test
+	public void testGlobalLimits() {
+		TaskJobScheduler scheduler = new TaskJobScheduler(32, 8, 4, 2);
+		for (int user = 0; user < 10; user++) {
+			for (int i = 0; i < 4; i++) {
+				schedule(scheduler, "interactive" + i, "user" + user, Job.SHORT);
+			}
+			for (int i = 0; i < 2; i++) {
+				schedule(scheduler, "bulk" + i, "user" + user, Job.LONG);
+			}
+		}
+		assertEquals(32, scheduler.getRunningCount(TaskJobScheduler.INTERACTIVE));
+		assertEquals(8, scheduler.getQueueDepth(TaskJobScheduler.INTERACTIVE));
+		assertEquals(8, scheduler.getRunningCount(TaskJobScheduler.BULK));
+		assertEquals(12, scheduler.getQueueDepth(TaskJobScheduler.BULK));
+	}
+
+	@Test
+	public void testCancelQueued() throws InterruptedException {
+		TaskJobScheduler scheduler = new TaskJobScheduler(1, 1, 1, 1);
+		BlockingJob running = schedule(scheduler, "running", "test", Job.SHORT);
+		BlockingJob canceled = schedule(scheduler, "canceled", "test", Job.SHORT);
+		BlockingJob next = schedule(scheduler, "next", "test", Job.SHORT);
+
+		assertTrue(scheduler.cancel(canceled));
+		assertEquals(1, scheduler.getQueueDepth(TaskJobScheduler.INTERACTIVE));
+		// a job that has been scheduled with the job manager is not canceled by the scheduler
+		assertFalse(scheduler.cancel(running));
+		assertFalse(scheduler.cancel(canceled));
+
+		complete(running);
+		assertTrue(awaitScheduled(next));
+		assertFalse(canceled.isScheduled());
+	}
+}
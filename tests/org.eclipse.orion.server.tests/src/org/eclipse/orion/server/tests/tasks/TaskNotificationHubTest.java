@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2016 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.orion.server.tests.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.orion.server.core.tasks.TaskNotificationHub;
+import org.eclipse.orion.server.core.tasks.TaskNotificationHub.Subscription;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TaskNotificationHub} that wakes up the requests waiting for a task.
+ */
+public class TaskNotificationHubTest {
+
+	private final TaskNotificationHub hub = TaskNotificationHub.getInstance();
+
+	@Test
+	public void testChangeBeforeAwait() throws Exception {
+		Subscription subscription = hub.subscribe("test", "task1", false);
+		try {
+			hub.taskChanged("test", "task1", false);
+			assertTrue(subscription.await(10000));
+			// the change has been consumed
+			assertFalse(subscription.await(10));
+		} finally {
+			subscription.close();
+		}
+	}
+
+	@Test
+	public void testWakeUp() throws Exception {
+		final Subscription subscription = hub.subscribe("test", "task2", true);
+		try {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						// notify now
+					}
+					hub.taskChanged("test", "task2", true);
+				}
+			};
+			thread.start();
+			long start = System.currentTimeMillis();
+			assertTrue(subscription.await(10000));
+			assertTrue(System.currentTimeMillis() - start < 10000);
+			thread.join();
+		} finally {
+			subscription.close();
+		}
+	}
+
+	@Test
+	public void testOtherTaskChanged() throws Exception {
+		Subscription subscription = hub.subscribe("test", "task3", true);
+		try {
+			hub.taskChanged("test", "task3", false);
+			hub.taskChanged("other", "task3", true);
+			assertFalse(subscription.await(10));
+		} finally {
+			subscription.close();
+		}
+	}
+
+	@Test
+	public void testClose() {
+		int count = hub.getSubscribedTaskCount();
+		Subscription first = hub.subscribe("test", "task4", true);
+		Subscription second = hub.subscribe("test", "task4", true);
+		assertEquals(count + 1, hub.getSubscribedTaskCount());
+		first.close();
+		assertEquals(count + 1, hub.getSubscribedTaskCount());
+		second.close();
+		assertEquals(count, hub.getSubscribedTaskCount());
+	}
+}
@@ -11,8 +11,11 @@
 package org.eclipse.orion.server.tests.tasks;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -38,9 +41,20 @@ import org.junit.Test;
 public class TaskStoreTest extends TestCase {
 	File tempDir;
 
+	private final List<TaskStore> stores = new ArrayList<TaskStore>();
+
+	/**
+	 * Creates a store that is closed when the test ends, so that it does not write to the directory of the next test.
+	 */
+	private TaskStore createStore() {
+		TaskStore store = new TaskStore(tempDir);
+		stores.add(store);
+		return store;
+	}
+
 	@Test
 	public void testRead() {
-		TaskStore store = new TaskStore(tempDir);
+		TaskStore store = createStore();
 		String task = store.readTask(new TaskDescription("Userdoesnotexist", "Doesnotexist", true));
 		assertNull(task);
 	}
@@ -48,7 +62,7 @@ public class TaskStoreTest extends TestCase {
 	@Test
 	public void testRoundTrip() throws CorruptedTaskException {
 		TaskInfo task = AllTaskTests.createTestTask("test");
-		TaskStore store = new TaskStore(tempDir);
+		TaskStore store = createStore();
 		store.writeTask(new TaskDescription(task.getUserId(), task.getId(), true), task.toJSON().toString());
 
 		TaskInfo task2 = TaskInfo.fromJSON(new TaskDescription(task.getUserId(), task.getId(), true), store.readTask(new TaskDescription(task.getUserId(), task.getId(), true)));
@@ -59,7 +73,7 @@ public class TaskStoreTest extends TestCase {
 	public void testDeleteTask() {
 		TaskInfo task = AllTaskTests.createTestTask("test");
 		task.done(Status.OK_STATUS);
-		TaskStore store = new TaskStore(tempDir);
+		TaskStore store = createStore();
 		store.writeTask(new TaskDescription(task.getUserId(), task.getId(), true), task.toJSON().toString());
 		assertNotNull(store.readTask(new TaskDescription(task.getUserId(), task.getId(), true)));
 		assertTrue(store.removeTask(new TaskDescription(task.getUserId(), task.getId(), true)));
@@ -72,7 +86,7 @@ public class TaskStoreTest extends TestCase {
 		task1.done(Status.OK_STATUS);
 		TaskInfo task2 = new TaskInfo("test", "taskid2", true);
 		task2.done(Status.OK_STATUS);
-		TaskStore store = new TaskStore(tempDir);
+		TaskStore store = createStore();
 		store.writeTask(new TaskDescription("test", task1.getId(), true), task1.toJSON().toString());
 		assertEquals(1, store.readAllTasks("test"));
 		store.writeTask(new TaskDescription("test", task2.getId(), true), task2.toJSON().toString());
@@ -81,6 +95,54 @@ public class TaskStoreTest extends TestCase {
 		assertEquals(1, store.readAllTasks("test"));
 	}
 
+	@Test
+	public void testKeptTasksSurviveRestart() {
+		TaskInfo kept = new TaskInfo("test", "kept", true);
+		kept.done(Status.OK_STATUS);
+		TaskInfo removed = new TaskInfo("test", "removed", true);
+		removed.done(Status.OK_STATUS);
+		TaskInfo temp = new TaskInfo("test", "temp", false);
+		TaskStore store = createStore();
+		store.writeTask(new TaskDescription("test", kept.getId(), true), kept.toJSON().toString());
+		store.writeTask(new TaskDescription("test", removed.getId(), true), removed.toJSON().toString());
+		store.writeTask(new TaskDescription("test", temp.getId(), false), temp.toJSON().toString());
+		assertTrue(store.removeTask(new TaskDescription("test", removed.getId(), true)));
+		store.flush();
+
+		TaskStore restarted = createStore();
+		assertEquals(kept.toJSON().toString(), restarted.readTask(new TaskDescription("test", kept.getId(), true)));
+		assertNull(restarted.readTask(new TaskDescription("test", removed.getId(), true)));
+		assertNull(restarted.readTask(new TaskDescription("test", temp.getId(), false)));
+		assertEquals(1, restarted.readAllTasks("test").size());
+	}
+
+	@Test
+	public void testIncompleteJournalLine() throws IOException {
+		TaskInfo first = new TaskInfo("test", "first", true);
+		first.done(Status.OK_STATUS);
+		TaskInfo second = new TaskInfo("test", "second", true);
+		second.done(Status.OK_STATUS);
+		TaskStore store = createStore();
+		store.writeTask(new TaskDescription("test", first.getId(), true), first.toJSON().toString());
+		store.flush();
+		// a line that was not completely written when the server stopped
+		FileOutputStream stream = new FileOutputStream(new File(tempDir, "tasks.journal"), true);
+		try {
+			stream.write("{\"User\":\"test\",\"Id\":\"lost".getBytes("UTF-8"));
+		} finally {
+			stream.close();
+		}
+
+		store = createStore();
+		store.writeTask(new TaskDescription("test", second.getId(), true), second.toJSON().toString());
+		store.flush();
+
+		TaskStore restarted = createStore();
+		assertEquals(first.toJSON().toString(), restarted.readTask(new TaskDescription("test", first.getId(), true)));
+		assertEquals(second.toJSON().toString(), restarted.readTask(new TaskDescription("test", second.getId(), true)));
+		assertEquals(2, restarted.readAllTasks("test").size());
+	}
+
 	@Before
 	public void setUp() throws IOException {
 		tempDir = new File(new File(System.getProperty("java.io.tmpdir")), "eclipse.TaskStoreTest");
@@ -90,6 +152,10 @@ public class TaskStoreTest extends TestCase {
 
 	@After
 	public void tearDown() {
+		for (TaskStore store : stores) {
+			store.close();
+		}
+		stores.clear();
 		File[] children = tempDir.listFiles();
 		if (children != null) {
 			for (File child : children) {
@@ -127,7 +193,7 @@ public class TaskStoreTest extends TestCase {
 
 	@Test
 	public void testUniqueTaskInfo() throws InterruptedException { //see Bug 370729
-		final ITaskService taskService = new TaskService(new Path(tempDir.getAbsolutePath()));
+		final TaskService taskService = new TaskService(new Path(tempDir.getAbsolutePath()));
 		int numberOfChecks = 100;
 		Job[] jobs = new Job[numberOfChecks];
 		final TaskInfo[] taskInfos = new TaskInfo[numberOfChecks];
@@ -140,6 +206,7 @@ public class TaskStoreTest extends TestCase {
 		for (int i = 0; i < numberOfChecks; i++) {
 			jobs[i].join(); //wait for all jobs to finish
 		}
+		taskService.shutdown();
 		Set<String> values = new HashSet<String>();
 		for (int i = 0; i < numberOfChecks; i++) { //check if task ids are unique 
 			String taskInfoId = taskInfos[i].getId();